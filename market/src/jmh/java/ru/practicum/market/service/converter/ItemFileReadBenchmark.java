@@ -0,0 +1,118 @@
+package ru.practicum.market.service.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скорость разбора файла с товарами в строках в секунду для каждого формата импорта.
+ * Запись в БД не входит в замер: сравнивается только чтение файла.
+ * Запуск: {@code ./gradlew :market:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ItemFileReadBenchmark.ROWS)
+public class ItemFileReadBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private final ExcelConverter excelConverter = new ExcelConverter();
+    private final TextItemConverter textItemConverter = new TextItemConverter(new ObjectMapper());
+
+    private Path xlsx;
+    private Path csv;
+    private Path ndjson;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        xlsx = Files.createTempFile("items-bench-", ".xlsx");
+        try (var workbook = new SXSSFWorkbook(1000); OutputStream out = Files.newOutputStream(xlsx)) {
+            var sheet = workbook.createSheet("Items");
+            var header = sheet.createRow(0);
+            header.createCell(0).setCellValue("SKU");
+            header.createCell(1).setCellValue("Title");
+            header.createCell(2).setCellValue("Description");
+            header.createCell(3).setCellValue("Price");
+            for (int i = 1; i <= ROWS; i++) {
+                var row = sheet.createRow(i);
+                row.createCell(0).setCellValue(sku(i));
+                row.createCell(1).setCellValue(title(i));
+                row.createCell(2).setCellValue(description(i));
+                row.createCell(3).setCellValue(price(i));
+            }
+            workbook.write(out);
+            workbook.dispose();
+        }
+
+        csv = Files.createTempFile("items-bench-", ".csv");
+        try (Writer out = Files.newBufferedWriter(csv)) {
+            out.write("SKU,Title,Description,Price\n");
+            for (int i = 1; i <= ROWS; i++) {
+                out.write("%s,%s,\"%s\",%d\n".formatted(sku(i), title(i), description(i), price(i)));
+            }
+        }
+
+        ndjson = Files.createTempFile("items-bench-", ".ndjson");
+        try (Writer out = Files.newBufferedWriter(ndjson)) {
+            for (int i = 1; i <= ROWS; i++) {
+                out.write("{\"sku\":\"%s\",\"title\":\"%s\",\"description\":\"%s\",\"price\":%d}\n"
+                        .formatted(sku(i), title(i), description(i), price(i)));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(xlsx);
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(ndjson);
+    }
+
+    @Benchmark
+    public long xlsx() {
+        return excelConverter.readItems(xlsx).count().block();
+    }
+
+    @Benchmark
+    public long csv() {
+        return textItemConverter.readItems(csv, ItemFileFormat.CSV).count().block();
+    }
+
+    @Benchmark
+    public long ndjson() {
+        return textItemConverter.readItems(ndjson, ItemFileFormat.NDJSON).count().block();
+    }
+
+    private static String sku(int i) {
+        return "SKU-%06d".formatted(i);
+    }
+
+    private static String title(int i) {
+        return "Товар " + i;
+    }
+
+    private static String description(int i) {
+        return "Описание товара %d, размер %d".formatted(i, i % 50);
+    }
+
+    private static long price(int i) {
+        return 100 + i % 10_000;
+    }
+}
@@ -0,0 +1,150 @@
+package ru.practicum.market.web.mapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import ru.practicum.market.domain.model.CartItem;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.service.cache.dto.ItemCacheDto;
+import ru.practicum.market.util.LongIntMap;
+import ru.practicum.market.web.dto.CartResponseDto;
+import ru.practicum.market.web.dto.ItemResponseDto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Маппинг корзины, страницы каталога и позиций заказа на картах без упаковки против прежних
+ * {@code Map<Long, ...>} и {@code Collectors.toMap}. Методы {@code *Boxed} воспроизводят прежнюю реализацию.
+ * Id товаров больше 127, как в рабочей БД, чтобы {@code Long.valueOf} не брал значения из кэша.
+ * Выделение памяти на операцию — столбец {@code gc.alloc.rate.norm} профайлера {@code gc}.
+ * Запуск: {@code ./gradlew :market:jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MapperIndexBenchmark {
+
+    private static final long FIRST_ID = 10_000;
+    private static final int ROW_SIZE = 3;
+
+    @Param({"20", "100", "1000"})
+    private int lines;
+
+    private List<CartItem> cartItems;
+    private List<ItemCacheDto> cacheItems;
+    private List<Item> items;
+    private Map<Long, Integer> cachedQuantities;
+    private Map<Long, Integer> cachedStock;
+
+    @Setup(Level.Trial)
+    public void createLines() {
+        cartItems = new ArrayList<>(lines);
+        cacheItems = new ArrayList<>(lines);
+        items = new ArrayList<>(lines);
+        cachedQuantities = new HashMap<>();
+        cachedStock = new HashMap<>();
+        for (int i = 0; i < lines; i++) {
+            long id = FIRST_ID + i * 7L;
+            var item = new Item();
+            item.setId(id);
+            item.setTitle("Товар " + id);
+            item.setImgPath("img-" + id);
+            item.setPrice(100 + i % 1000);
+            items.add(item);
+            cacheItems.add(ItemMapper.toItemCacheDto(item));
+            cartItems.add(new CartItem(id, 1 + i % 5, 0L, 1L));
+            if (i % 2 == 0) {
+                cachedQuantities.put(id, 1 + i % 5);
+            }
+            if (i % 3 != 0) {
+                cachedStock.put(id, i % 40);
+            }
+        }
+        // Товары из кэша приходят не в порядке позиций корзины.
+        Collections.reverse(cacheItems);
+    }
+
+    @Benchmark
+    public CartResponseDto cart() {
+        return ItemMapper.toCart(cartItems, cacheItems, BigDecimal.ZERO);
+    }
+
+    @Benchmark
+    public CartResponseDto cartBoxed() {
+        var quantityByItemId = cartItems.stream()
+                .collect(Collectors.toMap(CartItem::getItemId, CartItem::getQuantity));
+        var itemById = cacheItems.stream()
+                .collect(Collectors.toMap(ItemCacheDto::id, item -> item));
+        var itemsResponseDto = quantityByItemId.entrySet().stream()
+                .map(iq -> ItemMapper.toItemResponseDto(itemById.get(iq.getKey()), iq.getValue()))
+                .toList();
+        var totalSum = quantityByItemId.entrySet().stream()
+                .map(ic -> itemById.get(ic.getKey()).price() * ic.getValue())
+                .reduce(0L, Long::sum);
+        var isActive = BigDecimal.ZERO.compareTo(BigDecimal.valueOf(totalSum)) >= 0;
+        return new CartResponseDto(itemsResponseDto, totalSum, isActive);
+    }
+
+    @Benchmark
+    public List<List<ItemResponseDto>> itemRows() {
+        return ItemMapper.toItemRows(cacheItems, pageValues(cachedQuantities), pageValues(cachedStock), ROW_SIZE);
+    }
+
+    @Benchmark
+    public List<List<ItemResponseDto>> itemRowsBoxed() {
+        var itemDtos = cacheItems.stream()
+                .map(item -> ItemMapper.toItemResponseDto(item, cachedQuantities.getOrDefault(item.id(), 0),
+                        cachedStock.get(item.id())))
+                .toList();
+        List<List<ItemResponseDto>> itemRows = new ArrayList<>();
+        for (int i = 0; i < itemDtos.size(); i += ROW_SIZE) {
+            itemRows.add(itemDtos.subList(i, Math.min(i + ROW_SIZE, itemDtos.size())));
+        }
+        return itemRows;
+    }
+
+    @Benchmark
+    public List<OrderItem> orderItems() {
+        return OrderMapper.toOrderItems(cartItems, items, 1L);
+    }
+
+    @Benchmark
+    public List<OrderItem> orderItemsBoxed() {
+        var itemsById = items.stream().collect(Collectors.toMap(Item::getId, item -> item));
+        return cartItems.stream()
+                .map(ci -> {
+                    var item = itemsById.get(ci.getItemId());
+                    return new OrderItem(1L, ci.getItemId(), ci.getQuantity(), item.getPrice(), item.getTitle(),
+                            item.getImgPath());
+                })
+                .toList();
+    }
+
+    /**
+     * Повторяет перенос значений страницы из кэша, который сервис каталога делает перед маппингом.
+     */
+    private LongIntMap pageValues(Map<Long, Integer> values) {
+        var result = new LongIntMap(cacheItems.size());
+        for (var item : cacheItems) {
+            var value = values.get(item.id());
+            if (value != null) {
+                result.put(item.id(), value);
+            }
+        }
+        return result;
+    }
+}
@@ -1,30 +1,50 @@
 package ru.practicum.market.config;
 
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.cache.RedisCacheManagerBuilderCustomizer;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.cache.interceptor.LoggingCacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import ru.practicum.market.service.cache.dto.CartCacheDto;
+import ru.practicum.market.service.cache.dto.CartQuantitiesCacheDto;
 import ru.practicum.market.service.cache.dto.ItemCacheDto;
 import ru.practicum.market.service.cache.dto.ItemsPageCacheDto;
+import ru.practicum.market.service.cache.dto.OrderCacheDto;
+import ru.practicum.market.service.cache.dto.PriceHistogramCacheDto;
+import ru.practicum.market.service.cache.dto.StockCacheDto;
 
 import java.time.Duration;
 import java.util.Map;
 
 @Configuration
-public class CacheConfig {
+public class CacheConfig implements CachingConfigurer {
+
+    /**
+     * Ошибки Redis при чтении и записи кэша только логируются: запрос выполняется без кэша.
+     * Redis не вытесняет ключи, поэтому при нехватке памяти запись в кэш отклоняется, а не роняет запрос.
+     */
+    @Override
+    public CacheErrorHandler errorHandler() {
+        return new LoggingCacheErrorHandler(LogFactory.getLog(CacheConfig.class), false);
+    }
 
     /**
      * Настраивает Redis CacheManager:
-     * - общий TTL для кэшей,
+     * - общий TTL для кэшей (кроме кэшей остатков, количеств в корзине и заказов, у которых TTL свой),
      * - типизированную JSON-сериализацию значений по каждому cache name.
      */
     @Bean
     public RedisCacheManagerBuilderCustomizer redisCacheManagerBuilderCustomizer(
-            @Value("${spring.cache.redis.time-to-live}") Duration ttl) {
+            @Value("${spring.cache.redis.time-to-live}") Duration ttl,
+            @Value("${items.stock.cache-ttl}") Duration stockTtl,
+            @Value("${cart.quantities-cache-ttl}") Duration cartQuantitiesTtl,
+            @Value("${orders.cache-ttl}") Duration orderTtl) {
 
         // Кэш карточки товара.
         var itemCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
@@ -44,6 +64,15 @@ public class CacheConfig {
                         )
                 );
 
+        // Кэш гистограммы цен каталога.
+        var priceHistogramCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(ttl)
+                .serializeValuesWith(
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                new Jackson2JsonRedisSerializer<>(PriceHistogramCacheDto.class)
+                        )
+                );
+
         // Кэш содержимого корзины пользователя.
         var cartCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(ttl)
@@ -53,11 +82,42 @@ public class CacheConfig {
                         )
                 );
 
+        // Кэш количеств товаров в корзине: обновляется при каждом изменении корзины, поэтому TTL длинный и свой.
+        var cartQuantitiesCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(cartQuantitiesTtl)
+                .serializeValuesWith(
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                new Jackson2JsonRedisSerializer<>(CartQuantitiesCacheDto.class)
+                        )
+                );
+
+        // Кэш остатков на складе: остатки меняются с каждым заказом, поэтому TTL короткий и свой.
+        var stockCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(stockTtl)
+                .serializeValuesWith(
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                new Jackson2JsonRedisSerializer<>(StockCacheDto.class)
+                        )
+                );
+
+        // Кэш заказов: заказ неизменяем, поэтому TTL длинный, но ограниченный — Redis ничего не вытесняет сам.
+        var orderCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(orderTtl)
+                .serializeValuesWith(
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                new Jackson2JsonRedisSerializer<>(OrderCacheDto.class)
+                        )
+                );
+
         return builder -> builder.withInitialCacheConfigurations(
                 Map.of(
                         "item", itemCacheConfiguration,
                         "items-page", itemsPageCacheConfiguration,
-                        "cart", cartCacheConfiguration)
+                        "price-histogram", priceHistogramCacheConfiguration,
+                        "cart", cartCacheConfiguration,
+                        "cart-quantities", cartQuantitiesCacheConfiguration,
+                        "stock", stockCacheConfiguration,
+                        "order", orderCacheConfiguration)
         );
     }
 }
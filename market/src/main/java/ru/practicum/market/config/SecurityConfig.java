@@ -13,7 +13,6 @@ import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.SecurityWebFilterChain;
-import org.springframework.security.web.server.authentication.RedirectServerAuthenticationSuccessHandler;
 import org.springframework.security.web.server.authentication.logout.DelegatingServerLogoutHandler;
 import org.springframework.security.web.server.authentication.logout.RedirectServerLogoutSuccessHandler;
 import org.springframework.security.web.server.authentication.logout.SecurityContextServerLogoutHandler;
@@ -22,6 +21,7 @@ import org.springframework.security.web.server.authentication.logout.WebSessionS
 import org.springframework.security.web.server.csrf.ServerCsrfTokenRequestAttributeHandler;
 import org.springframework.security.web.server.csrf.WebSessionServerCsrfTokenRepository;
 import reactor.core.publisher.Mono;
+import ru.practicum.market.service.security.GuestCartLoginSuccessHandler;
 
 import java.net.URI;
 import java.time.Duration;
@@ -47,7 +47,8 @@ public class SecurityConfig {
                                                             WebSessionServerCsrfTokenRepository csrfTokenRepository,
                                                             ServerCsrfTokenRequestAttributeHandler csrfTokenRequestHandler,
                                                             RedirectServerLogoutSuccessHandler redirectServerLogoutSuccessHandler,
-                                                            ServerLogoutHandler logoutHandler) {
+                                                            ServerLogoutHandler logoutHandler,
+                                                            GuestCartLoginSuccessHandler guestCartLoginSuccessHandler) {
         http
                 .csrf(csrf -> csrf
                         // Храним CSRF-токен в WebSession.
@@ -59,20 +60,20 @@ public class SecurityConfig {
                         // Публичные страницы и статика.
                         .pathMatchers("/", "/login", "/register", "/registerform",
                                 "/access-denied", "/items/**", "/images/**").permitAll()
+                        // Корзина анонимного пользователя хранится в cookie.
+                        .pathMatchers("/cart/items").permitAll()
                         // Пользовательские операции корзины/заказов.
-                        .pathMatchers("/cart/**", "/orders/**", "/buy/**").hasAnyRole("USER", "ADMIN")
+                        .pathMatchers("/cart/**", "/orders/**", "/buy/**", "/flash-sales/**").hasAnyRole("USER", "ADMIN")
                         // Админские маршруты.
-                        .pathMatchers("/admin/**").hasRole("ADMIN")
+                        .pathMatchers("/admin/**", "/actuator/**").hasRole("ADMIN")
                         // Любой неописанный маршрут требует аутентификацию.
                         .anyExchange().authenticated()
                 )
                 .formLogin(form -> form
                         // Кастомная страница логина (в WebFlux не генерируется HTML-форма автоматически).
                         .loginPage("/login")
-                        .authenticationSuccessHandler(
-                                // После успешного входа возвращаем пользователя на домашнюю страницу.
-                                new RedirectServerAuthenticationSuccessHandler("/")
-                        )
+                        // После успешного входа переносим корзину из cookie и возвращаем пользователя на главную.
+                        .authenticationSuccessHandler(guestCartLoginSuccessHandler)
                 )
                 .logout(logout -> logout
                         // Единая точка выхода из приложения.
@@ -2,9 +2,13 @@ package ru.practicum.market.config;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.web.reactive.config.ResourceHandlerRegistry;
 import org.springframework.web.reactive.config.WebFluxConfigurer;
 
+import java.time.Duration;
+
 @Configuration
 public class WebConfig implements WebFluxConfigurer {
 
@@ -20,14 +24,36 @@ public class WebConfig implements WebFluxConfigurer {
     @Value("${image.resource-handler-pattern}")
     private String imageResourceHandlerPattern;
 
+    /**
+     * Срок кэширования изображений в браузере и прокси.
+     */
+    @Value("${image.cache-max-age}")
+    private Duration imageCacheMaxAge;
+
     /**
      * Регистрирует обработчик статических изображений, загруженных администратором.
+     * Имя файла изображения — хэш содержимого (у копий — с суффиксом), содержимое по URI не меняется:
+     * ответ кэшируется как immutable, а ETag берется из имени файла без чтения содержимого.
      */
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Маппинг URL -> локальная файловая директория.
         registry.addResourceHandler(imageResourceHandlerPattern)
-                .addResourceLocations("file:" + imagePath + "/");
+                .addResourceLocations("file:" + imagePath + "/")
+                .setCacheControl(CacheControl.maxAge(imageCacheMaxAge).cachePublic().immutable())
+                .setEtagGenerator(WebConfig::imageEtag);
+    }
+
+    /**
+     * ETag изображения: имя файла без расширения.
+     */
+    private static String imageEtag(Resource resource) {
+        var fileName = resource.getFilename();
+        if (fileName == null) {
+            return null;
+        }
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex > 0 ? fileName.substring(0, dotIndex) : fileName;
     }
 
 }
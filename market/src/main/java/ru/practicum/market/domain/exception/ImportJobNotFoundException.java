@@ -0,0 +1,16 @@
+package ru.practicum.market.domain.exception;
+
+/**
+ * Ошибка отсутствия фонового импорта.
+ */
+public class ImportJobNotFoundException extends NotFoundExceptionAbstract {
+
+    /**
+     * Создаёт исключение отсутствия импорта.
+     *
+     * @param jobId идентификатор импорта
+     */
+    public ImportJobNotFoundException(String jobId) {
+        super(null, "Import job with id = %s not found.".formatted(jobId));
+    }
+}
@@ -7,9 +7,12 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.experimental.FieldDefaults;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
+import java.util.List;
+
 /**
  * Модель товара каталога.
  */
@@ -29,4 +32,41 @@ public class Item extends BaseEntity {
     String imgPath;
 
     long price;
+
+    /**
+     * Внешний артикул товара; по нему повторный импорт обновляет товар вместо создания дубликата.
+     */
+    String sku;
+
+    /**
+     * Хэш импортируемых полей (название, описание, цена) на момент последнего импорта.
+     */
+    @Column("content_hash")
+    Long contentHash;
+
+    /**
+     * Уменьшенная копия изображения для плитки каталога и корзины; {@code null}, пока копия не построена.
+     */
+    @Column("img_thumbnail_path")
+    String imgThumbnailPath;
+
+    /**
+     * Копия изображения среднего размера для страницы товара; {@code null}, пока копия не построена.
+     */
+    @Column("img_card_path")
+    String imgCardPath;
+
+    /**
+     * Теги товара из таблицы {@code item_tags}. Заполняется только при импорте и выгрузке;
+     * {@code null} при импорте означает, что теги товара не меняются.
+     */
+    @Transient
+    List<String> tags;
+
+    /**
+     * Остаток товара на складе из файла импорта; {@code null} означает, что остаток при импорте не меняется.
+     * Хранится в полосах {@code item_stock_stripes}, в хэш импортируемых полей не входит.
+     */
+    @Transient
+    Integer stock;
 }
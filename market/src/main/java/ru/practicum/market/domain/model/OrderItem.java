@@ -12,6 +12,7 @@ import org.springframework.data.relational.core.mapping.Table;
 
 /**
  * Модель позиции заказа.
+ * Хранит снимок цены, названия и изображения товара, поэтому заказ читается без обращения к {@code items}.
  */
 @Table(name = "order_items")
 @Getter
@@ -32,4 +33,15 @@ public class OrderItem extends BaseEntity {
 
     @Column("price_at_order")
     long priceAtOrder;
+
+    /**
+     * Название товара на момент оформления заказа.
+     */
+    String title;
+
+    /**
+     * URI/путь изображения товара на момент оформления заказа.
+     */
+    @Column("img_path")
+    String imgPath;
 }
@@ -1,11 +1,14 @@
 package ru.practicum.market.repository;
 
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.model.CartItem;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
@@ -39,4 +42,64 @@ public interface CartItemRepository extends ReactiveCrudRepository<CartItem, Lon
      * Возвращает позиции корзины пользователя для заданного списка товаров.
      */
     Flux<CartItem> findByUserIdAndItemIdIn(long userId, List<Long> itemIds);
+
+    /**
+     * Удаляет до {@code limit} корзин, ни одна позиция которых не менялась с {@code cutoff}.
+     * Корзина удаляется целиком одним оператором. Возвращает пользователя каждой удаленной позиции.
+     * Срок позиции проверяется и в самом {@code DELETE}: строку, измененную после снимка {@code stale},
+     * Postgres перепроверяет по условию {@code WHERE} и не удаляет.
+     */
+    @Query("""
+            WITH stale AS (
+                SELECT DISTINCT c.user_id
+                FROM cart_items AS c
+                WHERE c.updated_at < :cutoff
+                  AND NOT EXISTS (SELECT 1 FROM cart_items AS f WHERE f.user_id = c.user_id AND f.updated_at >= :cutoff)
+                LIMIT :limit
+            )
+            DELETE FROM cart_items AS c
+            USING stale AS s
+            WHERE c.user_id = s.user_id
+              AND c.updated_at < :cutoff
+            RETURNING c.user_id
+            """)
+    Flux<Long> deleteAbandonedCarts(LocalDateTime cutoff, int limit);
+
+    /**
+     * Одним запросом добавляет в корзину пользователя позиции его заказа: количество уже лежащих в корзине
+     * товаров увеличивается. Заказ другого пользователя и удаленные из каталога товары пропускаются.
+     * Возвращает число добавленных или измененных позиций.
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO cart_items (user_id, item_id, quantity, version)
+            SELECT o.user_id, oi.item_id, sum(oi.quantity), 0
+            FROM orders AS o
+                     JOIN order_items AS oi ON oi.order_id = o.id
+                     JOIN items AS i ON i.id = oi.item_id
+            WHERE o.id = :orderId AND o.user_id = :userId
+            GROUP BY o.user_id, oi.item_id
+            ON CONFLICT (user_id, item_id) DO UPDATE
+                SET quantity = cart_items.quantity + EXCLUDED.quantity,
+                    version  = coalesce(cart_items.version, 0) + 1
+            """)
+    Mono<Integer> copyFromOrder(long userId, long orderId);
+
+    /**
+     * Одним запросом добавляет в корзину пользователя товары {@code itemIds[i]} в количестве {@code quantities[i]}:
+     * количество уже лежащих в корзине товаров увеличивается, удаленные из каталога товары пропускаются.
+     * Возвращает число добавленных или измененных позиций.
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO cart_items (user_id, item_id, quantity, version)
+            SELECT :userId, g.item_id, g.quantity, 0
+            FROM unnest(:itemIds, :quantities) AS g(item_id, quantity)
+                     JOIN items AS i ON i.id = g.item_id
+            ORDER BY g.item_id
+            ON CONFLICT (user_id, item_id) DO UPDATE
+                SET quantity = cart_items.quantity + EXCLUDED.quantity,
+                    version  = coalesce(cart_items.version, 0) + 1
+            """)
+    Mono<Integer> mergeQuantities(long userId, Long[] itemIds, Integer[] quantities);
 }
@@ -1,11 +1,19 @@
 package ru.practicum.market.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.repository.projection.ItemContentHashRow;
+import ru.practicum.market.repository.projection.ItemPriceRow;
+import ru.practicum.market.repository.projection.ItemSkuRow;
+import ru.practicum.market.repository.projection.ItemStockRow;
+import ru.practicum.market.repository.projection.ItemTagRow;
+import ru.practicum.market.repository.projection.PriceBucketRow;
 
 import java.util.Collection;
 
@@ -13,7 +21,7 @@ import java.util.Collection;
  * Реактивный репозиторий товаров.
  */
 @Repository
-public interface ItemRepository extends ReactiveCrudRepository<Item, Long> {
+public interface ItemRepository extends ReactiveCrudRepository<Item, Long>, ItemUpsertRepository, ItemSearchRepository {
 
     /**
      * Ищет товары по подстроке в названии или описании с пагинацией.
@@ -38,4 +46,315 @@ public interface ItemRepository extends ReactiveCrudRepository<Item, Long> {
      * Возвращает товары по набору идентификаторов.
      */
     Flux<Item> findByIdIn(Collection<Long> ids);
+
+    /**
+     * Возвращает товары по набору артикулов.
+     */
+    Flux<Item> findBySkuIn(Collection<String> skus);
+
+    /**
+     * Возвращает следующую страницу товаров по возрастанию id после {@code afterId} (keyset-пагинация).
+     */
+    @Query("SELECT * FROM items WHERE id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Item> findPageAfter(long afterId, int limit);
+
+    /**
+     * Возвращает следующую страницу товаров после {@code afterId}, у которых название или артикул
+     * подходят под LIKE-шаблон {@code pattern} без учета регистра.
+     */
+    @Query("""
+            SELECT * FROM items
+            WHERE id > :afterId AND (title ILIKE :pattern OR sku ILIKE :pattern)
+            ORDER BY id
+            LIMIT :limit
+            """)
+    Flux<Item> findPageAfterBySearch(long afterId, String pattern, int limit);
+
+    /**
+     * Сохраняет пути уменьшенных копий изображения, если у товара все еще то же исходное изображение.
+     *
+     * @return количество обновленных строк: 0, если товар удален или изображение уже заменено
+     */
+    @Modifying
+    @Query("""
+            UPDATE items SET img_thumbnail_path = :thumbnailPath, img_card_path = :cardPath
+            WHERE id = :id AND img_path = :imgPath
+            """)
+    Mono<Integer> updateImageVariants(long id, String imgPath, String thumbnailPath, String cardPath);
+
+    /**
+     * Одним запросом заменяет изображения товаров: {@code imgPaths[i]} становится изображением товара {@code ids[i]},
+     * пути старых копий сбрасываются.
+     *
+     * @return количество обновленных товаров
+     */
+    @Modifying
+    @Query("""
+            UPDATE items AS i
+            SET img_path = u.img_path, img_thumbnail_path = NULL, img_card_path = NULL
+            FROM unnest(:ids, :imgPaths) AS u(id, img_path)
+            WHERE i.id = u.id
+            """)
+    Mono<Integer> updateImagePaths(Long[] ids, String[] imgPaths);
+
+    /**
+     * Возвращает хэши импортируемых полей товаров с указанными артикулами.
+     */
+    @Query("SELECT sku, content_hash FROM items WHERE sku IN (:skus)")
+    Flux<ItemContentHashRow> findContentHashesBySkuIn(Collection<String> skus);
+
+    /**
+     * Возвращает идентификаторы товаров с указанными артикулами.
+     */
+    @Query("SELECT id, sku FROM items WHERE sku IN (:skus)")
+    Flux<ItemSkuRow> findIdsBySkuIn(Collection<String> skus);
+
+    /**
+     * Возвращает гистограмму цен каталога по возрастанию цены.
+     * Счетчики корзин поддерживаются триггерами на {@code items} при каждой записи, чтение не обходит товары.
+     */
+    @Query("SELECT lower_bound, upper_bound, item_count FROM price_histogram_buckets ORDER BY lower_bound")
+    Flux<PriceBucketRow> findPriceHistogram();
+
+    /**
+     * Заменяет теги товаров одним запросом: товар {@code itemIds[i]} получает тег {@code tagNames[i]},
+     * остальные теги переданных товаров удаляются. Новые имена добавляются в справочник {@code tags}
+     * по алфавиту, чтобы параллельные пачки импорта брали блокировки в одном порядке.
+     *
+     * @return количество добавленных связей товар-тег
+     */
+    @Modifying
+    @Query("""
+            WITH input AS (
+                SELECT u.item_id, u.name FROM unnest(:itemIds, :tagNames) AS u(item_id, name)
+            ),
+            upserted AS (
+                INSERT INTO tags (name)
+                SELECT DISTINCT name FROM input ORDER BY name
+                ON CONFLICT (name) DO UPDATE SET name = EXCLUDED.name
+                RETURNING id, name
+            ),
+            wanted AS (
+                SELECT DISTINCT i.item_id, t.id AS tag_id FROM input AS i JOIN upserted AS t ON t.name = i.name
+            ),
+            removed AS (
+                DELETE FROM item_tags AS it
+                WHERE it.item_id IN (SELECT item_id FROM input)
+                  AND NOT EXISTS (SELECT 1 FROM wanted AS w WHERE w.item_id = it.item_id AND w.tag_id = it.tag_id)
+            )
+            INSERT INTO item_tags (item_id, tag_id)
+            SELECT item_id, tag_id FROM wanted
+            ON CONFLICT DO NOTHING
+            """)
+    Mono<Integer> replaceTags(Long[] itemIds, String[] tagNames);
+
+    /**
+     * Возвращает все связи товар-тег, сгруппированные по тегу.
+     */
+    @Query("""
+            SELECT it.item_id, t.name AS tag
+            FROM item_tags AS it JOIN tags AS t ON t.id = it.tag_id
+            ORDER BY t.name, it.item_id
+            """)
+    Flux<ItemTagRow> findAllTags();
+
+    /**
+     * Возвращает теги указанных товаров.
+     */
+    @Query("""
+            SELECT it.item_id, t.name AS tag
+            FROM item_tags AS it JOIN tags AS t ON t.id = it.tag_id
+            WHERE it.item_id IN (:itemIds)
+            ORDER BY it.item_id, t.name
+            """)
+    Flux<ItemTagRow> findTagsByItemIdIn(Collection<Long> itemIds);
+
+    /**
+     * Возвращает идентификаторы всех товаров в порядке сортировки каталога по названию.
+     */
+    @Query("SELECT id FROM items ORDER BY title, id")
+    Flux<Long> findIdsOrderByTitle();
+
+    /**
+     * Возвращает идентификаторы и цены всех товаров по возрастанию цены.
+     */
+    @Query("SELECT id, price FROM items ORDER BY price, id")
+    Flux<ItemPriceRow> findPricesOrderByPrice();
+
+    /**
+     * Возвращает идентификаторы всех товаров в порядке сортировки каталога по популярности:
+     * по счетчику {@code item_sales.score}, товары без продаж — в конце.
+     */
+    @Query("""
+            SELECT i.id FROM items AS i
+                     LEFT JOIN item_sales AS s ON s.item_id = i.id
+            ORDER BY s.score DESC NULLS LAST, i.id
+            """)
+    Flux<Long> findIdsOrderByPopularity();
+
+    /**
+     * Добавляет продажи в счетчики {@code item_sales} одним запросом; строки {@code items} не обновляются.
+     * Товар {@code itemIds[i]} продан в количестве {@code quantities[i]};
+     * идентификаторы должны быть уникальны и отсортированы, чтобы параллельные записи блокировали строки в одном порядке.
+     * <p>
+     * {@code score} — логарифм взвешенной суммы продаж, поэтому прибавление выполняется как
+     * {@code ln(e^a + e^b) = max(a, b) + ln(1 + e^-|a - b|)}.
+     *
+     * @param logWeight натуральный логарифм веса продаж на текущий момент
+     * @return количество обновленных счетчиков; удаленные из каталога товары пропускаются
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO item_sales AS s (item_id, units_sold, score, updated_at)
+            SELECT u.item_id, u.quantity, :logWeight + ln(u.quantity), now()
+            FROM unnest(:itemIds, :quantities) AS u(item_id, quantity)
+                     JOIN items AS i ON i.id = u.item_id
+            WHERE u.quantity > 0
+            ORDER BY u.item_id
+            ON CONFLICT (item_id) DO UPDATE
+                SET units_sold = s.units_sold + EXCLUDED.units_sold,
+                    score = greatest(s.score, EXCLUDED.score) + ln(1 + exp(-abs(s.score - EXCLUDED.score))),
+                    updated_at = EXCLUDED.updated_at
+            """)
+    Mono<Integer> addSales(Long[] itemIds, Integer[] quantities, double logWeight);
+
+    /**
+     * Задает остатки товаров одним запросом: остаток {@code stocks[i]} товара {@code itemIds[i]} делится поровну
+     * между полосами {@code 0..stripes-1}, остаток от деления достается первым полосам. Полосы с номером
+     * {@code stripes} и больше (после уменьшения числа полос) удаляются.
+     *
+     * @return количество записанных полос
+     */
+    @Modifying
+    @Query("""
+            WITH input AS (
+                SELECT u.item_id, u.stock FROM unnest(:itemIds, :stocks) AS u(item_id, stock)
+            ),
+            removed AS (
+                DELETE FROM item_stock_stripes AS s
+                WHERE s.item_id IN (SELECT item_id FROM input) AND s.stripe >= :stripes
+            )
+            INSERT INTO item_stock_stripes AS s (item_id, stripe, quantity)
+            SELECT i.item_id, g.stripe,
+                   i.stock / :stripes + CASE WHEN g.stripe < i.stock % :stripes THEN 1 ELSE 0 END
+            FROM input AS i
+                     JOIN items ON items.id = i.item_id
+                     CROSS JOIN generate_series(0, :stripes - 1) AS g(stripe)
+            ORDER BY i.item_id, g.stripe
+            ON CONFLICT (item_id, stripe) DO UPDATE SET quantity = EXCLUDED.quantity
+            """)
+    Mono<Integer> replaceStock(Long[] itemIds, Integer[] stocks, int stripes);
+
+    /**
+     * Возвращает остатки указанных товаров; товары, не учитываемые на складе, в результат не попадают.
+     */
+    @Query("""
+            SELECT item_id, sum(quantity) AS quantity
+            FROM item_stock_stripes
+            WHERE item_id IN (:itemIds)
+            GROUP BY item_id
+            """)
+    Flux<ItemStockRow> findStockByItemIdIn(Collection<Long> itemIds);
+
+    /**
+     * Быстрый путь резервирования: одним запросом списывает {@code quantities[i]} товара {@code itemIds[i]}
+     * с его полосы {@code stripes[i]}, если на ней хватает остатка. Полосы блокируются по порядку
+     * {@code (item_id, stripe)}, как и во всех запросах к остаткам, поэтому параллельные заказы не взаимоблокируются.
+     * Идентификаторы товаров должны быть уникальны.
+     *
+     * @return количество учитываемых на складе товаров, которые не удалось списать с выбранной полосы
+     */
+    @Query("""
+            WITH wanted AS (
+                SELECT u.item_id, u.stripe, u.quantity
+                FROM unnest(:itemIds, :stripes, :quantities) AS u(item_id, stripe, quantity)
+            ),
+            locked AS MATERIALIZED (
+                SELECT s.item_id, s.stripe
+                FROM item_stock_stripes AS s
+                         JOIN wanted AS w ON w.item_id = s.item_id AND w.stripe = s.stripe
+                ORDER BY s.item_id, s.stripe
+                FOR UPDATE OF s
+            ),
+            taken AS (
+                UPDATE item_stock_stripes AS s
+                SET quantity = s.quantity - w.quantity
+                FROM wanted AS w
+                         JOIN locked AS l ON l.item_id = w.item_id AND l.stripe = w.stripe
+                WHERE s.item_id = w.item_id AND s.stripe = w.stripe AND s.quantity >= w.quantity
+                RETURNING s.item_id
+            )
+            SELECT count(*)
+            FROM wanted AS w
+            WHERE w.item_id NOT IN (SELECT item_id FROM taken)
+              AND EXISTS (SELECT 1 FROM item_stock_stripes AS s WHERE s.item_id = w.item_id)
+            """)
+    Mono<Long> reserveStockFromStripes(Long[] itemIds, Integer[] stripes, Integer[] quantities);
+
+    /**
+     * Медленный путь резервирования: блокирует все полосы указанных товаров и списывает {@code quantities[i]}
+     * товара {@code itemIds[i]} с его полос по порядку, только если остатка хватает по всем товарам сразу.
+     * Идентификаторы товаров должны быть уникальны.
+     *
+     * @return количество учитываемых на складе товаров с недостаточным остатком; при ненулевом значении
+     * остатки не меняются
+     */
+    @Query("""
+            WITH wanted AS (
+                SELECT u.item_id, u.quantity FROM unnest(:itemIds, :quantities) AS u(item_id, quantity)
+            ),
+            locked AS MATERIALIZED (
+                SELECT s.item_id, s.stripe, s.quantity
+                FROM item_stock_stripes AS s
+                WHERE s.item_id IN (SELECT item_id FROM wanted)
+                ORDER BY s.item_id, s.stripe
+                FOR UPDATE
+            ),
+            allocated AS (
+                SELECT l.item_id, l.stripe, w.quantity AS wanted,
+                       sum(l.quantity) OVER (PARTITION BY l.item_id) AS available,
+                       least(l.quantity, greatest(0, w.quantity
+                           - (sum(l.quantity) OVER (PARTITION BY l.item_id ORDER BY l.stripe) - l.quantity))) AS taken
+                FROM locked AS l
+                         JOIN wanted AS w ON w.item_id = l.item_id
+            ),
+            shortage AS (
+                SELECT count(DISTINCT item_id) AS item_count FROM allocated WHERE available < wanted
+            ),
+            taken AS (
+                UPDATE item_stock_stripes AS s
+                SET quantity = s.quantity - a.taken
+                FROM allocated AS a, shortage
+                WHERE s.item_id = a.item_id AND s.stripe = a.stripe AND a.taken > 0 AND shortage.item_count = 0
+            )
+            SELECT item_count FROM shortage
+            """)
+    Mono<Long> reserveStockFromAllStripes(Long[] itemIds, Integer[] quantities);
+
+    /**
+     * Возвращает зарезервированные количества на склад: {@code quantities[i]} товара {@code itemIds[i]}
+     * прибавляется к его полосе 0. Товары, не учитываемые на складе, пропускаются.
+     * Идентификаторы товаров должны быть уникальны.
+     *
+     * @return количество обновленных полос
+     */
+    @Modifying
+    @Query("""
+            WITH returned AS (
+                SELECT u.item_id, u.quantity FROM unnest(:itemIds, :quantities) AS u(item_id, quantity)
+            ),
+            locked AS MATERIALIZED (
+                SELECT s.item_id
+                FROM item_stock_stripes AS s
+                WHERE s.stripe = 0 AND s.item_id IN (SELECT item_id FROM returned)
+                ORDER BY s.item_id
+                FOR UPDATE
+            )
+            UPDATE item_stock_stripes AS s
+            SET quantity = s.quantity + r.quantity
+            FROM returned AS r
+                     JOIN locked AS l ON l.item_id = r.item_id
+            WHERE s.item_id = r.item_id AND s.stripe = 0
+            """)
+    Mono<Integer> releaseStock(Long[] itemIds, Integer[] quantities);
 }
@@ -0,0 +1,51 @@
+package ru.practicum.market.repository;
+
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.Item;
+
+import java.util.Collection;
+
+/**
+ * Поиск товаров каталога с необязательными условиями.
+ */
+public interface ItemSearchRepository {
+
+    /**
+     * Свойство сортировки по популярности. Счетчик продаж хранится только в {@code item_sales}, поэтому такая
+     * сортировка соединяет товары со счетчиками: сначала самые продаваемые, товары без продаж — в конце, затем по id.
+     */
+    String POPULARITY = "popularity";
+
+    /**
+     * Ищет товары по подстроке в названии или описании и диапазону цены; {@code null} отключает условие.
+     *
+     * @param search   подстрока названия или описания без учета регистра
+     * @param minPrice минимальная цена, включительно
+     * @param maxPrice максимальная цена, включительно
+     * @param pageable параметры пагинации и сортировки, в том числе по {@link #POPULARITY}
+     * @return товары страницы
+     */
+    Flux<Item> findPage(String search, Long minPrice, Long maxPrice, Pageable pageable);
+
+    /**
+     * Считает товары по тем же условиям, что и {@link #findPage}.
+     */
+    Mono<Long> countMatching(String search, Long minPrice, Long maxPrice);
+
+    /**
+     * Ищет товары, отмеченные всеми тегами {@code tags}, по тем же условиям, что и {@link #findPage}.
+     * Теги проверяются в базе подзапросом к {@code item_tags}, поэтому читается только страница.
+     *
+     * @param tags     имена тегов в нижнем регистре без повторов, не пустой список
+     * @param pageable параметры пагинации и сортировки, в том числе по {@link #POPULARITY}
+     * @return товары страницы
+     */
+    Flux<Item> findTaggedPage(String search, Long minPrice, Long maxPrice, Collection<String> tags, Pageable pageable);
+
+    /**
+     * Считает товары по тем же условиям, что и {@link #findTaggedPage}.
+     */
+    Mono<Long> countTagged(String search, Long minPrice, Long maxPrice, Collection<String> tags);
+}
@@ -0,0 +1,221 @@
+package ru.practicum.market.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.Item;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реализация {@link ItemSearchRepository}: условие собирается только из заданных фильтров,
+ * поэтому условие по цене использует индекс {@code idx_items_price}.
+ * <p>
+ * Сортировка по {@link #POPULARITY} читается двумя частями, каждая в порядке своего индекса, без сортировки
+ * каталога: сначала проданные товары из {@code item_sales} по индексу {@code idx_item_sales_score},
+ * затем товары без продаж по первичному ключу {@code items}. Страница на границе частей дочитывается из второй.
+ * <p>
+ * Фильтр по тегам — подзапрос к {@code item_tags} по индексу {@code idx_item_tags_tag_id}: товар подходит,
+ * если у него нашлись все выбранные теги.
+ */
+@RequiredArgsConstructor
+public class ItemSearchRepositoryImpl implements ItemSearchRepository {
+
+    private static final String SOLD_FROM = " FROM item_sales AS s JOIN items AS i ON i.id = s.item_id";
+    private static final String SOLD_ORDER = " ORDER BY s.score DESC, s.item_id";
+    private static final String ITEMS_FROM = " FROM items AS i";
+    private static final String UNSOLD_CONDITION = "NOT EXISTS (SELECT 1 FROM item_sales AS s WHERE s.item_id = i.id)";
+    private static final String UNSOLD_ORDER = " ORDER BY i.id";
+    private static final String TAGGED_CONDITION = """
+            i.id IN (SELECT it.item_id
+                     FROM item_tags AS it
+                              JOIN tags AS t ON t.id = it.tag_id
+                     WHERE t.name = ANY(:tags)
+                     GROUP BY it.item_id
+                     HAVING count(*) = :tagCount)""";
+
+    private final R2dbcEntityTemplate template;
+
+    @Override
+    public Flux<Item> findPage(String search, Long minPrice, Long maxPrice, Pageable pageable) {
+        if (isPopular(pageable.getSort())) {
+            var filter = Filter.of(search, minPrice, maxPrice, List.of());
+            return findPopularPage(filter, pageable.getOffset(), pageable.getPageSize());
+        }
+        return template.select(Item.class)
+                .matching(Query.query(criteria(search, minPrice, maxPrice)).with(pageable))
+                .all();
+    }
+
+    @Override
+    public Mono<Long> countMatching(String search, Long minPrice, Long maxPrice) {
+        return template.select(Item.class)
+                .matching(Query.query(criteria(search, minPrice, maxPrice)))
+                .count();
+    }
+
+    @Override
+    public Flux<Item> findTaggedPage(String search, Long minPrice, Long maxPrice, Collection<String> tags,
+                                     Pageable pageable) {
+        var filter = Filter.of(search, minPrice, maxPrice, tags);
+        if (isPopular(pageable.getSort())) {
+            return findPopularPage(filter, pageable.getOffset(), pageable.getPageSize());
+        }
+        return readItems(query("SELECT i.*", ITEMS_FROM, filter, null, orderBy(pageable.getSort()),
+                pageable.getPageSize(), pageable.getOffset()));
+    }
+
+    @Override
+    public Mono<Long> countTagged(String search, Long minPrice, Long maxPrice, Collection<String> tags) {
+        return query("SELECT count(*)", ITEMS_FROM, Filter.of(search, minPrice, maxPrice, tags), null, "", null, 0)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one();
+    }
+
+    private static boolean isPopular(Sort sort) {
+        return sort.getOrderFor(POPULARITY) != null;
+    }
+
+    /**
+     * Читает страницу по популярности. Товары без продаж запрашиваются, только если проданные кончились
+     * на этой странице или раньше; во втором случае сначала считаются подходящие проданные товары.
+     */
+    private Flux<Item> findPopularPage(Filter filter, long offset, int limit) {
+        return readItems(query("SELECT i.*", SOLD_FROM, filter, null, SOLD_ORDER, limit, offset))
+                .collectList()
+                .flatMapMany(sold -> {
+                    if (sold.size() == limit) {
+                        return Flux.fromIterable(sold);
+                    }
+                    var soldCount = !sold.isEmpty() || offset == 0
+                            ? Mono.just(offset + sold.size())
+                            : query("SELECT count(*)", SOLD_FROM, filter, null, "", null, 0)
+                            .map((row, metadata) -> row.get(0, Long.class))
+                            .one();
+                    return soldCount.flatMapMany(count -> readItems(query("SELECT i.*", ITEMS_FROM, filter,
+                                    UNSOLD_CONDITION, UNSOLD_ORDER, limit - sold.size(), Math.max(0, offset - count))))
+                            .startWith(sold);
+                });
+    }
+
+    private Flux<Item> readItems(DatabaseClient.GenericExecuteSpec spec) {
+        return spec.map((row, metadata) -> template.getConverter().read(Item.class, row, metadata)).all();
+    }
+
+    /**
+     * Переводит сортировку по свойствам товара в ORDER BY по колонкам {@code i}; id завершает порядок,
+     * чтобы страницы не пересекались.
+     */
+    private String orderBy(Sort sort) {
+        var entity = template.getConverter().getMappingContext().getRequiredPersistentEntity(Item.class);
+        var columns = new ArrayList<String>();
+        for (var order : sort) {
+            var column = entity.getRequiredPersistentProperty(order.getProperty()).getColumnName().getReference();
+            columns.add("i." + column + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        if (sort.getOrderFor("id") == null) {
+            columns.add("i.id");
+        }
+        return " ORDER BY " + String.join(", ", columns);
+    }
+
+    /**
+     * Собирает запрос по товарам {@code i} с условиями фильтра.
+     *
+     * @param condition дополнительное условие или {@code null}
+     * @param limit     размер страницы или {@code null} без ограничения
+     */
+    private DatabaseClient.GenericExecuteSpec query(String select, String from, Filter filter, String condition,
+                                                    String order, Integer limit, long offset) {
+        var conditions = new ArrayList<>(filter.conditions());
+        if (condition != null) {
+            conditions.add(condition);
+        }
+        Map<String, Object> bindings = new LinkedHashMap<>(filter.bindings());
+
+        var sql = new StringBuilder(select).append(from);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(order);
+        if (limit != null) {
+            sql.append(" LIMIT :limit OFFSET :offset");
+            bindings.put("limit", limit);
+            bindings.put("offset", offset);
+        }
+
+        var spec = template.getDatabaseClient().sql(sql.toString());
+        for (var binding : bindings.entrySet()) {
+            spec = spec.bind(binding.getKey(), binding.getValue());
+        }
+        return spec;
+    }
+
+    private static Criteria criteria(String search, Long minPrice, Long maxPrice) {
+        var criteria = Criteria.empty();
+        if (StringUtils.hasText(search)) {
+            var pattern = likePattern(search);
+            criteria = criteria.and(Criteria.where("title").like(pattern).ignoreCase(true)
+                    .or(Criteria.where("description").like(pattern).ignoreCase(true)));
+        }
+        if (minPrice != null) {
+            criteria = criteria.and(Criteria.where("price").greaterThanOrEquals(minPrice));
+        }
+        if (maxPrice != null) {
+            criteria = criteria.and(Criteria.where("price").lessThanOrEquals(maxPrice));
+        }
+        return criteria;
+    }
+
+    /**
+     * Строит LIKE-шаблон поиска подстроки, экранируя служебные символы {@code %}, {@code _} и обратную косую черту.
+     */
+    private static String likePattern(String search) {
+        var escaped = search
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    /**
+     * Те же условия, что и {@link #criteria}, и условие по тегам в виде SQL над товарами {@code i}
+     * и параметров запроса.
+     */
+    private record Filter(List<String> conditions, Map<String, Object> bindings) {
+
+        static Filter of(String search, Long minPrice, Long maxPrice, Collection<String> tags) {
+            var conditions = new ArrayList<String>();
+            Map<String, Object> bindings = new LinkedHashMap<>();
+            if (StringUtils.hasText(search)) {
+                conditions.add("(i.title ILIKE :pattern OR i.description ILIKE :pattern)");
+                bindings.put("pattern", likePattern(search));
+            }
+            if (minPrice != null) {
+                conditions.add("i.price >= :minPrice");
+                bindings.put("minPrice", minPrice);
+            }
+            if (maxPrice != null) {
+                conditions.add("i.price <= :maxPrice");
+                bindings.put("maxPrice", maxPrice);
+            }
+            if (!tags.isEmpty()) {
+                conditions.add(TAGGED_CONDITION);
+                bindings.put("tags", tags.toArray(String[]::new));
+                bindings.put("tagCount", tags.size());
+            }
+            return new Filter(conditions, bindings);
+        }
+    }
+}
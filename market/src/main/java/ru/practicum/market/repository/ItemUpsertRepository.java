@@ -0,0 +1,23 @@
+package ru.practicum.market.repository;
+
+import reactor.core.publisher.Flux;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.repository.projection.ItemUpsertRow;
+
+import java.util.List;
+
+/**
+ * Пакетная запись товаров при импорте каталога.
+ */
+public interface ItemUpsertRepository {
+
+    /**
+     * Вставляет или обновляет пачку товаров одним запросом {@code INSERT ... SELECT FROM unnest ... ON CONFLICT (sku)}.
+     * Товары без артикула всегда вставляются; совпавшие по артикулу обновляются только при изменении данных
+     * или хэша импортируемых полей ({@link Item#getContentHash()}).
+     *
+     * @param items товары пачки с уникальными в пределах пачки артикулами
+     * @return записанные строки: идентификатор и артикул товара, признак вставки и позиция товара в {@code items}
+     */
+    Flux<ItemUpsertRow> upsertAll(List<Item> items);
+}
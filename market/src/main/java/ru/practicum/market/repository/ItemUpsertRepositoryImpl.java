@@ -0,0 +1,87 @@
+package ru.practicum.market.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.repository.projection.ItemUpsertRow;
+
+import java.util.List;
+
+/**
+ * Реализация {@link ItemUpsertRepository} на {@code INSERT ... SELECT FROM unnest ... ON CONFLICT}.
+ */
+@RequiredArgsConstructor
+public class ItemUpsertRepositoryImpl implements ItemUpsertRepository {
+
+    /**
+     * Строки пачки разворачиваются из массивов с номером строки ({@code WITH ORDINALITY}).
+     * Порядок RETURNING у {@code INSERT ... SELECT} не гарантирован, поэтому новым строкам id выдается заранее
+     * из последовательности таблицы, и результат сопоставляется с номером строки по этому id или по артикулу.
+     * Неизмененные строки не обновляются и не попадают в RETURNING;
+     * {@code xmax = 0} у вставленной строки и ненулевой у обновленной.
+     */
+    private static final String UPSERT = """
+            WITH input AS (
+                SELECT t.*, nextval(pg_get_serial_sequence('items', 'id')) AS new_id
+                FROM unnest(:skus::text[], :titles::text[], :descriptions::text[], :prices::bigint[],
+                            :contentHashes::bigint[])
+                         WITH ORDINALITY AS t(sku, title, description, price, content_hash, ord)
+            ),
+            written AS (
+                INSERT INTO items (id, sku, title, description, price, content_hash)
+                SELECT new_id, sku, title, description, price, content_hash
+                FROM input
+                ORDER BY ord
+                ON CONFLICT (sku) DO UPDATE
+                    SET title = EXCLUDED.title,
+                        description = EXCLUDED.description,
+                        price = EXCLUDED.price,
+                        content_hash = EXCLUDED.content_hash
+                  WHERE (items.title, items.description, items.price, items.content_hash)
+                        IS DISTINCT FROM (EXCLUDED.title, EXCLUDED.description, EXCLUDED.price, EXCLUDED.content_hash)
+                RETURNING id, sku, (xmax = 0) AS inserted
+            )
+            SELECT w.id, w.sku, w.inserted, i.ord - 1 AS position
+            FROM written AS w
+                     JOIN input AS i ON i.new_id = w.id OR i.sku = w.sku
+            ORDER BY i.ord
+            """;
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<ItemUpsertRow> upsertAll(List<Item> items) {
+        if (items.isEmpty()) {
+            return Flux.empty();
+        }
+
+        int size = items.size();
+        var skus = new String[size];
+        var titles = new String[size];
+        var descriptions = new String[size];
+        var prices = new Long[size];
+        var contentHashes = new Long[size];
+        for (int i = 0; i < size; i++) {
+            var item = items.get(i);
+            skus[i] = item.getSku();
+            titles[i] = item.getTitle();
+            descriptions[i] = item.getDescription();
+            prices[i] = item.getPrice();
+            contentHashes[i] = item.getContentHash();
+        }
+
+        return databaseClient.sql(UPSERT)
+                .bind("skus", skus)
+                .bind("titles", titles)
+                .bind("descriptions", descriptions)
+                .bind("prices", prices)
+                .bind("contentHashes", contentHashes)
+                .map(row -> new ItemUpsertRow(
+                        row.get("id", Long.class),
+                        row.get("sku", String.class),
+                        Boolean.TRUE.equals(row.get("inserted", Boolean.class)),
+                        row.get("position", Long.class).intValue()))
+                .all();
+    }
+}
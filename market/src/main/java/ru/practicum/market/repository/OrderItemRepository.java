@@ -1,9 +1,12 @@
 package ru.practicum.market.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.repository.projection.OrderBasketRow;
 
 import java.util.Collection;
 
@@ -21,4 +24,16 @@ public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, L
      * Возвращает позиции конкретного заказа.
      */
     Flux<OrderItem> findByOrderId(long id);
+
+    /**
+     * Удаляет позиции заказа.
+     */
+    Mono<Void> deleteByOrderId(long orderId);
+
+    /**
+     * Возвращает товары всех заказов, сгруппированные по заказу (по индексу {@code idx_order_items_order_id}).
+     * Поток читается по мере потребления, вся таблица в памяти не собирается.
+     */
+    @Query("SELECT order_id, item_id FROM order_items ORDER BY order_id")
+    Flux<OrderBasketRow> findBasketsOrderByOrderId();
 }
@@ -1,23 +1,62 @@
 package ru.practicum.market.repository;
 
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.model.Order;
+import ru.practicum.market.repository.projection.OrderHistoryRow;
+
+import java.time.LocalDateTime;
 
 /**
  * Реактивный репозиторий заказов.
  */
 @Repository
 public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
+
     /**
-     * Возвращает все заказы пользователя.
+     * Общая часть запроса истории заказов: позиции заказа агрегируются в JSON-массив коррелированным подзапросом.
      */
-    Flux<Order> findByUserId(Long userId);
+    String HISTORY_SELECT = """
+            SELECT o.id,
+                   o.total_sum,
+                   o.created_at,
+                   (SELECT COALESCE(json_agg(json_build_object(
+                                   'itemId', oi.item_id,
+                                   'title', oi.title,
+                                   'imgPath', oi.img_path,
+                                   'price', oi.price_at_order,
+                                   'quantity', oi.quantity) ORDER BY oi.id), '[]'::json)
+                      FROM order_items oi
+                     WHERE oi.order_id = o.id)::text AS items
+              FROM orders o
+            """;
 
     /**
      * Возвращает заказ пользователя по идентификатору заказа.
      */
     Mono<Order> findByUserIdAndId(long userId, long orderId);
+
+    /**
+     * Возвращает первую страницу истории заказов пользователя (сначала новые).
+     */
+    @Query(HISTORY_SELECT + """
+             WHERE o.user_id = :userId
+             ORDER BY o.created_at DESC, o.id DESC
+             LIMIT :limit
+            """)
+    Flux<OrderHistoryRow> findHistoryFirstPage(long userId, int limit);
+
+    /**
+     * Возвращает следующую страницу истории заказов после ключа {@code (createdAt, orderId)}.
+     */
+    @Query(HISTORY_SELECT + """
+             WHERE o.user_id = :userId
+               AND (o.created_at, o.id) < (:createdAt, :orderId)
+             ORDER BY o.created_at DESC, o.id DESC
+             LIMIT :limit
+            """)
+    Flux<OrderHistoryRow> findHistoryPageAfter(long userId, LocalDateTime createdAt, long orderId, int limit);
 }
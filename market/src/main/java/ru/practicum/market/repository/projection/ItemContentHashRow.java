@@ -0,0 +1,13 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Артикул товара и хэш его импортируемых полей.
+ *
+ * @param sku         внешний артикул товара
+ * @param contentHash хэш полей на момент последнего импорта, {@code null} для товаров, записанных до его появления
+ */
+public record ItemContentHashRow(
+        String sku,
+        Long contentHash
+) {
+}
@@ -0,0 +1,13 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Идентификатор и цена товара.
+ *
+ * @param id    идентификатор товара
+ * @param price цена товара
+ */
+public record ItemPriceRow(
+        long id,
+        long price
+) {
+}
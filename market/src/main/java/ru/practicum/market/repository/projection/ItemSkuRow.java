@@ -0,0 +1,13 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Идентификатор и артикул товара.
+ *
+ * @param id  идентификатор товара
+ * @param sku артикул товара
+ */
+public record ItemSkuRow(
+        long id,
+        String sku
+) {
+}
@@ -0,0 +1,13 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Остаток товара на складе: сумма по всем полосам остатка.
+ *
+ * @param itemId   идентификатор товара
+ * @param quantity доступное количество
+ */
+public record ItemStockRow(
+        long itemId,
+        int quantity
+) {
+}
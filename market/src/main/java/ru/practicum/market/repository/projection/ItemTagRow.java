@@ -0,0 +1,13 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Связь товара с тегом.
+ *
+ * @param itemId идентификатор товара
+ * @param tag    имя тега
+ */
+public record ItemTagRow(
+        long itemId,
+        String tag
+) {
+}
@@ -0,0 +1,17 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Строка, записанная пакетным upsert товаров.
+ *
+ * @param id       идентификатор товара
+ * @param sku      артикул товара, {@code null} у товара без артикула
+ * @param inserted {@code true} — товар вставлен, {@code false} — обновлен
+ * @param position позиция товара в записанной пачке
+ */
+public record ItemUpsertRow(
+        long id,
+        String sku,
+        boolean inserted,
+        int position
+) {
+}
@@ -0,0 +1,13 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Товар в заказе без данных позиции: строка корзины для построения рекомендаций.
+ *
+ * @param orderId идентификатор заказа
+ * @param itemId  идентификатор товара
+ */
+public record OrderBasketRow(
+        long orderId,
+        long itemId
+) {
+}
@@ -0,0 +1,19 @@
+package ru.practicum.market.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Строка истории заказов: заказ вместе с позициями, агрегированными в JSON одним запросом.
+ *
+ * @param id        идентификатор заказа
+ * @param totalSum  итоговая сумма заказа
+ * @param createdAt дата создания заказа (часть ключа keyset-пагинации)
+ * @param items     JSON-массив позиций заказа (см. {@link OrderLineRow})
+ */
+public record OrderHistoryRow(
+        long id,
+        long totalSum,
+        LocalDateTime createdAt,
+        String items
+) {
+}
@@ -0,0 +1,19 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Позиция заказа из JSON-агрегата истории заказов.
+ *
+ * @param itemId   идентификатор товара
+ * @param title    название товара на момент заказа
+ * @param imgPath  URI/путь изображения на момент заказа
+ * @param price    цена товара на момент заказа
+ * @param quantity количество товара в заказе
+ */
+public record OrderLineRow(
+        long itemId,
+        String title,
+        String imgPath,
+        long price,
+        int quantity
+) {
+}
@@ -0,0 +1,15 @@
+package ru.practicum.market.repository.projection;
+
+/**
+ * Корзина гистограммы цен каталога.
+ *
+ * @param lowerBound нижняя граница цены, включительно
+ * @param upperBound верхняя граница цены, не включительно; {@code null} для последней корзины
+ * @param itemCount  количество товаров с ценой в корзине
+ */
+public record PriceBucketRow(
+        long lowerBound,
+        Long upperBound,
+        long itemCount
+) {
+}
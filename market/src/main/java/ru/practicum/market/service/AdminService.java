@@ -1,22 +1,18 @@
 package ru.practicum.market.service;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.http.codec.multipart.FilePart;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import ru.practicum.market.service.converter.ItemFileFormat;
+import ru.practicum.market.web.dto.ImageArchiveEntryResponseDto;
 import ru.practicum.market.web.dto.ItemShortResponseDto;
 
 /**
  * Сервис административных операций с товарами.
  */
 public interface AdminService {
-    /**
-     * Загружает список товаров из Excel-файла.
-     *
-     * @param file загружаемый Excel-файл
-     * @return сигнал завершения операции
-     */
-    Mono<Void> uploadItems(FilePart file);
-
     /**
      * Загружает изображение и привязывает его к товару.
      *
@@ -27,9 +23,29 @@ public interface AdminService {
     Mono<Void> uploadImage(long id, FilePart image);
 
     /**
-     * Возвращает список товаров в коротком формате для admin-экрана.
+     * Привязывает изображения из ZIP-архива к товарам по имени файла: id или артикул товара.
      *
+     * @param archive ZIP-архив изображений
+     * @return отчет по каждому файлу архива
+     */
+    Flux<ImageArchiveEntryResponseDto> uploadImageArchive(FilePart archive);
+
+    /**
+     * Возвращает страницу товаров в коротком формате для admin-экрана по возрастанию id.
+     *
+     * @param search  подстрока названия или артикула, {@code null} — без фильтра
+     * @param afterId id последнего товара предыдущей страницы, 0 — первая страница
+     * @param limit   размер страницы
      * @return поток коротких DTO товаров
      */
-    Flux<ItemShortResponseDto> getAllItems();
+    Flux<ItemShortResponseDto> findItems(String search, long afterId, int limit);
+
+    /**
+     * Выгружает весь каталог в файл с колонками импорта.
+     *
+     * @param format        формат файла
+     * @param bufferFactory фабрика буферов ответа
+     * @return содержимое файла
+     */
+    Flux<DataBuffer> exportItems(ItemFileFormat format, DataBufferFactory bufferFactory);
 }
@@ -0,0 +1,36 @@
+package ru.practicum.market.service;
+
+import reactor.core.publisher.Mono;
+import ru.practicum.market.service.flashsale.FlashSaleClaim;
+
+/**
+ * Сервис распродаж ограниченного количества товара.
+ */
+public interface FlashSaleService {
+    /**
+     * Начинает распродажу товара: списывает ее единицы со склада.
+     *
+     * @param itemId идентификатор товара
+     * @param units  количество единиц на распродажу
+     * @return сигнал завершения
+     */
+    Mono<Void> start(long itemId, int units);
+
+    /**
+     * Завершает распродажу товара и возвращает невыкупленные единицы на склад.
+     *
+     * @param itemId идентификатор товара
+     * @return сигнал завершения
+     */
+    Mono<Void> stop(long itemId);
+
+    /**
+     * Резервирует единицы товара распродажи за пользователем до оформления заказа.
+     *
+     * @param userId   идентификатор пользователя
+     * @param itemId   идентификатор товара
+     * @param quantity количество единиц
+     * @return резерв
+     */
+    Mono<FlashSaleClaim> claim(long userId, long itemId, int quantity);
+}
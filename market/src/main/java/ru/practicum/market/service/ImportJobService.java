@@ -0,0 +1,43 @@
+package ru.practicum.market.service;
+
+import org.springframework.http.codec.multipart.FilePart;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.service.importer.ImportJob;
+
+/**
+ * Сервис фоновых импортов товаров.
+ */
+public interface ImportJobService {
+    /**
+     * Принимает Excel-файл и ставит импорт в очередь.
+     *
+     * @param file загружаемый Excel-файл
+     * @return состояние поставленного в очередь импорта
+     */
+    Mono<ImportJob> submit(FilePart file);
+
+    /**
+     * Возвращает текущее состояние импорта.
+     *
+     * @param jobId идентификатор импорта
+     * @return состояние импорта
+     */
+    Mono<ImportJob> getJob(String jobId);
+
+    /**
+     * Возвращает поток изменений состояния импорта до его завершения.
+     *
+     * @param jobId идентификатор импорта
+     * @return поток состояний импорта
+     */
+    Flux<ImportJob> watchJob(String jobId);
+
+    /**
+     * Запрашивает отмену импорта.
+     *
+     * @param jobId идентификатор импорта
+     * @return состояние импорта после запроса отмены
+     */
+    Mono<ImportJob> cancel(String jobId);
+}
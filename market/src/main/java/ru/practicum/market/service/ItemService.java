@@ -1,12 +1,16 @@
 package ru.practicum.market.service;
 
 import reactor.core.publisher.Mono;
+import ru.practicum.market.web.dto.CartAvailabilityResponseDto;
 import ru.practicum.market.web.dto.CartResponseDto;
 import ru.practicum.market.web.dto.ItemResponseDto;
 import ru.practicum.market.web.dto.ItemsResponseDto;
+import ru.practicum.market.web.dto.PriceRange;
 import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.dto.enums.SortMethod;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -14,25 +18,39 @@ import java.util.Optional;
  */
 public interface ItemService {
     /**
-     * Возвращает страницу товаров с фильтрацией, сортировкой и пагинацией.
+     * Возвращает страницу товаров с фильтрацией, сортировкой и пагинацией вместе с гистограммой цен каталога
+     * и счетчиками тегов.
      *
      * @param userIdOpt  идентификатор пользователя, если пользователь аутентифицирован
+     * @param guestCart  корзина анонимного пользователя; используется, если пользователь не аутентифицирован
      * @param search     строка поиска по товарам
+     * @param price      диапазон цены
+     * @param tags       теги, которые должны быть у товара, все сразу
      * @param sort       способ сортировки
      * @param pageNumber номер страницы (с 1)
      * @param pageSize   размер страницы
      * @return DTO страницы товаров
      */
-    Mono<ItemsResponseDto> getItems(Optional<Long> userIdOpt, String search, SortMethod sort, int pageNumber, int pageSize);
+    Mono<ItemsResponseDto> getItems(Optional<Long> userIdOpt, Map<Long, Integer> guestCart, String search,
+                                    PriceRange price, List<String> tags, SortMethod sort, int pageNumber, int pageSize);
 
     /**
      * Возвращает карточку товара и текущее количество в корзине.
      *
      * @param userIdOpt идентификатор пользователя, если пользователь аутентифицирован
+     * @param guestCart корзина анонимного пользователя; используется, если пользователь не аутентифицирован
      * @param itemId    идентификатор товара
      * @return DTO карточки товара
      */
-    Mono<ItemResponseDto> getItem(Optional<Long> userIdOpt, long itemId);
+    Mono<ItemResponseDto> getItem(Optional<Long> userIdOpt, Map<Long, Integer> guestCart, long itemId);
+
+    /**
+     * Возвращает товары, которые чаще всего покупают вместе с товаром.
+     *
+     * @param itemId идентификатор товара
+     * @return DTO рекомендованных товаров по убыванию частоты совместных покупок
+     */
+    Mono<List<ItemResponseDto>> getRelatedItems(long itemId);
 
     /**
      * Изменяет количество товара в корзине по указанному действию.
@@ -45,12 +63,12 @@ public interface ItemService {
     Mono<Void> updateItemsCountInCart(long userId, long itemId, CartAction action);
 
     /**
-     * Возвращает корзину с учетом текущего баланса пользователя.
+     * Проверяет, хватает ли текущего баланса пользователя на оформление корзины.
      *
      * @param userId идентификатор пользователя
-     * @return DTO корзины
+     * @return доступность оформления; при недоступности платежного сервиса оформление недоступно
      */
-    Mono<CartResponseDto> getCart(Long userId);
+    Mono<CartAvailabilityResponseDto> getCartAvailability(long userId);
 
     /**
      * Возвращает корзину без обращения к платежному сервису.
@@ -59,4 +77,31 @@ public interface ItemService {
      * @return DTO корзины
      */
     Mono<CartResponseDto> getCartWithoutPayments(long userId);
+
+    /**
+     * Изменяет количество товара в корзине анонимного пользователя. БД не изменяется.
+     *
+     * @param guestCart корзина анонимного пользователя
+     * @param itemId    идентификатор товара
+     * @param action    действие над количеством
+     * @return новая корзина
+     */
+    Mono<Map<Long, Integer>> updateGuestCart(Map<Long, Integer> guestCart, long itemId, CartAction action);
+
+    /**
+     * Возвращает корзину анонимного пользователя; удаленные из каталога товары пропускаются.
+     *
+     * @param guestCart корзина анонимного пользователя
+     * @return DTO корзины
+     */
+    Mono<CartResponseDto> getGuestCart(Map<Long, Integer> guestCart);
+
+    /**
+     * Переносит корзину анонимного пользователя в корзину пользователя после входа.
+     *
+     * @param userId    идентификатор пользователя
+     * @param guestCart корзина анонимного пользователя
+     * @return сигнал завершения операции
+     */
+    Mono<Void> mergeGuestCart(long userId, Map<Long, Integer> guestCart);
 }
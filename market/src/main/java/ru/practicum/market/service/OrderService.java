@@ -32,4 +32,13 @@ public interface OrderService {
      * @return идентификатор созданного заказа
      */
     Mono<Long> createOrder(long userId);
+
+    /**
+     * Добавляет позиции прошлого заказа в корзину пользователя.
+     *
+     * @param userId  идентификатор пользователя
+     * @param orderId идентификатор заказа
+     * @return число добавленных в корзину позиций
+     */
+    Mono<Integer> reorder(long userId, long orderId);
 }
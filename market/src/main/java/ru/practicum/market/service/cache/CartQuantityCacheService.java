@@ -0,0 +1,36 @@
+package ru.practicum.market.service.cache;
+
+import reactor.core.publisher.Mono;
+import ru.practicum.market.service.cache.dto.CartQuantitiesCacheDto;
+
+import java.util.Collection;
+
+/**
+ * Кэш-сервис количеств товаров в корзине пользователя для отрисовки каталога.
+ */
+public interface CartQuantityCacheService {
+    /**
+     * Возвращает количества товаров в корзине пользователя.
+     *
+     * @param userId идентификатор пользователя
+     * @return DTO количеств для кэша
+     */
+    Mono<CartQuantitiesCacheDto> getQuantities(long userId);
+
+    /**
+     * Удаляет из кэша количества корзины пользователя.
+     * Вызывается после фиксации каждого изменения корзины: следующее чтение загрузит зафиксированную корзину.
+     *
+     * @param userId идентификатор пользователя
+     * @return сигнал завершения
+     */
+    Mono<Void> evictQuantities(long userId);
+
+    /**
+     * Удаляет из кэша количества корзин пользователей.
+     *
+     * @param userIds идентификаторы пользователей
+     * @return сигнал завершения
+     */
+    Mono<Void> evictQuantities(Collection<Long> userIds);
+}
@@ -5,7 +5,11 @@ import reactor.core.publisher.Mono;
 import ru.practicum.market.service.cache.dto.CartCacheDto;
 import ru.practicum.market.service.cache.dto.ItemCacheDto;
 import ru.practicum.market.service.cache.dto.ItemsPageCacheDto;
+import ru.practicum.market.service.cache.dto.PriceHistogramCacheDto;
+import ru.practicum.market.service.cache.dto.StockCacheDto;
+import ru.practicum.market.web.dto.PriceRange;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,10 +28,29 @@ public interface ItemCacheService {
      * Возвращает страницу товаров для указанного фильтра и пагинации.
      *
      * @param search строка поиска
+     * @param price    диапазон цены
      * @param pageable параметры пагинации и сортировки
      * @return DTO страницы для кэша
      */
-    Mono<ItemsPageCacheDto> getItemsPage(String search, Pageable pageable);
+    Mono<ItemsPageCacheDto> getItemsPage(String search, PriceRange price, Pageable pageable);
+
+    /**
+     * Возвращает страницу товаров, отмеченных всеми тегами, для указанного фильтра и пагинации.
+     *
+     * @param search   строка поиска
+     * @param price    диапазон цены
+     * @param tags     имена тегов в нижнем регистре, не пустой список
+     * @param pageable параметры пагинации и сортировки
+     * @return DTO страницы для кэша
+     */
+    Mono<ItemsPageCacheDto> getTaggedItemsPage(String search, PriceRange price, List<String> tags, Pageable pageable);
+
+    /**
+     * Возвращает гистограмму цен всего каталога.
+     *
+     * @return DTO гистограммы для кэша
+     */
+    Mono<PriceHistogramCacheDto> getPriceHistogram();
 
     /**
      * Возвращает данные товаров для корзины по списку id.
@@ -36,4 +59,27 @@ public interface ItemCacheService {
      * @return DTO данных корзины для кэша
      */
     Mono<CartCacheDto> getItemsByIds(List<Long> itemIds);
+
+    /**
+     * Возвращает остатки товаров на складе по списку id.
+     *
+     * @param itemIds идентификаторы товаров
+     * @return DTO остатков для кэша
+     */
+    Mono<StockCacheDto> getStock(List<Long> itemIds);
+
+    /**
+     * Удаляет из кэша карточки указанных товаров.
+     *
+     * @param itemIds идентификаторы измененных товаров
+     * @return сигнал завершения
+     */
+    Mono<Void> evictItems(Collection<Long> itemIds);
+
+    /**
+     * Очищает кэши страниц каталога, гистограммы цен и данных корзин: их ключи не позволяют найти записи отдельного товара.
+     *
+     * @return сигнал завершения
+     */
+    Mono<Void> evictListings();
 }
@@ -0,0 +1,25 @@
+package ru.practicum.market.service.cache;
+
+import reactor.core.publisher.Mono;
+import ru.practicum.market.service.cache.dto.OrderCacheDto;
+
+/**
+ * Сервис чтения неизменяемых заказов из кэша и репозитория.
+ */
+public interface OrderCacheService {
+    /**
+     * Возвращает заказ вместе с идентификатором владельца.
+     *
+     * @param orderId идентификатор заказа
+     * @return DTO заказа для кэша или пустой результат, если заказ не найден
+     */
+    Mono<OrderCacheDto> findOrder(long orderId);
+
+    /**
+     * Записывает заказ в кэш.
+     *
+     * @param order DTO заказа для кэша
+     * @return записанный DTO
+     */
+    Mono<OrderCacheDto> putOrder(OrderCacheDto order);
+}
@@ -0,0 +1,13 @@
+package ru.practicum.market.service.cache.dto;
+
+import java.util.Map;
+
+/**
+ * DTO кэша количеств товаров в корзине пользователя.
+ *
+ * @param quantities количество по id товара; товаров, которых нет в корзине, в карте нет
+ */
+public record CartQuantitiesCacheDto(
+        Map<Long, Integer> quantities
+) {
+}
@@ -3,17 +3,21 @@ package ru.practicum.market.service.cache.dto;
 /**
  * DTO товара, используемый в кэше каталога.
  *
- * @param id          идентификатор товара
- * @param title       название товара
- * @param description описание товара
- * @param imgPath     URI/путь изображения
- * @param price       цена товара
+ * @param id               идентификатор товара
+ * @param title            название товара
+ * @param description      описание товара
+ * @param imgPath          URI/путь исходного изображения
+ * @param imgThumbnailPath URI уменьшенной копии для плитки каталога и корзины или {@code null}
+ * @param imgCardPath      URI копии для страницы товара или {@code null}
+ * @param price            цена товара
  */
 public record ItemCacheDto(
         long id,
         String title,
         String description,
         String imgPath,
+        String imgThumbnailPath,
+        String imgCardPath,
         long price
 ) {
 }
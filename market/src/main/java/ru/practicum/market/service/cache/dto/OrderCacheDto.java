@@ -0,0 +1,15 @@
+package ru.practicum.market.service.cache.dto;
+
+import ru.practicum.market.web.dto.OrderResponseDto;
+
+/**
+ * DTO кэша заказа.
+ *
+ * @param userId идентификатор владельца заказа
+ * @param order  DTO заказа
+ */
+public record OrderCacheDto(
+    long userId,
+    OrderResponseDto order
+) {
+}
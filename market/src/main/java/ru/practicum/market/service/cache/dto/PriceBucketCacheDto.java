@@ -0,0 +1,15 @@
+package ru.practicum.market.service.cache.dto;
+
+/**
+ * DTO кэша корзины гистограммы цен.
+ *
+ * @param lowerBound нижняя граница цены, включительно
+ * @param upperBound верхняя граница цены, не включительно; {@code null} для последней корзины
+ * @param itemCount  количество товаров в корзине
+ */
+public record PriceBucketCacheDto(
+        long lowerBound,
+        Long upperBound,
+        long itemCount
+) {
+}
@@ -0,0 +1,13 @@
+package ru.practicum.market.service.cache.dto;
+
+import java.util.List;
+
+/**
+ * DTO кэша гистограммы цен каталога.
+ *
+ * @param buckets корзины по возрастанию цены
+ */
+public record PriceHistogramCacheDto(
+        List<PriceBucketCacheDto> buckets
+) {
+}
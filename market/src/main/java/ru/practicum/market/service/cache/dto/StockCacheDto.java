@@ -0,0 +1,13 @@
+package ru.practicum.market.service.cache.dto;
+
+import java.util.Map;
+
+/**
+ * DTO кэша остатков товаров на складе.
+ *
+ * @param stock остаток по id товара; товаров, не учитываемых на складе, в карте нет
+ */
+public record StockCacheDto(
+        Map<Long, Integer> stock
+) {
+}
@@ -0,0 +1,70 @@
+package ru.practicum.market.service.cache.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.market.domain.model.CartItem;
+import ru.practicum.market.repository.CartItemRepository;
+import ru.practicum.market.service.cache.CartQuantityCacheService;
+import ru.practicum.market.service.cache.dto.CartQuantitiesCacheDto;
+
+import java.util.Collection;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CartQuantityCacheServiceImpl implements CartQuantityCacheService {
+
+    private static final String CART_QUANTITIES_CACHE = "cart-quantities";
+
+    private final CartItemRepository cartItemRepository;
+    private final CacheManager cacheManager;
+
+    /**
+     * Возвращает количества товаров в корзине пользователя и кэширует результат.
+     * Корзина читается целиком одним запросом, поэтому любая страница каталога отрисовывается без обращения к БД.
+     */
+    @Cacheable(value = "cart-quantities", key = "#userId")
+    @Override
+    public Mono<CartQuantitiesCacheDto> getQuantities(long userId) {
+        log.debug("Cache: add cart quantities for userId = {}.", userId);
+        return loadQuantities(userId);
+    }
+
+    /**
+     * Удаляет количества пользователя после изменения корзины. Запись в кэш здесь не делается:
+     * корзина, прочитанная до фиксации транзакции, осталась бы в кэше устаревшей.
+     */
+    @Override
+    public Mono<Void> evictQuantities(long userId) {
+        return evictQuantities(List.of(userId));
+    }
+
+    /**
+     * Удаляет количества по одному пользователю: аннотация {@code @CacheEvict} умеет удалять только один ключ.
+     */
+    @Override
+    public Mono<Void> evictQuantities(Collection<Long> userIds) {
+        return Mono.fromRunnable(() -> {
+                    log.debug("Cache: evict cart quantities for {} users.", userIds.size());
+                    var cache = cacheManager.getCache(CART_QUANTITIES_CACHE);
+                    if (cache != null) {
+                        userIds.forEach(cache::evict);
+                    }
+                })
+                // Удаление из Redis-кэша блокирующее.
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private Mono<CartQuantitiesCacheDto> loadQuantities(long userId) {
+        return cartItemRepository.findByUserId(userId)
+                .collectMap(CartItem::getItemId, CartItem::getQuantity)
+                .map(CartQuantitiesCacheDto::new);
+    }
+}
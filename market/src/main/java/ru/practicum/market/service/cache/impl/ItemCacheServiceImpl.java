@@ -2,22 +2,32 @@ package ru.practicum.market.service.cache.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import ru.practicum.market.domain.exception.ItemNotFoundException;
 import ru.practicum.market.domain.model.Item;
 import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.ItemSearchRepository;
+import ru.practicum.market.repository.projection.ItemStockRow;
 import ru.practicum.market.service.cache.ItemCacheService;
 import ru.practicum.market.service.cache.dto.CartCacheDto;
 import ru.practicum.market.service.cache.dto.ItemCacheDto;
 import ru.practicum.market.service.cache.dto.ItemsPageCacheDto;
+import ru.practicum.market.service.cache.dto.PriceHistogramCacheDto;
+import ru.practicum.market.service.cache.dto.StockCacheDto;
 import ru.practicum.market.service.cache.util.KeyGenerator;
+import ru.practicum.market.web.dto.PriceRange;
 import ru.practicum.market.web.mapper.ItemMapper;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -25,7 +35,10 @@ import java.util.List;
 @Slf4j
 public class ItemCacheServiceImpl implements ItemCacheService {
 
+    private static final String ITEM_CACHE = "item";
+
     private final ItemRepository itemRepository;
+    private final CacheManager cacheManager;
 
     /**
      * Возвращает товар по id и кэширует результат.
@@ -41,20 +54,24 @@ public class ItemCacheServiceImpl implements ItemCacheService {
     }
 
     /**
-     * Возвращает страницу товаров с учетом поиска и кэширует результат.
+     * Возвращает страницу товаров с учетом поиска и диапазона цены и кэширует результат.
+     * Сортировка по популярности всегда идет через {@link ItemSearchRepository}: ей нужно соединение со счетчиками.
      */
     @Cacheable(
             value = "items-page",
-            key = "T(ru.practicum.market.service.cache.util.KeyGenerator).generateKeyForItemsPage(#search, #pageable)"
+            key = "T(ru.practicum.market.service.cache.util.KeyGenerator).generateKeyForItemsPage(#search, #price, #pageable)"
     )
     @Transactional(readOnly = true)
     @Override
-    public Mono<ItemsPageCacheDto> getItemsPage(String search, Pageable pageable) {
-        log.debug("Cache: add items: {}.", KeyGenerator.generateKeyForItemsPage(search, pageable));
+    public Mono<ItemsPageCacheDto> getItemsPage(String search, PriceRange price, Pageable pageable) {
+        log.debug("Cache: add items: {}.", KeyGenerator.generateKeyForItemsPage(search, price, pageable));
         Mono<List<Item>> itemsMono;
         Mono<Long> itemsCountMono;
 
-        if (StringUtils.hasText(search)) {
+        if (price.isBounded() || pageable.getSort().getOrderFor(ItemSearchRepository.POPULARITY) != null) {
+            itemsMono = itemRepository.findPage(search, price.min(), price.max(), pageable).collectList();
+            itemsCountMono = itemRepository.countMatching(search, price.min(), price.max());
+        } else if (StringUtils.hasText(search)) {
             itemsMono = itemRepository
                     .findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(search, search, pageable)
                     .collectList();
@@ -69,6 +86,38 @@ public class ItemCacheServiceImpl implements ItemCacheService {
                 .map(t -> ItemMapper.toItemsPage(t.getT1(), t.getT2()));
     }
 
+    /**
+     * Возвращает страницу товаров, отмеченных всеми тегами, и кэширует результат.
+     * Теги, поиск и цена проверяются одним запросом, поэтому из базы читается только страница.
+     */
+    @Cacheable(
+            value = "items-page",
+            key = "T(ru.practicum.market.service.cache.util.KeyGenerator).generateKeyForTaggedItemsPage(#search, #price, #tags, #pageable)"
+    )
+    @Transactional(readOnly = true)
+    @Override
+    public Mono<ItemsPageCacheDto> getTaggedItemsPage(String search, PriceRange price, List<String> tags,
+                                                      Pageable pageable) {
+        log.debug("Cache: add tagged items: {}.", KeyGenerator.generateKeyForTaggedItemsPage(search, price, tags, pageable));
+        return Mono.zip(
+                        itemRepository.findTaggedPage(search, price.min(), price.max(), tags, pageable).collectList(),
+                        itemRepository.countTagged(search, price.min(), price.max(), tags))
+                .map(t -> ItemMapper.toItemsPage(t.getT1(), t.getT2()));
+    }
+
+    /**
+     * Возвращает гистограмму цен из счетчиков, которые база обновляет при записи товаров, и кэширует ее.
+     */
+    @Cacheable(value = "price-histogram", key = "'all'")
+    @Transactional(readOnly = true)
+    @Override
+    public Mono<PriceHistogramCacheDto> getPriceHistogram() {
+        log.debug("Cache: add price histogram.");
+        return itemRepository.findPriceHistogram()
+                .collectList()
+                .map(ItemMapper::toPriceHistogramCacheDto);
+    }
+
     /**
      * Возвращает данные товаров для корзины и кэширует их по списку id.
      */
@@ -84,4 +133,55 @@ public class ItemCacheServiceImpl implements ItemCacheService {
                 .collectList()
                 .map(ItemMapper::toCartCacheDto);
     }
+
+    /**
+     * Возвращает остатки товаров и кэширует их по списку id.
+     * Кэш живет {@code items.stock.cache-ttl}: каталог может показать товар доступным на это время после
+     * того, как его раскупили, но оформление заказа проверяет остаток в базе.
+     */
+    @Cacheable(
+            value = "stock",
+            key = "T(ru.practicum.market.service.cache.util.KeyGenerator).generateKeyForCart(#itemIds)"
+    )
+    @Transactional(readOnly = true)
+    @Override
+    public Mono<StockCacheDto> getStock(List<Long> itemIds) {
+        log.debug("Cache: add stock for items: {}.", KeyGenerator.generateKeyForCart(itemIds));
+        return itemRepository.findStockByItemIdIn(itemIds)
+                .collectMap(ItemStockRow::itemId, ItemStockRow::quantity)
+                .map(StockCacheDto::new);
+    }
+
+    /**
+     * Удаляет карточки товаров по одной: аннотация {@code @CacheEvict} умеет удалять только один ключ.
+     */
+    @Override
+    public Mono<Void> evictItems(Collection<Long> itemIds) {
+        return Mono.fromRunnable(() -> {
+                    log.debug("Cache: evict items {}.", itemIds);
+                    var cache = cacheManager.getCache(ITEM_CACHE);
+                    if (cache != null) {
+                        itemIds.forEach(cache::evict);
+                    }
+                })
+                // Удаление из Redis-кэша блокирующее.
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    /**
+     * Очищает кэши страниц каталога, гистограммы цен и корзин.
+     */
+    @Caching(
+            evict = {
+                    @CacheEvict(value = "items-page", allEntries = true),
+                    @CacheEvict(value = "price-histogram", allEntries = true),
+                    @CacheEvict(value = "cart", allEntries = true)
+            }
+    )
+    @Override
+    public Mono<Void> evictListings() {
+        log.debug("Cache: evict items pages and carts.");
+        return Mono.empty();
+    }
 }
@@ -0,0 +1,53 @@
+package ru.practicum.market.service.cache.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.repository.OrderItemRepository;
+import ru.practicum.market.repository.OrderRepository;
+import ru.practicum.market.service.cache.OrderCacheService;
+import ru.practicum.market.service.cache.dto.OrderCacheDto;
+import ru.practicum.market.web.mapper.OrderMapper;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderCacheServiceImpl implements OrderCacheService {
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+
+    /**
+     * Возвращает заказ по id и кэширует результат.
+     * Заказ не меняется после создания, поэтому запись не инвалидируется и живет {@code orders.cache-ttl}:
+     * TTL лишь ограничивает объем кэша старыми заказами, которые уже никто не открывает.
+     */
+    @Cacheable(value = "order", key = "#orderId")
+    @Transactional(readOnly = true)
+    @Override
+    public Mono<OrderCacheDto> findOrder(long orderId) {
+        log.debug("Cache: add order with id = {}.", orderId);
+        return orderRepository.findById(orderId)
+                .flatMap(order -> orderItemRepository.findByOrderId(orderId)
+                        .collectList()
+                        .map(orderItems -> new OrderCacheDto(
+                                order.getUserId(),
+                                OrderMapper.toOrderResponseDto(order, orderItems)
+                        ))
+                );
+    }
+
+    /**
+     * Записывает только что созданный заказ в кэш (write-through при оформлении).
+     */
+    @CachePut(value = "order", key = "#order.order().id()")
+    @Override
+    public Mono<OrderCacheDto> putOrder(OrderCacheDto order) {
+        log.debug("Cache: put order with id = {}.", order.order().id());
+        return Mono.just(order);
+    }
+}
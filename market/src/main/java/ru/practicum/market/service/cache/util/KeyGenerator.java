@@ -2,6 +2,7 @@ package ru.practicum.market.service.cache.util;
 
 import lombok.experimental.UtilityClass;
 import org.springframework.data.domain.Pageable;
+import ru.practicum.market.web.dto.PriceRange;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -11,13 +12,23 @@ public class KeyGenerator {
     /**
      * Генерирует ключ кэша для страницы товаров.
      */
-    public static String generateKeyForItemsPage(String search, Pageable pageable) {
+    public static String generateKeyForItemsPage(String search, PriceRange price, Pageable pageable) {
         return (search == null || search.isBlank() ? "_" : search)
+                + "|" + (price.min() == null ? "_" : price.min())
+                + "|" + (price.max() == null ? "_" : price.max())
                 + "|" + pageable.getSort()
                 + "|" + pageable.getPageNumber()
                 + "|" + pageable.getPageSize();
     }
 
+    /**
+     * Генерирует ключ кэша страницы товаров, отфильтрованных по тегам; префикс отделяет его от ключей без тегов.
+     */
+    public static String generateKeyForTaggedItemsPage(String search, PriceRange price, List<String> tags,
+                                                       Pageable pageable) {
+        return "tags=" + String.join(",", tags) + "|" + generateKeyForItemsPage(search, price, pageable);
+    }
+
     /**
      * Генерирует ключ кэша корзины на основе отсортированного списка id.
      */
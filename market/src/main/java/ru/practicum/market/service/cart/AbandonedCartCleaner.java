@@ -0,0 +1,124 @@
+package ru.practicum.market.service.cart;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.repository.CartItemRepository;
+import ru.practicum.market.service.cache.CartQuantityCacheService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+
+/**
+ * Очистка брошенных корзин: корзины, не менявшиеся дольше {@code cart.cleanup.max-age}, удаляются целиком.
+ * <p>
+ * Раз в {@code cart.cleanup.interval} корзины удаляются пачками по {@code cart.cleanup.batch-size} с паузой
+ * {@code cart.cleanup.batch-pause} между пачками, чтобы очистка не занимала БД целиком. Прогон заканчивается
+ * на первой неполной пачке. Количества удаленных корзин убираются из кэша {@code cart-quantities}.
+ * <p>
+ * Метрики: {@value #BATCHES_METRIC}, {@value #CARTS_METRIC}, {@value #ITEMS_METRIC} и время прогона
+ * {@value #RUN_METRIC}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AbandonedCartCleaner {
+
+    static final String BATCHES_METRIC = "market.cart.cleanup.batches";
+    static final String CARTS_METRIC = "market.cart.cleanup.carts";
+    static final String ITEMS_METRIC = "market.cart.cleanup.items";
+    static final String RUN_METRIC = "market.cart.cleanup.run";
+
+    private final CartItemRepository cartItemRepository;
+    private final CartQuantityCacheService cartQuantityCacheService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cart.cleanup.max-age}")
+    private Duration maxAge;
+
+    @Value("${cart.cleanup.batch-size}")
+    private int batchSize;
+
+    @Value("${cart.cleanup.batch-pause}")
+    private Duration batchPause;
+
+    @Value("${cart.cleanup.interval}")
+    private Duration interval;
+
+    private Disposable cleaner;
+
+    /**
+     * Запускает периодическую очистку после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void startCleanup() {
+        cleaner = Flux.interval(interval, interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> cleanup()
+                        .onErrorResume(ex -> {
+                            log.warn("Failed to clean up abandoned carts", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Останавливает периодическую очистку.
+     */
+    @PreDestroy
+    void stopCleanup() {
+        if (cleaner != null) {
+            cleaner.dispose();
+        }
+    }
+
+    /**
+     * Удаляет брошенные корзины пачками, пока пачки полные.
+     *
+     * @return число удаленных корзин
+     */
+    public Mono<Long> cleanup() {
+        return Mono.defer(() -> {
+            var cutoff = LocalDateTime.now().minus(maxAge);
+            var startedAt = System.nanoTime();
+            return deleteBatch(cutoff)
+                    .expand(carts -> carts < batchSize
+                            ? Mono.empty()
+                            : Mono.delay(batchPause).then(Mono.defer(() -> deleteBatch(cutoff))))
+                    .reduce(0L, Long::sum)
+                    .doOnNext(carts -> {
+                        meterRegistry.timer(RUN_METRIC).record(Duration.ofNanos(System.nanoTime() - startedAt));
+                        if (carts > 0) {
+                            log.info("Abandoned carts cleaned up: {} carts older than {}", carts, cutoff);
+                        }
+                    });
+        });
+    }
+
+    private Mono<Long> deleteBatch(LocalDateTime cutoff) {
+        return cartItemRepository.deleteAbandonedCarts(cutoff, batchSize)
+                .collectList()
+                .flatMap(deletedUserIds -> {
+                    var userIds = new LinkedHashSet<>(deletedUserIds);
+                    meterRegistry.counter(BATCHES_METRIC).increment();
+                    meterRegistry.counter(CARTS_METRIC).increment(userIds.size());
+                    meterRegistry.counter(ITEMS_METRIC).increment(deletedUserIds.size());
+                    log.debug("Abandoned carts batch: {} carts, {} items", userIds.size(), deletedUserIds.size());
+
+                    if (userIds.isEmpty()) {
+                        return Mono.just(0L);
+                    }
+                    return cartQuantityCacheService.evictQuantities(userIds)
+                            .thenReturn((long) userIds.size());
+                });
+    }
+}
@@ -0,0 +1,160 @@
+package ru.practicum.market.service.converter;
+
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Разбор CSV по RFC 4180: первая строка — заголовок с теми же названиями колонок, что и в xlsx.
+ * Разделитель (запятая, точка с запятой или табуляция) определяется по заголовку.
+ * Поля в кавычках могут содержать разделитель, удвоенные кавычки и переводы строк.
+ * Запись из нескольких строк копится в памяти не длиннее {@code maxRecordLength} символов: незакрытая кавычка
+ * не может затянуть в память весь остаток файла.
+ */
+final class CsvItemParser implements TextItemParser {
+
+    private static final char QUOTE = '"';
+    private static final char[] DELIMITERS = {',', ';', '\t'};
+
+    private final int maxRecordLength;
+
+    private Map<ExcelItemColumn, Integer> columns;
+    private char delimiter;
+    private int lineNumber;
+
+    /**
+     * Начало записи, продолжающейся на следующих строках из-за перевода строки внутри кавычек.
+     */
+    private StringBuilder pending;
+    private int pendingLine;
+
+    /**
+     * @param maxRecordLength максимальная длина записи в символах, включая переводы строк внутри кавычек
+     */
+    CsvItemParser(int maxRecordLength) {
+        this.maxRecordLength = maxRecordLength;
+    }
+
+    @Override
+    public Item parse(String line) {
+        lineNumber++;
+        // Нечетное число кавычек в строке открывает поле в кавычках или закрывает открытое на прошлых строках,
+        // поэтому уже накопленную запись пересчитывать не нужно.
+        boolean togglesQuote = countQuotes(line) % 2 != 0;
+        var record = line;
+        int recordLine = lineNumber;
+        if (pending != null) {
+            if (pending.length() + 1 + line.length() > maxRecordLength) {
+                throw new ItemUploadException("Record starting at line %d is longer than %d characters"
+                        .formatted(pendingLine, maxRecordLength));
+            }
+            pending.append('\n').append(line);
+            if (!togglesQuote) {
+                return null;
+            }
+            record = pending.toString();
+            recordLine = pendingLine;
+            pending = null;
+        } else if (togglesQuote) {
+            pending = new StringBuilder(line);
+            pendingLine = lineNumber;
+            return null;
+        }
+
+        if (columns == null) {
+            return readHeader(ItemColumns.stripBom(record));
+        }
+        if (record.isBlank()) {
+            return null;
+        }
+
+        var fields = split(record, delimiter);
+        if (fields.stream().allMatch(String::isBlank)) {
+            return null;
+        }
+        return ItemColumns.toItem(column -> {
+            var index = columns.get(column);
+            return index == null || index >= fields.size() ? null : fields.get(index);
+        }, "line " + recordLine);
+    }
+
+    @Override
+    public void finish() {
+        if (pending != null) {
+            throw new ItemUploadException("Unterminated quoted field at line %d".formatted(pendingLine));
+        }
+    }
+
+    private Item readHeader(String header) {
+        if (header.isBlank()) {
+            return null;
+        }
+        delimiter = detectDelimiter(header);
+        var fields = split(header, delimiter);
+        Map<Integer, String> headerRow = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            headerRow.put(i, fields.get(i));
+        }
+        columns = ItemColumns.mapColumns(headerRow);
+        ItemColumns.validateRequired(columns.keySet(), "CSV header");
+        return null;
+    }
+
+    private static int countQuotes(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == QUOTE) {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    /**
+     * Выбирает разделитель, который чаще других встречается в заголовке вне кавычек.
+     */
+    private static char detectDelimiter(String header) {
+        char best = DELIMITERS[0];
+        int bestCount = 0;
+        for (char candidate : DELIMITERS) {
+            int count = split(header, candidate).size() - 1;
+            if (count > bestCount) {
+                best = candidate;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    private static List<String> split(String record, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        var field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != QUOTE) {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == QUOTE) {
+                    field.append(QUOTE);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -4,14 +4,23 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 /**
- * Перечень заголовков колонок Excel-файла с товарами.
+ * Перечень заголовков колонок файла с товарами: колонки xlsx и csv, поля ndjson.
  */
 @RequiredArgsConstructor
 public enum ExcelItemColumn {
-    TITLE("Title"),
-    DESCRIPTION("Description"),
-    PRICE("Price");
+    TITLE("Title", true),
+    DESCRIPTION("Description", true),
+    PRICE("Price", true),
+    SKU("SKU", false),
+    TAGS("Tags", false),
+    STOCK("Stock", false);
 
     @Getter
     private final String header;
+
+    /**
+     * Признак обязательной колонки.
+     */
+    @Getter
+    private final boolean required;
 }
@@ -0,0 +1,242 @@
+package ru.practicum.market.service.converter;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.SAXException;
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Потоковое чтение товаров из листа xlsx-файла.
+ * XML листа разбирается pull-парсером (StAX), поэтому в памяти находится только текущая строка
+ * и таблица общих строк книги; следующая строка читается только по запросу {@link #next()}.
+ */
+final class ExcelItemReader implements Closeable {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private final OPCPackage pkg;
+    private final ReadOnlySharedStringsTable sharedStrings;
+    private final InputStream sheetStream;
+    private final XMLStreamReader xml;
+
+    private Map<ExcelItemColumn, Integer> columns;
+    private int rowNumber;
+
+    private ExcelItemReader(
+            OPCPackage pkg,
+            ReadOnlySharedStringsTable sharedStrings,
+            InputStream sheetStream,
+            XMLStreamReader xml
+    ) {
+        this.pkg = pkg;
+        this.sharedStrings = sharedStrings;
+        this.sheetStream = sheetStream;
+        this.xml = xml;
+    }
+
+    /**
+     * Открывает xlsx-файл только на чтение и находит лист с указанным именем.
+     */
+    static ExcelItemReader open(Path path, String sheetName) {
+        OPCPackage pkg = null;
+        InputStream sheetStream = null;
+        try {
+            pkg = OPCPackage.open(path.toFile(), PackageAccess.READ);
+            var reader = new XSSFReader(pkg);
+            var sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            sheetStream = findSheet(reader, sheetName);
+            var xml = XML_INPUT_FACTORY.createXMLStreamReader(sheetStream);
+            return new ExcelItemReader(pkg, sharedStrings, sheetStream, xml);
+        } catch (IOException | OpenXML4JException | SAXException | XMLStreamException e) {
+            closeQuietly(sheetStream);
+            if (pkg != null) {
+                pkg.revert();
+            }
+            throw new ItemUploadException("Fail to parse Excel file: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            closeQuietly(sheetStream);
+            if (pkg != null) {
+                pkg.revert();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает следующий товар листа или {@code null}, если строки закончились.
+     * Первая строка листа считается заголовком, пустые строки пропускаются.
+     */
+    Item next() {
+        try {
+            Map<Integer, String> row;
+            while ((row = readRow()) != null) {
+                if (columns == null) {
+                    columns = ItemColumns.mapColumns(row);
+                    ItemColumns.validateRequired(columns.keySet(), "Excel header");
+                    continue;
+                }
+                if (isRowEmpty(row)) {
+                    continue;
+                }
+
+                var cells = row;
+                return ItemColumns.toItem(column -> {
+                    var index = columns.get(column);
+                    return index == null ? null : cells.get(index);
+                }, "row " + rowNumber);
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new ItemUploadException("Fail to parse Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            xml.close();
+        } catch (XMLStreamException ignored) {
+            // поток листа закрывается ниже
+        }
+        closeQuietly(sheetStream);
+        pkg.revert();
+    }
+
+    /**
+     * Ищет поток XML листа по имени.
+     */
+    private static InputStream findSheet(XSSFReader reader, String sheetName) throws IOException, OpenXML4JException {
+        var sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (sheets.hasNext()) {
+            var stream = sheets.next();
+            if (sheetName.equals(sheets.getSheetName())) {
+                return stream;
+            }
+            stream.close();
+        }
+        throw new ItemUploadException("Sheet '%s' not found in Excel file".formatted(sheetName));
+    }
+
+    /**
+     * Читает следующий элемент {@code <row>} листа в карту "индекс колонки -> текст ячейки".
+     */
+    private Map<Integer, String> readRow() throws XMLStreamException {
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT && "row".equals(xml.getLocalName())) {
+                var ref = xml.getAttributeValue(null, "r");
+                rowNumber = ref == null ? rowNumber + 1 : Integer.parseInt(ref);
+                return readCells();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Читает ячейки текущей строки до закрывающего {@code </row>}.
+     */
+    private Map<Integer, String> readCells() throws XMLStreamException {
+        Map<Integer, String> cells = new HashMap<>();
+        int position = 0;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(xml.getLocalName())) {
+                return cells;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(xml.getLocalName())) {
+                var ref = xml.getAttributeValue(null, "r");
+                int column = ref == null ? position : new CellReference(ref).getCol();
+                var value = readCellValue(xml.getAttributeValue(null, "t"));
+                if (value != null) {
+                    cells.put(column, value);
+                }
+                position = column + 1;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Читает значение ячейки {@code <c>} с учетом ее типа.
+     */
+    private String readCellValue(String type) throws XMLStreamException {
+        String raw = null;
+        StringBuilder inline = null;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "c".equals(xml.getLocalName())) {
+                break;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            switch (xml.getLocalName()) {
+                case "v" -> raw = xml.getElementText();
+                case "t" -> {
+                    if (inline == null) {
+                        inline = new StringBuilder();
+                    }
+                    inline.append(xml.getElementText());
+                }
+                default -> {
+                    // формулы и форматирование не нужны
+                }
+            }
+        }
+
+        if ("inlineStr".equals(type)) {
+            return inline == null ? null : inline.toString();
+        }
+        if (raw == null) {
+            return null;
+        }
+        if ("s".equals(type)) {
+            return sharedStrings.getItemAt(Integer.parseInt(raw)).getString();
+        }
+        return raw;
+    }
+
+    /**
+     * Определяет, является ли строка пустой.
+     */
+    private static boolean isRowEmpty(Map<Integer, String> row) {
+        return row.values().stream().allMatch(String::isBlank);
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        if (stream == null) {
+            return;
+        }
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // поток только для чтения
+        }
+    }
+
+    /**
+     * Создает StAX-фабрику без поддержки DTD и внешних сущностей.
+     */
+    private static XMLInputFactory createXmlInputFactory() {
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.practicum.market.service.converter;
+
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Общие для всех форматов импорта правила колонок: сопоставление заголовков с {@link ExcelItemColumn},
+ * проверка обязательных колонок и сборка товара из значений строки.
+ */
+final class ItemColumns {
+
+    private static final Pattern TAG_SEPARATOR = Pattern.compile("[,;|]");
+    private static final int MAX_TAG_LENGTH = 64;
+
+    private ItemColumns() {
+    }
+
+    /**
+     * Возвращает колонку по заголовку без учета регистра или {@code null}, если заголовок неизвестен.
+     */
+    static ExcelItemColumn byHeader(String header) {
+        var trimmed = stripBom(header).trim();
+        for (ExcelItemColumn column : ExcelItemColumn.values()) {
+            if (column.getHeader().equalsIgnoreCase(trimmed)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Строит карту индексов колонок по строке заголовка.
+     */
+    static Map<ExcelItemColumn, Integer> mapColumns(Map<Integer, String> headerRow) {
+        Map<ExcelItemColumn, Integer> map = new EnumMap<>(ExcelItemColumn.class);
+        headerRow.forEach((index, value) -> {
+            var column = byHeader(value);
+            if (column != null) {
+                map.put(column, index);
+            }
+        });
+        return map;
+    }
+
+    /**
+     * Проверяет, что все обязательные колонки присутствуют.
+     *
+     * @param present найденные колонки
+     * @param source  источник для текста ошибки, например {@code "Excel header"}
+     */
+    static void validateRequired(Collection<ExcelItemColumn> present, String source) {
+        for (ExcelItemColumn column : ExcelItemColumn.values()) {
+            if (column.isRequired() && !present.contains(column)) {
+                throw new ItemUploadException("Required column '%s' is missing in %s".formatted(column.name(), source));
+            }
+        }
+    }
+
+    /**
+     * Собирает товар из значений строки.
+     *
+     * @param values   значение ячейки по колонке, {@code null} для пустой ячейки
+     * @param location положение строки для текста ошибки, например {@code "row 5"}
+     */
+    static Item toItem(Function<ExcelItemColumn, String> values, String location) {
+        var item = new Item();
+        item.setTitle(values.apply(ExcelItemColumn.TITLE));
+        item.setDescription(values.apply(ExcelItemColumn.DESCRIPTION));
+        item.setPrice((long) parseNumber(values.apply(ExcelItemColumn.PRICE), ExcelItemColumn.PRICE, location));
+        item.setSku(optional(values.apply(ExcelItemColumn.SKU)));
+        item.setTags(parseTags(values.apply(ExcelItemColumn.TAGS), location));
+        item.setStock(parseStock(values.apply(ExcelItemColumn.STOCK), location));
+        return item;
+    }
+
+    /**
+     * Разбирает остаток товара на складе: целое неотрицательное число.
+     * Пустая ячейка дает {@code null}: остаток товара при импорте не меняется.
+     */
+    static Integer parseStock(String value, String location) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        var stock = parseNumber(value, ExcelItemColumn.STOCK, location);
+        if (stock < 0 || stock > Integer.MAX_VALUE || stock != Math.rint(stock)) {
+            throw new ItemUploadException("Column '%s' must be a non-negative integer, got '%s' at %s"
+                    .formatted(ExcelItemColumn.STOCK.name(), value, location));
+        }
+        return (int) stock;
+    }
+
+    /**
+     * Разбирает теги товара: значения через {@code ,}, {@code ;} или {@code |}, без учета регистра и повторов.
+     * Пустая ячейка дает {@code null}: теги товара при импорте не меняются.
+     *
+     * @return имена тегов в нижнем регистре по алфавиту или {@code null}
+     */
+    static List<String> parseTags(String value, String location) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        var tags = new TreeSet<String>();
+        for (String part : TAG_SEPARATOR.split(value)) {
+            var tag = part.trim().toLowerCase(Locale.ROOT);
+            if (tag.isEmpty()) {
+                continue;
+            }
+            if (tag.length() > MAX_TAG_LENGTH) {
+                throw new ItemUploadException("Tag '%s' is longer than %d characters at %s"
+                        .formatted(tag, MAX_TAG_LENGTH, location));
+            }
+            tags.add(tag);
+        }
+        return tags.isEmpty() ? null : List.copyOf(tags);
+    }
+
+    /**
+     * Убирает BOM, с которого может начинаться первая строка текстового файла.
+     */
+    static String stripBom(String value) {
+        return !value.isEmpty() && value.charAt(0) == '\uFEFF' ? value.substring(1) : value;
+    }
+
+    /**
+     * Значение необязательной колонки: пустое значение дает {@code null}.
+     */
+    private static String optional(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static double parseNumber(String value, ExcelItemColumn column, String location) {
+        if (value == null || value.isBlank()) {
+            throw new ItemUploadException("Numeric column '%s' is empty at %s".formatted(column.name(), location));
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new ItemUploadException(
+                    "Numeric column '%s' has invalid value '%s' at %s".formatted(column.name(), value, location), e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.market.service.converter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Чтение файла с товарами любого поддерживаемого формата.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemFileConverter {
+    private static final String TEMP_FILE_PREFIX = "items-upload-";
+
+    private final ExcelConverter excelConverter;
+    private final TextItemConverter textItemConverter;
+
+    /**
+     * Определяет формат загруженного файла.
+     */
+    public ItemFileFormat detectFormat(FilePart file) {
+        return ItemFileFormat.of(file);
+    }
+
+    /**
+     * Сохраняет содержимое загруженного файла во временный файл.
+     * Multipart-часть пишется на диск без склейки в один буфер. Для xlsx это обязательно: xlsx — это zip-архив,
+     * оглавление которого находится в конце файла. Текстовые форматы тоже сохраняются, потому что импорт
+     * выполняется в фоне, уже после завершения запроса с загрузкой.
+     * Файл удаляется вызывающей стороной через {@link #deleteTempFile(Path)}.
+     */
+    public Mono<Path> spoolToTempFile(FilePart file, ItemFileFormat format) {
+        return Mono.fromCallable(() -> Files.createTempFile(TEMP_FILE_PREFIX, format.getExtensions().getFirst()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(path -> DataBufferUtils.write(file.content(), path)
+                        .thenReturn(path)
+                        .onErrorResume(ex -> deleteTempFile(path).then(Mono.error(ex))))
+                .onErrorMap(IOException.class, e -> new ItemUploadException("Fail to read items file: " + e.getMessage(), e));
+    }
+
+    /**
+     * Читает товары из временного файла в указанном формате.
+     */
+    public Flux<Item> readItems(Path path, ItemFileFormat format) {
+        return format == ItemFileFormat.XLSX
+                ? excelConverter.readItems(path)
+                : textItemConverter.readItems(path, format);
+    }
+
+    /**
+     * Удаляет временный файл загрузки.
+     */
+    public Mono<Void> deleteTempFile(Path path) {
+        return Mono.fromCallable(() -> Files.deleteIfExists(path))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IOException.class, e -> {
+                    log.warn("Failed to delete temp file {}", path, e);
+                    return Mono.just(false);
+                })
+                .then();
+    }
+}
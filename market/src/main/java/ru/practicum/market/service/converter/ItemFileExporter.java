@@ -0,0 +1,171 @@
+package ru.practicum.market.service.converter;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.market.domain.model.Item;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Потоковая выгрузка товаров в xlsx и csv с теми же колонками, что читает импорт.
+ * Товары запрашиваются у источника по мере записи, поэтому объем памяти не зависит от размера каталога.
+ */
+@Slf4j
+@Component
+public class ItemFileExporter {
+
+    /**
+     * Количество строк листа, которые SXSSF держит в памяти; остальные сброшены во временный файл.
+     */
+    private static final int XLSX_ROW_WINDOW = 100;
+    /**
+     * Сколько товаров запрашивается у источника за раз при записи xlsx.
+     */
+    private static final int XLSX_PREFETCH = 256;
+    private static final int XLSX_OUTPUT_CHUNK_SIZE = 64 * 1024;
+    /**
+     * Количество строк csv в одном буфере ответа.
+     */
+    private static final int CSV_CHUNK_ROWS = 500;
+    private static final String CSV_BOM = "\uFEFF";
+
+    private static final List<ExcelItemColumn> COLUMNS = List.of(ExcelItemColumn.values());
+
+    /**
+     * Выгружает товары в указанном формате.
+     *
+     * @param items         товары в порядке выгрузки
+     * @param format        формат файла
+     * @param bufferFactory фабрика буферов ответа
+     * @return содержимое файла
+     */
+    public Flux<DataBuffer> export(Flux<Item> items, ItemFileFormat format, DataBufferFactory bufferFactory) {
+        return switch (format) {
+            case XLSX -> exportXlsx(items, bufferFactory);
+            case CSV -> exportCsv(items, bufferFactory);
+            case NDJSON -> Flux.error(new IllegalArgumentException("Export to NDJSON is not supported"));
+        };
+    }
+
+    /**
+     * Пишет книгу SXSSF в выходной поток на boundedElastic: в памяти только окно из {@value #XLSX_ROW_WINDOW} строк,
+     * выходной поток отдает буферы по мере их запроса клиентом.
+     */
+    private Flux<DataBuffer> exportXlsx(Flux<Item> items, DataBufferFactory bufferFactory) {
+        return Flux.from(DataBufferUtils.outputStreamPublisher(
+                out -> writeXlsx(items, out),
+                bufferFactory,
+                task -> Schedulers.boundedElastic().schedule(task),
+                XLSX_OUTPUT_CHUNK_SIZE
+        ));
+    }
+
+    private void writeXlsx(Flux<Item> items, OutputStream out) {
+        var workbook = new SXSSFWorkbook(XLSX_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            var sheet = workbook.createSheet(ExcelConverter.SHEET);
+            var header = sheet.createRow(0);
+            for (int c = 0; c < COLUMNS.size(); c++) {
+                header.createCell(c).setCellValue(COLUMNS.get(c).getHeader());
+            }
+
+            int rowIndex = 1;
+            // Блокирующий обход допустим: метод выполняется на потоке boundedElastic.
+            for (var item : items.toIterable(XLSX_PREFETCH)) {
+                var row = sheet.createRow(rowIndex++);
+                for (int c = 0; c < COLUMNS.size(); c++) {
+                    var column = COLUMNS.get(c);
+                    if (column == ExcelItemColumn.PRICE) {
+                        row.createCell(c).setCellValue(item.getPrice());
+                    } else if (column == ExcelItemColumn.STOCK) {
+                        if (item.getStock() != null) {
+                            row.createCell(c).setCellValue(item.getStock());
+                        }
+                    } else {
+                        var value = textValue(item, column);
+                        if (value != null) {
+                            row.createCell(c).setCellValue(value);
+                        }
+                    }
+                }
+            }
+
+            workbook.write(out);
+            log.debug("Exported {} items to xlsx", rowIndex - 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to write Excel file", e);
+        } finally {
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                log.warn("Failed to close export workbook", e);
+            }
+        }
+    }
+
+    /**
+     * Пишет csv пачками по {@value #CSV_CHUNK_ROWS} строк; первая пачка начинается с BOM и заголовка,
+     * чтобы Excel открывал файл в UTF-8.
+     */
+    private Flux<DataBuffer> exportCsv(Flux<Item> items, DataBufferFactory bufferFactory) {
+        var header = new StringBuilder(CSV_BOM);
+        appendCsvRow(header, COLUMNS.stream().map(ExcelItemColumn::getHeader).toList());
+
+        return Flux.concat(
+                Flux.just(header.toString()),
+                items.buffer(CSV_CHUNK_ROWS).map(ItemFileExporter::toCsv)
+        ).map(chunk -> bufferFactory.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String toCsv(List<Item> chunk) {
+        var csv = new StringBuilder(chunk.size() * 128);
+        for (var item : chunk) {
+            appendCsvRow(csv, COLUMNS.stream().map(column -> textValue(item, column)).toList());
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Добавляет строку csv по RFC 4180: поля с разделителем, кавычками или переводом строки берутся в кавычки.
+     */
+    private static void appendCsvRow(StringBuilder csv, List<String> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                csv.append(',');
+            }
+            var value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                csv.append(value);
+            }
+        }
+        csv.append("\r\n");
+    }
+
+    private static String textValue(Item item, ExcelItemColumn column) {
+        return switch (column) {
+            case TITLE -> item.getTitle();
+            case DESCRIPTION -> item.getDescription();
+            case SKU -> item.getSku();
+            case PRICE -> Long.toString(item.getPrice());
+            case TAGS -> item.getTags() == null || item.getTags().isEmpty() ? null : String.join(", ", item.getTags());
+            case STOCK -> item.getStock() == null ? null : Integer.toString(item.getStock());
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.market.service.converter;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.multipart.FilePart;
+import ru.practicum.market.domain.exception.ItemUploadException;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Поддерживаемые форматы файла с товарами.
+ */
+public enum ItemFileFormat {
+    XLSX(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"), ".xlsx"),
+    CSV(MediaType.parseMediaType("text/csv"), ".csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, ".ndjson", ".jsonl");
+
+    @Getter
+    private final MediaType mediaType;
+
+    /**
+     * Расширения файла, первое используется для временного файла.
+     */
+    @Getter
+    private final List<String> extensions;
+
+    ItemFileFormat(MediaType mediaType, String... extensions) {
+        this.mediaType = mediaType;
+        this.extensions = List.of(extensions);
+    }
+
+    /**
+     * Определяет формат загруженного файла по расширению, а если оно неизвестно — по MIME-типу.
+     * Расширение проверяется первым: браузеры отправляют csv с разными MIME-типами.
+     */
+    public static ItemFileFormat of(FilePart file) {
+        var fileName = file.filename().toLowerCase(Locale.ROOT);
+        for (ItemFileFormat format : values()) {
+            if (format.extensions.stream().anyMatch(fileName::endsWith)) {
+                return format;
+            }
+        }
+
+        var contentType = file.headers().getContentType();
+        if (contentType != null) {
+            for (ItemFileFormat format : values()) {
+                if (format.mediaType.equalsTypeAndSubtype(contentType)) {
+                    return format;
+                }
+            }
+        }
+        throw new ItemUploadException("Please upload an xlsx, csv or ndjson file!");
+    }
+}
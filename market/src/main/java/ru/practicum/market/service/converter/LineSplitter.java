@@ -0,0 +1,116 @@
+package ru.practicum.market.service.converter;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.ItemUploadException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Делит поток {@link DataBuffer} на строки UTF-8.
+ * Строка, целиком лежащая в одном буфере, декодируется прямо из буфера без промежуточного массива;
+ * копируются только байты строки, разорванной границей буферов.
+ * Разделитель — {@code \n}, завершающий {@code \r} отбрасывается.
+ */
+final class LineSplitter {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final int maxLineLength;
+    private final ByteArrayOutputStream carry = new ByteArrayOutputStream();
+
+    private LineSplitter(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+
+    /**
+     * Возвращает строки содержимого; буферы освобождаются по мере разбора.
+     *
+     * @param content       содержимое файла
+     * @param maxLineLength максимальная длина строки в байтах
+     */
+    static Flux<String> lines(Flux<DataBuffer> content, int maxLineLength) {
+        return Flux.defer(() -> {
+            var splitter = new LineSplitter(maxLineLength);
+            return content
+                    .concatMapIterable(splitter::split)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .concatWith(Mono.fromSupplier(splitter::remainder));
+        });
+    }
+
+    /**
+     * Выделяет из буфера все завершенные строки, хвост без перевода строки переносится в следующий буфер.
+     */
+    private List<String> split(DataBuffer buffer) {
+        try {
+            List<String> lines = new ArrayList<>();
+            int start = buffer.readPosition();
+            int end = buffer.writePosition();
+            while (start < end) {
+                int lf = buffer.indexOf(b -> b == LF, start);
+                if (lf < 0) {
+                    append(buffer, start, end);
+                    break;
+                }
+                if (carry.size() == 0) {
+                    lines.add(decode(buffer, start, lf));
+                } else {
+                    append(buffer, start, lf);
+                    lines.add(drainCarry());
+                }
+                start = lf + 1;
+            }
+            return lines;
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * Последняя строка без завершающего перевода строки или {@code null}.
+     */
+    private String remainder() {
+        return carry.size() == 0 ? null : drainCarry();
+    }
+
+    private String decode(DataBuffer buffer, int start, int lf) {
+        int length = lf - start;
+        if (length > 0 && buffer.getByte(lf - 1) == CR) {
+            length--;
+        }
+        checkLength(length);
+        return buffer.toString(start, length, StandardCharsets.UTF_8);
+    }
+
+    private void append(DataBuffer buffer, int start, int end) {
+        int length = end - start;
+        checkLength(carry.size() + length);
+        var bytes = new byte[length];
+        buffer.readPosition(start);
+        buffer.read(bytes);
+        carry.write(bytes, 0, length);
+    }
+
+    private String drainCarry() {
+        var bytes = carry.toByteArray();
+        carry.reset();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == CR) {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void checkLength(int length) {
+        if (length > maxLineLength) {
+            throw new ItemUploadException("Line is longer than %d bytes".formatted(maxLineLength));
+        }
+    }
+}
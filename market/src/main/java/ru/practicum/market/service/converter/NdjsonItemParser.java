@@ -0,0 +1,58 @@
+package ru.practicum.market.service.converter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Разбор NDJSON: каждая непустая строка — JSON-объект, имена полей совпадают с заголовками колонок xlsx
+ * без учета регистра, неизвестные поля игнорируются.
+ */
+final class NdjsonItemParser implements TextItemParser {
+
+    private final ObjectMapper objectMapper;
+    private int lineNumber;
+
+    NdjsonItemParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Item parse(String line) {
+        lineNumber++;
+        var json = lineNumber == 1 ? ItemColumns.stripBom(line) : line;
+        if (json.isBlank()) {
+            return null;
+        }
+
+        var location = "line " + lineNumber;
+        var node = readObject(json, location);
+        Map<ExcelItemColumn, String> values = new EnumMap<>(ExcelItemColumn.class);
+        node.fields().forEachRemaining(field -> {
+            var column = ItemColumns.byHeader(field.getKey());
+            if (column != null && !field.getValue().isNull()) {
+                values.put(column, field.getValue().asText());
+            }
+        });
+        ItemColumns.validateRequired(values.keySet(), "NDJSON " + location);
+        return ItemColumns.toItem(values::get, location);
+    }
+
+    private JsonNode readObject(String json, String location) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new ItemUploadException("Invalid JSON at %s: %s".formatted(location, e.getOriginalMessage()), e);
+        }
+        if (!node.isObject()) {
+            throw new ItemUploadException("JSON object expected at %s".formatted(location));
+        }
+        return node;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.market.service.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.Item;
+
+import java.nio.file.Path;
+
+/**
+ * Потоковый разбор текстовых форматов импорта (CSV и NDJSON).
+ * Содержимое разбирается по мере поступления буферов, в памяти находится только текущая строка.
+ */
+@Component
+@RequiredArgsConstructor
+public class TextItemConverter {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Читает товары из файла неблокирующим чтением по {@value #READ_BUFFER_SIZE} байт.
+     */
+    public Flux<Item> readItems(Path path, ItemFileFormat format) {
+        return readItems(DataBufferUtils.read(path, DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE), format);
+    }
+
+    /**
+     * Читает товары из потока буферов, например из содержимого {@code FilePart}.
+     */
+    public Flux<Item> readItems(Flux<DataBuffer> content, ItemFileFormat format) {
+        return Flux.defer(() -> {
+            var parser = createParser(format);
+            return LineSplitter.lines(content, MAX_LINE_LENGTH)
+                    .<Item>handle((line, sink) -> {
+                        var item = parser.parse(line);
+                        if (item != null) {
+                            sink.next(item);
+                        }
+                    })
+                    .concatWith(Mono.fromRunnable(parser::finish));
+        });
+    }
+
+    private TextItemParser createParser(ItemFileFormat format) {
+        return switch (format) {
+            case CSV -> new CsvItemParser(MAX_LINE_LENGTH);
+            case NDJSON -> new NdjsonItemParser(objectMapper);
+            case XLSX -> throw new IllegalArgumentException("XLSX is not a text format");
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.market.service.converter;
+
+import ru.practicum.market.domain.model.Item;
+
+/**
+ * Построчный разбор текстового файла с товарами.
+ * Экземпляр хранит состояние одного файла (заголовок, номер строки) и не переиспользуется.
+ */
+interface TextItemParser {
+
+    /**
+     * Разбирает очередную строку файла.
+     *
+     * @return товар или {@code null}, если строка не содержит товара (заголовок, пустая строка, незавершенная запись)
+     */
+    Item parse(String line);
+
+    /**
+     * Проверяет состояние после последней строки файла.
+     */
+    default void finish() {
+    }
+}
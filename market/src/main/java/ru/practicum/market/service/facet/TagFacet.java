@@ -0,0 +1,13 @@
+package ru.practicum.market.service.facet;
+
+/**
+ * Счетчик фасета: сколько товаров выборки отмечено тегом.
+ *
+ * @param name  имя тега
+ * @param count количество товаров выборки с этим тегом
+ */
+public record TagFacet(
+        String name,
+        long count
+) {
+}
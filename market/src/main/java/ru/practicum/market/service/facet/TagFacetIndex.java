@@ -0,0 +1,273 @@
+package ru.practicum.market.service.facet;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.projection.ItemPriceRow;
+import ru.practicum.market.repository.projection.ItemTagRow;
+import ru.practicum.market.web.dto.PriceRange;
+import ru.practicum.market.web.dto.enums.SortMethod;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Индекс фасетов каталога в памяти: для каждого тега — сжатая битовая карта (Roaring) идентификаторов товаров.
+ * <p>
+ * Выборка по нескольким тегам — пересечение карт, счетчики фасетов — мощность пересечения карты тега с выборкой;
+ * ни то ни другое не обращается к базе. Для сортировки страниц индекс хранит идентификаторы товаров
+ * в порядке названия, цены и популярности, а для фильтра по цене — сами цены.
+ * <p>
+ * Индекс перестраивается целиком после импорта и раз в {@code items.facets.refresh-interval},
+ * чтобы подхватить изменения других экземпляров приложения. Читатели работают с неизменяемым снимком,
+ * поэтому блокировки не нужны. Идентификаторы товаров должны помещаться в {@code int}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TagFacetIndex {
+
+    private final ItemRepository itemRepository;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+    private final AtomicLong versions = new AtomicLong();
+
+    @Value("${items.facets.refresh-interval}")
+    private Duration refreshInterval;
+
+    private Disposable refresher;
+
+    /**
+     * Строит индекс после старта приложения (когда миграции уже применены) и запускает периодическое обновление.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void startRefresh() {
+        refresher = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh()
+                        .onErrorResume(ex -> {
+                            log.warn("Failed to refresh tag facet index", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Останавливает периодическое обновление.
+     */
+    @PreDestroy
+    void stopRefresh() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    /**
+     * Перечитывает теги, порядок и цены товаров и подменяет снимок.
+     * Порядок по популярности обновляется только здесь, между обновлениями он может отставать от продаж.
+     * Если параллельно строились несколько снимков, остается начатый последним.
+     *
+     * @return сигнал завершения
+     */
+    public Mono<Void> refresh() {
+        return Mono.defer(() -> {
+            var version = versions.incrementAndGet();
+            return Mono.zip(
+                            itemRepository.findAllTags().collectList(),
+                            itemRepository.findIdsOrderByTitle().collectList(),
+                            itemRepository.findPricesOrderByPrice().collectList(),
+                            itemRepository.findIdsOrderByPopularity().collectList())
+                    .map(t -> Snapshot.build(version, t.getT1(), t.getT2(), t.getT3(), t.getT4()))
+                    .doOnNext(built -> {
+                        snapshot.accumulateAndGet(built, (current, next) -> next.version() > current.version() ? next : current);
+                        log.debug("Tag facet index rebuilt: {} items, {} tags", built.all().getCardinality(), built.byTag().size());
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * Выбирает товары, отмеченные всеми тегами {@code tags}, с ценой в диапазоне {@code price}.
+     * Пустой список тегов выбирает весь каталог. Результат нельзя изменять: он может быть картой самого индекса.
+     *
+     * @param tags  имена тегов в нижнем регистре
+     * @param price диапазон цены
+     * @return идентификаторы выбранных товаров
+     */
+    public RoaringBitmap select(Collection<String> tags, PriceRange price) {
+        var current = snapshot.get();
+        var bitmaps = new ArrayList<RoaringBitmap>(tags.size() + 1);
+        for (var tag : tags) {
+            var bitmap = current.byTag().get(tag);
+            if (bitmap == null) {
+                return new RoaringBitmap();
+            }
+            bitmaps.add(bitmap);
+        }
+        if (price.isBounded()) {
+            bitmaps.add(current.priceRange(price.min(), price.max()));
+        }
+        if (bitmaps.isEmpty()) {
+            return current.all();
+        }
+
+        // Пересечение начинается с самой маленькой карты: промежуточный результат не растет.
+        bitmaps.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+        var result = bitmaps.getFirst();
+        for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+            result = RoaringBitmap.and(result, bitmaps.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Считает товары выборки по каждому тегу каталога.
+     *
+     * @param selection выборка товаров
+     * @return счетчики по всем тегам в алфавитном порядке, в том числе нулевые
+     */
+    public List<TagFacet> facets(RoaringBitmap selection) {
+        var byTag = snapshot.get().byTag();
+        var facets = new ArrayList<TagFacet>(byTag.size());
+        byTag.forEach((tag, bitmap) -> facets.add(new TagFacet(tag, RoaringBitmap.andCardinality(bitmap, selection))));
+        return facets;
+    }
+
+    /**
+     * Возвращает идентификаторы товаров страницы выборки в порядке сортировки каталога;
+     * без сортировки товары идут по возрастанию id.
+     *
+     * @param selection выборка товаров
+     * @param sort      способ сортировки
+     * @param offset    сколько товаров выборки пропустить
+     * @param limit     размер страницы
+     * @return идентификаторы товаров страницы
+     */
+    public List<Long> page(RoaringBitmap selection, SortMethod sort, long offset, int limit) {
+        var ids = new ArrayList<Long>(limit);
+        if (offset >= selection.getLongCardinality()) {
+            return ids;
+        }
+
+        if (sort == SortMethod.NO) {
+            var iterator = selection.getIntIterator();
+            iterator.advanceIfNeeded(selection.select((int) offset));
+            while (iterator.hasNext() && ids.size() < limit) {
+                ids.add((long) iterator.next());
+            }
+            return ids;
+        }
+
+        var current = snapshot.get();
+        var ordered = switch (sort) {
+            case PRICE -> current.idsByPrice();
+            case POPULAR -> current.idsByPopularity();
+            default -> current.idsByTitle();
+        };
+        long skipped = 0;
+        for (int i = 0; i < ordered.length && ids.size() < limit; i++) {
+            if (selection.contains(ordered[i]) && skipped++ >= offset) {
+                ids.add((long) ordered[i]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Неизменяемый снимок индекса.
+     *
+     * @param version         номер построения, больший номер новее
+     * @param byTag           карта товаров по тегу, ключи по алфавиту
+     * @param all             все товары каталога
+     * @param idsByTitle      товары по названию
+     * @param idsByPrice      товары по цене
+     * @param prices          цены товаров в порядке {@code idsByPrice}
+     * @param idsByPopularity товары по популярности
+     */
+    private record Snapshot(long version, Map<String, RoaringBitmap> byTag, RoaringBitmap all,
+                            int[] idsByTitle, int[] idsByPrice, long[] prices, int[] idsByPopularity) {
+
+        static final Snapshot EMPTY =
+                new Snapshot(0, Map.of(), new RoaringBitmap(), new int[0], new int[0], new long[0], new int[0]);
+
+        static Snapshot build(long version, List<ItemTagRow> tags, List<Long> idsByTitle, List<ItemPriceRow> prices,
+                              List<Long> idsByPopularity) {
+            var titleOrder = toIntArray(idsByTitle);
+            var popularityOrder = toIntArray(idsByPopularity);
+            var priceOrder = new int[prices.size()];
+            var priceValues = new long[prices.size()];
+            for (int i = 0; i < priceOrder.length; i++) {
+                priceOrder[i] = Math.toIntExact(prices.get(i).id());
+                priceValues[i] = prices.get(i).price();
+            }
+
+            var all = RoaringBitmap.bitmapOf(titleOrder);
+            all.runOptimize();
+            Map<String, RoaringBitmap> byTag = new TreeMap<>();
+            for (var row : tags) {
+                byTag.computeIfAbsent(row.tag(), tag -> new RoaringBitmap()).add(Math.toIntExact(row.itemId()));
+            }
+            // Запросы снимка выполняются порознь: связи товаров, удаленных между ними, отбрасываются.
+            byTag.replaceAll((tag, bitmap) -> {
+                var known = RoaringBitmap.and(bitmap, all);
+                known.runOptimize();
+                return known;
+            });
+            return new Snapshot(version, byTag, all, titleOrder, priceOrder, priceValues, popularityOrder);
+        }
+
+        private static int[] toIntArray(List<Long> ids) {
+            var result = new int[ids.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = Math.toIntExact(ids.get(i));
+            }
+            return result;
+        }
+
+        /**
+         * Товары с ценой в диапазоне; границы включительно, {@code null} — без границы.
+         */
+        RoaringBitmap priceRange(Long min, Long max) {
+            int from = min == null ? 0 : firstIndexAbove(min - 1);
+            int to = max == null ? prices.length : firstIndexAbove(max);
+            var bitmap = new RoaringBitmap();
+            if (from < to) {
+                bitmap.addN(idsByPrice, from, to - from);
+            }
+            return bitmap;
+        }
+
+        /**
+         * Индекс первой цены больше {@code value} в отсортированном массиве цен.
+         */
+        private int firstIndexAbove(long value) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (prices[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.market.service.flashsale;
+
+import java.time.Instant;
+
+/**
+ * Резерв единиц товара распродажи за покупателем.
+ *
+ * @param itemId    идентификатор товара
+ * @param quantity  зарезервированное количество
+ * @param expiresAt время, до которого резерв нужно выкупить
+ */
+public record FlashSaleClaim(
+        long itemId,
+        int quantity,
+        Instant expiresAt
+) {
+}
@@ -0,0 +1,379 @@
+package ru.practicum.market.service.flashsale;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.OrderConflictException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Распродажа ограниченного количества товара: резервы покупателей в Redis.
+ * <p>
+ * Каждое изменение — один Lua-скрипт, который Redis выполняет атомарно: проверка остатка, списание и запись
+ * покупателя не перемежаются с параллельными резервами, поэтому продать больше объявленного количества нельзя.
+ * Резерв действует {@code items.flash-sale.claim-ttl}; просроченные резервы возвращаются в остаток при следующем
+ * резерве этого товара. При оформлении заказа резервы покупателя списываются одним скриптом и становятся
+ * обычными позициями заказа; резервы уже завершенных распродаж при этом отбрасываются. Выкупленные количества
+ * копятся по покупателям до конца распродажи, и лимит {@code items.flash-sale.max-per-buyer} действует
+ * на сумму выкупленного и зарезервированного. Postgres в резервировании не участвует: единицы распродажи
+ * списываются со склада при ее старте, а невыкупленный остаток — остаток распродажи и еще не списанные
+ * резервы — возвращается на склад при ее завершении или перезапуске.
+ * <p>
+ * Все ключи распродаж содержат общий hash tag {@code {flash-sale}}, чтобы скрипты работали и в Redis Cluster.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleStore {
+
+    private static final String KEY_PREFIX = "{flash-sale}:";
+    private static final String UNITS_KEY = KEY_PREFIX + "units:";
+    private static final String CLAIMS_KEY = KEY_PREFIX + "claims:";
+    private static final String QUANTITIES_KEY = KEY_PREFIX + "quantities:";
+    private static final String BUYER_KEY = KEY_PREFIX + "buyer:";
+    private static final String BOUGHT_KEY = KEY_PREFIX + "bought:";
+
+    /**
+     * Сколько просроченных резервов возвращается в остаток за один вызов — ограничивает время скрипта.
+     */
+    static final int EXPIRED_CLAIMS_BATCH = 100;
+
+    static final long NO_SALE = -2;
+    static final long ALREADY_CLAIMED = -3;
+    static final long SOLD_OUT = -1;
+    static final long LIMIT_REACHED = -4;
+
+    /**
+     * Ответ {@link #CONSUME_SCRIPT}, если резерв идущей распродажи истек.
+     */
+    static final String EXPIRED = "-1";
+
+    /**
+     * KEYS: остаток, резервы (покупатель → срок), количества (покупатель → штук), резервы покупателя,
+     * выкуплено (покупатель → штук).
+     * ARGV: покупатель, товар, количество, текущее время, срок резерва в мс, размер пачки просроченных,
+     * лимит на покупателя.
+     * Возвращает остаток после резерва или код ошибки.
+     */
+    private static final RedisScript<Long> CLAIM_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return -2
+            end
+            local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', ARGV[4], 'LIMIT', 0, ARGV[6])
+            for _, buyer in ipairs(expired) do
+                redis.call('INCRBY', KEYS[1], tonumber(redis.call('HGET', KEYS[3], buyer) or 0))
+                redis.call('HDEL', KEYS[3], buyer)
+                redis.call('ZREM', KEYS[2], buyer)
+            end
+            if redis.call('ZSCORE', KEYS[2], ARGV[1]) then
+                return -3
+            end
+            local quantity = tonumber(ARGV[3])
+            if tonumber(redis.call('HGET', KEYS[5], ARGV[1]) or 0) + quantity > tonumber(ARGV[7]) then
+                return -4
+            end
+            local units = tonumber(redis.call('GET', KEYS[1]))
+            if units < quantity then
+                return -1
+            end
+            redis.call('DECRBY', KEYS[1], quantity)
+            redis.call('HSET', KEYS[3], ARGV[1], quantity)
+            redis.call('ZADD', KEYS[2], ARGV[5], ARGV[1])
+            redis.call('HSET', KEYS[4], ARGV[2], quantity)
+            redis.call('PEXPIREAT', KEYS[4], ARGV[5])
+            return units - quantity
+            """, Long.class);
+
+    /**
+     * KEYS: резервы покупателя, затем по четверке (остаток, резервы, количества, выкуплено) на каждый товар.
+     * ARGV: покупатель, текущее время, затем по паре (товар, количество) на каждый товар.
+     * Резервы завершенных распродаж убираются из резервов покупателя и не списываются. Остальные резервы
+     * списываются все или ни один; просроченные при этом убираются из резервов покупателя.
+     * Возвращает id списанных товаров через запятую или {@link #EXPIRED}.
+     */
+    private static final RedisScript<String> CONSUME_SCRIPT = RedisScript.of("""
+            local items = (#ARGV - 2) / 2
+            local running = {}
+            local valid = true
+            for i = 1, items do
+                local key = 4 * i - 2
+                if redis.call('EXISTS', KEYS[key]) == 0 then
+                    redis.call('HDEL', KEYS[1], ARGV[2 * i + 1])
+                else
+                    local expiresAt = redis.call('ZSCORE', KEYS[key + 1], ARGV[1])
+                    local quantity = redis.call('HGET', KEYS[key + 2], ARGV[1])
+                    if not expiresAt or tonumber(expiresAt) <= tonumber(ARGV[2])
+                            or tonumber(quantity) ~= tonumber(ARGV[2 * i + 2]) then
+                        redis.call('HDEL', KEYS[1], ARGV[2 * i + 1])
+                        valid = false
+                    end
+                    table.insert(running, i)
+                end
+            end
+            if not valid then
+                return '-1'
+            end
+            local consumed = {}
+            for _, i in ipairs(running) do
+                local key = 4 * i - 2
+                redis.call('ZREM', KEYS[key + 1], ARGV[1])
+                redis.call('HDEL', KEYS[key + 2], ARGV[1])
+                redis.call('HINCRBY', KEYS[key + 3], ARGV[1], ARGV[2 * i + 2])
+                redis.call('HDEL', KEYS[1], ARGV[2 * i + 1])
+                table.insert(consumed, ARGV[2 * i + 1])
+            end
+            return table.concat(consumed, ',')
+            """, String.class);
+
+    /**
+     * KEYS: по паре (остаток, выкуплено) на каждый товар. ARGV: покупатель, затем по паре (товар, количество).
+     * Возвращает единицы в остатки еще идущих распродаж и уменьшает выкупленное покупателем.
+     * Возвращает id товаров завершенных распродаж через запятую.
+     */
+    private static final RedisScript<String> RESTORE_SCRIPT = RedisScript.of("""
+            local ended = {}
+            for i = 1, (#ARGV - 1) / 2 do
+                local quantity = tonumber(ARGV[2 * i + 1])
+                if redis.call('EXISTS', KEYS[2 * i - 1]) == 1 then
+                    redis.call('INCRBY', KEYS[2 * i - 1], quantity)
+                    if redis.call('HINCRBY', KEYS[2 * i], ARGV[1], -quantity) <= 0 then
+                        redis.call('HDEL', KEYS[2 * i], ARGV[1])
+                    end
+                else
+                    table.insert(ended, ARGV[2 * i])
+                end
+            end
+            return table.concat(ended, ',')
+            """, String.class);
+
+    /**
+     * KEYS: остаток, резервы, количества, выкуплено. ARGV: новый остаток или ничего, если распродажа завершается.
+     * Сбрасывает распродажу и возвращает ее невыкупленные единицы: остаток и все еще не списанные резервы,
+     * включая просроченные.
+     */
+    private static final RedisScript<Long> RESET_SCRIPT = RedisScript.of("""
+            local remaining = tonumber(redis.call('GET', KEYS[1]) or 0)
+            for _, quantity in ipairs(redis.call('HVALS', KEYS[3])) do
+                remaining = remaining + tonumber(quantity)
+            end
+            redis.call('DEL', KEYS[1], KEYS[2], KEYS[3], KEYS[4])
+            if #ARGV > 0 then
+                redis.call('SET', KEYS[1], ARGV[1])
+            end
+            return remaining
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    @Value("${items.flash-sale.claim-ttl}")
+    private Duration claimTtl;
+
+    @Value("${items.flash-sale.max-per-buyer}")
+    private int maxPerBuyer;
+
+    /**
+     * Начинает распродажу товара: задает остаток и сбрасывает резервы и покупки предыдущей распродажи.
+     *
+     * @param itemId идентификатор товара
+     * @param units  количество единиц на распродажу
+     * @return невыкупленные единицы предыдущей распродажи, {@code 0}, если ее не было
+     */
+    public Mono<Integer> start(long itemId, int units) {
+        return reset(itemId, List.of(String.valueOf(units)))
+                .doOnNext(previous -> log.info("Flash sale started for itemId={} with {} units, {} units left before",
+                        itemId, units, previous));
+    }
+
+    /**
+     * Завершает распродажу товара. Невыкупленные резервы перестают действовать и отбрасываются
+     * при следующем оформлении заказа покупателем.
+     *
+     * @param itemId идентификатор товара
+     * @return невыкупленные единицы распродажи, {@code 0}, если ее не было
+     */
+    public Mono<Integer> stop(long itemId) {
+        return reset(itemId, List.of())
+                .doOnNext(remaining -> log.info("Flash sale stopped for itemId={} with {} units left", itemId, remaining));
+    }
+
+    private Mono<Integer> reset(long itemId, List<String> args) {
+        var keys = List.of(UNITS_KEY + itemId, CLAIMS_KEY + itemId, QUANTITIES_KEY + itemId, BOUGHT_KEY + itemId);
+        return redisTemplate.execute(RESET_SCRIPT, keys, args)
+                .next()
+                .map(Long::intValue);
+    }
+
+    /**
+     * Возвращает остаток распродажи или пустой результат, если товар не распродается.
+     * Невыкупленные просроченные резервы в остаток не входят до следующего резерва.
+     *
+     * @param itemId идентификатор товара
+     * @return остаток единиц
+     */
+    public Mono<Integer> units(long itemId) {
+        return redisTemplate.opsForValue().get(UNITS_KEY + itemId)
+                .map(Integer::parseInt);
+    }
+
+    /**
+     * Резервирует единицы товара за покупателем. Один покупатель держит не больше одного резерва товара,
+     * а вместе с уже выкупленным на распродаже — не больше {@code items.flash-sale.max-per-buyer} единиц.
+     *
+     * @param userId   идентификатор покупателя
+     * @param itemId   идентификатор товара
+     * @param quantity количество единиц
+     * @return резерв или {@link OrderConflictException}, если распродажи нет, резерв уже есть, лимит покупателя
+     * исчерпан или единицы кончились
+     */
+    public Mono<FlashSaleClaim> claim(long userId, long itemId, int quantity) {
+        var now = Instant.now();
+        var expiresAt = now.plus(claimTtl);
+        var keys = List.of(UNITS_KEY + itemId, CLAIMS_KEY + itemId, QUANTITIES_KEY + itemId, BUYER_KEY + userId,
+                BOUGHT_KEY + itemId);
+        var args = List.of(
+                String.valueOf(userId),
+                String.valueOf(itemId),
+                String.valueOf(quantity),
+                String.valueOf(now.toEpochMilli()),
+                String.valueOf(expiresAt.toEpochMilli()),
+                String.valueOf(EXPIRED_CLAIMS_BATCH),
+                String.valueOf(maxPerBuyer));
+
+        return redisTemplate.execute(CLAIM_SCRIPT, keys, args)
+                .next()
+                .flatMap(remaining -> {
+                    if (remaining == NO_SALE) {
+                        return Mono.error(new OrderConflictException(
+                                "Item %d is not on flash sale.".formatted(itemId)));
+                    }
+                    if (remaining == ALREADY_CLAIMED) {
+                        return Mono.error(new OrderConflictException(
+                                "Item %d is already reserved for user %d.".formatted(itemId, userId)));
+                    }
+                    if (remaining == LIMIT_REACHED) {
+                        return Mono.error(new OrderConflictException(
+                                "User %d has reached the flash sale limit of item %d.".formatted(userId, itemId)));
+                    }
+                    if (remaining == SOLD_OUT) {
+                        return Mono.error(new OrderConflictException(
+                                "Flash sale of item %d is sold out.".formatted(itemId)));
+                    }
+                    log.debug("Flash sale claim: itemId={}, userId={}, quantity={}, remaining={}",
+                            itemId, userId, quantity, remaining);
+                    return Mono.just(new FlashSaleClaim(itemId, quantity, expiresAt));
+                });
+    }
+
+    /**
+     * Возвращает резервы покупателя: количество по товарам, включая еще не убранные просроченные.
+     *
+     * @param userId идентификатор покупателя
+     * @return количества по id товаров в порядке возрастания id
+     */
+    public Mono<Map<Long, Integer>> claims(long userId) {
+        return redisTemplate.<String, String>opsForHash().entries(BUYER_KEY + userId)
+                .collectMap(entry -> Long.parseLong(entry.getKey()),
+                        entry -> Integer.parseInt(entry.getValue()),
+                        TreeMap::new);
+    }
+
+    /**
+     * Списывает резервы покупателя при оформлении заказа: все резервы идущих распродаж или ни одного.
+     * Резервы завершенных распродаж отбрасываются и в заказ не попадают.
+     *
+     * @param userId     идентификатор покупателя
+     * @param quantities резервы, полученные {@link #claims(long)}
+     * @return списанные резервы в порядке возрастания id товаров или {@link OrderConflictException},
+     * если какой-то резерв истек
+     */
+    public Mono<Map<Long, Integer>> consume(long userId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        keys.add(BUYER_KEY + userId);
+        args.add(String.valueOf(userId));
+        args.add(String.valueOf(Instant.now().toEpochMilli()));
+        quantities.forEach((itemId, quantity) -> {
+            keys.add(UNITS_KEY + itemId);
+            keys.add(CLAIMS_KEY + itemId);
+            keys.add(QUANTITIES_KEY + itemId);
+            keys.add(BOUGHT_KEY + itemId);
+            args.add(String.valueOf(itemId));
+            args.add(String.valueOf(quantity));
+        });
+
+        return redisTemplate.execute(CONSUME_SCRIPT, keys, args)
+                .next()
+                .defaultIfEmpty("")
+                .flatMap(consumed -> {
+                    if (EXPIRED.equals(consumed)) {
+                        return Mono.error(new OrderConflictException(
+                                "Flash sale reservation of user %d has expired.".formatted(userId)));
+                    }
+                    Map<Long, Integer> result = new TreeMap<>();
+                    for (var id : consumed.split(",")) {
+                        if (!id.isEmpty()) {
+                            var itemId = Long.parseLong(id);
+                            result.put(itemId, quantities.get(itemId));
+                        }
+                    }
+                    if (result.size() < quantities.size()) {
+                        log.info("Flash sale claims of ended sales dropped for userId={}: {}", userId,
+                                quantities.keySet().stream().filter(itemId -> !result.containsKey(itemId)).toList());
+                    }
+                    log.debug("Flash sale claims consumed for userId={}: {}", userId, result);
+                    return Mono.just(result);
+                });
+    }
+
+    /**
+     * Возвращает списанные резервы в остатки распродаж и снимает их с выкупленного покупателем,
+     * если заказ не оформился. Единицы завершенных распродаж в Redis не возвращаются.
+     *
+     * @param userId     идентификатор покупателя
+     * @param quantities количества по id товаров
+     * @return количества завершенных распродаж в порядке возрастания id товаров: их нужно вернуть на склад
+     */
+    public Mono<Map<Long, Integer>> restore(long userId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(userId));
+        quantities.forEach((itemId, quantity) -> {
+            keys.add(UNITS_KEY + itemId);
+            keys.add(BOUGHT_KEY + itemId);
+            args.add(String.valueOf(itemId));
+            args.add(String.valueOf(quantity));
+        });
+        return redisTemplate.execute(RESTORE_SCRIPT, keys, args)
+                .next()
+                .defaultIfEmpty("")
+                .map(ended -> {
+                    Map<Long, Integer> result = new TreeMap<>();
+                    for (var id : ended.split(",")) {
+                        if (!id.isEmpty()) {
+                            var itemId = Long.parseLong(id);
+                            result.put(itemId, quantities.get(itemId));
+                        }
+                    }
+                    log.debug("Flash sale units restored for userId={}, ended sales: {}", userId, result);
+                    return result;
+                });
+    }
+}
@@ -0,0 +1,266 @@
+package ru.practicum.market.service.image;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.service.cache.ItemCacheService;
+import ru.practicum.market.web.dto.ImageArchiveEntryResponseDto;
+import ru.practicum.market.web.dto.enums.ImageArchiveEntryStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Привязывает изображения из ZIP-архива к товарам. Имя файла без расширения — id товара или его артикул.
+ * <p>
+ * Архив распаковывается потоково по мере чтения запроса: в памяти не больше {@code image.archive.concurrency}
+ * файлов одновременно, каждый не больше {@code image.archive.max-entry-size}. Файлы сохраняются параллельно,
+ * пути изображений записываются пачками по {@code image.archive.batch-size} одним запросом на пачку,
+ * кэши сбрасываются тоже один раз на пачку.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageArchiveImporter {
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "webp");
+    private static final Pattern ITEM_ID = Pattern.compile("\\d{1,18}");
+    /**
+     * Сколько буферов запроса читать вперед при распаковке.
+     */
+    private static final int ARCHIVE_PREFETCH = 4;
+
+    private final ImageStore imageStore;
+    private final ImageVariantProcessor imageVariantProcessor;
+    private final ItemRepository itemRepository;
+    private final ItemCacheService itemCacheService;
+
+    @Value("${image.archive.concurrency}")
+    private int concurrency;
+    @Value("${image.archive.batch-size}")
+    private int batchSize;
+    @Value("${image.archive.max-entry-size}")
+    private DataSize maxEntrySize;
+    @Value("${image.public-uri-prefix}")
+    private String imagePublicUriPrefix;
+
+    /**
+     * Обрабатывает архив и выдает по строке отчета на каждый файл архива.
+     *
+     * @param archive содержимое ZIP-архива
+     * @return отчет по файлам; порядок строк внутри пачки не гарантирован
+     */
+    public Flux<ImageArchiveEntryResponseDto> importArchive(Flux<DataBuffer> archive) {
+        return readEntries(archive)
+                .flatMap(this::storeEntry, concurrency)
+                .buffer(batchSize)
+                .concatMap(this::attachBatch);
+    }
+
+    /**
+     * Читает файлы архива по одному по запросу подписчика; блокирующее чтение идет на boundedElastic.
+     * Поврежденный архив завершает поток строкой отчета с ошибкой.
+     */
+    private Flux<ArchiveEntry> readEntries(Flux<DataBuffer> archive) {
+        return Flux.using(
+                        () -> new ZipInputStream(DataBufferUtils.subscriberInputStream(archive, ARCHIVE_PREFETCH)),
+                        zip -> Flux.generate((SynchronousSink<ArchiveEntry> sink) -> {
+                            var entry = readNext(zip);
+                            if (entry == null) {
+                                sink.complete();
+                            } else {
+                                sink.next(entry);
+                            }
+                        }),
+                        zip -> {
+                            try {
+                                zip.close();
+                            } catch (IOException e) {
+                                log.debug("Failed to close image archive", e);
+                            }
+                        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(ex -> {
+                    log.warn("Failed to read image archive", ex);
+                    return Mono.just(ArchiveEntry.failed(null, "Archive cannot be read: " + ex.getMessage()));
+                });
+    }
+
+    /**
+     * Читает следующий файл архива целиком, но не больше {@code maxEntrySize} байт.
+     */
+    private ArchiveEntry readNext(ZipInputStream zip) {
+        try {
+            var entry = zip.getNextEntry();
+            if (entry == null) {
+                return null;
+            }
+
+            var name = entry.getName();
+            if (entry.isDirectory()) {
+                return ArchiveEntry.skipped(name, "Directory");
+            }
+            var fileName = name.substring(name.lastIndexOf('/') + 1);
+            int dotIndex = fileName.lastIndexOf('.');
+            var extension = dotIndex > 0 ? fileName.substring(dotIndex + 1).toLowerCase(Locale.ROOT) : "";
+            if (fileName.startsWith(".") || name.startsWith("__MACOSX/") || !IMAGE_EXTENSIONS.contains(extension)) {
+                return ArchiveEntry.skipped(name, "Not an image file");
+            }
+
+            long limit = maxEntrySize.toBytes();
+            var bytes = zip.readNBytes((int) Math.min(limit + 1, Integer.MAX_VALUE - 8));
+            if (bytes.length > limit) {
+                return ArchiveEntry.skipped(name, "File is larger than %s".formatted(maxEntrySize));
+            }
+            return ArchiveEntry.read(name, fileName.substring(0, dotIndex), bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Сохраняет файл в хранилище изображений; ошибка сохранения попадает в отчет и не останавливает архив.
+     */
+    private Mono<ArchiveEntry> storeEntry(ArchiveEntry entry) {
+        if (entry.bytes() == null) {
+            return Mono.just(entry);
+        }
+        return imageStore.store(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(entry.bytes())), entry.name())
+                .map(entry::withStored)
+                .onErrorResume(ex -> {
+                    log.warn("Failed to store archive entry {}", entry.name(), ex);
+                    return Mono.just(ArchiveEntry.failed(entry.name(), ex.getMessage()));
+                });
+    }
+
+    /**
+     * Находит товары пачки, одним запросом записывает их изображения, один раз сбрасывает кэши
+     * и ставит в очередь построение копий.
+     */
+    private Flux<ImageArchiveEntryResponseDto> attachBatch(List<ArchiveEntry> batch) {
+        var stored = batch.stream().filter(entry -> entry.stored() != null).toList();
+        if (stored.isEmpty()) {
+            return Flux.fromIterable(batch).map(ArchiveEntry::toResult);
+        }
+
+        return resolveItems(stored)
+                .flatMapMany(itemIdByKey -> {
+                    List<ImageArchiveEntryResponseDto> results = new ArrayList<>();
+                    // Для одного товара побеждает последний файл пачки.
+                    Map<Long, ArchiveEntry> attached = new LinkedHashMap<>();
+                    for (ArchiveEntry entry : batch) {
+                        if (entry.stored() == null) {
+                            results.add(entry.toResult());
+                            continue;
+                        }
+                        var itemId = itemIdByKey.get(entry.key());
+                        if (itemId == null) {
+                            results.add(new ImageArchiveEntryResponseDto(entry.name(), null, ImageArchiveEntryStatus.NOT_FOUND,
+                                    "Item with id or SKU '%s' not found".formatted(entry.key())));
+                            continue;
+                        }
+                        var replaced = attached.put(itemId, entry);
+                        if (replaced != null) {
+                            results.add(new ImageArchiveEntryResponseDto(replaced.name(), itemId, ImageArchiveEntryStatus.SKIPPED,
+                                    "Replaced by %s".formatted(entry.name())));
+                        }
+                    }
+                    if (attached.isEmpty()) {
+                        return Flux.fromIterable(results);
+                    }
+
+                    var ids = attached.keySet().toArray(Long[]::new);
+                    var imgPaths = attached.values().stream()
+                            .map(entry -> imagePublicUriPrefix + entry.stored().fileName())
+                            .toArray(String[]::new);
+                    return itemRepository.updateImagePaths(ids, imgPaths)
+                            .doOnNext(updated -> log.debug("Archive batch: {} item images updated", updated))
+                            .then(itemCacheService.evictItems(attached.keySet()))
+                            .then(itemCacheService.evictListings())
+                            .thenMany(Flux.fromIterable(attached.entrySet()))
+                            .map(attachedEntry -> {
+                                var itemId = attachedEntry.getKey();
+                                var entry = attachedEntry.getValue();
+                                imageVariantProcessor.submit(itemId, imagePublicUriPrefix + entry.stored().fileName(),
+                                        entry.stored().path());
+                                return new ImageArchiveEntryResponseDto(entry.name(), itemId, ImageArchiveEntryStatus.ATTACHED, null);
+                            })
+                            .startWith(results);
+                });
+    }
+
+    /**
+     * Сопоставляет ключи файлов с товарами: числовой ключ сначала ищется как id, затем любой ключ — как артикул.
+     */
+    private Mono<Map<String, Long>> resolveItems(List<ArchiveEntry> entries) {
+        var keys = entries.stream().map(ArchiveEntry::key).distinct().toList();
+        var ids = keys.stream().filter(key -> ITEM_ID.matcher(key).matches()).map(Long::valueOf).toList();
+
+        Mono<Map<Long, Long>> byId = ids.isEmpty()
+                ? Mono.just(Map.of())
+                : itemRepository.findByIdIn(ids).collectMap(Item::getId, Item::getId);
+        Mono<Map<String, Long>> bySku = itemRepository.findBySkuIn(keys).collectMap(Item::getSku, Item::getId);
+
+        return Mono.zip(byId, bySku)
+                .map(found -> {
+                    Map<String, Long> itemIdByKey = new HashMap<>(found.getT2());
+                    found.getT1().forEach((id, ignored) -> itemIdByKey.put(id.toString(), id));
+                    return itemIdByKey;
+                });
+    }
+
+    /**
+     * Файл архива на пути от распаковки до привязки к товару.
+     *
+     * @param name    имя файла в архиве
+     * @param key     имя файла без расширения: id или артикул товара
+     * @param bytes   содержимое; {@code null} для пропущенного файла и после сохранения
+     * @param stored  сохраненное изображение
+     * @param status  итог для отчета, если файл не дошел до привязки
+     * @param message причина пропуска или ошибки
+     */
+    private record ArchiveEntry(String name, String key, byte[] bytes, ImageStore.StoredImage stored,
+                                ImageArchiveEntryStatus status, String message) {
+
+        static ArchiveEntry read(String name, String key, byte[] bytes) {
+            return new ArchiveEntry(name, key, bytes, null, null, null);
+        }
+
+        static ArchiveEntry skipped(String name, String message) {
+            return new ArchiveEntry(name, null, null, null, ImageArchiveEntryStatus.SKIPPED, message);
+        }
+
+        static ArchiveEntry failed(String name, String message) {
+            return new ArchiveEntry(name, null, null, null, ImageArchiveEntryStatus.FAILED, message);
+        }
+
+        ArchiveEntry withStored(ImageStore.StoredImage stored) {
+            // Байты больше не нужны: файл уже на диске.
+            return new ArchiveEntry(name, key, null, stored, null, null);
+        }
+
+        ImageArchiveEntryResponseDto toResult() {
+            return new ImageArchiveEntryResponseDto(name, null, status, message);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.market.service.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Строит уменьшенные копии изображения товара в JPEG.
+ * Все операции блокирующие и нагружают процессор, вызываются только из пула {@link ImageVariantProcessor}.
+ */
+@Component
+@Slf4j
+public class ImageResizer {
+
+    @Value("${image.variants.jpeg-quality}")
+    private float jpegQuality;
+
+    /**
+     * Записывает все копии {@link ImageVariant} рядом с исходным файлом.
+     * Копии пишутся без метаданных исходного файла (EXIF, ICC-профиль, комментарии), прозрачность заливается белым.
+     * Имя исходника — хэш содержимого, поэтому уже построенные копии с тем же именем переиспользуются.
+     *
+     * @param original  исходное изображение
+     * @param directory директория для копий
+     * @param baseName  основа имени файлов копий
+     * @return пути копий; пустая карта, если файл не удалось прочитать как изображение
+     */
+    public Map<ImageVariant, Path> writeVariants(Path original, Path directory, String baseName) throws IOException {
+        var existing = existingVariants(directory, baseName);
+        if (existing != null) {
+            log.debug("Image {} variants already exist", original);
+            return existing;
+        }
+
+        var variants = Arrays.stream(ImageVariant.values())
+                .sorted(Comparator.comparingInt(ImageVariant::getSize).reversed())
+                .toList();
+        var image = read(original, variants.getFirst().getSize());
+        if (image == null) {
+            log.warn("File {} is not a readable image, variants are not created", original);
+            return Map.of();
+        }
+
+        Map<ImageVariant, Path> paths = new EnumMap<>(ImageVariant.class);
+        // Каждая следующая копия уменьшается из предыдущей, а не из исходника.
+        for (ImageVariant variant : variants) {
+            image = fit(image, variant.getSize());
+            var target = directory.resolve(variant.fileName(baseName));
+            writeJpeg(image, target);
+            paths.put(variant, target);
+        }
+        log.debug("Image {} variants written: {}", original, paths);
+        return paths;
+    }
+
+    /**
+     * Пути копий, если все они уже построены, иначе {@code null}.
+     */
+    private static Map<ImageVariant, Path> existingVariants(Path directory, String baseName) {
+        Map<ImageVariant, Path> paths = new EnumMap<>(ImageVariant.class);
+        for (ImageVariant variant : ImageVariant.values()) {
+            var path = directory.resolve(variant.fileName(baseName));
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            paths.put(variant, path);
+        }
+        return paths;
+    }
+
+    /**
+     * Вписывает изображение в квадрат {@code maxSize} с сохранением пропорций и приводит его к RGB.
+     * Уменьшение идет последовательными сжатиями вдвое с билинейной интерполяцией:
+     * качество близко к усреднению по площади при заметно меньшей стоимости.
+     */
+    static BufferedImage fit(BufferedImage image, int maxSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        var current = image;
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            current = draw(current, width, height);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight
+                || current.getType() != BufferedImage.TYPE_INT_RGB) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    /**
+     * Читает изображение, пропуская метаданные. Большие изображения декодируются с прореживанием,
+     * сохраняя не меньше двух пикселей на пиксель самой крупной копии.
+     */
+    private static BufferedImage read(Path file, int maxSize) throws IOException {
+        try (var input = ImageIO.createImageInputStream(file.toFile())) {
+            var readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longSide / (2 * maxSize));
+                var param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } catch (IOException | IllegalArgumentException e) {
+                // Поврежденный файл или неподдерживаемая цветовая модель (например, CMYK JPEG).
+                log.warn("Failed to decode image {}: {}", file, e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        var target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        var graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    /**
+     * Пишет JPEG во временный файл и атомарно переносит его на место, чтобы по URI копии не отдался недописанный файл.
+     */
+    private void writeJpeg(BufferedImage image, Path target) throws IOException {
+        var writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        var param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+
+        var temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (var output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            writer.dispose();
+            Files.deleteIfExists(temp);
+        }
+    }
+}
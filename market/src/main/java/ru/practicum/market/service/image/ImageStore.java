@@ -0,0 +1,152 @@
+package ru.practicum.market.service.image;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.market.domain.exception.ItemImageBadRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Хранилище изображений с адресацией по содержимому: файл называется SHA-256 своих байтов.
+ * Повторная загрузка того же изображения не создает новый файл, а содержимое по одному URI никогда не меняется,
+ * поэтому изображения можно отдавать с бессрочным кэшированием.
+ */
+@Component
+@Slf4j
+public class ImageStore {
+
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    @Value("${image.path}")
+    private String imagePath;
+
+    /**
+     * Пишет содержимое во временный файл, считая хэш по мере записи, и переносит файл под имя хэша.
+     * Если файл с таким содержимым уже есть, временный файл удаляется.
+     *
+     * @param content          содержимое изображения
+     * @param originalFilename исходное имя файла, из него берется только расширение
+     * @return сохраненное изображение
+     */
+    public Mono<StoredImage> store(Flux<DataBuffer> content, String originalFilename) {
+        var extension = extension(originalFilename);
+        return ensureUploadPath()
+                .flatMap(uploadPath -> createTempFile(uploadPath)
+                        .flatMap(temp -> {
+                            var digest = sha256();
+                            var hashed = content.doOnNext(buffer -> {
+                                try (var iterator = buffer.readableByteBuffers()) {
+                                    iterator.forEachRemaining(digest::update);
+                                }
+                            });
+                            return DataBufferUtils.write(hashed, temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                                    .then(Mono.fromCallable(() -> moveToContentAddress(uploadPath, temp, digest, extension))
+                                            .subscribeOn(Schedulers.boundedElastic()))
+                                    .onErrorResume(ex -> deleteQuietly(temp).then(Mono.error(ex)));
+                        }))
+                .onErrorMap(IOException.class, exception ->
+                        new ItemImageBadRequest("Failed to store image!", exception));
+    }
+
+    /**
+     * Переносит временный файл под имя {@code <sha256>.<расширение>} или удаляет его, если такой файл уже сохранен.
+     */
+    private StoredImage moveToContentAddress(Path uploadPath, Path temp, MessageDigest digest, String extension)
+            throws IOException {
+        var hash = HexFormat.of().formatHex(digest.digest());
+        var fileName = extension.isEmpty() ? hash : hash + "." + extension;
+        var target = uploadPath.resolve(fileName);
+
+        if (Files.exists(target)) {
+            Files.delete(temp);
+            log.debug("Image {} already stored, upload deduplicated", fileName);
+            return new StoredImage(fileName, target, false);
+        }
+        // Одновременная загрузка того же содержимого перезапишет файл теми же байтами.
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("Image {} stored", fileName);
+        return new StoredImage(fileName, target, true);
+    }
+
+    /**
+     * Гарантирует существование директории для загрузки изображений.
+     */
+    private Mono<Path> ensureUploadPath() {
+        return Mono.fromCallable(() -> {
+                    // Создание директории — потенциально блокирующая операция.
+                    var uploadPath = Paths.get(imagePath).toAbsolutePath().normalize();
+                    Files.createDirectories(uploadPath);
+                    return uploadPath;
+                })
+                // Переносим в boundedElastic и прокидываем ошибку как ItemImageBadRequest.
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(IOException.class, exception ->
+                        new ItemImageBadRequest("Failed to create upload directory!", exception));
+    }
+
+    private static Mono<Path> createTempFile(Path uploadPath) {
+        return Mono.fromCallable(() -> Files.createTempFile(uploadPath, "upload-", ".tmp"))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static Mono<Void> deleteQuietly(Path file) {
+        return Mono.fromCallable(() -> Files.deleteIfExists(file))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(IOException.class, ex -> {
+                    log.warn("Failed to delete temp image {}", file, ex);
+                    return Mono.just(false);
+                })
+                .then();
+    }
+
+    /**
+     * Расширение исходного файла в нижнем регистре; подозрительное расширение отбрасывается.
+     */
+    static String extension(String originalFilename) {
+        var sanitizedName = StringUtils.hasText(originalFilename)
+                // Нормализуем имя файла, отбрасывая пути.
+                ? Paths.get(originalFilename).getFileName().toString()
+                : "";
+        int dotIndex = sanitizedName.lastIndexOf('.');
+        if (dotIndex == -1 || dotIndex == sanitizedName.length() - 1) {
+            return "";
+        }
+        var extension = sanitizedName.substring(dotIndex + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Сохраненное изображение.
+     *
+     * @param fileName имя файла: хэш содержимого и расширение
+     * @param path     путь файла
+     * @param created  {@code false}, если такое содержимое уже было сохранено раньше
+     */
+    public record StoredImage(String fileName, Path path, boolean created) {
+    }
+}
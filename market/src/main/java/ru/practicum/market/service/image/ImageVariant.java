@@ -0,0 +1,39 @@
+package ru.practicum.market.service.image;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Уменьшенные копии изображения товара: изображение вписывается в квадрат со стороной {@link #getSize()}
+ * с сохранением пропорций и без увеличения.
+ */
+@RequiredArgsConstructor
+public enum ImageVariant {
+    /**
+     * Плитка каталога и корзина.
+     */
+    THUMBNAIL("thumb", 400),
+    /**
+     * Страница товара.
+     */
+    CARD("card", 800);
+
+    /**
+     * Суффикс имени файла копии.
+     */
+    @Getter
+    private final String suffix;
+
+    /**
+     * Максимальная сторона копии в пикселях.
+     */
+    @Getter
+    private final int size;
+
+    /**
+     * Имя файла копии: {@code <baseName>-<suffix>.jpg}; одно исходное имя всегда дает одно имя копии.
+     */
+    public String fileName(String baseName) {
+        return "%s-%s.jpg".formatted(baseName, suffix);
+    }
+}
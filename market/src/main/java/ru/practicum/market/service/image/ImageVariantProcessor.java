@@ -0,0 +1,148 @@
+package ru.practicum.market.service.image;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.service.cache.ItemCacheService;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Фоновое построение уменьшенных копий загруженных изображений.
+ * Изображения обрабатываются не больше чем {@code image.variants.threads} одновременно на отдельном пуле потоков,
+ * остальные ждут в очереди; загрузка изображения не ждет построения копий.
+ * Кэши сбрасываются сразу для всех товаров, обработанных за короткое окно, чтобы массовая загрузка
+ * не сбрасывала листинги на каждое изображение.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageVariantProcessor {
+
+    private final ImageResizer imageResizer;
+    private final ItemRepository itemRepository;
+    private final ItemCacheService itemCacheService;
+
+    private static final int EVICT_BATCH_SIZE = 100;
+    private static final Duration EVICT_WINDOW = Duration.ofMillis(200);
+
+    private final Sinks.Many<ImageTask> queue = Sinks.many().unicast().onBackpressureBuffer();
+
+    @Value("${image.variants.threads}")
+    private int threads;
+    @Value("${image.public-uri-prefix}")
+    private String imagePublicUriPrefix;
+
+    private Scheduler scheduler;
+    private Disposable worker;
+
+    /**
+     * Создает пул обработки и запускает обработчик очереди.
+     */
+    @PostConstruct
+    void startWorker() {
+        scheduler = Schedulers.newBoundedElastic(threads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "image-variants");
+        worker = queue.asFlux()
+                .flatMap(this::process, threads)
+                .bufferTimeout(EVICT_BATCH_SIZE, EVICT_WINDOW)
+                .concatMap(this::evictCaches)
+                .subscribe();
+    }
+
+    /**
+     * Останавливает обработчик очереди и пул.
+     */
+    @PreDestroy
+    void stopWorker() {
+        if (worker != null) {
+            worker.dispose();
+        }
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+
+    /**
+     * Ставит в очередь построение копий для только что сохраненного изображения товара.
+     *
+     * @param itemId   идентификатор товара
+     * @param imgPath  URI исходного изображения, сохраненный в товаре
+     * @param original путь исходного файла
+     */
+    public void submit(long itemId, String imgPath, Path original) {
+        log.debug("Queueing image variants for itemId={} from {}", itemId, original);
+        queue.emitNext(new ImageTask(itemId, imgPath, original), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+    }
+
+    /**
+     * Строит копии и сохраняет их пути в товаре; ошибка одного изображения не останавливает очередь.
+     */
+    private Mono<Long> process(ImageTask task) {
+        return Mono.fromCallable(() -> imageResizer.writeVariants(task.original(), task.original().getParent(), baseName(task.original())))
+                .subscribeOn(scheduler)
+                .flatMap(variants -> variants.isEmpty() ? Mono.empty() : saveVariants(task, variants))
+                .onErrorResume(ex -> {
+                    log.warn("Failed to build image variants for itemId={}", task.itemId(), ex);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Сохраняет пути копий. Если изображение товара за это время заменили,
+     * товар не меняется: копии нового изображения сохранит его собственная задача.
+     *
+     * @return идентификатор обновленного товара
+     */
+    private Mono<Long> saveVariants(ImageTask task, Map<ImageVariant, Path> variants) {
+        return itemRepository.updateImageVariants(
+                        task.itemId(),
+                        task.imgPath(),
+                        publicUri(variants.get(ImageVariant.THUMBNAIL)),
+                        publicUri(variants.get(ImageVariant.CARD)))
+                .flatMap(updated -> {
+                    if (updated == 0) {
+                        log.debug("Image of itemId={} was replaced, variants of {} are not saved", task.itemId(), task.imgPath());
+                        return Mono.empty();
+                    }
+                    log.debug("Image variants saved for itemId={}", task.itemId());
+                    return Mono.just(task.itemId());
+                });
+    }
+
+    /**
+     * Сбрасывает кэши товаров с новыми копиями; ошибка кэша не останавливает очередь.
+     */
+    private Mono<Void> evictCaches(List<Long> itemIds) {
+        return itemCacheService.evictItems(itemIds)
+                .then(itemCacheService.evictListings())
+                .onErrorResume(ex -> {
+                    log.warn("Failed to evict caches for items {}", itemIds, ex);
+                    return Mono.empty();
+                });
+    }
+
+    private String publicUri(Path variant) {
+        return imagePublicUriPrefix + variant.getFileName();
+    }
+
+    private static String baseName(Path original) {
+        var fileName = original.getFileName().toString();
+        int dotIndex = fileName.lastIndexOf('.');
+        return dotIndex > 0 ? fileName.substring(0, dotIndex) : fileName;
+    }
+
+    private record ImageTask(long itemId, String imgPath, Path original) {
+    }
+}
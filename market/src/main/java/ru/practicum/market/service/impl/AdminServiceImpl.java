@@ -5,26 +5,30 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Caching;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import ru.practicum.market.domain.exception.ItemImageBadRequest;
 import ru.practicum.market.domain.exception.ItemNotFoundException;
-import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
 import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.projection.ItemStockRow;
+import ru.practicum.market.repository.projection.ItemTagRow;
 import ru.practicum.market.service.AdminService;
-import ru.practicum.market.service.converter.ExcelConverter;
+import ru.practicum.market.service.converter.ItemFileExporter;
+import ru.practicum.market.service.converter.ItemFileFormat;
+import ru.practicum.market.service.image.ImageArchiveImporter;
+import ru.practicum.market.service.image.ImageStore;
+import ru.practicum.market.service.image.ImageVariantProcessor;
+import ru.practicum.market.web.dto.ImageArchiveEntryResponseDto;
 import ru.practicum.market.web.dto.ItemShortResponseDto;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -32,40 +36,20 @@ import java.util.UUID;
 public class AdminServiceImpl implements AdminService {
 
     private final ItemRepository itemRepository;
-    private final ExcelConverter excelConverter;
+    private final ItemFileExporter itemFileExporter;
+    private final ImageVariantProcessor imageVariantProcessor;
+    private final ImageStore imageStore;
+    private final ImageArchiveImporter imageArchiveImporter;
 
-    @Value("${image.path}")
-    private String imagePath;
+    @Value("${items.export.page-size}")
+    private int exportPageSize;
     @Value("${image.public-uri-prefix}")
     private String imagePublicUriPrefix;
 
     /**
-     * Загружает Excel-файл с товарами и сохраняет их в базе реактивно.
-     *
-     * @param file файл Excel с товарами
-     * @return сигнал завершения загрузки
-     */
-    @Override
-    @CacheEvict(value = "items-page", allEntries = true)
-    @Transactional
-    public Mono<Void> uploadItems(FilePart file) {
-        excelConverter.checkExcelFormat(file);
-        var fileName = file.filename();
-        log.debug("Original filename: {}", fileName);
-        // Парсим Excel и получаем список товаров.
-        return excelConverter.excelToItemList(file)
-                // Сохраняем товары реактивно через репозиторий.
-                .flatMapMany(itemRepository::saveAll)
-                .then()
-                .doOnSuccess(v -> log.debug("The Excel file is uploaded: {}", fileName))
-                // Приводим неожиданные ошибки к ItemUploadException.
-                .onErrorMap(exception -> exception instanceof ItemUploadException
-                        ? exception
-                        : new ItemUploadException("The Excel file is not upload: %s!".formatted(fileName), exception));
-    }
-
-    /**
-     * Загружает изображение товара и сохраняет относительный путь в базе.
+     * Сохраняет изображение товара под хэшем содержимого, записывает относительный путь в базу
+     * и ставит в очередь построение копий.
+     * Метод не транзакционный: задача копий обновляет товар по новому пути и должна видеть уже сохраненную запись.
      *
      * @param id    идентификатор товара
      * @param image файл изображения
@@ -78,7 +62,6 @@ public class AdminServiceImpl implements AdminService {
                     @CacheEvict(value = "items-page", allEntries = true)
             }
     )
-    @Transactional
     public Mono<Void> uploadImage(long id, FilePart image) {
         log.debug("Uploading image for itemId={}", id);
         return itemRepository.findById(id)
@@ -94,81 +77,114 @@ public class AdminServiceImpl implements AdminService {
                     log.debug("Image content type: {} | size: {} bytes",
                             image.headers().getContentType(), image.headers().getContentLength());
 
-                    return ensureUploadPath()
-                            // Готовим безопасный путь сохранения.
-                            .map(uploadPath -> buildDestination(uploadPath, image.filename()))
-                            // Сохраняем файл на диск.
-                            .flatMap(destination -> image.transferTo(destination.filePath())
-                                    .thenReturn(destination))
-                            .flatMap(destination -> {
-                                // Сохраняем относительный путь изображения в товаре.
-                                item.setImgPath(imagePublicUriPrefix + destination.safeFileName());
+                    return imageStore.store(image.content(), image.filename())
+                            .flatMap(stored -> {
+                                // Сохраняем относительный путь изображения в товаре; копии старого изображения больше не подходят.
+                                item.setImgPath(imagePublicUriPrefix + stored.fileName());
+                                item.setImgThumbnailPath(null);
+                                item.setImgCardPath(null);
                                 return itemRepository.save(item)
-                                        .thenReturn(destination);
+                                        .thenReturn(stored);
+                            })
+                            .doOnSuccess(stored -> {
+                                log.debug("Image for item {} saved to {}, new file: {}", id, stored.path(), stored.created());
+                                // Копии строятся в фоне; до их появления страницы показывают исходное изображение.
+                                imageVariantProcessor.submit(id, item.getImgPath(), stored.path());
                             })
-                            .doOnSuccess(destination ->
-                                    log.debug("Image for item {} saved to {}", id, destination.filePath()))
                             .then();
                 });
     }
 
     /**
-     * Возвращает все товары для административной панели в виде коротких DTO.
-     *
-     * @return поток товаров, отсортированный по названию
+     * Распаковывает архив потоково и привязывает изображения пачками; кэши сбрасывает импортер.
+     */
+    @Override
+    public Flux<ImageArchiveEntryResponseDto> uploadImageArchive(FilePart archive) {
+        log.info("Uploading image archive '{}'", archive.filename());
+        return imageArchiveImporter.importArchive(archive.content());
+    }
+
+    /**
+     * Возвращает страницу товаров для административной панели keyset-запросом по id:
+     * стоимость запроса не зависит от номера страницы.
      */
     @Transactional(readOnly = true)
     @Override
-    public Flux<ItemShortResponseDto> getAllItems() {
-        log.debug("Request to fetch all items for admin panel");
-        return itemRepository.findAll()
-                .map(item -> new ItemShortResponseDto(item.getId(), item.getTitle()))
-                .doOnComplete(() -> log.debug("Fetched all items for admin"));
+    public Flux<ItemShortResponseDto> findItems(String search, long afterId, int limit) {
+        log.debug("Request to fetch admin items: search='{}', afterId={}, limit={}", search, afterId, limit);
+        var items = StringUtils.hasText(search)
+                ? itemRepository.findPageAfterBySearch(afterId, likePattern(search), limit)
+                : itemRepository.findPageAfter(afterId, limit);
+        return items.map(item -> new ItemShortResponseDto(item.getId(), item.getTitle()));
     }
 
     /**
-     * Гарантирует существование директории для загрузки изображений.
+     * Выгружает каталог, читая товары страницами по id по мере записи файла.
      */
-    private Mono<Path> ensureUploadPath() {
-        return Mono.fromCallable(() -> {
-                    // Создание директории — потенциально блокирующая операция.
-                    var uploadPath = Paths.get(imagePath).toAbsolutePath().normalize();
-                    Files.createDirectories(uploadPath);
-                    return uploadPath;
-                })
-                // Переносим в boundedElastic и прокидываем ошибку как ItemImageBadRequest.
-                .subscribeOn(Schedulers.boundedElastic())
-                .onErrorMap(IOException.class, exception ->
-                        new ItemImageBadRequest("Failed to create upload directory!", exception));
+    @Override
+    public Flux<DataBuffer> exportItems(ItemFileFormat format, DataBufferFactory bufferFactory) {
+        log.info("Exporting catalog to {}", format);
+        return itemFileExporter.export(streamItems(), format, bufferFactory);
     }
 
     /**
-     * Формирует безопасный путь назначения для изображения.
+     * Читает все товары keyset-страницами по {@code items.export.page-size}: следующая страница запрашивается,
+     * когда предыдущая отдана подписчику, поэтому в памяти не больше пары страниц.
      */
-    private ImageDestination buildDestination(Path uploadPath, String originalFilename) {
-        var sanitizedName = StringUtils.hasText(originalFilename)
-                // Нормализуем имя файла, отбрасывая пути.
-                ? Paths.get(originalFilename).getFileName().toString()
-                : "";
+    private Flux<Item> streamItems() {
+        return itemRepository.findPageAfter(0, exportPageSize)
+                .collectList()
+                .expand(page -> page.size() < exportPageSize
+                        ? Mono.empty()
+                        : itemRepository.findPageAfter(page.getLast().getId(), exportPageSize).collectList())
+                .concatMap(this::withTags)
+                .concatMap(this::withStock)
+                .concatMapIterable(page -> page);
+    }
 
-        // Извлекаем расширение.
-        var extension = "";
-        int dotIndex = sanitizedName.lastIndexOf('.');
-        if (dotIndex != -1 && dotIndex < sanitizedName.length() - 1) {
-            extension = sanitizedName.substring(dotIndex);
+    /**
+     * Заполняет теги товаров страницы одним запросом.
+     */
+    private Mono<List<Item>> withTags(List<Item> page) {
+        if (page.isEmpty()) {
+            return Mono.just(page);
         }
+        var ids = page.stream().map(Item::getId).toList();
+        return itemRepository.findTagsByItemIdIn(ids)
+                .collectMultimap(ItemTagRow::itemId, ItemTagRow::tag)
+                .map(tagsByItemId -> {
+                    page.forEach(item -> {
+                        var tags = tagsByItemId.get(item.getId());
+                        item.setTags(tags == null ? null : List.copyOf(tags));
+                    });
+                    return page;
+                });
+    }
 
-        // Строим безопасный путь.
-        var safeFileName = UUID.randomUUID() + extension;
-        var filePath = uploadPath.resolve(safeFileName).normalize();
-
-        if (!filePath.startsWith(uploadPath)) {
-            throw new ItemImageBadRequest("Invalid image path");
+    /**
+     * Заполняет остатки на складе товаров страницы одним запросом; у неучитываемых товаров остаток пустой.
+     */
+    private Mono<List<Item>> withStock(List<Item> page) {
+        if (page.isEmpty()) {
+            return Mono.just(page);
         }
-
-        return new ImageDestination(filePath, safeFileName);
+        var ids = page.stream().map(Item::getId).toList();
+        return itemRepository.findStockByItemIdIn(ids)
+                .collectMap(ItemStockRow::itemId, ItemStockRow::quantity)
+                .map(stockByItemId -> {
+                    page.forEach(item -> item.setStock(stockByItemId.get(item.getId())));
+                    return page;
+                });
     }
 
-    private record ImageDestination(Path filePath, String safeFileName) {
+    /**
+     * Строит LIKE-шаблон поиска подстроки, экранируя служебные символы {@code %}, {@code _} и обратную косую черту.
+     */
+    private static String likePattern(String search) {
+        var escaped = search.trim()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
     }
 }
@@ -0,0 +1,80 @@
+package ru.practicum.market.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.ItemNotFoundException;
+import ru.practicum.market.domain.exception.MarketBadRequestException;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.service.FlashSaleService;
+import ru.practicum.market.service.flashsale.FlashSaleClaim;
+import ru.practicum.market.service.flashsale.FlashSaleStore;
+import ru.practicum.market.service.stock.StockReserver;
+
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlashSaleServiceImpl implements FlashSaleService {
+
+    private final FlashSaleStore flashSaleStore;
+    private final ItemRepository itemRepository;
+    private final StockReserver stockReserver;
+
+    @Value("${items.flash-sale.max-per-buyer}")
+    private int maxPerBuyer;
+
+    /**
+     * Проверяет, что товар существует, списывает единицы распродажи со склада и задает остаток распродажи.
+     * Невыкупленные единицы предыдущей распродажи товара возвращаются на склад; если остаток в Redis
+     * задать не удалось, на склад возвращаются и только что списанные единицы.
+     */
+    @Override
+    public Mono<Void> start(long itemId, int units) {
+        log.debug("Starting flash sale for itemId={} with {} units", itemId, units);
+        var quantities = Map.of(itemId, units);
+        return itemRepository.existsById(itemId)
+                .flatMap(exists -> exists
+                        ? stockReserver.reserveQuantities(quantities)
+                        : Mono.error(new ItemNotFoundException(itemId, "Item with id = %d not found".formatted(itemId))))
+                .onErrorMap(OrderConflictException.class, ex -> new OrderConflictException(
+                        "Not enough stock to start flash sale of item %d.".formatted(itemId)))
+                .then(Mono.defer(() -> flashSaleStore.start(itemId, units)
+                        .onErrorResume(ex -> stockReserver.releaseQuantities(quantities).then(Mono.error(ex)))))
+                .flatMap(previous -> releaseRemainder(itemId, previous));
+    }
+
+    /**
+     * Завершает распродажу и возвращает ее невыкупленные единицы на склад.
+     */
+    @Override
+    public Mono<Void> stop(long itemId) {
+        log.debug("Stopping flash sale for itemId={}", itemId);
+        return flashSaleStore.stop(itemId)
+                .flatMap(remaining -> releaseRemainder(itemId, remaining));
+    }
+
+    /**
+     * Резервирует единицы только в Redis: товар не проверяется в базе, распродажа есть лишь у существующих товаров.
+     */
+    @Override
+    public Mono<FlashSaleClaim> claim(long userId, long itemId, int quantity) {
+        if (quantity > maxPerBuyer) {
+            return Mono.error(new MarketBadRequestException(
+                    "Flash sale allows at most %d units per buyer".formatted(maxPerBuyer)));
+        }
+        return flashSaleStore.claim(userId, itemId, quantity);
+    }
+
+    private Mono<Void> releaseRemainder(long itemId, int remaining) {
+        if (remaining <= 0) {
+            return Mono.empty();
+        }
+        log.debug("Returning {} unsold flash sale units of itemId={} to stock", remaining, itemId);
+        return stockReserver.releaseQuantities(Map.of(itemId, remaining));
+    }
+}
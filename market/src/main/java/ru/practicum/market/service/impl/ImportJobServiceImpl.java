@@ -0,0 +1,280 @@
+package ru.practicum.market.service.impl;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import ru.practicum.market.domain.exception.ImportJobNotFoundException;
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.service.ImportJobService;
+import ru.practicum.market.service.cache.ItemCacheService;
+import ru.practicum.market.service.converter.ItemFileConverter;
+import ru.practicum.market.service.converter.ItemFileFormat;
+import ru.practicum.market.service.facet.TagFacetIndex;
+import ru.practicum.market.service.importer.ImportJob;
+import ru.practicum.market.service.importer.ImportJobStatus;
+import ru.practicum.market.service.importer.ImportJobStore;
+import ru.practicum.market.service.importer.ItemImportResult;
+import ru.practicum.market.service.importer.ItemImportWriter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImportJobServiceImpl implements ImportJobService {
+
+    private final ItemFileConverter itemFileConverter;
+    private final ItemImportWriter itemImportWriter;
+    private final ItemCacheService itemCacheService;
+    private final ImportJobStore importJobStore;
+    private final TagFacetIndex tagFacetIndex;
+
+    /**
+     * Очередь принятых импортов; обработчик забирает из нее не больше {@code maxConcurrentJobs} импортов сразу.
+     */
+    private final Sinks.Many<ImportTask> queue = Sinks.many().unicast().onBackpressureBuffer();
+    /**
+     * Сигналы отмены импортов, принятых этим экземпляром приложения.
+     * Отмена, принятая другим экземпляром, приходит через флаг в {@link ImportJobStore}.
+     */
+    private final Map<String, Cancellation> cancellations = new ConcurrentHashMap<>();
+
+    @Value("${items.import.max-concurrent-jobs}")
+    private int maxConcurrentJobs;
+    @Value("${items.import.progress-interval}")
+    private Duration progressInterval;
+
+    private Disposable worker;
+
+    /**
+     * Запускает обработчик очереди импортов.
+     */
+    @PostConstruct
+    void startWorker() {
+        worker = queue.asFlux()
+                .flatMap(this::run, maxConcurrentJobs)
+                .subscribe();
+    }
+
+    /**
+     * Останавливает обработчик очереди импортов.
+     */
+    @PreDestroy
+    void stopWorker() {
+        if (worker != null) {
+            worker.dispose();
+        }
+    }
+
+    /**
+     * Сохраняет файл во временный файл, регистрирует импорт и ставит его в очередь.
+     * Запрос завершается сразу после загрузки файла, разбор и запись выполняются в фоне.
+     */
+    @Override
+    public Mono<ImportJob> submit(FilePart file) {
+        var format = itemFileConverter.detectFormat(file);
+        var job = ImportJob.queued(UUID.randomUUID().toString(), file.filename());
+        log.debug("Submitting import job {} for file {}", job.id(), job.fileName());
+
+        return itemFileConverter.spoolToTempFile(file, format)
+                .flatMap(path -> importJobStore.save(job)
+                        .doOnNext(saved -> {
+                            cancellations.put(saved.id(), new Cancellation());
+                            queue.emitNext(new ImportTask(saved, path, format), Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+                        })
+                        .onErrorResume(ex -> itemFileConverter.deleteTempFile(path).then(Mono.error(ex))))
+                // Приводим неожиданные ошибки к ItemUploadException.
+                .onErrorMap(exception -> exception instanceof ItemUploadException
+                        ? exception
+                        : new ItemUploadException("The items file is not upload: %s!".formatted(job.fileName()), exception));
+    }
+
+    /**
+     * Возвращает состояние импорта из хранилища.
+     */
+    @Override
+    public Mono<ImportJob> getJob(String jobId) {
+        return importJobStore.find(jobId)
+                .switchIfEmpty(Mono.error(new ImportJobNotFoundException(jobId)));
+    }
+
+    /**
+     * Периодически читает состояние импорта и выдает его изменения до завершения импорта.
+     */
+    @Override
+    public Flux<ImportJob> watchJob(String jobId) {
+        return Flux.interval(Duration.ZERO, progressInterval)
+                .concatMap(tick -> getJob(jobId))
+                .distinctUntilChanged()
+                .takeUntil(job -> job.status().isTerminal());
+    }
+
+    /**
+     * Отменяет импорт: импорт в очереди сразу помечается отмененным,
+     * выполняющийся импорт останавливается после записи текущих пачек.
+     * Флаг отмены сохраняется в хранилище, поэтому импорт остановится на любом экземпляре приложения.
+     */
+    @Override
+    public Mono<ImportJob> cancel(String jobId) {
+        return getJob(jobId)
+                .flatMap(job -> {
+                    if (job.status().isTerminal()) {
+                        return Mono.just(job);
+                    }
+
+                    log.info("Cancel requested for import job {} in status {}", jobId, job.status());
+                    return importJobStore.requestCancel(jobId)
+                            .then(Mono.defer(() -> {
+                                var cancellation = cancellations.get(jobId);
+                                if (cancellation != null) {
+                                    cancellation.cancel();
+                                }
+                                return job.status() == ImportJobStatus.QUEUED
+                                        ? importJobStore.save(job.finish(ImportJobStatus.CANCELLED, null))
+                                        : Mono.just(job);
+                            }));
+                });
+    }
+
+    /**
+     * Выполняет один импорт; ошибки импорта сохраняются в его состоянии и не останавливают очередь.
+     */
+    private Mono<Void> run(ImportTask task) {
+        var jobId = task.job().id();
+        var cancellation = cancellations.computeIfAbsent(jobId, id -> new Cancellation());
+
+        return importJobStore.find(jobId)
+                .defaultIfEmpty(task.job())
+                .filter(job -> !job.status().isTerminal() && !cancellation.isCancelled())
+                .flatMap(job -> importJobStore.save(job.start()))
+                .flatMap(started -> importItems(started, task, cancellation))
+                .onErrorResume(ex -> {
+                    log.warn("Import job {} failed", jobId, ex);
+                    return importJobStore.find(jobId)
+                            .defaultIfEmpty(task.job())
+                            .flatMap(job -> importJobStore.save(job.finish(ImportJobStatus.FAILED, ex.getMessage())))
+                            .onErrorResume(saveEx -> {
+                                log.error("Failed to save state of import job {}", jobId, saveEx);
+                                return Mono.empty();
+                            });
+                })
+                .then(itemFileConverter.deleteTempFile(task.path()))
+                .doFinally(signal -> cancellations.remove(jobId));
+    }
+
+    /**
+     * Читает и записывает товары, сохраняя прогресс не чаще {@code progressInterval}.
+     * Отмена останавливает чтение файла, а не запись: уже прочитанные строки дописываются целыми пачками,
+     * поэтому пачка не обрывается между товарами, тегами и остатками и попадает в итог импорта.
+     * Если импорт упал после записи части пачек, кэш каталога очищается и фасеты перестраиваются так же,
+     * как при успешном завершении: записанные пачки уже зафиксированы.
+     */
+    private Mono<ImportJob> importItems(ImportJob started, ImportTask task, Cancellation cancellation) {
+        var rowsParsed = new AtomicLong();
+        var written = new AtomicReference<>(ItemImportResult.EMPTY);
+
+        var items = itemFileConverter.readItems(task.path(), task.format())
+                .takeUntilOther(cancellation.signal().or(remoteCancel(started.id(), cancellation)))
+                .doOnNext(item -> rowsParsed.incrementAndGet());
+
+        return itemImportWriter.writeChunks(items)
+                .scan(ItemImportResult.EMPTY, ItemImportResult::plus)
+                .doOnNext(written::set)
+                .sample(progressInterval)
+                .concatMap(result -> importJobStore.save(started.progress(rowsParsed.get(), result)))
+                .onErrorResume(ex -> refreshListings(written.get())
+                        .onErrorResume(refreshEx -> {
+                            log.warn("Failed to evict listings after failed import job {}", started.id(), refreshEx);
+                            return Mono.empty();
+                        })
+                        .then(Mono.error(ex)))
+                .then(Mono.defer(() -> {
+                    var status = cancellation.isCancelled() ? ImportJobStatus.CANCELLED : ImportJobStatus.COMPLETED;
+                    var finished = started.progress(rowsParsed.get(), written.get()).finish(status, null);
+                    log.info("Import job {} finished: {}", started.id(), finished);
+                    return refreshListings(written.get())
+                            .then(importJobStore.save(finished));
+                }));
+    }
+
+    /**
+     * Карточки обновленных товаров удаляются из кэша при записи пачек;
+     * страницы каталога и корзины очищаются, а индекс фасетов перестраивается,
+     * только если импорт что-то изменил — при завершении, отмене и ошибке.
+     */
+    private Mono<Void> refreshListings(ItemImportResult written) {
+        return written.inserted() + written.updated() > 0
+                ? itemCacheService.evictListings().then(refreshFacets())
+                : Mono.empty();
+    }
+
+    /**
+     * Раз в {@code progressInterval} проверяет флаг отмены в хранилище и передает отмену локальному сигналу.
+     * Ошибка чтения флага не прерывает импорт: флаг будет прочитан на следующей проверке.
+     */
+    private Mono<Boolean> remoteCancel(String jobId, Cancellation cancellation) {
+        return Flux.interval(progressInterval)
+                .concatMap(tick -> importJobStore.isCancelRequested(jobId)
+                        .onErrorResume(ex -> {
+                            log.warn("Failed to read cancel flag of import job {}", jobId, ex);
+                            return Mono.just(false);
+                        }))
+                .filter(Boolean::booleanValue)
+                .next()
+                .doOnNext(cancelled -> cancellation.cancel());
+    }
+
+    /**
+     * Перестраивает индекс фасетов; ошибка не влияет на итог импорта, индекс обновится по расписанию.
+     */
+    private Mono<Void> refreshFacets() {
+        return tagFacetIndex.refresh()
+                .onErrorResume(ex -> {
+                    log.warn("Failed to refresh tag facet index after import", ex);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Принятый импорт: состояние, временный файл с содержимым загрузки и его формат.
+     */
+    private record ImportTask(ImportJob job, Path path, ItemFileFormat format) {
+    }
+
+    /**
+     * Сигнал отмены импорта.
+     */
+    private static final class Cancellation {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final Sinks.One<Boolean> sink = Sinks.one();
+
+        void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                sink.tryEmitValue(true);
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        Mono<Boolean> signal() {
+            return sink.asMono();
+        }
+    }
+}
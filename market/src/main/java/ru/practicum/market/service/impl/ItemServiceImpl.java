@@ -2,12 +2,16 @@ package ru.practicum.market.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 import reactor.util.retry.RetrySpec;
@@ -18,23 +22,39 @@ import ru.practicum.market.integration.PaymentAdapter;
 import ru.practicum.market.repository.CartItemRepository;
 import ru.practicum.market.repository.ItemRepository;
 import ru.practicum.market.service.ItemService;
+import ru.practicum.market.service.cache.CartQuantityCacheService;
 import ru.practicum.market.service.cache.ItemCacheService;
+import ru.practicum.market.service.cache.dto.CartQuantitiesCacheDto;
 import ru.practicum.market.service.cache.dto.ItemCacheDto;
+import ru.practicum.market.service.cache.dto.ItemsPageCacheDto;
+import ru.practicum.market.service.facet.TagFacetIndex;
+import ru.practicum.market.service.recommendation.CoPurchaseIndex;
+import ru.practicum.market.util.LongIntMap;
+import ru.practicum.market.web.dto.CartAvailabilityResponseDto;
 import ru.practicum.market.web.dto.CartResponseDto;
 import ru.practicum.market.web.dto.ItemResponseDto;
 import ru.practicum.market.web.dto.ItemsResponseDto;
 import ru.practicum.market.web.dto.Paging;
+import ru.practicum.market.web.dto.PriceBucketResponseDto;
+import ru.practicum.market.web.dto.PriceRange;
+import ru.practicum.market.web.dto.TagFacetResponseDto;
 import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.dto.enums.SortMethod;
 import ru.practicum.market.web.mapper.ItemMapper;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static ru.practicum.market.web.dto.enums.SortMethod.ALPHA;
+import static ru.practicum.market.web.dto.enums.SortMethod.POPULAR;
 import static ru.practicum.market.web.dto.enums.SortMethod.PRICE;
 
 @Service
@@ -45,75 +65,106 @@ public class ItemServiceImpl implements ItemService {
     private static final int ITEMS_IN_ROW = 3;
 
     private final ItemCacheService itemCacheService;
+    private final CartQuantityCacheService cartQuantityCacheService;
     private final ItemRepository itemRepository;
     private final CartItemRepository cartItemRepository;
     private final PaymentAdapter paymentAdapter;
+    private final TagFacetIndex tagFacetIndex;
+    private final CoPurchaseIndex coPurchaseIndex;
+    private final TransactionalOperator transactionalOperator;
+
+    @Value("${cart.balance-timeout}")
+    private Duration balanceTimeout;
 
     /**
-     * Возвращает страницу товаров с учетом поиска, сортировки и количества в корзине.
+     * Возвращает страницу товаров с учетом поиска, цены, тегов, сортировки и количества в корзине.
+     * Гистограмма цен читается из кэша параллельно со страницей, счетчики тегов считаются индексом фасетов
+     * по выборке из тегов и цены (строка поиска в счетчиках не учитывается).
      */
     @Override
     @Transactional(readOnly = true)
-    public Mono<ItemsResponseDto> getItems(Optional<Long> userIdOpt, String search, SortMethod sortMethod, int pageNumber, int pageSize) {
+    public Mono<ItemsResponseDto> getItems(Optional<Long> userIdOpt, Map<Long, Integer> guestCart, String search,
+                                           PriceRange price, List<String> tags, SortMethod sortMethod, int pageNumber,
+                                           int pageSize) {
 
-        log.debug("Request to fetch items with search='{}', sortMethod={}, pageNumber={}, pageSize={}",
-                search, sortMethod, pageNumber, pageSize);
+        log.debug("Request to fetch items with search='{}', price={}, tags={}, sortMethod={}, pageNumber={}, pageSize={}",
+                search, price, tags, sortMethod, pageNumber, pageSize);
 
         var pageable = buildPageable(sortMethod, pageNumber, pageSize);
-
-        return itemCacheService.getItemsPage(search, pageable)
-                .flatMap(itemsPage ->
-                        buildItemsResponse(userIdOpt, search, sortMethod, pageable, itemsPage.items(), itemsPage.itemsCount()));
+        var selection = tagFacetIndex.select(tags, price);
+        var tagFacets = toTagFacets(selection, tags);
+        var pageMono = tags.isEmpty()
+                ? itemCacheService.getItemsPage(search, price, pageable)
+                : getTaggedItemsPage(search, price, tags, sortMethod, selection, pageable);
+
+        return Mono.zip(pageMono, itemCacheService.getPriceHistogram())
+                .flatMap(t -> buildItemsResponse(userIdOpt, guestCart, search, price, tags, sortMethod, pageable,
+                        t.getT1().items(), t.getT1().itemsCount(), ItemMapper.toPriceBuckets(t.getT2()), tagFacets));
     }
 
     /**
-     * Возвращает карточку товара и его текущее количество в корзине.
+     * Возвращает карточку товара, его текущее количество в корзине из кэша количеств (у анонимного
+     * пользователя — из его корзины) и остаток на складе из кэша остатков.
      */
     @Override
     @Transactional(readOnly = true)
-    public Mono<ItemResponseDto> getItem(Optional<Long> userIdOpt, long itemId) {
+    public Mono<ItemResponseDto> getItem(Optional<Long> userIdOpt, Map<Long, Integer> guestCart, long itemId) {
         log.debug("Request to fetch item with itemId={}", itemId);
 
         return itemCacheService.findItem(itemId)
-                .flatMap(item ->
-                        userIdOpt.map(userId ->
-                                        cartItemRepository.findByUserIdAndItemId(userId, itemId)
-                                                .map(CartItem::getQuantity)
-                                                .defaultIfEmpty(0)
-                                )
-                                .orElse(Mono.just(0))
-                                .map(itemQuantity -> ItemMapper.toItemResponseDto(item, itemQuantity))
-                                .doOnSuccess(r -> log.debug("Item {} has quantity {} in cart", itemId, r.count()))
+                .flatMap(item -> Mono.zip(
+                                getCartQuantities(userIdOpt, guestCart)
+                                        .map(quantities -> quantities.getOrDefault(itemId, 0)),
+                                itemCacheService.getStock(List.of(itemId)))
+                        .map(t -> ItemMapper.toItemResponseDto(item, t.getT1(), t.getT2().stock().get(itemId)))
+                        .doOnSuccess(r -> log.debug("Item {} has quantity {} in cart and stock {}",
+                                itemId, r.count(), r.stock()))
                 );
     }
 
     /**
-     * Возвращает корзину вместе с признаком доступности оплаты по текущему балансу.
+     * Возвращает товары, чаще всего покупаемые вместе с товаром, по матрице совместных покупок.
+     * Данные товаров читаются кэшем по списку id; ошибка загрузки не мешает показать карточку товара.
      */
     @Override
     @Transactional(readOnly = true)
-    public Mono<CartResponseDto> getCart(Long userId) {
-        log.debug("Request to fetch cart for userId={}", userId);
+    public Mono<List<ItemResponseDto>> getRelatedItems(long itemId) {
+        var relatedIds = coPurchaseIndex.related(itemId);
+        log.debug("Related items for itemId={}: {}", itemId, relatedIds);
+
+        return findItemsInOrder(relatedIds)
+                .map(items -> items.stream()
+                        .map(item -> ItemMapper.toItemResponseDto(item, 0))
+                        .toList())
+                .onErrorResume(ex -> {
+                    log.warn("Failed to load related items for itemId={}", itemId, ex);
+                    return Mono.just(List.of());
+                });
+    }
 
-        return cartItemRepository.findByUserId(userId).collectList()
-                .flatMap(cartItems -> {
-                    log.debug("Cart contains {} items for userId={}", cartItems.size(), userId);
+    /**
+     * Сравнивает стоимость корзины с балансом пользователя. Баланс ждется не дольше {@code cart.balance-timeout};
+     * если платежный сервис не ответил вовремя или вернул ошибку, оформление считается недоступным.
+     */
+    @Override
+    public Mono<CartAvailabilityResponseDto> getCartAvailability(long userId) {
+        log.debug("Request to check cart availability for userId={}", userId);
 
-                    if (cartItems.isEmpty()) {
-                        return Mono.just(new CartResponseDto(Collections.emptyList(), 0, false));
+        return getCartWithoutPayments(userId)
+                .flatMap(cart -> {
+                    if (cart.items().isEmpty()) {
+                        return Mono.just(new CartAvailabilityResponseDto(0, false, true));
                     }
 
-                    var itemIds = cartItems.stream().map(CartItem::getItemId).toList();
-
-
-                    var cartCacheMono = itemCacheService.getItemsByIds(itemIds);
-                    var currentBalanceMono = paymentAdapter.getBalance(userId);
-
-                    return Mono.zip(cartCacheMono, currentBalanceMono)
-                            .map(t -> {
-                                var cartCache = t.getT1();
-                                var currentBalance = t.getT2().getBalance();
-                                return ItemMapper.toCart(cartItems, cartCache.items(), currentBalance);
+                    return paymentAdapter.getBalance(userId)
+                            .timeout(balanceTimeout)
+                            .map(balance -> new CartAvailabilityResponseDto(
+                                    cart.total(),
+                                    balance.getBalance().compareTo(BigDecimal.valueOf(cart.total())) >= 0,
+                                    true))
+                            .onErrorResume(ex -> {
+                                log.warn("Failed to fetch balance for userId={}: {}", userId, ex.toString());
+                                return Mono.just(new CartAvailabilityResponseDto(cart.total(), false, false));
                             });
                 });
     }
@@ -142,17 +193,19 @@ public class ItemServiceImpl implements ItemService {
     }
 
     /**
-     * Обновляет количество товара в корзине по типу действия.
+     * Обновляет количество товара в корзине по типу действия в транзакции и после ее фиксации
+     * удаляет количества корзины из кэша.
      */
     @Override
-    @Transactional
     public Mono<Void> updateItemsCountInCart(long userId, long itemId, CartAction action) {
         log.debug("Updating cart for itemId={} with action={}", itemId, action);
-        return switch (action) {
+        var update = switch (action) {
             case PLUS -> incrementItemQuantityInCart(userId, itemId);
             case MINUS -> decrementItemQuantityInCart(userId, itemId);
             case DELETE -> deleteItemFromCart(userId, itemId);
         };
+        return transactionalOperator.transactional(update)
+                .then(Mono.defer(() -> evictCartQuantities(userId)));
     }
 
     /**
@@ -223,6 +276,92 @@ public class ItemServiceImpl implements ItemService {
                 );
     }
 
+    /**
+     * Применяет действие к корзине анонимного пользователя. Как и для корзины в БД, увеличить можно только
+     * существующий товар, а уменьшить или удалить — только лежащий в корзине.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<Map<Long, Integer>> updateGuestCart(Map<Long, Integer> guestCart, long itemId, CartAction action) {
+        log.debug("Updating guest cart for itemId={} with action={}", itemId, action);
+        var quantity = guestCart.getOrDefault(itemId, 0);
+        if (action != CartAction.PLUS && quantity == 0) {
+            return Mono.error(new CartItemNotFoundException(itemId, "Cart item with id = %d not found."
+                    .formatted(itemId)));
+        }
+
+        var updated = new TreeMap<>(guestCart);
+        switch (action) {
+            case PLUS -> updated.put(itemId, quantity + 1);
+            case MINUS -> {
+                if (quantity == 1) {
+                    updated.remove(itemId);
+                } else {
+                    updated.put(itemId, quantity - 1);
+                }
+            }
+            case DELETE -> updated.remove(itemId);
+        }
+
+        if (action != CartAction.PLUS) {
+            return Mono.just(updated);
+        }
+        return itemRepository.existsById(itemId)
+                .flatMap(exists -> exists
+                        ? Mono.just(updated)
+                        : Mono.error(new ItemNotFoundException(itemId, "Item with id = %d not found".formatted(itemId))));
+    }
+
+    /**
+     * Возвращает корзину анонимного пользователя из кэша товаров по списку id.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Mono<CartResponseDto> getGuestCart(Map<Long, Integer> guestCart) {
+        log.debug("Request to fetch guest cart with {} items", guestCart.size());
+        if (guestCart.isEmpty()) {
+            return Mono.just(new CartResponseDto(Collections.emptyList(), 0, false));
+        }
+
+        return itemCacheService.getItemsByIds(List.copyOf(guestCart.keySet()))
+                .map(cartCache -> {
+                    var existing = cartCache.items().stream().map(ItemCacheDto::id).collect(Collectors.toSet());
+                    var quantities = new TreeMap<>(guestCart);
+                    quantities.keySet().retainAll(existing);
+                    return ItemMapper.toCart(quantities, cartCache.items(), BigDecimal.ZERO);
+                });
+    }
+
+    /**
+     * Переносит корзину анонимного пользователя одним запросом {@code INSERT ... SELECT FROM unnest}
+     * и после него удаляет количества корзины из кэша.
+     */
+    @Override
+    public Mono<Void> mergeGuestCart(long userId, Map<Long, Integer> guestCart) {
+        if (guestCart.isEmpty()) {
+            return Mono.empty();
+        }
+
+        var sorted = new TreeMap<>(guestCart);
+        return cartItemRepository.mergeQuantities(userId,
+                        sorted.keySet().toArray(Long[]::new),
+                        sorted.values().toArray(Integer[]::new))
+                .doOnNext(merged -> log.info("Guest cart merged into cart of userId={}: {} items", userId, merged))
+                .then(Mono.defer(() -> evictCartQuantities(userId)));
+    }
+
+    /**
+     * Удаляет количества корзины из кэша. Ошибка кэша не отменяет изменение корзины:
+     * устаревшие количества в каталоге исправятся по TTL кэша.
+     */
+    private Mono<Void> evictCartQuantities(long userId) {
+        return cartQuantityCacheService.evictQuantities(userId)
+                .onErrorResume(ex -> {
+                    log.warn("Failed to evict cart quantities for userId={}", userId, ex);
+                    return Mono.empty();
+                });
+    }
+
     /**
      * Возвращает retry-стратегию для конфликтов оптимистической блокировки.
      */
@@ -235,6 +374,52 @@ public class ItemServiceImpl implements ItemService {
                                 itemId, retrySignal.totalRetries() + 1));
     }
 
+    /**
+     * Собирает страницу товаров, отфильтрованных по тегам.
+     * Без строки поиска страница и ее порядок берутся из индекса фасетов, а данные товаров читаются тем же кэшем
+     * по списку id, что и корзина; со строкой поиска страницу вместе с условием по тегам выбирает база,
+     * и она кэшируется как обычная страница каталога.
+     */
+    private Mono<ItemsPageCacheDto> getTaggedItemsPage(String search, PriceRange price, List<String> tags,
+                                                       SortMethod sortMethod, RoaringBitmap selection,
+                                                       Pageable pageable) {
+        if (StringUtils.hasText(search)) {
+            return itemCacheService.getTaggedItemsPage(search, price, tags, pageable);
+        }
+
+        var ids = tagFacetIndex.page(selection, sortMethod, pageable.getOffset(), pageable.getPageSize());
+        return findItemsInOrder(ids)
+                .map(items -> new ItemsPageCacheDto(items, selection.getLongCardinality()));
+    }
+
+    /**
+     * Загружает товары по списку id и возвращает их в порядке списка; удаленные товары пропускаются.
+     */
+    private Mono<List<ItemCacheDto>> findItemsInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return itemCacheService.getItemsByIds(ids)
+                .map(cache -> {
+                    var byId = cache.items().stream()
+                            .collect(Collectors.toMap(ItemCacheDto::id, Function.identity()));
+                    return ids.stream()
+                            .map(byId::get)
+                            .filter(Objects::nonNull)
+                            .toList();
+                });
+    }
+
+    /**
+     * Оставляет теги, которые есть у товаров выборки, и выбранные теги.
+     */
+    private List<TagFacetResponseDto> toTagFacets(RoaringBitmap selection, List<String> tags) {
+        return tagFacetIndex.facets(selection).stream()
+                .filter(facet -> facet.count() > 0 || tags.contains(facet.name()))
+                .map(facet -> new TagFacetResponseDto(facet.name(), facet.count(), tags.contains(facet.name())))
+                .toList();
+    }
+
     /**
      * Формирует DTO пагинации для UI.
      */
@@ -256,41 +441,84 @@ public class ItemServiceImpl implements ItemService {
             case NO -> Sort.unsorted();
             case ALPHA -> Sort.by(ALPHA.getColumnName());
             case PRICE -> Sort.by(PRICE.getColumnName());
+            case POPULAR -> Sort.by(Sort.Order.desc(POPULAR.getColumnName()), Sort.Order.asc("id"));
         };
         return PageRequest.of(pageNumber - 1, pageSize, sort);
     }
 
     /**
-     * Формирует DTO страницы товаров с учетом количеств в корзине.
+     * Формирует DTO страницы товаров с учетом количеств в корзине и остатков на складе.
      */
     private Mono<ItemsResponseDto> buildItemsResponse(
             Optional<Long> userId,
+            Map<Long, Integer> guestCart,
             String search,
+            PriceRange price,
+            List<String> tags,
             SortMethod sortMethod,
             Pageable pageable,
             List<ItemCacheDto> items,
-            long itemsCount
+            long itemsCount,
+            List<PriceBucketResponseDto> priceHistogram,
+            List<TagFacetResponseDto> tagFacets
     ) {
-        return getQuantityForItems(userId, items)
-                .map(quantityForItem -> {
+        return Mono.zip(getQuantityForItems(userId, guestCart, items), getStockForItems(items))
+                .map(t -> {
+                    var quantityForItem = t.getT1();
                     log.debug("Fetched {} items, {} related cart items", items.size(), quantityForItem.size());
-                    var itemRows = ItemMapper.toItemRows(items, quantityForItem, ITEMS_IN_ROW);
+                    var itemRows = ItemMapper.toItemRows(items, quantityForItem, t.getT2(), ITEMS_IN_ROW);
                     log.debug("Items response prepared with {} rows", itemRows.size());
                     var paging = convertToPaging(items.size(), itemsCount, pageable);
-                    return new ItemsResponseDto(itemRows, search, sortMethod, paging);
+                    return new ItemsResponseDto(itemRows, search, price, tags, sortMethod, paging, priceHistogram, tagFacets);
                 });
     }
 
     /**
-     * Загружает количество товаров в корзине по списку элементов страницы.
+     * Возвращает количества товаров страницы в корзине в карте без упаковки, которую читает маппер.
      */
-    private Mono<Map<Long, Integer>> getQuantityForItems(Optional<Long> userId, List<ItemCacheDto> items) {
-        if (items.isEmpty() || userId.isEmpty()) {
-            return Mono.just(Map.of());
+    private Mono<LongIntMap> getQuantityForItems(Optional<Long> userId, Map<Long, Integer> guestCart,
+                                                 List<ItemCacheDto> items) {
+        if (items.isEmpty()) {
+            return Mono.just(new LongIntMap(0));
+        }
+
+        return getCartQuantities(userId, guestCart)
+                .map(quantities -> pageValues(items, quantities));
+    }
+
+    /**
+     * Возвращает количества товаров в корзине пользователя из кэша количеств,
+     * а анонимному пользователю — его корзину из cookie.
+     */
+    private Mono<Map<Long, Integer>> getCartQuantities(Optional<Long> userId, Map<Long, Integer> guestCart) {
+        return userId.map(id -> cartQuantityCacheService.getQuantities(id).map(CartQuantitiesCacheDto::quantities))
+                .orElseGet(() -> Mono.just(guestCart));
+    }
+
+    /**
+     * Загружает остатки на складе для товаров страницы из кэша остатков.
+     */
+    private Mono<LongIntMap> getStockForItems(List<ItemCacheDto> items) {
+        if (items.isEmpty()) {
+            return Mono.just(new LongIntMap(0));
         }
 
         var itemIds = items.stream().map(ItemCacheDto::id).toList();
-        return cartItemRepository.findByUserIdAndItemIdIn(userId.get(), itemIds)
-                .collectMap(CartItem::getItemId, CartItem::getQuantity);
+        return itemCacheService.getStock(itemIds)
+                .map(stock -> pageValues(items, stock.stock()));
+    }
+
+    /**
+     * Переносит значения товаров страницы из упакованной карты кэша; товаров без значения в результате нет.
+     */
+    private static LongIntMap pageValues(List<ItemCacheDto> items, Map<Long, Integer> values) {
+        var result = new LongIntMap(items.size());
+        for (var item : items) {
+            var value = values.get(item.id());
+            if (value != null) {
+                result.put(item.id(), value);
+            }
+        }
+        return result;
     }
 }
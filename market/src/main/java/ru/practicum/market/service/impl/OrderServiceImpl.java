@@ -1,9 +1,13 @@
 package ru.practicum.market.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.exception.OrderConflictException;
@@ -17,13 +21,26 @@ import ru.practicum.market.repository.CartItemRepository;
 import ru.practicum.market.repository.ItemRepository;
 import ru.practicum.market.repository.OrderItemRepository;
 import ru.practicum.market.repository.OrderRepository;
+import ru.practicum.market.repository.projection.OrderHistoryRow;
+import ru.practicum.market.repository.projection.OrderLineRow;
 import ru.practicum.market.service.OrderService;
+import ru.practicum.market.service.cache.CartQuantityCacheService;
+import ru.practicum.market.service.cache.OrderCacheService;
+import ru.practicum.market.service.cache.dto.OrderCacheDto;
+import ru.practicum.market.service.flashsale.FlashSaleStore;
+import ru.practicum.market.service.recommendation.CoPurchaseIndex;
+import ru.practicum.market.service.sales.ItemSalesCounter;
+import ru.practicum.market.service.stock.StockReserver;
 import ru.practicum.market.web.dto.OrderResponseDto;
 import ru.practicum.market.web.mapper.OrderMapper;
 import ru.practicum.payments.integration.domain.HoldRq;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 import java.util.UUID;
 
 @Service
@@ -31,173 +48,255 @@ import java.util.UUID;
 @Slf4j
 public class OrderServiceImpl implements OrderService {
 
+    private static final TypeReference<List<OrderLineRow>> ORDER_LINES_TYPE = new TypeReference<>() {
+    };
+
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final CartItemRepository cartItemRepository;
     private final ItemRepository itemRepository;
     private final PaymentAdapter paymentAdapter;
+    private final OrderCacheService orderCacheService;
+    private final CartQuantityCacheService cartQuantityCacheService;
+    private final ItemSalesCounter itemSalesCounter;
+    private final CoPurchaseIndex coPurchaseIndex;
+    private final StockReserver stockReserver;
+    private final FlashSaleStore flashSaleStore;
+    private final ObjectMapper objectMapper;
+    private final TransactionalOperator transactionalOperator;
+
+    @Value("${orders.history.page-size}")
+    private int historyPageSize;
 
     /**
-     * Возвращает список всех заказов вместе с их позициями и товарами.
+     * Возвращает историю заказов пользователя, начиная с новых.
+     * Каждая страница загружается одним запросом (позиции агрегированы в JSON),
+     * следующая страница запрашивается по keyset-ключу {@code (created_at, id)} только по мере чтения потока.
+     * Транзакция не открывается: иначе соединение было бы занято на все время рендеринга страницы.
      */
     @Override
-    @Transactional(readOnly = true)
     public Flux<OrderResponseDto> getOrders(long userId) {
-        log.debug("Request to fetch all orders");
-        return orderRepository.findByUserId(userId)
+        log.debug("Request to fetch order history for userId={} with pageSize={}", userId, historyPageSize);
+        return orderRepository.findHistoryFirstPage(userId, historyPageSize)
                 .collectList()
-                .flatMapMany(this::loadOrderResponses);
+                .expand(page -> fetchNextHistoryPage(userId, page))
+                .concatMapIterable(page -> page)
+                .map(this::toOrderResponseDto);
     }
 
     /**
-     * Возвращает один заказ по orderId вместе с его позициями и товарами.
+     * Возвращает один заказ по orderId из кэша заказов.
+     * Заказ другого пользователя считается не найденным.
      *
      * @param userId  идентификатор пользователя
      * @param orderId идентификатор заказа
      */
     @Override
-    @Transactional(readOnly = true)
     public Mono<OrderResponseDto> getOrder(long userId, long orderId) {
         log.debug("Request to fetch order with orderId={}", orderId);
 
-        return findOrderById(userId, orderId)
-                .flatMap(order -> buildOrderResponse(order, orderId));
+        return orderCacheService.findOrder(orderId)
+                .filter(cached -> cached.userId() == userId)
+                .map(OrderCacheDto::order)
+                .switchIfEmpty(Mono.error(
+                        new OrderNotFoundException(orderId, "Order with orderId = %d for user with id = %d not found."
+                                .formatted(orderId, userId)))
+                );
     }
 
     /**
-     * Создает заказ из текущих позиций корзины:
-     * резервирует платеж, сохраняет заказ и позиции, очищает корзину, подтверждает платеж.
+     * Создает заказ из текущих позиций корзины и резервов распродаж пользователя:
+     * списывает резервы распродаж, резервирует остатки на складе и платеж, сохраняет заказ и позиции,
+     * очищает корзину, подтверждает платеж.
+     * <p>
+     * Общей транзакции нет: остатки резервируются в собственных коротких транзакциях {@link StockReserver},
+     * а в транзакции выполняется только сохранение заказа. Поэтому оформление не занимает два соединения пула
+     * одновременно и параллельные заказы не ждут друг друга за соединениями.
      */
     @Override
-    @Transactional
     public Mono<Long> createOrder(long userId) {
         log.debug("Creating order from cart items");
         return cartItemRepository.findByUserId(userId)
                 .collectList()
-                .flatMap(cartItems -> createOrderFromCartItems(userId, cartItems));
+                .zipWith(flashSaleStore.claims(userId))
+                .flatMap(cart -> createOrderFromCartItems(userId, cart.getT1(), cart.getT2()));
     }
 
     /**
-     * Загружает DTO заказов на основе списка заказов.
-     * Если заказов нет, возвращает пустой поток.
+     * Добавляет позиции заказа в корзину одним запросом {@code INSERT ... SELECT} и после него удаляет
+     * количества корзины из кэша. Принадлежность заказа проверяется до копирования;
+     * удаленные из каталога товары пропускаются.
      */
-    private Flux<OrderResponseDto> loadOrderResponses(List<Order> orders) {
-        if (orders.isEmpty()) {
-            return Flux.empty();
-        }
-
-        var orderIds = orders.stream().map(Order::getId).toList();
-        return orderItemRepository.findByOrderIdIn(orderIds)
-                .collectList()
-                .flatMapMany(orderItems -> loadOrderResponses(orders, orderItems));
+    @Override
+    public Mono<Integer> reorder(long userId, long orderId) {
+        log.debug("Reordering orderId={} for userId={}", orderId, userId);
+        return getOrder(userId, orderId)
+                .then(Mono.defer(() -> cartItemRepository.copyFromOrder(userId, orderId)))
+                .flatMap(copied -> {
+                    log.info("Order {} copied to cart of userId={}: {} items", orderId, userId, copied);
+                    return evictCartQuantities(userId).thenReturn(copied);
+                });
     }
 
     /**
-     * Достраивает DTO заказов: к заказам и позициям подтягивает карточки товаров.
+     * Загружает следующую страницу истории заказов.
+     * Неполная страница означает, что история закончилась.
      */
-    private Flux<OrderResponseDto> loadOrderResponses(List<Order> orders, List<OrderItem> orderItems) {
-        var itemIds = orderItems.stream().map(OrderItem::getItemId).toList();
-        return itemRepository.findByIdIn(itemIds)
-                .collectList()
-                .flatMapMany(items -> {
-                    var responses = OrderMapper.toOrderResponseDtos(orders, orderItems, items);
-                    log.debug("Fetched {} orders", orders.size());
-                    return Flux.fromIterable(responses);
-                });
+    private Mono<List<OrderHistoryRow>> fetchNextHistoryPage(long userId, List<OrderHistoryRow> page) {
+        if (page.size() < historyPageSize) {
+            return Mono.empty();
+        }
+
+        var last = page.getLast();
+        log.debug("Fetching next order history page after orderId={}", last.id());
+        return orderRepository.findHistoryPageAfter(userId, last.createdAt(), last.id(), historyPageSize)
+                .collectList();
     }
 
     /**
-     * Ищет заказ по orderId или бросает {@link OrderNotFoundException}.
+     * Преобразует строку истории заказов в DTO, разбирая JSON-агрегат позиций.
      */
-    private Mono<Order> findOrderById(long userId, long orderId) {
-        return orderRepository.findByUserIdAndId(userId, orderId)
-                .switchIfEmpty(Mono.error(
-                        new OrderNotFoundException(orderId, "Order with orderId = %d for user with id = %d not found."
-                                .formatted(orderId, userId)))
-                );
+    private OrderResponseDto toOrderResponseDto(OrderHistoryRow row) {
+        try {
+            var lines = objectMapper.readValue(row.items(), ORDER_LINES_TYPE);
+            return OrderMapper.toOrderResponseDto(row, lines);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to parse items of order %d".formatted(row.id()), e);
+        }
     }
 
     /**
-     * Формирует DTO конкретного заказа: загружает позиции заказа и соответствующие товары.
+     * Проверяет, что заказ не пуст, списывает резервы распродаж и продолжает создание заказа.
+     * Если оформление не удалось, списанные резервы возвращаются в распродажи.
      */
-    private Mono<OrderResponseDto> buildOrderResponse(Order order, long orderId) {
-        return orderItemRepository.findByOrderId(orderId)
-                .collectList()
-                .flatMap(orderItems -> {
-                    var itemIds = orderItems.stream().map(OrderItem::getItemId).toList();
-                    return itemRepository.findByIdIn(itemIds)
-                            .collectList()
-                            .map(items -> OrderMapper.toOrderResponseDto(order, orderItems, items));
-                });
+    private Mono<Long> createOrderFromCartItems(long userId, List<CartItem> cartItems, Map<Long, Integer> flashClaims) {
+        if (cartItems.isEmpty() && flashClaims.isEmpty()) {
+            return Mono.error(new OrderConflictException("Order must contain at least one item."));
+        }
+
+        return flashSaleStore.consume(userId, flashClaims)
+                .flatMap(consumed -> createOrderFromLines(userId, cartItems, consumed)
+                        .onErrorResume(ex -> restoreFlashSaleAfterFailure(ex, userId, consumed)));
     }
 
     /**
-     * Проверяет, что корзина не пуста, и продолжает создание заказа.
+     * Собирает позиции заказа и загружает их товары.
+     * Списанные резервы распродаж становятся отдельными позициями заказа, которых нет в корзине;
+     * если в заказе не осталось позиций (все резервы относились к завершенным распродажам), заказ не создается.
      */
-    private Mono<Long> createOrderFromCartItems(long userId, List<CartItem> cartItems) {
-        if (cartItems.isEmpty()) {
+    private Mono<Long> createOrderFromLines(long userId, List<CartItem> cartItems, Map<Long, Integer> flashClaims) {
+        var orderLines = new ArrayList<>(cartItems);
+        flashClaims.forEach((itemId, quantity) -> {
+            var line = new CartItem(userId, itemId);
+            line.setQuantity(quantity);
+            orderLines.add(line);
+        });
+        if (orderLines.isEmpty()) {
             return Mono.error(new OrderConflictException("Order must contain at least one item."));
         }
 
-        var itemIds = cartItems.stream().map(CartItem::getItemId).toList();
+        var itemIds = orderLines.stream().map(CartItem::getItemId).distinct().toList();
         return itemRepository.findByIdIn(itemIds)
                 .collectList()
-                .flatMap(items -> placeOrder(userId, cartItems, items));
+                .flatMap(items -> placeOrder(userId, cartItems, orderLines, items));
     }
 
     /**
-     * Создает заказ из корзины и запрашивает hold в платежном сервисе.
+     * Резервирует остатки товаров корзины, создает заказ и запрашивает hold в платежном сервисе.
+     * Позиции распродаж на складе не резервируются: их единицы списаны со склада при старте распродажи.
+     * Если после резерва оформление не удалось, остатки возвращаются на склад.
      */
-    private Mono<Long> placeOrder(long userId, List<CartItem> cartItems, List<Item> items) {
-        var order = OrderMapper.toOrder(userId, cartItems, items);
+    private Mono<Long> placeOrder(long userId, List<CartItem> cartItems, List<CartItem> orderLines, List<Item> items) {
+        var order = OrderMapper.toOrder(userId, orderLines, items);
         var holdRq = new HoldRq().amount(BigDecimal.valueOf(order.getTotalSum()));
 
-        return paymentAdapter.hold(userId, holdRq)
-                .onErrorResume(Mono::error)
-                .flatMap(holdRs -> saveOrderAndConfirmPayment(order, cartItems, items, holdRs.getPaymentId()));
+        return stockReserver.reserve(cartItems)
+                .then(Mono.defer(() -> paymentAdapter.hold(userId, holdRq)
+                        .onErrorResume(Mono::error)
+                        .flatMap(holdRs -> saveOrderAndConfirmPayment(
+                                order, cartItems, orderLines, items, holdRs.getPaymentId()))
+                        .onErrorResume(ex -> releaseStockAfterFailure(ex, cartItems))));
     }
 
     /**
-     * Сохраняет заказ в БД и в случае ошибки пытается отменить резерв платежа.
+     * Сохраняет заказ в транзакции и после ее фиксации удаляет количества корзины из кэша и подтверждает платеж.
+     * Если заказ не сохранился, отменяет резерв платежа; если не подтвердился платеж — отменяет и сохраненный заказ.
+     * Продажи оформленного заказа уходят в буфер счетчиков популярности, а сам заказ сразу добавляется
+     * в рекомендации «с этим товаром покупают».
      */
     private Mono<Long> saveOrderAndConfirmPayment(
             Order order,
             List<CartItem> cartItems,
+            List<CartItem> orderLines,
             List<Item> items,
             UUID paymentId
     ) {
-        return orderRepository.save(order)
-                .flatMap(savedOrder -> persistOrderItemsAndConfirm(savedOrder, cartItems, items, paymentId))
-                .onErrorResume(ex -> rollbackPaymentAfterDbFailure(ex, paymentId));
+        return transactionalOperator.transactional(persistOrder(order, cartItems, orderLines, items))
+                .onErrorResume(ex -> rollbackPaymentAfterDbFailure(ex, paymentId))
+                .flatMap(placed -> evictCartQuantities(order.getUserId())
+                        .then(paymentAdapter.confirm(paymentId)
+                                .onErrorResume(ex -> cancelOrderAfterPaymentFailure(ex, placed, cartItems, paymentId)))
+                        .then(cacheOrder(placed.order(), placed.items()))
+                        .then(Mono.fromRunnable(() -> {
+                            itemSalesCounter.record(placed.items());
+                            coPurchaseIndex.add(placed.items().stream().map(OrderItem::getItemId).toList());
+                        }))
+                        .thenReturn(placed.order().getId()));
     }
 
     /**
-     * Сохраняет позиции заказа, очищает корзину и подтверждает платеж.
+     * Сохраняет заказ и его позиции, очищает корзину.
      */
-    private Mono<Long> persistOrderItemsAndConfirm(
-            Order savedOrder,
+    private Mono<PlacedOrder> persistOrder(
+            Order order,
             List<CartItem> cartItems,
-            List<Item> items,
-            UUID paymentId
+            List<CartItem> orderLines,
+            List<Item> items
     ) {
-        var orderId = savedOrder.getId();
-        log.debug("Order created with id={} and {} items", orderId, cartItems.size());
-        var orderItems = OrderMapper.toOrderItems(cartItems, items, orderId);
+        return orderRepository.save(order)
+                .flatMap(savedOrder -> {
+                    var orderId = savedOrder.getId();
+                    log.debug("Order created with id={} and {} items", orderId, orderLines.size());
+                    var orderItems = OrderMapper.toOrderItems(orderLines, items, orderId);
 
-        return orderItemRepository.saveAll(orderItems)
-                .doOnComplete(() -> log.debug("Saved {} order items for order {}", orderItems.size(), orderId))
-                .then(cartItemRepository.deleteByIdIn(cartItems.stream().map(CartItem::getId).toList())
-                        .doOnSuccess(v -> log.debug("Cart items cleared after order creation"))
-                )
-                .then(paymentAdapter.confirm(paymentId)
-                        .onErrorResume(Mono::error))
-                .thenReturn(orderId);
+                    return orderItemRepository.saveAll(orderItems)
+                            .doOnComplete(() -> log.debug("Saved {} order items for order {}", orderItems.size(), orderId))
+                            .then(cartItemRepository.deleteByIdIn(cartItems.stream().map(CartItem::getId).filter(Objects::nonNull).toList())
+                                    .doOnSuccess(v -> log.debug("Cart items cleared after order creation"))
+                            )
+                            .thenReturn(new PlacedOrder(savedOrder, orderItems));
+                });
+    }
+
+    /**
+     * Кладет созданный заказ в кэш, чтобы страница заказа после оформления открылась без обращения к БД.
+     * Ошибка кэша не влияет на оформление заказа.
+     */
+    private Mono<Void> cacheOrder(Order savedOrder, List<OrderItem> orderItems) {
+        var cached = new OrderCacheDto(savedOrder.getUserId(), OrderMapper.toOrderResponseDto(savedOrder, orderItems));
+        return orderCacheService.putOrder(cached)
+                .onErrorResume(ex -> {
+                    log.warn("Failed to cache order {}", savedOrder.getId(), ex);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Удаляет количества корзины из кэша. Ошибка кэша не влияет на операцию с заказом.
+     */
+    private Mono<Void> evictCartQuantities(long userId) {
+        return cartQuantityCacheService.evictQuantities(userId)
+                .onErrorResume(ex -> {
+                    log.warn("Failed to evict cart quantities for userId={}", userId, ex);
+                    return Mono.empty();
+                });
     }
 
     /**
      * Компенсация при ошибке БД: отменяет резерв платежа и пробрасывает исходную ошибку.
      */
-    private Mono<Long> rollbackPaymentAfterDbFailure(Throwable ex, UUID paymentId) {
+    private <T> Mono<T> rollbackPaymentAfterDbFailure(Throwable ex, UUID paymentId) {
         log.warn("DB failed. Start refund payment", ex);
         return paymentAdapter.cancel(paymentId)
                 .onErrorResume(refundEx -> {
@@ -206,4 +305,84 @@ public class OrderServiceImpl implements OrderService {
                 })
                 .then(Mono.error(ex));
     }
+
+    /**
+     * Компенсация при ошибке подтверждения платежа: отменяет резерв платежа, в отдельной транзакции удаляет
+     * сохраненный заказ и возвращает его позиции в корзину, затем пробрасывает исходную ошибку.
+     */
+    private <T> Mono<T> cancelOrderAfterPaymentFailure(
+            Throwable ex,
+            PlacedOrder placed,
+            List<CartItem> cartItems,
+            UUID paymentId
+    ) {
+        var orderId = placed.order().getId();
+        var userId = placed.order().getUserId();
+        log.warn("Payment confirmation failed. Cancel order {}", orderId, ex);
+        return paymentAdapter.cancel(paymentId)
+                .onErrorResume(cancelEx -> {
+                    log.error("Payment confirmation and refund failed", cancelEx);
+                    return Mono.empty();
+                })
+                .then(transactionalOperator.transactional(orderItemRepository.deleteByOrderId(orderId)
+                        .then(orderRepository.deleteById(orderId))
+                        .then(restoreCart(userId, cartItems))))
+                .then(Mono.defer(() -> evictCartQuantities(userId)))
+                .onErrorResume(cancelEx -> {
+                    log.error("Payment confirmation failed and order {} was not cancelled", orderId, cancelEx);
+                    return Mono.empty();
+                })
+                .then(Mono.error(ex));
+    }
+
+    /**
+     * Возвращает в корзину позиции, очищенные при сохранении заказа.
+     */
+    private Mono<Void> restoreCart(long userId, List<CartItem> cartItems) {
+        if (cartItems.isEmpty()) {
+            return Mono.empty();
+        }
+
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (var cartItem : cartItems) {
+            quantities.merge(cartItem.getItemId(), cartItem.getQuantity(), Integer::sum);
+        }
+        return cartItemRepository.mergeQuantities(userId,
+                        quantities.keySet().toArray(Long[]::new),
+                        quantities.values().toArray(Integer[]::new))
+                .then();
+    }
+
+    /**
+     * Компенсация при ошибке оформления: возвращает зарезервированные остатки и пробрасывает исходную ошибку.
+     */
+    private Mono<Long> releaseStockAfterFailure(Throwable ex, List<CartItem> cartItems) {
+        log.warn("Order placement failed. Release reserved stock", ex);
+        return stockReserver.release(cartItems)
+                .onErrorResume(releaseEx -> {
+                    log.error("Order placement and stock release failed", releaseEx);
+                    return Mono.empty();
+                })
+                .then(Mono.error(ex));
+    }
+
+    /**
+     * Компенсация при ошибке оформления: возвращает списанные резервы в остатки распродаж,
+     * а единицы уже завершенных распродаж — на склад, и пробрасывает исходную ошибку.
+     */
+    private <T> Mono<T> restoreFlashSaleAfterFailure(Throwable ex, long userId, Map<Long, Integer> flashClaims) {
+        return flashSaleStore.restore(userId, flashClaims)
+                .flatMap(stockReserver::releaseQuantities)
+                .onErrorResume(restoreEx -> {
+                    log.error("Order placement and flash sale restore failed", restoreEx);
+                    return Mono.empty();
+                })
+                .then(Mono.error(ex));
+    }
+
+    /**
+     * Сохраненный заказ вместе с его позициями.
+     */
+    private record PlacedOrder(Order order, List<OrderItem> items) {
+    }
 }
@@ -0,0 +1,39 @@
+package ru.practicum.market.service.importer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Артикул для строки импорта без артикула: {@value #PREFIX} и первые 8 байт SHA-256 от названия
+ * без крайних пробелов в нижнем регистре.
+ * Без артикула товар определяется названием, поэтому повторный импорт того же файла обновляет те же товары,
+ * а не добавляет их заново.
+ */
+final class DerivedSku {
+
+    static final String PREFIX = "auto-";
+
+    private static final int HASH_BYTES = 8;
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(DerivedSku::sha256);
+
+    private DerivedSku() {
+    }
+
+    static String of(String title) {
+        var digest = DIGEST.get();
+        digest.reset();
+        var hash = digest.digest(title.strip().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        return PREFIX + HexFormat.of().formatHex(hash, 0, HASH_BYTES);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.market.service.importer;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Состояние фонового импорта товаров.
+ *
+ * @param id            идентификатор импорта
+ * @param fileName      имя загруженного файла
+ * @param status        состояние импорта
+ * @param rowsParsed    количество прочитанных строк файла
+ * @param inserted      количество добавленных товаров
+ * @param updated       количество обновленных товаров
+ * @param unchanged     количество строк без изменений
+ * @param rowsPerSecond скорость записи, строк в секунду
+ * @param error         текст ошибки для {@link ImportJobStatus#FAILED}
+ * @param createdAt     время постановки в очередь
+ * @param startedAt     время начала обработки
+ * @param finishedAt    время завершения
+ */
+public record ImportJob(
+        String id,
+        String fileName,
+        ImportJobStatus status,
+        long rowsParsed,
+        long inserted,
+        long updated,
+        long unchanged,
+        double rowsPerSecond,
+        String error,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt
+) {
+
+    /**
+     * Создает импорт в очереди.
+     */
+    public static ImportJob queued(String id, String fileName) {
+        return new ImportJob(id, fileName, ImportJobStatus.QUEUED, 0, 0, 0, 0, 0, null, Instant.now(), null, null);
+    }
+
+    /**
+     * Переводит импорт в обработку.
+     */
+    public ImportJob start() {
+        return new ImportJob(id, fileName, ImportJobStatus.RUNNING, rowsParsed, inserted, updated, unchanged,
+                rowsPerSecond, error, createdAt, Instant.now(), finishedAt);
+    }
+
+    /**
+     * Фиксирует прогресс обработки.
+     */
+    public ImportJob progress(long rowsParsed, ItemImportResult result) {
+        return new ImportJob(id, fileName, status, rowsParsed, result.inserted(), result.updated(), result.unchanged(),
+                rate(result.total(), Instant.now()), error, createdAt, startedAt, finishedAt);
+    }
+
+    /**
+     * Завершает импорт с указанным состоянием.
+     */
+    public ImportJob finish(ImportJobStatus status, String error) {
+        var now = Instant.now();
+        return new ImportJob(id, fileName, status, rowsParsed, inserted, updated, unchanged,
+                rate(inserted + updated + unchanged, now), error, createdAt, startedAt, now);
+    }
+
+    private double rate(long rows, Instant now) {
+        if (startedAt == null) {
+            return 0;
+        }
+        var millis = Math.max(Duration.between(startedAt, now).toMillis(), 1);
+        return rows * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.market.service.importer;
+
+/**
+ * Состояние фонового импорта товаров.
+ */
+public enum ImportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED;
+
+    /**
+     * Признак завершенного импорта, состояние которого больше не меняется.
+     */
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.market.service.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Хранилище состояния фоновых импортов в Redis.
+ * Состояние доступно всем экземплярам приложения и удаляется через {@code items.import.job-ttl}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImportJobStore {
+
+    private static final String KEY_PREFIX = "import-job:";
+    private static final String CANCEL_KEY_PREFIX = "import-job-cancel:";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${items.import.job-ttl}")
+    private Duration jobTtl;
+
+    /**
+     * Сохраняет состояние импорта.
+     */
+    public Mono<ImportJob> save(ImportJob job) {
+        return Mono.fromCallable(() -> objectMapper.writeValueAsString(job))
+                .flatMap(json -> redisTemplate.opsForValue().set(KEY_PREFIX + job.id(), json, jobTtl))
+                .doOnNext(saved -> log.debug("Import job {} saved: {}", job.id(), job.status()))
+                .thenReturn(job);
+    }
+
+    /**
+     * Возвращает состояние импорта или пустой результат, если импорт неизвестен.
+     */
+    public Mono<ImportJob> find(String id) {
+        return redisTemplate.opsForValue().get(KEY_PREFIX + id)
+                .map(this::parse);
+    }
+
+    /**
+     * Запоминает запрос отмены импорта. Флаг хранится отдельно от состояния, чтобы сохранение прогресса
+     * экземпляром, выполняющим импорт, не затерло отмену, принятую другим экземпляром.
+     */
+    public Mono<Void> requestCancel(String id) {
+        return redisTemplate.opsForValue().set(CANCEL_KEY_PREFIX + id, "1", jobTtl)
+                .doOnNext(saved -> log.debug("Import job {} cancel requested", id))
+                .then();
+    }
+
+    /**
+     * Проверяет, запрошена ли отмена импорта.
+     */
+    public Mono<Boolean> isCancelRequested(String id) {
+        return redisTemplate.hasKey(CANCEL_KEY_PREFIX + id);
+    }
+
+    private ImportJob parse(String json) {
+        try {
+            return objectMapper.readValue(json, ImportJob.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to parse import job", e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.market.service.importer;
+
+import ru.practicum.market.domain.model.Item;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Хэш импортируемых полей товара: первые 8 байт SHA-256 от названия, описания, цены и тегов.
+ * Поля пишутся с префиксом длины, поэтому разные наборы значений не склеиваются в одинаковый вход.
+ * Теги добавляются, только если заданы, поэтому хэши товаров без тегов не изменились.
+ */
+final class ItemContentHash {
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(ItemContentHash::sha256);
+
+    private ItemContentHash() {
+    }
+
+    static long of(Item item) {
+        var digest = DIGEST.get();
+        digest.reset();
+        update(digest, item.getTitle());
+        update(digest, item.getDescription());
+        digest.update(ByteBuffer.allocate(Long.BYTES).putLong(item.getPrice()).array());
+        if (item.getTags() != null) {
+            item.getTags().forEach(tag -> update(digest, tag));
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(-1).array());
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.market.service.importer;
+
+/**
+ * Итог импорта товаров.
+ *
+ * @param inserted  количество добавленных товаров
+ * @param updated   количество обновленных товаров
+ * @param unchanged количество строк без изменений (включая повторы артикула в пределах пачки)
+ */
+public record ItemImportResult(
+        long inserted,
+        long updated,
+        long unchanged
+) {
+    public static final ItemImportResult EMPTY = new ItemImportResult(0, 0, 0);
+
+    /**
+     * Складывает итоги двух частей импорта.
+     */
+    public ItemImportResult plus(ItemImportResult other) {
+        return new ItemImportResult(
+                inserted + other.inserted,
+                updated + other.updated,
+                unchanged + other.unchanged
+        );
+    }
+
+    /**
+     * Общее количество обработанных строк.
+     */
+    public long total() {
+        return inserted + updated + unchanged;
+    }
+}
@@ -0,0 +1,206 @@
+package ru.practicum.market.service.importer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.projection.ItemUpsertRow;
+import ru.practicum.market.service.cache.ItemCacheService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Запись импортируемых товаров пачками.
+ * Поток товаров режется на пачки {@code items.import.chunk-size}, каждая пачка пишется одним upsert-запросом,
+ * одновременно выполняется не больше {@code items.import.parallelism} пачек.
+ * Строке без артикула назначается артикул {@link DerivedSku} по названию, поэтому upsert находит товар
+ * и при повторном импорте файла без колонки артикулов.
+ * В запись попадают только новые строки и строки, у которых изменился хэш импортируемых полей;
+ * из кэша удаляются карточки только обновленных товаров. Теги записанных товаров заменяются
+ * вторым запросом той же пачки, остатки на складе из файла задаются третьим — для всех строк, где они указаны.
+ * Запросы пачки выполняются в одной транзакции, поэтому ошибка не оставляет товар без части тегов или остатка;
+ * карточки удаляются из кэша после ее фиксации.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ItemImportWriter {
+
+    private final ItemRepository itemRepository;
+    private final ItemCacheService itemCacheService;
+    private final TransactionalOperator transactionalOperator;
+
+    @Value("${items.import.chunk-size}")
+    private int chunkSize;
+    @Value("${items.import.parallelism}")
+    private int parallelism;
+    @Value("${items.stock.stripes}")
+    private int stripes;
+
+    /**
+     * Записывает товары и возвращает итог импорта.
+     *
+     * @param items поток импортируемых товаров
+     * @return количество добавленных, обновленных и неизмененных товаров
+     */
+    public Mono<ItemImportResult> write(Flux<Item> items) {
+        return writeChunks(items)
+                .reduce(ItemImportResult.EMPTY, ItemImportResult::plus);
+    }
+
+    /**
+     * Записывает товары и выдает итог по каждой записанной пачке в порядке завершения.
+     *
+     * @param items поток импортируемых товаров
+     * @return итоги пачек
+     */
+    public Flux<ItemImportResult> writeChunks(Flux<Item> items) {
+        return items.buffer(chunkSize)
+                .flatMap(this::writeChunk, parallelism);
+    }
+
+    /**
+     * Пишет измененные строки одной пачки в транзакции и считает итог по строкам из RETURNING.
+     */
+    private Mono<ItemImportResult> writeChunk(List<Item> chunk) {
+        chunk.forEach(item -> {
+            if (item.getSku() == null) {
+                item.setSku(DerivedSku.of(item.getTitle()));
+            }
+        });
+        var rows = deduplicateBySku(chunk);
+        rows.forEach(item -> item.setContentHash(ItemContentHash.of(item)));
+
+        var write = filterChanged(rows)
+                .flatMap(changed -> itemRepository.upsertAll(changed).collectList()
+                        .flatMap(written -> writeTags(changed, written)
+                                .then(writeStock(rows, changed, written))
+                                .thenReturn(written)));
+
+        return transactionalOperator.transactional(write)
+                .flatMap(written -> {
+                    var updatedIds = written.stream()
+                            .filter(row -> !row.inserted())
+                            .map(ItemUpsertRow::id)
+                            .toList();
+                    long inserted = written.size() - updatedIds.size();
+                    var result = new ItemImportResult(inserted, updatedIds.size(), chunk.size() - written.size());
+                    return updatedIds.isEmpty()
+                            ? Mono.just(result)
+                            : itemCacheService.evictItems(updatedIds).thenReturn(result);
+                })
+                .doOnNext(result -> log.debug("Import chunk of {} rows written: {}", chunk.size(), result));
+    }
+
+    /**
+     * Заменяет теги записанных товаров, у которых в файле заданы теги, одним запросом на пачку.
+     */
+    private Mono<Void> writeTags(List<Item> changed, List<ItemUpsertRow> written) {
+        var itemIds = new ArrayList<Long>();
+        var tagNames = new ArrayList<String>();
+        writtenItems(changed, written).forEach((id, item) -> {
+            if (item.getTags() == null) {
+                return;
+            }
+            for (var tag : item.getTags()) {
+                itemIds.add(id);
+                tagNames.add(tag);
+            }
+        });
+        if (itemIds.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return itemRepository.replaceTags(itemIds.toArray(Long[]::new), tagNames.toArray(String[]::new))
+                .doOnNext(linked -> log.debug("Import chunk: {} item tags linked", linked))
+                .then();
+    }
+
+    /**
+     * Задает остатки на складе всем строкам пачки, у которых в файле указан остаток, одним запросом на пачку.
+     * Остаток не входит в хэш, поэтому пишется и для неизмененных строк: их id находятся по артикулу.
+     */
+    private Mono<Void> writeStock(List<Item> rows, List<Item> changed, List<ItemUpsertRow> written) {
+        Map<Long, Integer> stockById = new TreeMap<>();
+        writtenItems(changed, written).forEach((id, item) -> {
+            if (item.getStock() != null) {
+                stockById.put(id, item.getStock());
+            }
+        });
+
+        var writtenSkus = written.stream()
+                .map(ItemUpsertRow::sku)
+                .collect(Collectors.toSet());
+        Map<String, Integer> unchangedStock = new HashMap<>();
+        for (var item : rows) {
+            if (item.getStock() != null && !writtenSkus.contains(item.getSku())) {
+                unchangedStock.put(item.getSku(), item.getStock());
+            }
+        }
+
+        var resolved = unchangedStock.isEmpty()
+                ? Mono.just(stockById)
+                : itemRepository.findIdsBySkuIn(unchangedStock.keySet())
+                .doOnNext(row -> stockById.put(row.id(), unchangedStock.get(row.sku())))
+                .then(Mono.fromSupplier(() -> stockById));
+
+        return resolved.flatMap(stock -> stock.isEmpty()
+                ? Mono.<Void>empty()
+                : itemRepository.replaceStock(
+                                stock.keySet().toArray(Long[]::new),
+                                stock.values().toArray(Integer[]::new),
+                                stripes)
+                        .doOnNext(stripesWritten -> log.debug("Import chunk: stock set for {} items in {} stripes",
+                                stock.size(), stripesWritten))
+                        .then());
+    }
+
+    /**
+     * Сопоставляет записанные строки с товарами пачки по позиции, которую возвращает upsert.
+     *
+     * @return товар пачки по его id в порядке записанных строк
+     */
+    private static Map<Long, Item> writtenItems(List<Item> changed, List<ItemUpsertRow> written) {
+        Map<Long, Item> byId = new LinkedHashMap<>();
+        for (var row : written) {
+            byId.put(row.id(), changed.get(row.position()));
+        }
+        return byId;
+    }
+
+    /**
+     * Отбрасывает строки, хэш которых совпадает с сохраненным хэшем товара с тем же артикулом.
+     */
+    private Mono<List<Item>> filterChanged(List<Item> rows) {
+        var skus = rows.stream().map(Item::getSku).toList();
+        return itemRepository.findContentHashesBySkuIn(skus)
+                .collect(HashMap<String, Long>::new, (map, row) -> map.put(row.sku(), row.contentHash()))
+                .map(stored -> rows.stream()
+                        .filter(item -> !Objects.equals(stored.get(item.getSku()), item.getContentHash()))
+                        .toList());
+    }
+
+    /**
+     * Оставляет последнюю строку для каждого артикула: один запрос ON CONFLICT не может обновить строку дважды.
+     * Строки упорядочиваются по артикулу, чтобы параллельные пачки брали блокировки в одном порядке.
+     */
+    static List<Item> deduplicateBySku(List<Item> chunk) {
+        Map<String, Item> bySku = new TreeMap<>();
+        for (var item : chunk) {
+            bySku.put(item.getSku(), item);
+        }
+        return new ArrayList<>(bySku.values());
+    }
+}
@@ -0,0 +1,160 @@
+package ru.practicum.market.service.recommendation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.repository.OrderItemRepository;
+import ru.practicum.market.repository.projection.OrderBasketRow;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Рекомендации «с этим товаром покупают»: матрица совместных покупок товаров по заказам в памяти.
+ * <p>
+ * Строка матрицы — {@link RelatedItems} с не более чем {@code items.recommendations.max-related-per-item} парами,
+ * поэтому память ограничена числом товаров, а не историей заказов: при 100 000 товаров и 64 парах на строку
+ * матрица занимает порядка 60 МБ независимо от того, сколько заказов оформлено.
+ * <p>
+ * Новые заказы добавляются в матрицу сразу после оформления. Раз в {@code items.recommendations.rebuild-interval}
+ * матрица перестраивается потоком по {@code order_items} и подменяется целиком; заказы, оформленные
+ * во время перестроения, могут не попасть в новую матрицу до следующего перестроения.
+ * Идентификаторы товаров должны помещаться в {@code int}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CoPurchaseIndex {
+
+    /**
+     * Заказы крупнее — оптовые закупки, а не товары «вместе»: они дают квадратичное число пар и не учитываются.
+     */
+    static final int MAX_BASKET_SIZE = 50;
+
+    private final OrderItemRepository orderItemRepository;
+
+    private final AtomicReference<Map<Integer, RelatedItems>> matrix = new AtomicReference<>(new ConcurrentHashMap<>());
+
+    @Value("${items.recommendations.top-k}")
+    private int topK;
+
+    @Value("${items.recommendations.max-related-per-item}")
+    private int maxRelatedPerItem;
+
+    @Value("${items.recommendations.rebuild-interval}")
+    private Duration rebuildInterval;
+
+    private Disposable rebuilder;
+
+    /**
+     * Строит матрицу после старта приложения и запускает периодическое перестроение.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void startRebuild() {
+        rebuilder = Flux.interval(Duration.ZERO, rebuildInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> rebuild()
+                        .onErrorResume(ex -> {
+                            log.warn("Failed to rebuild co-purchase index", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * Останавливает периодическое перестроение.
+     */
+    @PreDestroy
+    void stopRebuild() {
+        if (rebuilder != null) {
+            rebuilder.dispose();
+        }
+    }
+
+    /**
+     * Перечитывает все заказы и подменяет матрицу.
+     *
+     * @return сигнал завершения
+     */
+    public Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            Map<Integer, RelatedItems> rebuilt = new ConcurrentHashMap<>();
+            return orderItemRepository.findBasketsOrderByOrderId()
+                    .bufferUntilChanged(OrderBasketRow::orderId)
+                    .doOnNext(basket -> addBasket(rebuilt, basket.stream().map(OrderBasketRow::itemId).toList()))
+                    .then(Mono.fromRunnable(() -> {
+                        matrix.set(rebuilt);
+                        log.debug("Co-purchase index rebuilt: {} items, ~{} bytes", rebuilt.size(), estimatedBytes(rebuilt));
+                    }));
+        });
+    }
+
+    /**
+     * Добавляет в матрицу товары только что оформленного заказа.
+     *
+     * @param itemIds товары заказа
+     */
+    public void add(Collection<Long> itemIds) {
+        addBasket(matrix.get(), itemIds);
+    }
+
+    /**
+     * Возвращает товары, чаще всего покупаемые вместе с товаром {@code itemId}, по убыванию частоты.
+     *
+     * @param itemId идентификатор товара
+     * @return до {@code items.recommendations.top-k} идентификаторов товаров
+     */
+    public List<Long> related(long itemId) {
+        if (itemId > Integer.MAX_VALUE) {
+            return List.of();
+        }
+        var row = matrix.get().get((int) itemId);
+        if (row == null) {
+            return List.of();
+        }
+        var top = row.top(topK);
+        var result = new ArrayList<Long>(top.length);
+        for (long id : top) {
+            result.add(id);
+        }
+        return result;
+    }
+
+    private void addBasket(Map<Integer, RelatedItems> target, Collection<Long> itemIds) {
+        var distinct = itemIds.stream()
+                .distinct()
+                .mapToInt(Math::toIntExact)
+                .toArray();
+        if (distinct.length < 2 || distinct.length > MAX_BASKET_SIZE) {
+            return;
+        }
+        for (int itemId : distinct) {
+            var row = target.computeIfAbsent(itemId, id -> new RelatedItems(maxRelatedPerItem));
+            for (int other : distinct) {
+                if (other != itemId) {
+                    row.increment(other);
+                }
+            }
+        }
+    }
+
+    private static long estimatedBytes(Map<Integer, RelatedItems> rows) {
+        long bytes = 0;
+        for (var row : rows.values()) {
+            bytes += row.estimatedBytes();
+        }
+        return bytes;
+    }
+}
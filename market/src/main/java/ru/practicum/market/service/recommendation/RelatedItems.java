@@ -0,0 +1,94 @@
+package ru.practicum.market.service.recommendation;
+
+import java.util.Arrays;
+
+/**
+ * Строка разреженной матрицы совместных покупок: счетчики для товаров, купленных вместе с одним товаром.
+ * <p>
+ * Пары хранятся в двух массивах примитивов (8 байт на пару) и ищутся перебором — строка ограничена
+ * {@code capacity}. В заполненной строке новый товар вытесняет товар с наименьшим счетчиком и получает его
+ * счетчик плюс один (алгоритм Space-Saving): частые пары не теряются, редкие считаются приближенно.
+ * Лучшие товары строки запоминаются до следующего изменения. Методы синхронизированы по строке.
+ */
+final class RelatedItems {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long[] NOT_COMPUTED = new long[0];
+
+    private final int capacity;
+    private int[] ids;
+    private int[] counts;
+    private int size;
+    private long[] top = NOT_COMPUTED;
+    private int topLimit;
+
+    RelatedItems(int capacity) {
+        this.capacity = capacity;
+        int initial = Math.min(INITIAL_CAPACITY, capacity);
+        this.ids = new int[initial];
+        this.counts = new int[initial];
+    }
+
+    /**
+     * Увеличивает счетчик пары с товаром {@code itemId}.
+     */
+    synchronized void increment(int itemId) {
+        top = NOT_COMPUTED;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == itemId) {
+                counts[i]++;
+                return;
+            }
+        }
+        if (size < capacity) {
+            if (size == ids.length) {
+                int grown = Math.min(capacity, ids.length * 2);
+                ids = Arrays.copyOf(ids, grown);
+                counts = Arrays.copyOf(counts, grown);
+            }
+            ids[size] = itemId;
+            counts[size] = 1;
+            size++;
+            return;
+        }
+
+        int min = 0;
+        for (int i = 1; i < size; i++) {
+            if (counts[i] < counts[min]) {
+                min = i;
+            }
+        }
+        ids[min] = itemId;
+        counts[min]++;
+    }
+
+    /**
+     * Возвращает до {@code limit} товаров с наибольшими счетчиками, при равенстве — по возрастанию id.
+     */
+    synchronized long[] top(int limit) {
+        if (top != NOT_COMPUTED && topLimit == limit) {
+            return top;
+        }
+
+        // Ключ сортировки: счетчик в старших битах по убыванию, id в младших по возрастанию.
+        var keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) (Integer.MAX_VALUE - counts[i]) << 32) | ids[i];
+        }
+        Arrays.sort(keys);
+        var result = new long[Math.min(limit, size)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) keys[i];
+        }
+        top = result;
+        topLimit = limit;
+        return result;
+    }
+
+    /**
+     * Примерный объем памяти строки в байтах.
+     */
+    synchronized long estimatedBytes() {
+        return 64L + 8L * ids.length;
+    }
+}
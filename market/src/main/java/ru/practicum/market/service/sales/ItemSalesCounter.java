@@ -0,0 +1,151 @@
+package ru.practicum.market.service.sales;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.repository.ItemRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Учитывает продажи товаров в счетчиках популярности {@code item_sales}.
+ * <p>
+ * Оформленные заказы только добавляют количества в буфер в памяти, а в БД буфер записывается одним запросом
+ * раз в {@code items.popularity.flush-interval}. Так счетчики не блокируют строки в транзакции оформления заказа,
+ * а продажи популярного товара из многих заказов становятся одним обновлением. Если запись не удалась,
+ * количества возвращаются в буфер и попадут в следующую запись; при остановке приложения буфер дописывается.
+ * При аварийном завершении буфер теряется, то есть не больше продаж за один интервал записи. Это осознанный
+ * компромисс: счетчик влияет только на порядок каталога, а сами заказы сохранены в {@code order_items},
+ * по которым счетчики можно пересчитать так же, как при миграции {@code fill_item_sales_from_order_items}.
+ * <p>
+ * Затухание прямое: вместо того чтобы периодически уменьшать старые счетчики, каждая новая продажа
+ * получает вес {@code 2^((t - EPOCH) / half-life)}, который удваивается за каждый период полураспада.
+ * Порядок товаров при этом тот же, что при затухании старых продаж, а строки обновляются только при продаже.
+ * Вес берется на момент записи буфера: интервал записи много меньше периода полураспада.
+ * Вес хранится логарифмом и не переполняется. Нулевой {@code items.popularity.half-life} отключает затухание.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ItemSalesCounter {
+
+    /**
+     * Начало отсчета веса продаж; продажи до миграции счетчиков учтены с весом 1.
+     */
+    static final Instant EPOCH = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final ItemRepository itemRepository;
+
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+
+    @Value("${items.popularity.half-life}")
+    private Duration halfLife;
+
+    @Value("${items.popularity.flush-interval}")
+    private Duration flushInterval;
+
+    private Disposable flusher;
+
+    /**
+     * Запускает периодическую запись буфера после старта приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void startFlush() {
+        flusher = Flux.interval(flushInterval, flushInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> flush())
+                .subscribe();
+    }
+
+    /**
+     * Останавливает периодическую запись и дописывает буфер.
+     */
+    @PreDestroy
+    void stopFlush() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+        flush().block();
+    }
+
+    /**
+     * Добавляет количества позиций оформленного заказа в буфер продаж.
+     *
+     * @param orderItems позиции заказа, транзакция которого зафиксирована
+     */
+    public void record(Collection<OrderItem> orderItems) {
+        for (var orderItem : orderItems) {
+            pending.merge(orderItem.getItemId(), orderItem.getQuantity(), Integer::sum);
+        }
+    }
+
+    /**
+     * Записывает накопленные продажи в счетчики одним запросом.
+     * Ошибка записи не пробрасывается: количества возвращаются в буфер.
+     *
+     * @return сигнал завершения
+     */
+    public Mono<Void> flush() {
+        return Mono.defer(() -> {
+            var quantities = drain();
+            if (quantities.isEmpty()) {
+                return Mono.empty();
+            }
+
+            var logWeight = logWeight(Instant.now());
+            return itemRepository.addSales(
+                            quantities.keySet().toArray(Long[]::new),
+                            quantities.values().toArray(Integer[]::new),
+                            logWeight)
+                    .doOnNext(updated -> log.debug("Sales counted for {} items with logWeight={}", updated, logWeight))
+                    .onErrorResume(ex -> {
+                        log.warn("Failed to count sales for {} items, keeping them for the next flush",
+                                quantities.size(), ex);
+                        quantities.forEach((itemId, quantity) -> pending.merge(itemId, quantity, Integer::sum));
+                        return Mono.empty();
+                    })
+                    .then();
+        });
+    }
+
+    /**
+     * Забирает накопленные количества из буфера. Каждое количество снимается атомарно,
+     * поэтому продажи, добавленные во время записи, останутся до следующей.
+     *
+     * @return количества по товарам, упорядоченные по id, как того требует {@link ItemRepository#addSales}
+     */
+    private Map<Long, Integer> drain() {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (var itemId : pending.keySet()) {
+            var quantity = pending.remove(itemId);
+            if (quantity != null) {
+                quantities.put(itemId, quantity);
+            }
+        }
+        return quantities;
+    }
+
+    /**
+     * Натуральный логарифм веса продажи в момент {@code now}.
+     */
+    double logWeight(Instant now) {
+        if (halfLife.isZero()) {
+            return 0;
+        }
+        var elapsedSeconds = Duration.between(EPOCH, now).toMillis() / 1000.0;
+        return Math.log(2) * elapsedSeconds / halfLife.toSeconds();
+    }
+}
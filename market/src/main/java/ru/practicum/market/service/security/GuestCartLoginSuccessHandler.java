@@ -0,0 +1,48 @@
+package ru.practicum.market.service.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationSuccessHandler;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.service.ItemService;
+import ru.practicum.market.service.security.model.AppPrincipal;
+import ru.practicum.market.web.bind.GuestCartCookie;
+
+/**
+ * Обработчик успешного входа: переносит корзину анонимного пользователя из cookie в БД
+ * и перенаправляет на домашнюю страницу.
+ * <p>
+ * Ошибка переноса не мешает входу: cookie остается и будет перенесена при следующем входе.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GuestCartLoginSuccessHandler implements ServerAuthenticationSuccessHandler {
+
+    private final ItemService itemService;
+    private final GuestCartCookie guestCartCookie;
+
+    private final ServerAuthenticationSuccessHandler redirect = new RedirectServerAuthenticationSuccessHandler("/");
+
+    @Override
+    public Mono<Void> onAuthenticationSuccess(WebFilterExchange webFilterExchange, Authentication authentication) {
+        var exchange = webFilterExchange.getExchange();
+        if (!exchange.getRequest().getCookies().containsKey(GuestCartCookie.COOKIE_NAME)
+                || !(authentication.getPrincipal() instanceof AppPrincipal principal)) {
+            return redirect.onAuthenticationSuccess(webFilterExchange, authentication);
+        }
+
+        var guestCart = guestCartCookie.read(exchange);
+        return itemService.mergeGuestCart(principal.id(), guestCart)
+                .doOnSuccess(v -> guestCartCookie.clear(exchange))
+                .onErrorResume(ex -> {
+                    log.warn("Failed to merge guest cart for userId={}", principal.id(), ex);
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> redirect.onAuthenticationSuccess(webFilterExchange, authentication)));
+    }
+}
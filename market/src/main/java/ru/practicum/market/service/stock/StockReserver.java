@@ -0,0 +1,156 @@
+package ru.practicum.market.service.stock;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.domain.model.CartItem;
+import ru.practicum.market.repository.ItemRepository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Резервирует остатки товаров на складе при оформлении заказа.
+ * <p>
+ * Остаток товара разбит на {@code items.stock.stripes} полос. Быстрый путь списывает каждую позицию заказа
+ * со случайной полосы одним запросом, поэтому параллельные заказы одного товара обычно блокируют разные строки,
+ * а не выстраиваются в очередь за одной. Если на выбранной полосе не хватило остатка, быстрый путь откатывается
+ * и заказ списывается со всех полос товара под их блокировкой — это же и окончательная проверка остатка.
+ * <p>
+ * Резерв и его возврат выполняются в собственных коротких транзакциях: блокировки полос не удерживаются
+ * на время запроса к платежному сервису, а возврат после ошибки не откатывается вместе с заказом.
+ * Товары без полос не учитываются на складе и резервируются без ограничений.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockReserver {
+
+    private static final TransactionDefinition REQUIRES_NEW =
+            new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    private final ItemRepository itemRepository;
+    private final ReactiveTransactionManager transactionManager;
+
+    @Value("${items.stock.stripes}")
+    private int stripes;
+
+    /**
+     * Списывает количества позиций корзины с остатков товаров: все позиции или ни одной.
+     *
+     * @param cartItems позиции оформляемой корзины
+     * @return сигнал завершения или {@link OrderConflictException}, если какого-то товара не хватает
+     */
+    public Mono<Void> reserve(Collection<CartItem> cartItems) {
+        return reserveQuantities(quantities(cartItems));
+    }
+
+    /**
+     * Списывает количества с остатков товаров: все или ни одного. Так списываются и единицы распродажи при ее старте.
+     *
+     * @param quantities количества по id товаров
+     * @return сигнал завершения или {@link OrderConflictException}, если какого-то товара не хватает
+     */
+    public Mono<Void> reserveQuantities(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Mono.empty();
+        }
+
+        var sorted = new TreeMap<>(quantities);
+        var itemIds = sorted.keySet().toArray(Long[]::new);
+        var counts = sorted.values().toArray(Integer[]::new);
+        return reserveFromRandomStripes(itemIds, counts)
+                .flatMap(reserved -> reserved ? Mono.<Void>empty() : reserveFromAllStripes(itemIds, counts))
+                .doOnSuccess(v -> log.debug("Stock reserved for items {}", sorted.keySet()));
+    }
+
+    /**
+     * Возвращает на склад количества позиций корзины, зарезервированные {@link #reserve(Collection)}.
+     *
+     * @param cartItems позиции корзины, для которой был сделан резерв
+     * @return сигнал завершения
+     */
+    public Mono<Void> release(Collection<CartItem> cartItems) {
+        return releaseQuantities(quantities(cartItems));
+    }
+
+    /**
+     * Возвращает количества на склад, зарезервированные {@link #reserveQuantities(Map)} или {@link #reserve(Collection)}.
+     *
+     * @param quantities количества по id товаров
+     * @return сигнал завершения
+     */
+    public Mono<Void> releaseQuantities(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Mono.empty();
+        }
+
+        var sorted = new TreeMap<>(quantities);
+        return TransactionalOperator.create(transactionManager, REQUIRES_NEW)
+                .transactional(itemRepository.releaseStock(
+                        sorted.keySet().toArray(Long[]::new),
+                        sorted.values().toArray(Integer[]::new)))
+                .doOnNext(released -> log.debug("Stock released for {} items", released))
+                .then();
+    }
+
+    /**
+     * Быстрый путь: по одной случайной полосе на товар. Если хотя бы один товар не списался,
+     * транзакция откатывается, чтобы медленный путь начал с чистого состояния.
+     *
+     * @return {@code true}, если зарезервированы все позиции
+     */
+    private Mono<Boolean> reserveFromRandomStripes(Long[] itemIds, Integer[] counts) {
+        var random = ThreadLocalRandom.current();
+        var stripeIds = new Integer[itemIds.length];
+        for (int i = 0; i < stripeIds.length; i++) {
+            stripeIds[i] = random.nextInt(stripes);
+        }
+
+        return TransactionalOperator.create(transactionManager, REQUIRES_NEW)
+                .execute(status -> itemRepository.reserveStockFromStripes(itemIds, stripeIds, counts)
+                        .map(missed -> {
+                            if (missed > 0) {
+                                log.debug("Stock stripes exhausted for {} items, locking all stripes", missed);
+                                status.setRollbackOnly();
+                            }
+                            return missed == 0;
+                        }))
+                .next();
+    }
+
+    /**
+     * Медленный путь: все полосы товаров заказа, проверка остатка по всем товарам сразу.
+     */
+    private Mono<Void> reserveFromAllStripes(Long[] itemIds, Integer[] counts) {
+        return TransactionalOperator.create(transactionManager, REQUIRES_NEW)
+                .transactional(itemRepository.reserveStockFromAllStripes(itemIds, counts))
+                .flatMap(shortItems -> {
+                    if (shortItems > 0) {
+                        return Mono.error(new OrderConflictException(
+                                "Not enough stock for %d items in the order.".formatted(shortItems)));
+                    }
+                    return Mono.<Void>empty();
+                });
+    }
+
+    /**
+     * Суммирует количества по товарам; товары упорядочены по id, как того требуют запросы к полосам.
+     */
+    private static Map<Long, Integer> quantities(Collection<CartItem> cartItems) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (var cartItem : cartItems) {
+            quantities.merge(cartItem.getItemId(), cartItem.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.market.util;
+
+/**
+ * Общие расчеты для карт с открытой адресацией по ключам {@code long}.
+ */
+final class HashSupport {
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private HashSupport() {
+    }
+
+    /**
+     * Перемешивает биты ключа: последовательные id иначе ложатся в соседние ячейки и удлиняют пробирование.
+     */
+    static int hash(long key) {
+        long h = key * GOLDEN_RATIO;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Степень двойки, при которой {@code expectedSize} ключей заполняют таблицу не больше чем наполовину.
+     */
+    static int capacityFor(int expectedSize, int minCapacity) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative: " + expectedSize);
+        }
+        long required = Math.max(minCapacity, 2L * expectedSize);
+        if (required > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Expected size is too large: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) required - 1) << 1;
+    }
+
+    static void checkKey(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved for empty slots");
+        }
+    }
+}
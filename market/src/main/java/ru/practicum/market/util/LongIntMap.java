@@ -0,0 +1,142 @@
+package ru.practicum.market.util;
+
+import java.util.Map;
+
+/**
+ * Карта {@code long → int} с открытой адресацией без упаковки ключей и значений.
+ * <p>
+ * Ключи и значения лежат в двух массивах примитивов, коллизии разрешаются линейным пробированием.
+ * Ключ {@code 0} зарезервирован под пустую ячейку: карта рассчитана на идентификаторы из БД, которые положительны.
+ * Удаления не поддерживаются. Не потокобезопасна.
+ */
+public final class LongIntMap {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    /**
+     * Создает карту, которая вмещает {@code expectedSize} ключей без перестроения.
+     */
+    public LongIntMap(int expectedSize) {
+        int capacity = HashSupport.capacityFor(expectedSize, MIN_CAPACITY);
+        keys = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Копирует упакованную карту, например количества из кэша.
+     */
+    public static LongIntMap copyOf(Map<Long, Integer> source) {
+        var map = new LongIntMap(source.size());
+        source.forEach(map::put);
+        return map;
+    }
+
+    /**
+     * Записывает значение ключа, заменяя прежнее.
+     *
+     * @throws IllegalArgumentException если ключ равен {@code 0}
+     */
+    public void put(long key, int value) {
+        HashSupport.checkKey(key);
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int slot = slot(keys, key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Возвращает значение ключа или {@code defaultValue}, если ключа нет.
+     */
+    public int getOrDefault(long key, int defaultValue) {
+        if (key == 0) {
+            return defaultValue;
+        }
+        int slot = slot(keys, key);
+        return keys[slot] == 0 ? defaultValue : values[slot];
+    }
+
+    /**
+     * Проверяет, есть ли ключ в карте.
+     */
+    public boolean containsKey(long key) {
+        return key != 0 && keys[slot(keys, key)] != 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = HashSupport.hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("{");
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(keys[i]).append('=').append(values[i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LongIntMap other) || other.size != size) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0 && (!other.containsKey(keys[i]) || other.getOrDefault(keys[i], 0) != values[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                hash += Long.hashCode(keys[i]) ^ values[i];
+            }
+        }
+        return hash;
+    }
+}
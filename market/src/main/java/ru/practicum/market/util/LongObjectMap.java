@@ -0,0 +1,102 @@
+package ru.practicum.market.util;
+
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/**
+ * Карта {@code long → V} с открытой адресацией: ключи хранятся массивом примитивов и не упаковываются.
+ * <p>
+ * Ключ {@code 0} зарезервирован под пустую ячейку: карта рассчитана на идентификаторы из БД, которые положительны.
+ * Удаления не поддерживаются. Не потокобезопасна.
+ *
+ * @param <V> тип значений
+ */
+public final class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Создает карту, которая вмещает {@code expectedSize} ключей без перестроения.
+     */
+    public LongObjectMap(int expectedSize) {
+        int capacity = HashSupport.capacityFor(expectedSize, MIN_CAPACITY);
+        keys = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Индексирует значения по ключу; при совпадении ключей остается последнее значение.
+     */
+    public static <V> LongObjectMap<V> index(Collection<? extends V> source, ToLongFunction<? super V> key) {
+        var map = new LongObjectMap<V>(source.size());
+        for (V value : source) {
+            map.put(key.applyAsLong(value), value);
+        }
+        return map;
+    }
+
+    /**
+     * Записывает значение ключа, заменяя прежнее.
+     *
+     * @throws IllegalArgumentException если ключ равен {@code 0}
+     */
+    public void put(long key, V value) {
+        HashSupport.checkKey(key);
+        if (2 * (size + 1) > keys.length) {
+            grow();
+        }
+        int slot = slot(keys, key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Возвращает значение ключа или {@code null}, если ключа нет.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return null;
+        }
+        int slot = slot(keys, key);
+        return keys[slot] == 0 ? null : (V) values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        var oldKeys = keys;
+        var oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = HashSupport.hash(key) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
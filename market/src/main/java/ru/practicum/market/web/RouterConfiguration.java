@@ -24,6 +24,7 @@ public class RouterConfiguration {
             RouterFunction<ServerResponse> orderRoutes,
             RouterFunction<ServerResponse> adminRoutes,
             RouterFunction<ServerResponse> authRoutes,
+            RouterFunction<ServerResponse> flashSaleRoutes,
             RouteLoggingFilter routeLoggingFilter,
             RouteExceptionFilter routeExceptionFilter
     ) {
@@ -32,6 +33,7 @@ public class RouterConfiguration {
                 .and(orderRoutes)
                 .and(adminRoutes)
                 .and(authRoutes)
+                .and(flashSaleRoutes)
                 .filter(routeLoggingFilter.logging())
                 .filter(routeExceptionFilter.errors());
     }
@@ -62,6 +64,7 @@ public class RouterConfiguration {
                         .GET("", cartHandler::getCart)
                         .POST("", cartHandler::updateItemsCountInCart)
                 )
+                .GET("/cart/availability", cartHandler::getCartAvailability)
                 .build();
     }
 
@@ -74,6 +77,7 @@ public class RouterConfiguration {
                 .path("/orders", apiBuilder -> apiBuilder
                         .GET("", orderHandler::getOrders)
                         .GET("/{id}", orderHandler::getOrder)
+                        .POST("/{id}/reorder", orderHandler::reorder)
                 )
                 .POST("/buy", orderHandler::createOrder)
                 .build();
@@ -88,9 +92,31 @@ public class RouterConfiguration {
                 .path("/admin", apiBuilder -> apiBuilder
                         .GET("", adminHandler::getAdminPage)
                         .path("/items", itemsBuilder -> itemsBuilder
+                                .GET("/lookup", adminHandler::lookupItems)
                                 .POST("/upload", adminHandler::uploadItems)
+                                .GET("/export", adminHandler::exportItems)
+                                .POST("/images", adminHandler::uploadImageArchive)
                                 .POST("/{id}/image", adminHandler::uploadImage)
                         )
+                        .path("/imports", importsBuilder -> importsBuilder
+                                .GET("/{jobId}", adminHandler::getImportJob)
+                                .GET("/{jobId}/progress", adminHandler::watchImportJob)
+                                .POST("/{jobId}/cancel", adminHandler::cancelImportJob)
+                        )
+                )
+                .build();
+    }
+
+    /**
+     * Регистрирует маршруты распродаж: резерв для покупателей и управление для администратора.
+     */
+    @Bean
+    public RouterFunction<ServerResponse> flashSaleRoutes(FlashSaleHandler flashSaleHandler) {
+        return RouterFunctions.route()
+                .POST("/flash-sales/{id}/claims", flashSaleHandler::claim)
+                .path("/admin/flash-sales/{id}", apiBuilder -> apiBuilder
+                        .POST("", flashSaleHandler::start)
+                        .DELETE("", flashSaleHandler::stop)
                 )
                 .build();
     }
@@ -0,0 +1,182 @@
+package ru.practicum.market.web.bind;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.server.ServerWebExchange;
+import ru.practicum.market.domain.exception.MarketBadRequestException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Корзина анонимного пользователя в подписанной cookie: без записи в БД и без хранения на сервере.
+ * <p>
+ * Значение cookie — {@code base64url(payload).base64url(HMAC-SHA256(payload))}, где payload — пары
+ * {@code itemId:quantity} через запятую по возрастанию id. Корзина ограничена {@code cart.guest.max-items}
+ * товарами по {@code cart.guest.max-quantity} штук, поэтому cookie не превышает нескольких сотен байт.
+ * Cookie с неверной подписью или нарушенными ограничениями считается пустой корзиной.
+ */
+@Component
+@Slf4j
+public class GuestCartCookie {
+
+    public static final String COOKIE_NAME = "GUEST_CART";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_VALUE_LENGTH = 4096;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Value("${cart.guest.secret}")
+    private String secret;
+
+    @Value("${cart.guest.max-items}")
+    private int maxItems;
+
+    @Value("${cart.guest.max-quantity}")
+    private int maxQuantity;
+
+    @Value("${cart.guest.ttl}")
+    private Duration ttl;
+
+    /**
+     * Читает корзину анонимного пользователя из запроса.
+     *
+     * @param request входящий HTTP-запрос
+     * @return количества по id товаров; пустая корзина, если cookie нет или она недействительна
+     */
+    public Map<Long, Integer> read(ServerRequest request) {
+        return read(request.cookies().getFirst(COOKIE_NAME));
+    }
+
+    /**
+     * Читает корзину анонимного пользователя из обмена (для обработчиков Spring Security).
+     *
+     * @param exchange текущий обмен
+     * @return количества по id товаров; пустая корзина, если cookie нет или она недействительна
+     */
+    public Map<Long, Integer> read(ServerWebExchange exchange) {
+        return read(exchange.getRequest().getCookies().getFirst(COOKIE_NAME));
+    }
+
+    /**
+     * Записывает корзину в cookie ответа; пустая корзина удаляет cookie.
+     *
+     * @param request входящий HTTP-запрос
+     * @param cart    количества по id товаров
+     * @throws MarketBadRequestException если корзина превышает ограничения
+     */
+    public void write(ServerRequest request, Map<Long, Integer> cart) {
+        if (cart.size() > maxItems) {
+            throw new MarketBadRequestException("Guest cart can hold at most %d items.".formatted(maxItems));
+        }
+        if (cart.values().stream().anyMatch(quantity -> quantity > maxQuantity)) {
+            throw new MarketBadRequestException("Guest cart can hold at most %d pieces of an item.".formatted(maxQuantity));
+        }
+        var cookie = cart.isEmpty() ? expired() : cookie(encode(cart), ttl);
+        request.exchange().getResponse().addCookie(cookie);
+    }
+
+    /**
+     * Удаляет cookie корзины, например после переноса корзины в БД при входе.
+     *
+     * @param exchange текущий обмен
+     */
+    public void clear(ServerWebExchange exchange) {
+        exchange.getResponse().addCookie(expired());
+    }
+
+    String encode(Map<Long, Integer> cart) {
+        var payload = new TreeMap<>(cart).entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue())
+                .collect(Collectors.joining(","));
+        var payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    Map<Long, Integer> decode(String value) {
+        if (value == null || value.isEmpty() || value.length() > MAX_VALUE_LENGTH) {
+            return Map.of();
+        }
+        try {
+            int dot = value.indexOf('.');
+            if (dot < 0) {
+                return Map.of();
+            }
+            var payloadBytes = DECODER.decode(value.substring(0, dot));
+            var signature = DECODER.decode(value.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+                log.debug("Guest cart cookie has invalid signature");
+                return Map.of();
+            }
+            return parse(new String(payloadBytes, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException ex) {
+            log.debug("Guest cart cookie is malformed: {}", ex.getMessage());
+            return Map.of();
+        }
+    }
+
+    private Map<Long, Integer> read(HttpCookie cookie) {
+        return cookie == null ? Map.of() : decode(cookie.getValue());
+    }
+
+    private Map<Long, Integer> parse(String payload) {
+        if (payload.isEmpty()) {
+            return Map.of();
+        }
+        var entries = payload.split(",");
+        if (entries.length > maxItems) {
+            return Map.of();
+        }
+        var cart = new TreeMap<Long, Integer>();
+        for (var entry : entries) {
+            var parts = entry.split(":");
+            if (parts.length != 2) {
+                return Map.of();
+            }
+            long itemId = Long.parseLong(parts[0]);
+            int quantity = Integer.parseInt(parts[1]);
+            if (itemId <= 0 || quantity <= 0 || quantity > maxQuantity) {
+                return Map.of();
+            }
+            cart.put(itemId, quantity);
+        }
+        return Collections.unmodifiableMap(cart);
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            var mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Failed to sign guest cart", ex);
+        }
+    }
+
+    private ResponseCookie expired() {
+        return cookie("", Duration.ZERO);
+    }
+
+    private static ResponseCookie cookie(String value, Duration maxAge) {
+        return ResponseCookie.from(COOKIE_NAME, value)
+                .path("/")
+                .httpOnly(true)
+                .sameSite("Lax")
+                .maxAge(maxAge)
+                .build();
+    }
+}
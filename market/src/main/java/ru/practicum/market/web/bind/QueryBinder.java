@@ -4,10 +4,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import ru.practicum.market.domain.exception.MarketBadRequestException;
+import ru.practicum.market.service.converter.ItemFileFormat;
+import ru.practicum.market.web.bind.model.AdminItemsQuery;
 import ru.practicum.market.web.bind.model.ItemsQuery;
+import ru.practicum.market.web.dto.PriceRange;
 import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.dto.enums.SortMethod;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
 /**
  * Компонент парсинга и валидации query/path-параметров входящих HTTP-запросов.
  */
@@ -15,6 +23,7 @@ import ru.practicum.market.web.dto.enums.SortMethod;
 @Slf4j
 public class QueryBinder {
     private static final String PATH_VARIABLE_ID = "id";
+    private static final String PATH_VARIABLE_JOB_ID = "jobId";
     private static final String PARAM_ID = "id";
     private static final String PARAM_ACTION = "action";
     private static final String PARAM_SEARCH = "search";
@@ -22,18 +31,32 @@ public class QueryBinder {
     private static final String PARAM_PAGE_NUMBER = "pageNumber";
     private static final String PARAM_PAGE_SIZE = "pageSize";
     private static final String PARAM_NEW_ORDER = "newOrder";
+    private static final String PARAM_FORMAT = "format";
+    private static final String PARAM_AFTER_ID = "afterId";
+    private static final String PARAM_MIN_PRICE = "min";
+    private static final String PARAM_MAX_PRICE = "max";
+    private static final String PARAM_TAG = "tag";
+    private static final String PARAM_UNITS = "units";
+    private static final String PARAM_QUANTITY = "quantity";
     private static final int MIN_PAGE_NUMBER = 1;
     private static final int MIN_PAGE_SIZE = 5;
+    private static final int MAX_SELECTED_TAGS = 5;
+    private static final int MAX_TAG_LENGTH = 64;
 
     /**
      * Собирает параметры списка товаров из query-параметров запроса.
      *
      * @param request входящий HTTP-запрос
-     * @return объект с параметрами поиска, сортировки и пагинации
+     * @return объект с параметрами поиска, цены, тегов, сортировки и пагинации
      */
     public ItemsQuery bindItemsQuery(ServerRequest request) {
         String search = request.queryParam(PARAM_SEARCH)
                 .orElse(null);
+        var minPrice = parsePrice(request, PARAM_MIN_PRICE);
+        var maxPrice = parsePrice(request, PARAM_MAX_PRICE);
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new MarketBadRequestException("%s should not be greater than %s".formatted(PARAM_MIN_PRICE, PARAM_MAX_PRICE));
+        }
         var sortMethod = request.queryParam(PARAM_SORT)
                 .map(this::parseSort)
                 .orElse(SortMethod.NO);
@@ -43,10 +66,34 @@ public class QueryBinder {
         var pageSize = request.queryParam(PARAM_PAGE_SIZE)
                 .map(pg -> parsePositiveInt(pg, PARAM_PAGE_SIZE))
                 .orElse(MIN_PAGE_SIZE);
+        var tags = parseTags(request);
 
-        var query = new ItemsQuery(search, sortMethod, pageNumber, pageSize);
-        log.debug("Bound items query: search='{}', sort={}, pageNumber={}, pageSize={}",
-                query.search(), query.sort(), query.pageNumber(), query.pageSize());
+        var query = new ItemsQuery(search, new PriceRange(minPrice, maxPrice), tags, sortMethod, pageNumber, pageSize);
+        log.debug("Bound items query: search='{}', price={}, tags={}, sort={}, pageNumber={}, pageSize={}",
+                query.search(), query.price(), query.tags(), query.sort(), query.pageNumber(), query.pageSize());
+        return query;
+    }
+
+    /**
+     * Собирает параметры админ-списка товаров: строку поиска и keyset-курсор {@code afterId}.
+     *
+     * @param request входящий HTTP-запрос
+     * @return объект с параметрами поиска и курсором страницы
+     */
+    public AdminItemsQuery bindAdminItemsQuery(ServerRequest request) {
+        var search = request.queryParam(PARAM_SEARCH)
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .orElse(null);
+        var afterId = request.queryParam(PARAM_AFTER_ID)
+                .map(this::parseId)
+                .orElse(0L);
+        if (afterId < 0) {
+            throw new MarketBadRequestException("%s should not be negative".formatted(PARAM_AFTER_ID));
+        }
+
+        var query = new AdminItemsQuery(search, afterId);
+        log.debug("Bound admin items query: search='{}', afterId={}", query.search(), query.afterId());
         return query;
     }
 
@@ -117,6 +164,74 @@ public class QueryBinder {
         return isNewOrder;
     }
 
+    /**
+     * Извлекает количество единиц распродажи из обязательного query-параметра.
+     *
+     * @param request входящий HTTP-запрос
+     * @return положительное количество единиц
+     */
+    public int bindParamUnits(ServerRequest request) {
+        var units = request.queryParam(PARAM_UNITS)
+                .map(value -> parsePositiveInt(value, PARAM_UNITS))
+                .orElseThrow(() -> new MarketBadRequestException("Missing query param: " + PARAM_UNITS));
+        log.debug("Bound units={}", units);
+        return units;
+    }
+
+    /**
+     * Извлекает количество товара из query-параметра, по умолчанию 1.
+     *
+     * @param request входящий HTTP-запрос
+     * @return положительное количество
+     */
+    public int bindParamQuantity(ServerRequest request) {
+        var quantity = request.queryParam(PARAM_QUANTITY)
+                .map(value -> parsePositiveInt(value, PARAM_QUANTITY))
+                .orElse(1);
+        log.debug("Bound quantity={}", quantity);
+        return quantity;
+    }
+
+    /**
+     * Извлекает формат выгрузки каталога из query-параметра, по умолчанию xlsx.
+     *
+     * @param request входящий HTTP-запрос
+     * @return формат выгрузки: xlsx или csv
+     */
+    public ItemFileFormat bindParamExportFormat(ServerRequest request) {
+        var format = request.queryParam(PARAM_FORMAT)
+                .map(value -> {
+                    try {
+                        return ItemFileFormat.valueOf(value.toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new MarketBadRequestException("Export format not found " + value);
+                    }
+                })
+                .orElse(ItemFileFormat.XLSX);
+        if (format == ItemFileFormat.NDJSON) {
+            throw new MarketBadRequestException("Export format not supported " + format);
+        }
+        log.debug("Bound export format={}", format);
+        return format;
+    }
+
+    /**
+     * Извлекает и валидирует идентификатор фонового импорта из path variable.
+     *
+     * @param request HTTP-запрос
+     * @return идентификатор импорта в формате UUID
+     */
+    public String bindPathVariableJobId(ServerRequest request) {
+        var jobId = request.pathVariable(PATH_VARIABLE_JOB_ID);
+        try {
+            UUID.fromString(jobId);
+        } catch (IllegalArgumentException e) {
+            throw new MarketBadRequestException("Invalid import job id: " + jobId);
+        }
+        log.debug("Bound path jobId={}", jobId);
+        return jobId;
+    }
+
     /**
      * Парсит положительное целое значение.
      *
@@ -137,6 +252,59 @@ public class QueryBinder {
         return value;
     }
 
+    /**
+     * Парсит необязательную границу цены; пустое значение из формы означает отсутствие границы.
+     *
+     * @param request входящий HTTP-запрос
+     * @param field   имя параметра
+     * @return неотрицательная цена или {@code null}
+     */
+    private Long parsePrice(ServerRequest request, String field) {
+        var value = request.queryParam(field)
+                .map(String::trim)
+                .filter(price -> !price.isEmpty())
+                .orElse(null);
+        if (value == null) {
+            return null;
+        }
+
+        long price;
+        try {
+            price = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new MarketBadRequestException("%s should be long".formatted(field));
+        }
+        if (price < 0) {
+            throw new MarketBadRequestException("%s should not be negative".formatted(field));
+        }
+        return price;
+    }
+
+    /**
+     * Собирает выбранные теги из повторяющегося параметра {@code tag}: без учета регистра, без пустых и повторов.
+     *
+     * @param request входящий HTTP-запрос
+     * @return имена тегов в нижнем регистре в порядке запроса
+     */
+    private List<String> parseTags(ServerRequest request) {
+        var values = request.queryParams().getOrDefault(PARAM_TAG, List.of());
+        var tags = new LinkedHashSet<String>();
+        for (String value : values) {
+            var tag = value.trim().toLowerCase(Locale.ROOT);
+            if (tag.isEmpty()) {
+                continue;
+            }
+            if (tag.length() > MAX_TAG_LENGTH) {
+                throw new MarketBadRequestException("%s should not be longer than %d".formatted(PARAM_TAG, MAX_TAG_LENGTH));
+            }
+            tags.add(tag);
+        }
+        if (tags.size() > MAX_SELECTED_TAGS) {
+            throw new MarketBadRequestException("no more than %d %s params allowed".formatted(MAX_SELECTED_TAGS, PARAM_TAG));
+        }
+        return List.copyOf(tags);
+    }
+
     /**
      * Парсит значение сортировки.
      *
@@ -0,0 +1,13 @@
+package ru.practicum.market.web.bind.model;
+
+/**
+ * DTO параметров запроса админ-списка товаров.
+ *
+ * @param search  строка поиска по названию или артикулу
+ * @param afterId id последнего товара предыдущей страницы, 0 — первая страница
+ */
+public record AdminItemsQuery(
+        String search,
+        long afterId
+) {
+}
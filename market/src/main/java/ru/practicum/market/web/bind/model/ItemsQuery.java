@@ -1,17 +1,24 @@
 package ru.practicum.market.web.bind.model;
 
+import ru.practicum.market.web.dto.PriceRange;
 import ru.practicum.market.web.dto.enums.SortMethod;
 
+import java.util.List;
+
 /**
  * DTO параметров запроса списка товаров.
  *
  * @param search     строка поиска
+ * @param price      диапазон цены
+ * @param tags       выбранные теги в нижнем регистре, пустой список — без фильтра
  * @param sort       способ сортировки
  * @param pageNumber номер страницы (с 1)
  * @param pageSize   размер страницы
  */
 public record ItemsQuery(
         String search,
+        PriceRange price,
+        List<String> tags,
         SortMethod sort,
         int pageNumber,
         int pageSize
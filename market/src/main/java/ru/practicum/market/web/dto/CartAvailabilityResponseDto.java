@@ -0,0 +1,15 @@
+package ru.practicum.market.web.dto;
+
+/**
+ * Доступность оформления корзины по текущему балансу пользователя.
+ *
+ * @param total             суммарная стоимость корзины
+ * @param isActive          баланса хватает на оформление заказа
+ * @param paymentsAvailable платежный сервис ответил вовремя
+ */
+public record CartAvailabilityResponseDto(
+        long total,
+        boolean isActive,
+        boolean paymentsAvailable
+) {
+}
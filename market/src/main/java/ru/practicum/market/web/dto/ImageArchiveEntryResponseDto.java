@@ -0,0 +1,19 @@
+package ru.practicum.market.web.dto;
+
+import ru.practicum.market.web.dto.enums.ImageArchiveEntryStatus;
+
+/**
+ * Строка отчета о загрузке архива изображений.
+ *
+ * @param entry   имя файла в архиве
+ * @param itemId  идентификатор товара, если товар найден
+ * @param status  результат обработки файла
+ * @param message пояснение для пропущенного или ошибочного файла
+ */
+public record ImageArchiveEntryResponseDto(
+        String entry,
+        Long itemId,
+        ImageArchiveEntryStatus status,
+        String message
+) {
+}
@@ -3,19 +3,25 @@ package ru.practicum.market.web.dto;
 /**
  * DTO представления товара для UI.
  *
- * @param id          идентификатор товара
- * @param title       название товара
- * @param description описание товара
- * @param imgPath     URI/путь изображения
- * @param price       цена товара
- * @param count       количество товара в корзине пользователя
+ * @param id            идентификатор товара
+ * @param title         название товара
+ * @param description   описание товара
+ * @param imgPath       URI/путь исходного изображения
+ * @param thumbnailPath URI изображения для плитки каталога и корзины
+ * @param cardPath      URI изображения для страницы товара
+ * @param price         цена товара
+ * @param count         количество товара в корзине пользователя
+ * @param stock         остаток товара на складе; {@code null}, если товар не учитывается на складе
  */
 public record ItemResponseDto(
         long id,
         String title,
         String description,
         String imgPath,
+        String thumbnailPath,
+        String cardPath,
         long price,
-        int count
+        int count,
+        Integer stock
 ) {
 }
@@ -7,18 +7,29 @@ import java.util.List;
 /**
  * DTO страницы каталога товаров.
  *
- * @param items  список строк товаров для отображения в UI
- * @param search строка поиска
- * @param sort   выбранный режим сортировки
- * @param paging параметры пагинации
+ * @param items          список строк товаров для отображения в UI
+ * @param search         строка поиска
+ * @param price          диапазон цены фильтра
+ * @param tags           выбранные теги
+ * @param sort           выбранный режим сортировки
+ * @param paging         параметры пагинации
+ * @param priceHistogram гистограмма цен всего каталога
+ * @param tagFacets      теги со счетчиками товаров текущей выборки
  */
 public record ItemsResponseDto(
         List<List<ItemResponseDto>> items,
         String search,
+        PriceRange price,
+        List<String> tags,
         SortMethod sort,
-        Paging paging
+        Paging paging,
+        List<PriceBucketResponseDto> priceHistogram,
+        List<TagFacetResponseDto> tagFacets
 ) {
     public ItemsResponseDto {
         items = List.copyOf(items);
+        tags = List.copyOf(tags);
+        priceHistogram = List.copyOf(priceHistogram);
+        tagFacets = List.copyOf(tagFacets);
     }
 }
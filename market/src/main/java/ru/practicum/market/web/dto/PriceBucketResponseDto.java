@@ -0,0 +1,15 @@
+package ru.practicum.market.web.dto;
+
+/**
+ * Корзина гистограммы цен каталога.
+ *
+ * @param from  нижняя граница цены, включительно
+ * @param to    верхняя граница цены, включительно; {@code null} для последней корзины
+ * @param count количество товаров в корзине
+ */
+public record PriceBucketResponseDto(
+        long from,
+        Long to,
+        long count
+) {
+}
@@ -0,0 +1,24 @@
+package ru.practicum.market.web.dto;
+
+/**
+ * Диапазон цены для фильтра каталога, границы включительно.
+ *
+ * @param min нижняя граница, {@code null} — без ограничения
+ * @param max верхняя граница, {@code null} — без ограничения
+ */
+public record PriceRange(
+        Long min,
+        Long max
+) {
+    /**
+     * Диапазон без ограничений.
+     */
+    public static final PriceRange ANY = new PriceRange(null, null);
+
+    /**
+     * Задана ли хотя бы одна граница.
+     */
+    public boolean isBounded() {
+        return min != null || max != null;
+    }
+}
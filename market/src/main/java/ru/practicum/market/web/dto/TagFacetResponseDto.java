@@ -0,0 +1,15 @@
+package ru.practicum.market.web.dto;
+
+/**
+ * Фасет тега на странице каталога.
+ *
+ * @param name     имя тега
+ * @param count    количество товаров текущей выборки с этим тегом
+ * @param selected тег выбран в фильтре
+ */
+public record TagFacetResponseDto(
+        String name,
+        long count,
+        boolean selected
+) {
+}
@@ -0,0 +1,15 @@
+package ru.practicum.market.web.dto.enums;
+
+/**
+ * Результат обработки файла из архива изображений.
+ */
+public enum ImageArchiveEntryStatus {
+    /** Изображение сохранено и привязано к товару. */
+    ATTACHED,
+    /** Товар с таким id или артикулом не найден. */
+    NOT_FOUND,
+    /** Файл пропущен: каталог, не изображение, слишком большой или повтор товара. */
+    SKIPPED,
+    /** Файл не удалось прочитать или сохранить. */
+    FAILED
+}
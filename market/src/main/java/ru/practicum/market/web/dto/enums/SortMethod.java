@@ -12,7 +12,9 @@ public enum SortMethod {
     /** Сортировка по названию. */
     ALPHA("title"),
     /** Сортировка по цене. */
-    PRICE("price");
+    PRICE("price"),
+    /** Сначала самые продаваемые с учетом затухания старых продаж. */
+    POPULAR("popularity");
 
     private final String columnName;
 
@@ -2,52 +2,102 @@ package ru.practicum.market.web.handler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.exception.MarketBadRequestException;
 import ru.practicum.market.service.AdminService;
+import ru.practicum.market.service.ImportJobService;
 import ru.practicum.market.web.bind.QueryBinder;
+import ru.practicum.market.web.dto.ImageArchiveEntryResponseDto;
+import ru.practicum.market.web.dto.ItemShortResponseDto;
 import ru.practicum.market.web.view.PageRenderHelper;
 
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Обработчик административных HTTP-сценариев: загрузка товаров и изображений.
+ * Обработчик административных HTTP-сценариев: список и поиск товаров, импорт и выгрузка, загрузка изображений.
  */
 @RequiredArgsConstructor
 @Component
 @Slf4j
 public class AdminHandler {
 
+    private static final String EXPORT_FILE_NAME = "items";
+    private static final int ITEMS_RENDER_CHUNK_SIZE = 20;
+
     private final AdminService adminService;
+    private final ImportJobService importJobService;
     private final QueryBinder binder;
     private final PageRenderHelper pageRenderHelper;
 
+    @Value("${items.admin.page-size}")
+    private int itemsPageSize;
+    @Value("${items.admin.lookup-limit}")
+    private int lookupLimit;
+
     /**
-     * Отображает админ-страницу со списком товаров.
+     * Отображает админ-страницу с одной страницей товаров.
+     * Товары передаются в шаблон потоком и рендерятся порциями по мере чтения из базы.
      *
      * @param request входящий HTTP-запрос
      * @return серверный ответ с HTML-страницей
      */
     @PreAuthorize("hasRole('ADMIN')")
     public Mono<ServerResponse> getAdminPage(ServerRequest request) {
-        log.debug("Rendering admin page");
-        return adminService.getAllItems()
-                .collectList()
-                .flatMap(items -> pageRenderHelper.ok(request, "admin", Map.of("items", items)));
+        var query = binder.bindAdminItemsQuery(request);
+        log.debug("Rendering admin page: search='{}', afterId={}", query.search(), query.afterId());
+
+        var itemsDriver = new ReactiveDataDriverContextVariable(
+                adminService.findItems(query.search(), query.afterId(), itemsPageSize),
+                ITEMS_RENDER_CHUNK_SIZE
+        );
+        Map<String, Object> model = new HashMap<>();
+        model.put("items", itemsDriver);
+        model.put("pageSize", itemsPageSize);
+        model.put("afterId", query.afterId());
+        if (query.search() != null) {
+            model.put("search", query.search());
+        }
+
+        return pageRenderHelper.ok(request, "admin", model);
+    }
+
+    /**
+     * Подсказки для выбора товара: первые товары, чье название или артикул содержит строку поиска.
+     *
+     * @param request входящий HTTP-запрос
+     * @return JSON-массив коротких DTO товаров
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> lookupItems(ServerRequest request) {
+        var query = binder.bindAdminItemsQuery(request);
+        log.debug("Handling admin item lookup: search='{}'", query.search());
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(adminService.findItems(query.search(), query.afterId(), lookupLimit), ItemShortResponseDto.class);
     }
 
     /**
-     * Принимает Excel-файл товаров и перенаправляет на страницу admin с сообщением.
+     * Принимает Excel-файл товаров, ставит импорт в очередь и перенаправляет на страницу admin с id импорта.
      *
      * @param request входящий HTTP-запрос
-     * @return редирект на `/admin` с результатом загрузки
+     * @return редирект на `/admin` с идентификатором импорта
      */
     @PreAuthorize("hasRole('ADMIN')")
     public Mono<ServerResponse> uploadItems(ServerRequest request) {
@@ -59,17 +109,90 @@ public class AdminHandler {
                         return Mono.error(new ItemUploadException("Файл не найден"));
                     }
 
-                    log.info("Uploading items from file '{}'", filePart.filename());
-                    return adminService.uploadItems(filePart)
-                            .thenReturn("Файл с предметами успешно загружен: %s".formatted(filePart.filename()));
+                    log.info("Submitting items import from file '{}'", filePart.filename());
+                    return importJobService.submit(filePart);
                 })
-                .flatMap(msg -> redirectWithParam("message", msg))
+                .flatMap(job -> redirectWithParams(Map.of(
+                        "job", job.id(),
+                        "message", "Импорт файла %s поставлен в очередь".formatted(job.fileName()))))
                 .onErrorResume(ex -> {
                     log.warn("Failed to upload items file", ex);
                     return redirectWithParam("error", ex.getMessage());
                 });
     }
 
+    /**
+     * Возвращает состояние фонового импорта в JSON.
+     *
+     * @param request входящий HTTP-запрос
+     * @return состояние импорта
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> getImportJob(ServerRequest request) {
+        var jobId = binder.bindPathVariableJobId(request);
+        return importJobService.getJob(jobId)
+                .flatMap(job -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(job));
+    }
+
+    /**
+     * Отдает прогресс фонового импорта потоком server-sent events до завершения импорта.
+     *
+     * @param request входящий HTTP-запрос
+     * @return поток событий {@code progress}
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> watchImportJob(ServerRequest request) {
+        var jobId = binder.bindPathVariableJobId(request);
+        var events = importJobService.watchJob(jobId)
+                .map(job -> ServerSentEvent.builder(job)
+                        .id(job.id())
+                        .event("progress")
+                        .build());
+
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromServerSentEvents(events));
+    }
+
+    /**
+     * Запрашивает отмену фонового импорта и возвращает его состояние в JSON.
+     *
+     * @param request входящий HTTP-запрос
+     * @return состояние импорта после запроса отмены
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> cancelImportJob(ServerRequest request) {
+        var jobId = binder.bindPathVariableJobId(request);
+        log.info("Handling cancel request for import job {}", jobId);
+        return importJobService.cancel(jobId)
+                .flatMap(job -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(job));
+    }
+
+    /**
+     * Отдает файл со всем каталогом в формате из query-параметра {@code format} (xlsx или csv).
+     *
+     * @param request входящий HTTP-запрос
+     * @return потоковый ответ с файлом каталога
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> exportItems(ServerRequest request) {
+        var format = binder.bindParamExportFormat(request);
+        log.info("Handling catalog export to {}", format);
+        var content = adminService.exportItems(format, request.exchange().getResponse().bufferFactory());
+        var disposition = ContentDisposition.attachment()
+                .filename(EXPORT_FILE_NAME + format.getExtensions().getFirst())
+                .build();
+
+        return ServerResponse.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(BodyInserters.fromDataBuffers(content));
+    }
+
     /**
      * Загружает изображение для товара и перенаправляет на страницу admin с сообщением.
      *
@@ -99,6 +222,29 @@ public class AdminHandler {
                 });
     }
 
+    /**
+     * Принимает ZIP-архив изображений товаров и возвращает JSON-отчет по каждому файлу архива.
+     * Архив распаковывается по мере чтения запроса, отчет отдается по мере обработки пачек.
+     *
+     * @param request входящий HTTP-запрос
+     * @return серверный ответ с отчетом
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> uploadImageArchive(ServerRequest request) {
+        log.info("Handling image archive upload request");
+        return request.multipartData()
+                .flatMap(parts -> {
+                    var part = parts.getFirst("file");
+                    if (!(part instanceof FilePart filePart)) {
+                        return Mono.error(new MarketBadRequestException("Archive file not found"));
+                    }
+
+                    return ServerResponse.ok()
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(adminService.uploadImageArchive(filePart), ImageArchiveEntryResponseDto.class);
+                });
+    }
+
     /**
      * Выполняет redirect на `/admin` с query-параметром результата.
      *
@@ -107,9 +253,20 @@ public class AdminHandler {
      * @return серверный ответ с редиректом
      */
     private Mono<ServerResponse> redirectWithParam(String key, String value) {
-        log.debug("Redirecting to /admin with param {}={}", key, value);
-        var uri = UriComponentsBuilder.fromPath("/admin")
-                .queryParam(key, value)
+        return redirectWithParams(Map.of(key, value));
+    }
+
+    /**
+     * Выполняет redirect на `/admin` с query-параметрами результата.
+     *
+     * @param params параметры запроса
+     * @return серверный ответ с редиректом
+     */
+    private Mono<ServerResponse> redirectWithParams(Map<String, String> params) {
+        log.debug("Redirecting to /admin with params {}", params);
+        var builder = UriComponentsBuilder.fromPath("/admin");
+        params.forEach((key, value) -> builder.queryParam(key, value));
+        var uri = builder
                 .encode(StandardCharsets.UTF_8)
                 .build()
                 .toUri();
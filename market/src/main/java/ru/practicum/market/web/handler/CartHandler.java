@@ -2,6 +2,7 @@ package ru.practicum.market.web.handler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
@@ -9,13 +10,17 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.service.ItemService;
 import ru.practicum.market.service.security.CurrentUserService;
+import ru.practicum.market.web.bind.GuestCartCookie;
 import ru.practicum.market.web.bind.QueryBinder;
+import ru.practicum.market.web.dto.CartResponseDto;
+import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.view.PageRenderHelper;
 
 import java.util.Map;
 
 /**
  * Обработчик HTTP-сценариев корзины пользователя.
+ * Корзина анонимного пользователя читается из cookie и записывается в нее же ({@link GuestCartCookie}).
  */
 @RequiredArgsConstructor
 @Component
@@ -26,25 +31,40 @@ public class CartHandler {
     private final QueryBinder binder;
     private final PageRenderHelper pageRenderHelper;
     private final CurrentUserService userService;
+    private final GuestCartCookie guestCartCookie;
 
     /**
-     * Отображает страницу корзины.
+     * Отображает страницу корзины, не дожидаясь платежного сервиса.
+     * Кнопка покупки включается на странице после ответа {@link #getCartAvailability(ServerRequest)};
+     * анонимному пользователю вместо нее предлагается войти.
      *
      * @param request входящий HTTP-запрос
      * @return серверный ответ с HTML-страницей корзины
      */
-    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @PreAuthorize("permitAll()")
     public Mono<ServerResponse> getCart(ServerRequest request) {
         log.debug("Rendering cart page");
-        return userService.currentUserId(request)
-                .flatMap(itemService::getCart)
-                .flatMap(cart -> pageRenderHelper.ok(request, "cart", Map.of(
-                                "items", cart.items(),
-                                "total", cart.total(),
-                                "isActive", cart.isActiveButton()
-                        ))
-                );
+        return userService.currentUserIdIfAuthenticated(request)
+                .flatMap(itemService::getCartWithoutPayments)
+                .flatMap(cart -> renderCart(request, cart, !cart.items().isEmpty()))
+                .switchIfEmpty(Mono.defer(() -> itemService.getGuestCart(guestCartCookie.read(request))
+                        .flatMap(cart -> renderCart(request, cart, false))));
+    }
 
+    /**
+     * Возвращает доступность оформления корзины по балансу пользователя.
+     *
+     * @param request входящий HTTP-запрос
+     * @return доступность оформления в JSON
+     */
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<ServerResponse> getCartAvailability(ServerRequest request) {
+        log.debug("Checking cart availability");
+        return userService.currentUserId(request)
+                .flatMap(itemService::getCartAvailability)
+                .flatMap(availability -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(availability));
     }
 
     /**
@@ -53,14 +73,37 @@ public class CartHandler {
      * @param request входящий HTTP-запрос
      * @return серверный ответ с обновлённой корзиной
      */
-    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @PreAuthorize("permitAll()")
     public Mono<ServerResponse> updateItemsCountInCart(ServerRequest request) {
         var itemId = binder.bindParamId(request);
         var action = binder.bindParamAction(request);
         log.info("Updating cart: itemId={}, action={}", itemId, action);
 
-        return userService.currentUserId(request)
-                .flatMap(userId -> itemService.updateItemsCountInCart(userId, itemId, action))
-                .then(getCart(request));
+        return userService.currentUserIdIfAuthenticated(request)
+                .flatMap(userId -> itemService.updateItemsCountInCart(userId, itemId, action)
+                        .then(getCart(request)))
+                .switchIfEmpty(Mono.defer(() -> updateGuestCart(request, itemId, action)));
+    }
+
+    /**
+     * Изменяет корзину анонимного пользователя, записывает ее в cookie и отображает страницу корзины.
+     */
+    private Mono<ServerResponse> updateGuestCart(ServerRequest request, long itemId, CartAction action) {
+        return itemService.updateGuestCart(guestCartCookie.read(request), itemId, action)
+                .doOnNext(cart -> guestCartCookie.write(request, cart))
+                .flatMap(itemService::getGuestCart)
+                .flatMap(cart -> renderCart(request, cart, false));
+    }
+
+    /**
+     * Рендерит страницу корзины.
+     */
+    private Mono<ServerResponse> renderCart(ServerRequest request, CartResponseDto cart, boolean checkAvailability) {
+        return pageRenderHelper.ok(request, "cart", Map.of(
+                "items", cart.items(),
+                "total", cart.total(),
+                "isActive", false,
+                "checkAvailability", checkAvailability
+        ));
     }
 }
@@ -0,0 +1,77 @@
+package ru.practicum.market.web.handler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.service.FlashSaleService;
+import ru.practicum.market.service.security.CurrentUserService;
+import ru.practicum.market.web.bind.QueryBinder;
+
+/**
+ * Обработчик HTTP-сценариев распродаж: резерв товара покупателем и управление распродажей.
+ */
+@RequiredArgsConstructor
+@Component
+@Slf4j
+public class FlashSaleHandler {
+
+    private final FlashSaleService flashSaleService;
+    private final QueryBinder binder;
+    private final CurrentUserService userService;
+
+    /**
+     * Резервирует единицы товара распродажи за текущим пользователем.
+     * Резерв попадает в заказ при следующем оформлении, если не истечет раньше.
+     *
+     * @param request входящий HTTP-запрос
+     * @return резерв в JSON
+     */
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<ServerResponse> claim(ServerRequest request) {
+        var itemId = binder.bindPathVariableId(request);
+        var quantity = binder.bindParamQuantity(request);
+        log.info("Handling flash sale claim: itemId={}, quantity={}", itemId, quantity);
+
+        return userService.currentUserId(request)
+                .flatMap(userId -> flashSaleService.claim(userId, itemId, quantity))
+                .flatMap(claim -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(claim));
+    }
+
+    /**
+     * Начинает распродажу товара с количеством из query-параметра {@code units}.
+     *
+     * @param request входящий HTTP-запрос
+     * @return пустой ответ 204
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> start(ServerRequest request) {
+        var itemId = binder.bindPathVariableId(request);
+        var units = binder.bindParamUnits(request);
+        log.info("Handling flash sale start: itemId={}, units={}", itemId, units);
+
+        return flashSaleService.start(itemId, units)
+                .then(ServerResponse.noContent().build());
+    }
+
+    /**
+     * Завершает распродажу товара.
+     *
+     * @param request входящий HTTP-запрос
+     * @return пустой ответ 204
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    public Mono<ServerResponse> stop(ServerRequest request) {
+        var itemId = binder.bindPathVariableId(request);
+        log.info("Handling flash sale stop: itemId={}", itemId);
+
+        return flashSaleService.stop(itemId)
+                .then(ServerResponse.noContent().build());
+    }
+}
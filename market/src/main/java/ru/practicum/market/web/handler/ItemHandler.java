@@ -7,19 +7,26 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.service.ItemService;
 import ru.practicum.market.service.security.CurrentUserService;
+import ru.practicum.market.web.bind.GuestCartCookie;
 import ru.practicum.market.web.bind.QueryBinder;
 import ru.practicum.market.web.dto.ItemsResponseDto;
+import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.view.PageRenderHelper;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 /**
  * Обработчик пользовательских HTTP-сценариев каталога товаров.
+ * Количества в корзине анонимного пользователя берутся из cookie ({@link GuestCartCookie}).
  */
 @RequiredArgsConstructor
 @Component
@@ -30,6 +37,7 @@ public class ItemHandler {
     private final QueryBinder binder;
     private final PageRenderHelper pageRenderHelper;
     private final CurrentUserService userService;
+    private final GuestCartCookie guestCartCookie;
 
     /**
      * Отображает страницу каталога товаров.
@@ -40,15 +48,19 @@ public class ItemHandler {
     @PreAuthorize("permitAll()")
     public Mono<ServerResponse> getItems(ServerRequest request) {
         var itemsQuery = binder.bindItemsQuery(request);
-        log.debug("Rendering items page: search='{}', sort={}, pageNumber={}, pageSize={}",
-                itemsQuery.search(), itemsQuery.sort(), itemsQuery.pageNumber(), itemsQuery.pageSize());
+        log.debug("Rendering items page: search='{}', price={}, tags={}, sort={}, pageNumber={}, pageSize={}",
+                itemsQuery.search(), itemsQuery.price(), itemsQuery.tags(), itemsQuery.sort(), itemsQuery.pageNumber(),
+                itemsQuery.pageSize());
 
         return userService.currentUserIdIfAuthenticated(request)
                 .map(Optional::of)
                 .defaultIfEmpty(Optional.empty())
                 .flatMap(userIdOpt -> itemService.getItems(
                                 userIdOpt,
+                                guestCart(userIdOpt, request),
                                 itemsQuery.search(),
+                                itemsQuery.price(),
+                                itemsQuery.tags(),
                                 itemsQuery.sort(),
                                 itemsQuery.pageNumber(),
                                 itemsQuery.pageSize()
@@ -72,7 +84,7 @@ public class ItemHandler {
         return userService.currentUserIdIfAuthenticated(request)
                 .map(Optional::of)
                 .defaultIfEmpty(Optional.empty())
-                .flatMap(userIdOpt -> getItemById(userIdOpt, request, id));
+                .flatMap(userIdOpt -> getItemById(userIdOpt, guestCart(userIdOpt, request), request, id));
     }
 
     /**
@@ -81,22 +93,25 @@ public class ItemHandler {
      * @param request входящий HTTP-запрос
      * @return редирект обратно в каталог
      */
-    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @PreAuthorize("permitAll()")
     public Mono<ServerResponse> updateItemsCountInCartForItems(ServerRequest request) {
         var id = binder.bindParamId(request);
         var action = binder.bindParamAction(request);
         var iq = binder.bindItemsQuery(request);
         log.info("Updating cart from items list: itemId={}, action={}", id, action);
-        var redirectUri = UriComponentsBuilder.fromPath("/items")
+        var redirectUriBuilder = UriComponentsBuilder.fromPath("/items")
                 .queryParam("search", iq.search())
+                .queryParamIfPresent("min", Optional.ofNullable(iq.price().min()))
+                .queryParamIfPresent("max", Optional.ofNullable(iq.price().max()))
                 .queryParam("sort", iq.sort())
                 .queryParam("pageNumber", iq.pageNumber())
-                .queryParam("pageSize", iq.pageSize())
-                .build(true)
-                .toUri();
+                .queryParam("pageSize", iq.pageSize());
+        iq.tags().forEach(tag -> redirectUriBuilder.queryParam("tag", UriUtils.encodeQueryParam(tag, StandardCharsets.UTF_8)));
+        var redirectUri = redirectUriBuilder.build(true).toUri();
 
-        return userService.currentUserId(request)
-                .flatMap(userId -> itemService.updateItemsCountInCart(userId, id, action))
+        return userService.currentUserIdIfAuthenticated(request)
+                .flatMap(userId -> itemService.updateItemsCountInCart(userId, id, action).thenReturn(true))
+                .switchIfEmpty(Mono.defer(() -> updateGuestCart(request, id, action).thenReturn(true)))
                 .then(ServerResponse.seeOther(redirectUri).build());
     }
 
@@ -106,30 +121,54 @@ public class ItemHandler {
      * @param request входящий HTTP-запрос
      * @return серверный ответ с обновлённой карточкой товара
      */
-    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @PreAuthorize("permitAll()")
     public Mono<ServerResponse> updateItemsCountInCartForItem(ServerRequest request) {
         var id = binder.bindPathVariableId(request);
         var action = binder.bindParamAction(request);
         log.info("Updating cart from item page: itemId={}, action={}", id, action);
 
-        return userService.currentUserId(request)
+        return userService.currentUserIdIfAuthenticated(request)
                 .flatMap(userId -> itemService.updateItemsCountInCart(userId, id, action)
-                        .then(getItemById(Optional.of(userId), request, id))
-                );
+                        .then(getItemById(Optional.of(userId), Map.of(), request, id))
+                )
+                .switchIfEmpty(Mono.defer(() -> updateGuestCart(request, id, action)
+                        .flatMap(cart -> getItemById(Optional.empty(), cart, request, id))));
+    }
+
+    /**
+     * Изменяет корзину анонимного пользователя и записывает ее в cookie.
+     *
+     * @param request входящий HTTP-запрос
+     * @param itemId  идентификатор товара
+     * @param action  действие над количеством
+     * @return новая корзина
+     */
+    private Mono<Map<Long, Integer>> updateGuestCart(ServerRequest request, long itemId, CartAction action) {
+        return itemService.updateGuestCart(guestCartCookie.read(request), itemId, action)
+                .doOnNext(cart -> guestCartCookie.write(request, cart));
+    }
+
+    /**
+     * Возвращает корзину из cookie для анонимного пользователя; аутентифицированному cookie не нужна.
+     */
+    private Map<Long, Integer> guestCart(Optional<Long> userIdOpt, ServerRequest request) {
+        return userIdOpt.isPresent() ? Map.of() : guestCartCookie.read(request);
     }
 
     /**
-     * Рендерит карточку товара по itemId.
+     * Рендерит карточку товара по itemId вместе с товарами, которые покупают вместе с ним.
      *
      * @param userIdOpt идентификатор пользователя, если пользователь аутентифицирован
+     * @param guestCart корзина анонимного пользователя
      * @param request   входящий HTTP-запрос
      * @param itemId    идентификатор товара
      * @return серверный ответ с HTML-страницей товара
      */
-    private Mono<ServerResponse> getItemById(Optional<Long> userIdOpt, ServerRequest request, long itemId) {
-        return itemService.getItem(userIdOpt, itemId)
-                .flatMap(item ->
-                        pageRenderHelper.ok(request, "item", Map.of("item", item))
+    private Mono<ServerResponse> getItemById(Optional<Long> userIdOpt, Map<Long, Integer> guestCart,
+                                             ServerRequest request, long itemId) {
+        return Mono.zip(itemService.getItem(userIdOpt, guestCart, itemId), itemService.getRelatedItems(itemId))
+                .flatMap(t ->
+                        pageRenderHelper.ok(request, "item", Map.of("item", t.getT1(), "related", t.getT2()))
                 );
     }
 
@@ -143,8 +182,34 @@ public class ItemHandler {
         var model = new HashMap<String, Object>();
         model.put("items", itemsResponseDto.items());
         model.put("search", itemsResponseDto.search());
+        model.put("minPrice", itemsResponseDto.price().min());
+        model.put("maxPrice", itemsResponseDto.price().max());
+        model.put("priceHistogram", itemsResponseDto.priceHistogram());
+        model.put("tags", itemsResponseDto.tags());
+        model.put("tagFacets", itemsResponseDto.tagFacets());
+        model.put("tagToggles", buildTagToggles(itemsResponseDto));
         model.put("sort", itemsResponseDto.sort().name());
         model.put("paging", itemsResponseDto.paging());
         return model;
     }
+
+    /**
+     * Для каждого тега фасетов собирает список выбранных тегов после нажатия на него:
+     * выбранный тег убирается из фильтра, остальные добавляются.
+     *
+     * @param itemsResponseDto DTO ответа страницы каталога
+     * @return выбранные теги по имени тега фасета
+     */
+    private Map<String, List<String>> buildTagToggles(ItemsResponseDto itemsResponseDto) {
+        var selected = itemsResponseDto.tags();
+        var toggles = new HashMap<String, List<String>>();
+        for (var facet : itemsResponseDto.tagFacets()) {
+            var tags = new ArrayList<>(selected);
+            if (!tags.remove(facet.name())) {
+                tags.add(facet.name());
+            }
+            toggles.put(facet.name(), tags);
+        }
+        return toggles;
+    }
 }
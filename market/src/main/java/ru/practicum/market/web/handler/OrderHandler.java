@@ -2,6 +2,7 @@ package ru.practicum.market.web.handler;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
@@ -29,6 +30,9 @@ public class OrderHandler {
     private final PageRenderHelper pageRenderHelper;
     private final CurrentUserService userService;
 
+    @Value("${orders.history.page-size}")
+    private int historyPageSize;
+
     /**
      * Отображает страницу списка заказов.
      *
@@ -42,7 +46,7 @@ public class OrderHandler {
         var ordersDriver = new ReactiveDataDriverContextVariable(
                 userService.currentUserId(request)
                         .flatMapMany(orderService::getOrders),
-                10
+                historyPageSize
         );
 
         return pageRenderHelper.ok(request, "orders", Map.of("orders", ordersDriver));
@@ -85,4 +89,19 @@ public class OrderHandler {
                     return ServerResponse.seeOther(URI.create("/orders/%d?newOrder=true".formatted(id))).build();
                 });
     }
+
+    /**
+     * Добавляет позиции заказа в корзину и перенаправляет в корзину.
+     *
+     * @param request входящий HTTP-запрос
+     * @return редирект на страницу корзины
+     */
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public Mono<ServerResponse> reorder(ServerRequest request) {
+        var orderId = binder.bindPathVariableId(request);
+        log.info("Reordering orderId={}", orderId);
+        return userService.currentUserId(request)
+                .flatMap(userId -> orderService.reorder(userId, orderId))
+                .then(ServerResponse.seeOther(URI.create("/cart/items")).build());
+    }
 }
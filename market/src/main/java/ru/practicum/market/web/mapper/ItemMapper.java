@@ -5,36 +5,50 @@ import ru.practicum.market.domain.model.CartItem;
 import ru.practicum.market.domain.model.Item;
 import ru.practicum.market.service.cache.dto.CartCacheDto;
 import ru.practicum.market.service.cache.dto.ItemCacheDto;
+import ru.practicum.market.repository.projection.PriceBucketRow;
 import ru.practicum.market.service.cache.dto.ItemsPageCacheDto;
+import ru.practicum.market.service.cache.dto.PriceBucketCacheDto;
+import ru.practicum.market.service.cache.dto.PriceHistogramCacheDto;
 import ru.practicum.market.web.dto.CartResponseDto;
 import ru.practicum.market.web.dto.ItemResponseDto;
+import ru.practicum.market.util.LongIntMap;
+import ru.practicum.market.util.LongObjectMap;
+import ru.practicum.market.web.dto.PriceBucketResponseDto;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @UtilityClass
 public class ItemMapper {
 
-    private static final ItemResponseDto MOCK_ITEM = new ItemResponseDto(-1, null, null, null, 0, 0);
+    private static final ItemResponseDto MOCK_ITEM = new ItemResponseDto(-1, null, null, null, null, null, 0, 0, null);
 
     /**
      * Преобразует кэш-модель товара в DTO для UI с количеством в корзине.
      */
     public static ItemResponseDto toItemResponseDto(ItemCacheDto itemCache, Integer itemQuantity) {
-        return createItemResponseDto(itemCache, itemQuantity);
+        return createItemResponseDto(itemCache, itemQuantity, null);
+    }
+
+    /**
+     * Преобразует кэш-модель товара в DTO для UI с количеством в корзине и остатком на складе.
+     */
+    public static ItemResponseDto toItemResponseDto(ItemCacheDto itemCache, Integer itemQuantity, Integer stock) {
+        return createItemResponseDto(itemCache, itemQuantity, stock);
     }
 
     /**
      * Формирует двумерную матрицу товаров по строкам фиксированной длины.
+     * Товары без записи в {@code itemsStock} не учитываются на складе.
      */
     public static List<List<ItemResponseDto>> toItemRows(List<ItemCacheDto> items,
-                                                         Map<Long, Integer> itemsQuantity,
+                                                         LongIntMap itemsQuantity,
+                                                         LongIntMap itemsStock,
                                                          int rowSize) {
-        List<List<ItemResponseDto>> itemRows = new ArrayList<>();
-        var itemDtos = itemsToItemResponseDtos(items, itemsQuantity);
+        List<List<ItemResponseDto>> itemRows = new ArrayList<>((items.size() + rowSize - 1) / rowSize);
+        var itemDtos = itemsToItemResponseDtos(items, itemsQuantity, itemsStock);
 
         for (int i = 0; i < itemDtos.size(); i += rowSize) {
             List<ItemResponseDto> threeItems = new ArrayList<>(rowSize);
@@ -55,19 +69,38 @@ public class ItemMapper {
 
     /**
      * Строит DTO корзины и вычисляет общую сумму и доступность оформления заказа.
+     * Позиции идут в порядке {@code cartItems}.
      */
     public static CartResponseDto toCart(List<CartItem> cartItems, List<ItemCacheDto> itemsInCart, BigDecimal currentBalance) {
-        var itemById = itemsInCart.stream()
-                .collect(Collectors.toMap(ItemCacheDto::id, item -> item));
-        var quantityByItemId = cartItems.stream()
-                .collect(Collectors.toMap(CartItem::getItemId, CartItem::getQuantity));
-        var itemsResponseDto = quantityByItemId.entrySet().stream()
-                .map(iq -> toItemResponseDto(itemById.get(iq.getKey()), iq.getValue()))
-                .toList();
-        var totalSum = calculateTotalSum(quantityByItemId, itemById);
-        var isActive = currentBalance.compareTo(BigDecimal.valueOf(totalSum)) >= 0;
+        var itemById = LongObjectMap.index(itemsInCart, ItemCacheDto::id);
+        var itemsResponseDto = new ArrayList<ItemResponseDto>(cartItems.size());
+        long totalSum = 0;
+        for (var cartItem : cartItems) {
+            var item = itemById.get(cartItem.getItemId());
+            itemsResponseDto.add(createItemResponseDto(item, cartItem.getQuantity(), null));
+            totalSum += item.price() * cartItem.getQuantity();
+        }
+
+        return toCart(itemsResponseDto, totalSum, currentBalance);
+    }
+
+    /**
+     * Формирует DTO корзины по количествам товаров. Все товары из {@code quantityByItemId}
+     * должны быть в {@code itemsInCart}.
+     */
+    public static CartResponseDto toCart(Map<Long, Integer> quantityByItemId, List<ItemCacheDto> itemsInCart,
+                                         BigDecimal currentBalance) {
+        var itemById = LongObjectMap.index(itemsInCart, ItemCacheDto::id);
+        var itemsResponseDto = new ArrayList<ItemResponseDto>(quantityByItemId.size());
+        long totalSum = 0;
+        for (var entry : quantityByItemId.entrySet()) {
+            var item = itemById.get(entry.getKey());
+            int quantity = entry.getValue();
+            itemsResponseDto.add(createItemResponseDto(item, quantity, null));
+            totalSum += item.price() * quantity;
+        }
 
-        return new CartResponseDto(itemsResponseDto, totalSum, isActive);
+        return toCart(itemsResponseDto, totalSum, currentBalance);
     }
 
     /**
@@ -77,6 +110,27 @@ public class ItemMapper {
         return new ItemsPageCacheDto(toItemsCacheDto(items), itemsCount);
     }
 
+    /**
+     * Формирует DTO гистограммы цен для кэш-слоя.
+     */
+    public static PriceHistogramCacheDto toPriceHistogramCacheDto(List<PriceBucketRow> buckets) {
+        return new PriceHistogramCacheDto(buckets.stream()
+                .map(bucket -> new PriceBucketCacheDto(bucket.lowerBound(), bucket.upperBound(), bucket.itemCount()))
+                .toList());
+    }
+
+    /**
+     * Преобразует гистограмму цен в DTO для UI: верхняя граница корзины становится включительной.
+     */
+    public static List<PriceBucketResponseDto> toPriceBuckets(PriceHistogramCacheDto histogram) {
+        return histogram.buckets().stream()
+                .map(bucket -> new PriceBucketResponseDto(
+                        bucket.lowerBound(),
+                        bucket.upperBound() == null ? null : bucket.upperBound() - 1,
+                        bucket.itemCount()))
+                .toList();
+    }
+
     /**
      * Преобразует список доменных товаров в кэш-DТО.
      */
@@ -95,6 +149,8 @@ public class ItemMapper {
                 item.getTitle(),
                 item.getDescription(),
                 item.getImgPath(),
+                item.getImgThumbnailPath(),
+                item.getImgCardPath(),
                 item.getPrice()
         );
     }
@@ -111,34 +167,42 @@ public class ItemMapper {
     }
 
     /**
-     * Преобразует список кэш-товаров в список DTO для UI с учетом количества.
+     * Преобразует список кэш-товаров в список DTO для UI с учетом количества и остатка.
      */
-    private static List<ItemResponseDto> itemsToItemResponseDtos(List<ItemCacheDto> items, Map<Long, Integer> itemsQuantity) {
-        return items.stream()
-                .map(item -> toItemResponseDto(item, itemsQuantity.getOrDefault(item.id(), 0)))
-                .toList();
+    private static List<ItemResponseDto> itemsToItemResponseDtos(List<ItemCacheDto> items,
+                                                                 LongIntMap itemsQuantity,
+                                                                 LongIntMap itemsStock) {
+        var itemDtos = new ArrayList<ItemResponseDto>(items.size());
+        for (var item : items) {
+            var stock = itemsStock.containsKey(item.id()) ? Integer.valueOf(itemsStock.getOrDefault(item.id(), 0)) : null;
+            itemDtos.add(createItemResponseDto(item, itemsQuantity.getOrDefault(item.id(), 0), stock));
+        }
+        return itemDtos;
     }
 
     /**
-     * Вычисляет итоговую сумму корзины.
+     * Собирает DTO корзины: оформление доступно, если баланса хватает на итоговую сумму.
      */
-    private static long calculateTotalSum(Map<Long, Integer> quantityByItemId, Map<Long, ItemCacheDto> itemById) {
-        return quantityByItemId.entrySet().stream()
-                .map(ic -> itemById.get(ic.getKey()).price() * ic.getValue())
-                .reduce(0L, Long::sum);
+    private static CartResponseDto toCart(List<ItemResponseDto> items, long totalSum, BigDecimal currentBalance) {
+        var isActive = currentBalance.compareTo(BigDecimal.valueOf(totalSum)) >= 0;
+        return new CartResponseDto(items, totalSum, isActive);
     }
 
     /**
      * Создает DTO товара для UI.
+     * Пока уменьшенные копии изображения не построены, вместо них используется исходное изображение.
      */
-    private static ItemResponseDto createItemResponseDto(ItemCacheDto item, int quantity) {
+    private static ItemResponseDto createItemResponseDto(ItemCacheDto item, int quantity, Integer stock) {
         return new ItemResponseDto(
                 item.id(),
                 item.title(),
                 item.description(),
                 item.imgPath(),
+                item.imgThumbnailPath() != null ? item.imgThumbnailPath() : item.imgPath(),
+                item.imgCardPath() != null ? item.imgCardPath() : item.imgPath(),
                 item.price(),
-                quantity
+                quantity,
+                stock
         );
     }
 }
@@ -5,39 +5,48 @@ import ru.practicum.market.domain.model.CartItem;
 import ru.practicum.market.domain.model.Item;
 import ru.practicum.market.domain.model.Order;
 import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.repository.projection.OrderHistoryRow;
+import ru.practicum.market.repository.projection.OrderLineRow;
+import ru.practicum.market.util.LongObjectMap;
 import ru.practicum.market.web.dto.ItemResponseDto;
 import ru.practicum.market.web.dto.OrderResponseDto;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @UtilityClass
 public class OrderMapper {
 
     /**
-     * Преобразует список доменных заказов в DTO со всеми позициями.
+     * Преобразует строку истории заказов с разобранными позициями в DTO.
      */
-    public static List<OrderResponseDto> toOrderResponseDtos(
-            List<Order> orders,
-            List<OrderItem> orderItems,
-            List<Item> items
-    ) {
-        var itemsById = groupItemsById(items);
-        var orderItemsByOrderId = orderItems.stream().collect(Collectors.groupingBy(OrderItem::getOrderId));
-
-        return orders.stream()
-                .map(order -> createOrderResponseDto(order, orderItemsByOrderId.get(order.getId()), itemsById))
+    public static OrderResponseDto toOrderResponseDto(OrderHistoryRow row, List<OrderLineRow> lines) {
+        var items = lines.stream()
+                .map(line -> new ItemResponseDto(
+                        line.itemId(),
+                        line.title(),
+                        null,
+                        line.imgPath(),
+                        line.imgPath(),
+                        line.imgPath(),
+                        line.price(),
+                        line.quantity(),
+                        null
+                ))
                 .toList();
+
+        return new OrderResponseDto(row.id(), items, row.totalSum());
     }
 
     /**
-     * Преобразует один заказ в DTO.
+     * Преобразует один заказ в DTO по снимку товаров в позициях заказа.
      */
-    public static OrderResponseDto toOrderResponseDto(Order order, List<OrderItem> orderItems, List<Item> items) {
-        var itemsById = groupItemsById(items);
-
-        return createOrderResponseDto(order, orderItems, itemsById);
+    public static OrderResponseDto toOrderResponseDto(Order order, List<OrderItem> orderItems) {
+        return new OrderResponseDto(
+                order.getId(),
+                toItemResponseDtos(orderItems),
+                order.getTotalSum()
+        );
     }
 
     /**
@@ -46,72 +55,58 @@ public class OrderMapper {
     public static Order toOrder(long userId, List<CartItem> cartItems, List<Item> items) {
         var itemsById = groupItemsById(items);
 
-        var totalSum = cartItems.stream()
-                .map(i -> i.getQuantity() * itemsById.get(i.getItemId()).getPrice())
-                .reduce(0L, Long::sum);
+        long totalSum = 0;
+        for (var cartItem : cartItems) {
+            totalSum += cartItem.getQuantity() * itemsById.get(cartItem.getItemId()).getPrice();
+        }
 
         return new Order(userId, totalSum);
     }
 
     /**
-     * Создает список позиций заказа из корзины.
+     * Создает список позиций заказа из корзины со снимком цены, названия и изображения товара.
      */
     public static List<OrderItem> toOrderItems(List<CartItem> cartItems, List<Item> items, long orderId) {
         var itemsById = groupItemsById(items);
 
-        return cartItems.stream()
-                .map(ci ->
-                        new OrderItem(
-                                orderId,
-                                ci.getItemId(),
-                                ci.getQuantity(),
-                                itemsById.get(ci.getItemId()).getPrice()
-                        )
-                )
-                .toList();
-    }
-
-    /**
-     * Формирует DTO заказа из доменной модели и списка позиций.
-     */
-    private static OrderResponseDto createOrderResponseDto(
-            Order order,
-            List<OrderItem> orderItems,
-            Map<Long, Item> itemsById
-    ) {
-        return new OrderResponseDto(
-                order.getId(),
-                toItemResponseDtos(orderItems, itemsById),
-                order.getTotalSum()
-        );
+        var orderItems = new ArrayList<OrderItem>(cartItems.size());
+        for (var cartItem : cartItems) {
+            var item = itemsById.get(cartItem.getItemId());
+            orderItems.add(new OrderItem(
+                    orderId,
+                    cartItem.getItemId(),
+                    cartItem.getQuantity(),
+                    item.getPrice(),
+                    item.getTitle(),
+                    item.getImgPath()
+            ));
+        }
+        return orderItems;
     }
 
     /**
      * Преобразует позиции заказа в DTO товаров для ответа.
      */
-    private static List<ItemResponseDto> toItemResponseDtos(
-            List<OrderItem> orderItems,
-            Map<Long, Item> itemsById
-    ) {
+    private static List<ItemResponseDto> toItemResponseDtos(List<OrderItem> orderItems) {
         return orderItems.stream()
-                .map(oi -> {
-                    var item = itemsById.get(oi.getItemId());
-                    return new ItemResponseDto(
-                            item.getId(),
-                            item.getTitle(),
-                            item.getDescription(),
-                            item.getImgPath(),
-                            oi.getPriceAtOrder(),
-                            oi.getQuantity()
-                    );
-                })
+                .map(oi -> new ItemResponseDto(
+                        oi.getItemId(),
+                        oi.getTitle(),
+                        null,
+                        oi.getImgPath(),
+                        oi.getImgPath(),
+                        oi.getImgPath(),
+                        oi.getPriceAtOrder(),
+                        oi.getQuantity(),
+                        null
+                ))
                 .toList();
     }
 
     /**
-     * Строит индекс товаров по id.
+     * Строит индекс товаров по id без упаковки ключей.
      */
-    private static Map<Long, Item> groupItemsById(List<Item> items) {
-        return items.stream().collect(Collectors.toMap(Item::getId, item -> item));
+    private static LongObjectMap<Item> groupItemsById(List<Item> items) {
+        return LongObjectMap.index(items, Item::getId);
     }
 }
@@ -14,6 +14,9 @@ import ru.practicum.market.util.PostgresContainer;
 import ru.practicum.market.util.TestCacheConfig;
 import ru.practicum.market.util.TestDataFactory;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataR2dbcTest
@@ -36,7 +39,7 @@ class CartItemRepositoryIT {
 
     @BeforeEach
     void clean() {
-        db.sql("TRUNCATE TABLE cart_items, items RESTART IDENTITY CASCADE").then().block();
+        db.sql("TRUNCATE TABLE cart_items, order_items, orders, items RESTART IDENTITY CASCADE").then().block();
     }
 
     @Test
@@ -92,4 +95,78 @@ class CartItemRepositoryIT {
                     assertThat(ci.getQuantity()).isEqualTo(quantity);
                 });
     }
+
+    @Test
+    @DisplayName("deleteAbandonedCarts")
+    void test3() {
+        var items = itemRepository.saveAll(TestDataFactory.createItemsForSave(2)).collectList().block();
+        var first = items.get(0).getId();
+        var second = items.get(1).getId();
+        cartItemRepository.saveAll(List.of(
+                TestDataFactory.createCartItem(1L, first, 1),
+                TestDataFactory.createCartItem(1L, second, 1),
+                TestDataFactory.createCartItem(2L, first, 1),
+                TestDataFactory.createCartItem(2L, second, 1)
+        )).then().block();
+        // Корзина пользователя 1 брошена целиком, у пользователя 2 одна позиция свежая.
+        // Триггер проставил бы время изменения, поэтому старое значение записывается при отключенном триггере.
+        db.sql("ALTER TABLE cart_items DISABLE TRIGGER cart_items_touch").then().block();
+        db.sql("UPDATE cart_items SET updated_at = now() - interval '60 days' WHERE user_id = 1 OR item_id = :itemId")
+                .bind("itemId", first)
+                .then()
+                .block();
+        db.sql("ALTER TABLE cart_items ENABLE TRIGGER cart_items_touch").then().block();
+
+        var deleted = cartItemRepository.deleteAbandonedCarts(LocalDateTime.now().minusDays(30), 10)
+                .collectList()
+                .block();
+
+        assertThat(deleted).containsExactly(1L, 1L);
+        assertThat(cartItemRepository.findByUserId(1L).collectList().block()).isEmpty();
+        assertThat(cartItemRepository.findByUserId(2L).collectList().block()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("copyFromOrder")
+    void test4() {
+        var items = itemRepository.saveAll(TestDataFactory.createItemsForSave(2)).collectList().block();
+        var first = items.get(0).getId();
+        var second = items.get(1).getId();
+        var orderId = db.sql("INSERT INTO orders (user_id, total_sum) VALUES (:userId, 0) RETURNING id")
+                .bind("userId", USER_ID)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+        db.sql("INSERT INTO order_items (order_id, item_id, quantity, price_at_order) VALUES (:orderId, :first, 2, 100), (:orderId, :second, 1, 200)")
+                .bind("orderId", orderId)
+                .bind("first", first)
+                .bind("second", second)
+                .then()
+                .block();
+        cartItemRepository.save(TestDataFactory.createCartItem(USER_ID, first, 1)).block();
+
+        var copied = cartItemRepository.copyFromOrder(USER_ID, orderId).block();
+        var foreign = cartItemRepository.copyFromOrder(USER_ID + 1, orderId).block();
+
+        assertThat(copied).isEqualTo(2);
+        assertThat(foreign).isZero();
+        assertThat(cartItemRepository.findByUserIdAndItemId(USER_ID, first).block().getQuantity()).isEqualTo(3);
+        assertThat(cartItemRepository.findByUserIdAndItemId(USER_ID, second).block().getQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("mergeQuantities")
+    void test5() {
+        var items = itemRepository.saveAll(TestDataFactory.createItemsForSave(2)).collectList().block();
+        var first = items.get(0).getId();
+        var second = items.get(1).getId();
+        cartItemRepository.save(TestDataFactory.createCartItem(USER_ID, first, 1)).block();
+
+        var merged = cartItemRepository.mergeQuantities(USER_ID,
+                new Long[]{first, second, second + 1000}, new Integer[]{2, 3, 1}).block();
+
+        assertThat(merged).isEqualTo(2);
+        assertThat(cartItemRepository.findByUserIdAndItemId(USER_ID, first).block().getQuantity()).isEqualTo(3);
+        assertThat(cartItemRepository.findByUserIdAndItemId(USER_ID, second).block().getQuantity()).isEqualTo(3);
+    }
 }
@@ -11,11 +11,22 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.repository.projection.ItemContentHashRow;
+import ru.practicum.market.repository.projection.ItemPriceRow;
+import ru.practicum.market.repository.projection.ItemStockRow;
+import ru.practicum.market.repository.projection.ItemTagRow;
+import ru.practicum.market.repository.projection.ItemUpsertRow;
+import ru.practicum.market.repository.projection.PriceBucketRow;
 import ru.practicum.market.util.PostgresContainer;
 import ru.practicum.market.util.TestCacheConfig;
 import ru.practicum.market.util.TestDataFactory;
 
+import java.util.List;
+import java.util.stream.IntStream;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 @DataR2dbcTest
 @Testcontainers
@@ -107,4 +118,318 @@ class ItemRepositoryIT {
         assertThat(result).isNotNull();
         assertThat(result).isEmpty();
     }
+
+    @Test
+    @DisplayName("upsertAll inserts, updates changed and skips unchanged")
+    void test4() {
+        var first = TestDataFactory.createItemForSave(1);
+        first.setSku("sku-1");
+        var second = TestDataFactory.createItemForSave(2);
+        second.setSku("sku-2");
+        var withoutSku = TestDataFactory.createItemForSave(3);
+
+        var inserted = itemRepository.upsertAll(List.of(first, second, withoutSku)).collectList().block();
+        assertThat(inserted).extracting(ItemUpsertRow::inserted).containsExactly(true, true, true);
+        assertThat(inserted).extracting(ItemUpsertRow::position).containsExactly(0, 1, 2);
+
+        var changed = TestDataFactory.createItemForSave(10);
+        changed.setSku("sku-1");
+        var unchanged = TestDataFactory.createItemForSave(2);
+        unchanged.setSku("sku-2");
+
+        var updated = itemRepository.upsertAll(List.of(changed, unchanged)).collectList().block();
+        assertThat(updated).singleElement().satisfies(row -> {
+            assertThat(row.inserted()).isFalse();
+            assertThat(row.id()).isEqualTo(inserted.getFirst().id());
+            assertThat(row.position()).isZero();
+        });
+
+        var all = itemRepository.findAll().collectList().block();
+        assertThat(all).hasSize(3);
+        assertThat(all)
+                .filteredOn(item -> "sku-1".equals(item.getSku()))
+                .singleElement()
+                .satisfies(item -> {
+                    assertThat(item.getTitle()).isEqualTo("title10");
+                    assertThat(item.getPrice()).isEqualTo(1000L);
+                    assertThat(item.getImgPath()).isEqualTo("imgPath1");
+                });
+    }
+
+    @Test
+    @DisplayName("upsertAll updates content hash and findContentHashesBySkuIn returns it")
+    void test5() {
+        var item = TestDataFactory.createItemForSave(1);
+        item.setSku("sku-1");
+        item.setContentHash(1L);
+        var withoutHash = TestDataFactory.createItemForSave(2);
+        withoutHash.setSku("sku-2");
+        itemRepository.upsertAll(List.of(item, withoutHash)).blockLast();
+
+        var sameData = TestDataFactory.createItemForSave(1);
+        sameData.setSku("sku-1");
+        sameData.setContentHash(2L);
+        var updated = itemRepository.upsertAll(List.of(sameData)).collectList().block();
+        assertThat(updated).extracting(ItemUpsertRow::inserted).containsExactly(false);
+
+        var hashes = itemRepository.findContentHashesBySkuIn(List.of("sku-1", "sku-2", "sku-3")).collectList().block();
+        assertThat(hashes).containsExactlyInAnyOrder(
+                new ItemContentHashRow("sku-1", 2L),
+                new ItemContentHashRow("sku-2", null)
+        );
+    }
+
+    @Test
+    @DisplayName("findPageAfterBySearch pages matches by title or sku in id order")
+    void test6() {
+        var items = TestDataFactory.createItemsForSave(12);
+        items.get(3).setTitle("Ball");
+        items.get(3).setSku("BALL-1");
+        items.get(4).setTitle("100% cotton");
+        var saved = itemRepository.saveAll(items).collectList().block();
+
+        var firstPage = itemRepository.findPageAfterBySearch(0, "%title1%", 2).collectList().block();
+        assertThat(firstPage).extracting(Item::getTitle).containsExactly("title1", "title10");
+
+        var nextPage = itemRepository.findPageAfterBySearch(firstPage.getLast().getId(), "%title1%", 2)
+                .collectList().block();
+        assertThat(nextPage).extracting(Item::getTitle).containsExactly("title11", "title12");
+
+        var bySku = itemRepository.findPageAfterBySearch(0, "%ball-%", 10).collectList().block();
+        assertThat(bySku).extracting(Item::getId).containsExactly(saved.get(3).getId());
+
+        var escaped = itemRepository.findPageAfterBySearch(0, "%0\\%%", 10).collectList().block();
+        assertThat(escaped).extracting(Item::getTitle).containsExactly("100% cotton");
+    }
+
+    @Test
+    @DisplayName("updateImageVariants only for the current image")
+    void test7() {
+        var saved = itemRepository.save(TestDataFactory.createItemForSave(1)).block();
+
+        var stale = itemRepository.updateImageVariants(saved.getId(), "/images/old.png", "/images/old-thumb.jpg", "/images/old-card.jpg")
+                .block();
+        var current = itemRepository.updateImageVariants(saved.getId(), saved.getImgPath(), "/images/new-thumb.jpg", "/images/new-card.jpg")
+                .block();
+
+        assertThat(stale).isZero();
+        assertThat(current).isEqualTo(1);
+        var reloaded = itemRepository.findById(saved.getId()).block();
+        assertThat(reloaded.getImgThumbnailPath()).isEqualTo("/images/new-thumb.jpg");
+        assertThat(reloaded.getImgCardPath()).isEqualTo("/images/new-card.jpg");
+    }
+
+    @Test
+    @DisplayName("updateImagePaths updates a batch and resets variants")
+    void test8() {
+        var items = TestDataFactory.createItemsForSave(3);
+        items.get(1).setSku("SKU-2");
+        var saved = itemRepository.saveAll(items).collectList().block();
+        var first = saved.get(0);
+        var second = saved.get(1);
+        itemRepository.updateImageVariants(first.getId(), first.getImgPath(), "/images/t.jpg", "/images/c.jpg").block();
+
+        var bySku = itemRepository.findBySkuIn(List.of("SKU-2", "unknown")).collectList().block();
+        var updated = itemRepository.updateImagePaths(
+                new Long[]{first.getId(), second.getId()},
+                new String[]{"/images/a.png", "/images/b.png"}).block();
+
+        assertThat(bySku).extracting(Item::getId).containsExactly(second.getId());
+        assertThat(updated).isEqualTo(2);
+        var reloadedFirst = itemRepository.findById(first.getId()).block();
+        assertThat(reloadedFirst.getImgPath()).isEqualTo("/images/a.png");
+        assertThat(reloadedFirst.getImgThumbnailPath()).isNull();
+        assertThat(reloadedFirst.getImgCardPath()).isNull();
+        assertThat(itemRepository.findById(second.getId()).block().getImgPath()).isEqualTo("/images/b.png");
+        assertThat(itemRepository.findById(saved.get(2).getId()).block().getImgPath()).isEqualTo(saved.get(2).getImgPath());
+    }
+
+    @Test
+    @DisplayName("findPage and countMatching filter by search and price range")
+    void test9() {
+        itemRepository.saveAll(TestDataFactory.createItemsForSave(5)).collectList().block();
+        var pageable = PageRequest.of(0, 10, Sort.by("price"));
+
+        var inRange = itemRepository.findPage(null, 200L, 400L, pageable).collectList().block();
+        var fromOnly = itemRepository.countMatching(null, 400L, null).block();
+        var withSearch = itemRepository.findPage("TITLE", null, 300L, pageable).collectList().block();
+
+        assertThat(inRange).extracting(Item::getPrice).containsExactly(200L, 300L, 400L);
+        assertThat(fromOnly).isEqualTo(2L);
+        assertThat(withSearch).extracting(Item::getPrice).containsExactly(100L, 200L, 300L);
+    }
+
+    @Test
+    @DisplayName("price histogram follows inserts, price updates and deletes")
+    void test10() {
+        var saved = itemRepository.saveAll(TestDataFactory.createItemsForSave(6)).collectList().block();
+        var cheap = saved.get(0);
+        cheap.setPrice(12_000L);
+        itemRepository.save(cheap).block();
+        itemRepository.deleteById(saved.get(5).getId()).block();
+
+        var histogram = itemRepository.findPriceHistogram().collectList().block();
+
+        assertThat(histogram).extracting(PriceBucketRow::lowerBound).containsExactly(0L, 500L, 1000L, 2500L, 5000L, 10000L);
+        assertThat(histogram).extracting(PriceBucketRow::itemCount).containsExactly(4L, 0L, 0L, 0L, 0L, 1L);
+        assertThat(histogram.getLast().upperBound()).isNull();
+    }
+
+    @Test
+    @DisplayName("replaceTags replaces tags of given items only and feeds the facet queries")
+    void test11() {
+        var saved = itemRepository.saveAll(TestDataFactory.createItemsForSave(3)).collectList().block();
+        var first = saved.get(0).getId();
+        var second = saved.get(1).getId();
+        var third = saved.get(2).getId();
+        itemRepository.replaceTags(new Long[]{first, first, second}, new String[]{"sale", "kitchen", "sale"}).block();
+
+        var replaced = itemRepository.replaceTags(new Long[]{first, third}, new String[]{"toys", "toys"}).block();
+
+        assertThat(replaced).isEqualTo(2);
+        assertThat(itemRepository.findAllTags().collectList().block()).containsExactly(
+                new ItemTagRow(second, "sale"),
+                new ItemTagRow(first, "toys"),
+                new ItemTagRow(third, "toys")
+        );
+        assertThat(itemRepository.findTagsByItemIdIn(List.of(first, second)).collectList().block()).containsExactly(
+                new ItemTagRow(first, "toys"),
+                new ItemTagRow(second, "sale")
+        );
+
+        itemRepository.deleteById(third).block();
+        assertThat(itemRepository.findAllTags().collectList().block())
+                .extracting(ItemTagRow::itemId)
+                .containsExactly(second, first);
+        assertThat(itemRepository.findIdsOrderByTitle().collectList().block()).containsExactly(first, second);
+        assertThat(itemRepository.findPricesOrderByPrice().collectList().block()).containsExactly(
+                new ItemPriceRow(first, saved.get(0).getPrice()),
+                new ItemPriceRow(second, saved.get(1).getPrice())
+        );
+    }
+
+    @Test
+    @DisplayName("addSales accumulates counters and drives popularity order")
+    void test12() {
+        var saved = itemRepository.saveAll(TestDataFactory.createItemsForSave(4)).collectList().block();
+        var first = saved.get(0).getId();
+        var second = saved.get(1).getId();
+        var third = saved.get(2).getId();
+        var unsold = saved.get(3).getId();
+
+        itemRepository.addSales(new Long[]{first, second}, new Integer[]{3, 1}, 0).block();
+        var updated = itemRepository.addSales(new Long[]{second, third}, new Integer[]{1, 2}, Math.log(4)).block();
+
+        assertThat(updated).isEqualTo(2);
+        var units = db.sql("SELECT item_id, units_sold FROM item_sales ORDER BY item_id")
+                .map((row, meta) -> row.get("units_sold", Long.class))
+                .all().collectList().block();
+        assertThat(units).containsExactly(3L, 2L, 2L);
+        // Поздние продажи весят в 4 раза больше: third = 8, second = 1 + 4 = 5, first = 3.
+        var secondScore = db.sql("SELECT score FROM item_sales WHERE item_id = :itemId")
+                .bind("itemId", second)
+                .map((row, meta) -> row.get("score", Double.class))
+                .one().block();
+        assertThat(secondScore).isCloseTo(Math.log(5), within(1e-9));
+
+        var sort = Sort.by(Sort.Order.desc(ItemSearchRepository.POPULARITY), Sort.Order.asc("id"));
+        assertThat(itemRepository.findPage(null, null, null, PageRequest.of(0, 10, sort)).collectList().block())
+                .extracting(Item::getId)
+                .containsExactly(third, second, first, unsold);
+        assertThat(itemRepository.findPage(null, null, null, PageRequest.of(1, 2, sort)).collectList().block())
+                .extracting(Item::getId)
+                .containsExactly(first, unsold);
+        assertThat(itemRepository.findPage(null, null, null, PageRequest.of(3, 1, sort)).collectList().block())
+                .extracting(Item::getId)
+                .containsExactly(unsold);
+        itemRepository.replaceTags(new Long[]{first, second, unsold}, new String[]{"sale", "sale", "sale"}).block();
+        assertThat(itemRepository.findTaggedPage("title", null, null, List.of("sale"), PageRequest.of(0, 10, sort))
+                .collectList().block())
+                .extracting(Item::getId)
+                .containsExactly(second, first, unsold);
+        assertThat(itemRepository.findIdsOrderByPopularity().collectList().block())
+                .containsExactly(third, second, first, unsold);
+    }
+
+    @Test
+    @DisplayName("stock stripes: replace, reserve from one stripe, reserve from all stripes, release")
+    void test13() {
+        var saved = itemRepository.saveAll(TestDataFactory.createItemsForSave(3)).collectList().block();
+        var first = saved.get(0).getId();
+        var second = saved.get(1).getId();
+        var untracked = saved.get(2).getId();
+
+        // 10 на 4 полосы: 3, 3, 2, 2.
+        assertThat(itemRepository.replaceStock(new Long[]{first, second}, new Integer[]{10, 1}, 4).block()).isEqualTo(8);
+        assertThat(itemRepository.findStockByItemIdIn(List.of(first, second, untracked)).collectList().block())
+                .containsExactlyInAnyOrder(new ItemStockRow(first, 10), new ItemStockRow(second, 1));
+
+        // На полосе 2 первого товара только 2 штуки; товар без полос не мешает резерву.
+        assertThat(itemRepository.reserveStockFromStripes(
+                new Long[]{first, untracked}, new Integer[]{2, 0}, new Integer[]{2, 5}).block()).isZero();
+        assertThat(itemRepository.reserveStockFromStripes(
+                new Long[]{first}, new Integer[]{2}, new Integer[]{1}).block()).isEqualTo(1);
+
+        // Второго товара не хватает: первый тоже не списывается.
+        assertThat(itemRepository.reserveStockFromAllStripes(
+                new Long[]{first, second}, new Integer[]{7, 2}).block()).isEqualTo(1);
+        assertThat(itemRepository.findStockByItemIdIn(List.of(first)).collectList().block())
+                .containsExactly(new ItemStockRow(first, 8));
+
+        assertThat(itemRepository.reserveStockFromAllStripes(
+                new Long[]{first, second}, new Integer[]{7, 1}).block()).isZero();
+        assertThat(itemRepository.findStockByItemIdIn(List.of(first, second)).collectList().block())
+                .containsExactlyInAnyOrder(new ItemStockRow(first, 1), new ItemStockRow(second, 0));
+
+        assertThat(itemRepository.releaseStock(new Long[]{first, untracked}, new Integer[]{4, 1}).block()).isEqualTo(1);
+        assertThat(itemRepository.findStockByItemIdIn(List.of(first)).collectList().block())
+                .containsExactly(new ItemStockRow(first, 5));
+
+        // Уменьшение числа полос удаляет лишние.
+        assertThat(itemRepository.replaceStock(new Long[]{first}, new Integer[]{3}, 2).block()).isEqualTo(2);
+        var stripes = db.sql("SELECT quantity FROM item_stock_stripes WHERE item_id = :itemId ORDER BY stripe")
+                .bind("itemId", first)
+                .map((row, meta) -> row.get("quantity", Integer.class))
+                .all().collectList().block();
+        assertThat(stripes).containsExactly(2, 1);
+    }
+
+    @Test
+    @DisplayName("upsertAll returns positions that match written items without sku")
+    void test14() {
+        var items = TestDataFactory.createItemsForSave(20);
+        items.get(7).setSku("sku-7");
+
+        var written = itemRepository.upsertAll(items).collectList().block();
+
+        assertThat(written).hasSize(20);
+        var titleById = itemRepository.findAll().collectMap(Item::getId, Item::getTitle).block();
+        assertThat(written).allSatisfy(row ->
+                assertThat(titleById.get(row.id())).isEqualTo(items.get(row.position()).getTitle()));
+        assertThat(written).extracting(ItemUpsertRow::position).containsExactlyInAnyOrderElementsOf(
+                IntStream.range(0, 20).boxed().toList());
+    }
+
+    @Test
+    @DisplayName("findTaggedPage and countTagged keep items with all tags matching search and price")
+    void test15() {
+        var saved = itemRepository.saveAll(TestDataFactory.createItemsForSave(5)).collectList().block();
+        var ids = saved.stream().map(Item::getId).toList();
+        itemRepository.replaceTags(
+                new Long[]{ids.get(0), ids.get(0), ids.get(1), ids.get(2), ids.get(2), ids.get(3), ids.get(3), ids.get(4)},
+                new String[]{"sale", "toys", "sale", "sale", "toys", "sale", "toys", "toys"}).block();
+        var tags = List.of("sale", "toys");
+        var byPriceDesc = Sort.by(Sort.Order.desc("price"));
+
+        assertThat(itemRepository.findTaggedPage("title", 200L, null, tags, PageRequest.of(0, 10, byPriceDesc))
+                .collectList().block())
+                .extracting(Item::getId)
+                .containsExactly(ids.get(3), ids.get(2));
+        assertThat(itemRepository.findTaggedPage(null, null, null, tags, PageRequest.of(1, 2, Sort.by("title")))
+                .collectList().block())
+                .extracting(Item::getId)
+                .containsExactly(ids.get(3));
+        assertThat(itemRepository.countTagged("title", 200L, null, tags).block()).isEqualTo(2);
+        assertThat(itemRepository.countTagged(null, null, null, List.of("sale", "kitchen")).block()).isZero();
+    }
 }
@@ -10,6 +10,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.repository.projection.OrderBasketRow;
 import ru.practicum.market.util.PostgresContainer;
 import ru.practicum.market.util.TestCacheConfig;
 import ru.practicum.market.util.TestDataFactory;
@@ -51,7 +52,8 @@ class OrderItemRepositoryIT {
         var resultMono = itemRepository.save(item)
                 .flatMap(savedItem -> orderRepository.save(order)
                         .flatMap(savedOrder -> {
-                            var orderItem = new OrderItem(savedOrder.getId(), savedItem.getId(), 4, savedItem.getPrice());
+                            var orderItem = new OrderItem(savedOrder.getId(), savedItem.getId(), 4, savedItem.getPrice(),
+                                    savedItem.getTitle(), savedItem.getImgPath());
                             return orderItemRepository.save(orderItem)
                                     .thenMany(orderItemRepository.findByOrderId(savedOrder.getId()))
                                     .collectList();
@@ -64,6 +66,8 @@ class OrderItemRepositoryIT {
         assertThat(entity.getId()).isGreaterThan(0);
         assertThat(entity.getQuantity()).isEqualTo(4);
         assertThat(entity.getPriceAtOrder()).isEqualTo(100L);
+        assertThat(entity.getTitle()).isEqualTo(item.getTitle());
+        assertThat(entity.getImgPath()).isEqualTo(item.getImgPath());
     }
 
     @Test
@@ -80,9 +84,11 @@ class OrderItemRepositoryIT {
                         .flatMap(savedOrders -> {
                             var orderItems = List.of(
                                     new OrderItem(savedOrders.get(0).getId(), savedItems.get(0).getId(), 2,
-                                            savedItems.get(0).getPrice()),
+                                            savedItems.get(0).getPrice(), savedItems.get(0).getTitle(),
+                                            savedItems.get(0).getImgPath()),
                                     new OrderItem(savedOrders.get(1).getId(), savedItems.get(1).getId(), 3,
-                                            savedItems.get(1).getPrice())
+                                            savedItems.get(1).getPrice(), savedItems.get(1).getTitle(),
+                                            savedItems.get(1).getImgPath())
                             );
 
                             return orderItemRepository.saveAll(orderItems)
@@ -103,4 +109,24 @@ class OrderItemRepositoryIT {
                     assertThat(orderItem.getQuantity()).isPositive();
                 });
     }
+
+    @Test
+    @DisplayName("findBasketsOrderByOrderId streams order lines grouped by order")
+    void test3() {
+        var items = itemRepository.saveAll(TestDataFactory.createItemsForSave(3)).collectList().block();
+        var second = orderRepository.save(TestDataFactory.createOrder(300L)).block();
+        var first = orderRepository.save(TestDataFactory.createOrder(600L)).block();
+        orderItemRepository.saveAll(List.of(
+                new OrderItem(first.getId(), items.get(0).getId(), 1, 100L, "t", null),
+                new OrderItem(second.getId(), items.get(1).getId(), 1, 200L, "t", null),
+                new OrderItem(first.getId(), items.get(2).getId(), 1, 300L, "t", null)
+        )).blockLast();
+
+        var rows = orderItemRepository.findBasketsOrderByOrderId().collectList().block();
+
+        assertThat(rows).extracting(OrderBasketRow::orderId)
+                .containsExactly(second.getId(), first.getId(), first.getId());
+        assertThat(rows.subList(1, 3)).extracting(OrderBasketRow::itemId)
+                .containsExactlyInAnyOrder(items.get(0).getId(), items.get(2).getId());
+    }
 }
@@ -9,10 +9,14 @@ import org.springframework.boot.testcontainers.context.ImportTestcontainers;
 import org.springframework.context.annotation.Import;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.repository.projection.OrderHistoryRow;
 import ru.practicum.market.util.PostgresContainer;
 import ru.practicum.market.util.TestCacheConfig;
 import ru.practicum.market.util.TestDataFactory;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @DataR2dbcTest
@@ -25,12 +29,18 @@ class OrderRepositoryIT {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
     @Autowired
     private DatabaseClient db;
 
     @BeforeEach
     void clean() {
-        db.sql("TRUNCATE TABLE order_items, orders RESTART IDENTITY CASCADE").then().block();
+        db.sql("TRUNCATE TABLE order_items, orders, items RESTART IDENTITY CASCADE").then().block();
     }
 
     @Test
@@ -61,4 +71,34 @@ class OrderRepositoryIT {
         assertThat(result.getId()).isGreaterThan(0);
         assertThat(result.getTotalSum()).isEqualTo(order.getTotalSum());
     }
+
+    @Test
+    @DisplayName("findHistoryFirstPage and findHistoryPageAfter")
+    void test3() {
+        var item = itemRepository.save(TestDataFactory.createItemForSave(1)).block();
+        var orders = orderRepository.saveAll(List.of(
+                        TestDataFactory.createOrder(100L),
+                        TestDataFactory.createOrder(200L),
+                        TestDataFactory.createOrder(300L)))
+                .collectList()
+                .block();
+        var newest = orders.getLast();
+        orderItemRepository.save(new OrderItem(newest.getId(), item.getId(), 3, item.getPrice(),
+                item.getTitle(), item.getImgPath())).block();
+
+        var firstPage = orderRepository.findHistoryFirstPage(TestDataFactory.USER_ID, 2).collectList().block();
+
+        assertThat(firstPage).extracting(OrderHistoryRow::id)
+                .containsExactly(orders.get(2).getId(), orders.get(1).getId());
+        assertThat(firstPage.getFirst().items()).contains(item.getTitle());
+        assertThat(firstPage.get(1).items()).isEqualTo("[]");
+
+        var last = firstPage.getLast();
+        var secondPage = orderRepository
+                .findHistoryPageAfter(TestDataFactory.USER_ID, last.createdAt(), last.id(), 2)
+                .collectList()
+                .block();
+
+        assertThat(secondPage).extracting(OrderHistoryRow::id).containsExactly(orders.getFirst().getId());
+    }
 }
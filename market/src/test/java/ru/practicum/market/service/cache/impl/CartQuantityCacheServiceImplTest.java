@@ -0,0 +1,94 @@
+package ru.practicum.market.service.cache.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import reactor.core.publisher.Flux;
+import ru.practicum.market.repository.CartItemRepository;
+import ru.practicum.market.util.TestDataFactory;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CartQuantityCacheServiceImpl")
+class CartQuantityCacheServiceImplTest {
+
+    private static final long USER_ID = TestDataFactory.USER_ID;
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @InjectMocks
+    private CartQuantityCacheServiceImpl service;
+
+    @Nested
+    @DisplayName("getQuantities")
+    class GetQuantities {
+
+        @Test
+        @DisplayName("reads whole cart of user")
+        void test1() {
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(
+                    TestDataFactory.createCartItem(USER_ID, 1L, 2),
+                    TestDataFactory.createCartItem(USER_ID, 5L, 1)
+            ));
+
+            var response = service.getQuantities(USER_ID).block();
+
+            assertThat(response.quantities()).isEqualTo(Map.of(1L, 2, 5L, 1));
+        }
+
+        @Test
+        @DisplayName("empty cart")
+        void test2() {
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.empty());
+
+            var response = service.getQuantities(USER_ID).block();
+
+            assertThat(response.quantities()).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("evictQuantities")
+    class EvictQuantities {
+
+        @Test
+        @DisplayName("evicts each user by id")
+        void test1() {
+            var cache = mock(Cache.class);
+            when(cacheManager.getCache("cart-quantities")).thenReturn(cache);
+
+            service.evictQuantities(List.of(1L, 2L)).block();
+
+            verify(cache).evict(1L);
+            verify(cache).evict(2L);
+        }
+
+        @Test
+        @DisplayName("evicts single user after cart change")
+        void test2() {
+            var cache = mock(Cache.class);
+            when(cacheManager.getCache("cart-quantities")).thenReturn(cache);
+
+            service.evictQuantities(USER_ID).block();
+
+            verify(cache).evict(USER_ID);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import ru.practicum.market.service.cache.ItemCacheService;
 import ru.practicum.market.util.PostgresContainer;
 import ru.practicum.market.util.RedisTestContainer;
 import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.dto.PriceRange;
 
 import java.util.concurrent.TimeUnit;
 
@@ -115,8 +116,8 @@ class ItemCacheServiceIT {
             when(itemRepository.findAllBy(pageable)).thenReturn(Flux.fromIterable(items));
             when(itemRepository.count()).thenReturn(Mono.just(3L));
 
-            var firstResponse = itemCacheService.getItemsPage(null, pageable).block();
-            var secondResponse = itemCacheService.getItemsPage(null, pageable).block();
+            var firstResponse = itemCacheService.getItemsPage(null, PriceRange.ANY, pageable).block();
+            var secondResponse = itemCacheService.getItemsPage(null, PriceRange.ANY, pageable).block();
 
             assertThat(firstResponse).isNotNull();
             assertThat(secondResponse).isNotNull();
@@ -144,8 +145,8 @@ class ItemCacheServiceIT {
                     search
             )).thenReturn(Mono.just(2L));
 
-            var firstResponse = itemCacheService.getItemsPage(search, pageable).block();
-            var secondResponse = itemCacheService.getItemsPage(search, pageable).block();
+            var firstResponse = itemCacheService.getItemsPage(search, PriceRange.ANY, pageable).block();
+            var secondResponse = itemCacheService.getItemsPage(search, PriceRange.ANY, pageable).block();
 
             assertThat(firstResponse).isNotNull();
             assertThat(secondResponse).isNotNull();
@@ -7,19 +7,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.exception.ItemNotFoundException;
 import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.ItemSearchRepository;
+import ru.practicum.market.repository.projection.ItemStockRow;
+import ru.practicum.market.repository.projection.PriceBucketRow;
+import ru.practicum.market.service.cache.dto.ItemCacheDto;
+import ru.practicum.market.service.cache.dto.PriceBucketCacheDto;
 import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.dto.PriceRange;
 
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -32,6 +43,9 @@ class ItemCacheServiceImplTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private CacheManager cacheManager;
+
     @InjectMocks
     private ItemCacheServiceImpl service;
 
@@ -83,7 +97,7 @@ class ItemCacheServiceImplTest {
             when(itemRepository.countByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(search, search))
                     .thenReturn(Mono.just(2L));
 
-            var response = service.getItemsPage(search, pageable).block();
+            var response = service.getItemsPage(search, PriceRange.ANY, pageable).block();
 
             assertThat(response).isNotNull();
             assertThat(response.items()).hasSize(2);
@@ -106,7 +120,7 @@ class ItemCacheServiceImplTest {
             when(itemRepository.findAllBy(pageable)).thenReturn(Flux.fromIterable(items));
             when(itemRepository.count()).thenReturn(Mono.just(3L));
 
-            var response = service.getItemsPage(search, pageable).block();
+            var response = service.getItemsPage(search, PriceRange.ANY, pageable).block();
 
             assertThat(response).isNotNull();
             assertThat(response.items()).hasSize(3);
@@ -127,9 +141,83 @@ class ItemCacheServiceImplTest {
             when(itemRepository.count()).thenReturn(Mono.just(0L));
 
             assertThatExceptionOfType(IllegalStateException.class)
-                    .isThrownBy(() -> service.getItemsPage(null, pageable).block())
+                    .isThrownBy(() -> service.getItemsPage(null, PriceRange.ANY, pageable).block())
                     .withMessage("db error");
         }
+
+        @Test
+        @DisplayName("uses filtered query when price range is set")
+        void test4() {
+            var search = "title";
+            var price = new PriceRange(100L, null);
+            Pageable pageable = PageRequest.of(0, 5);
+            var items = TestDataFactory.createItems(2);
+
+            when(itemRepository.findPage(search, 100L, null, pageable)).thenReturn(Flux.fromIterable(items));
+            when(itemRepository.countMatching(search, 100L, null)).thenReturn(Mono.just(2L));
+
+            var response = service.getItemsPage(search, price, pageable).block();
+
+            assertThat(response.items()).hasSize(2);
+            assertThat(response.itemsCount()).isEqualTo(2L);
+            verify(itemRepository, never())
+                    .findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(search, search, pageable);
+        }
+
+        @Test
+        @DisplayName("uses filtered query when sorted by popularity")
+        void test5() {
+            Pageable pageable = PageRequest.of(0, 5, Sort.by(Sort.Order.desc(ItemSearchRepository.POPULARITY)));
+            var items = TestDataFactory.createItems(2);
+
+            when(itemRepository.findPage(null, null, null, pageable)).thenReturn(Flux.fromIterable(items));
+            when(itemRepository.countMatching(null, null, null)).thenReturn(Mono.just(2L));
+
+            var response = service.getItemsPage(null, PriceRange.ANY, pageable).block();
+
+            assertThat(response.items()).hasSize(2);
+            verify(itemRepository, never()).findAllBy(pageable);
+        }
+    }
+
+    @Nested
+    @DisplayName("getTaggedItemsPage")
+    class GetTaggedItemsPage {
+
+        @Test
+        @DisplayName("reads page and count filtered by tags")
+        void test1() {
+            Pageable pageable = PageRequest.of(1, 2, Sort.by("title"));
+            var tags = List.of("sale", "toys");
+            var items = TestDataFactory.createItems(2);
+
+            when(itemRepository.findTaggedPage("title", 100L, null, tags, pageable)).thenReturn(Flux.fromIterable(items));
+            when(itemRepository.countTagged("title", 100L, null, tags)).thenReturn(Mono.just(4L));
+
+            var response = service.getTaggedItemsPage("title", new PriceRange(100L, null), tags, pageable).block();
+
+            assertThat(response.items()).extracting(ItemCacheDto::id).containsExactly(1L, 2L);
+            assertThat(response.itemsCount()).isEqualTo(4L);
+        }
+    }
+
+    @Nested
+    @DisplayName("getPriceHistogram")
+    class GetPriceHistogram {
+
+        @Test
+        @DisplayName("reads precomputed buckets")
+        void test1() {
+            when(itemRepository.findPriceHistogram()).thenReturn(Flux.just(
+                    new PriceBucketRow(0, 500L, 3),
+                    new PriceBucketRow(500, null, 1)));
+
+            var response = service.getPriceHistogram().block();
+
+            assertThat(response.buckets()).containsExactly(
+                    new PriceBucketCacheDto(0, 500L, 3),
+                    new PriceBucketCacheDto(500, null, 1));
+        }
     }
 
     @Nested
@@ -165,4 +253,38 @@ class ItemCacheServiceImplTest {
                     .withMessage("db error");
         }
     }
+
+    @Nested
+    @DisplayName("getStock")
+    class GetStock {
+
+        @Test
+        @DisplayName("returns stock of tracked items only")
+        void test1() {
+            var ids = List.of(1L, 2L);
+            when(itemRepository.findStockByItemIdIn(ids)).thenReturn(Flux.just(new ItemStockRow(2L, 5)));
+
+            var response = service.getStock(ids).block();
+
+            assertThat(response.stock()).containsExactly(entry(2L, 5));
+        }
+    }
+
+    @Nested
+    @DisplayName("evictItems")
+    class EvictItems {
+
+        @Test
+        @DisplayName("evicts each item by id")
+        void test1() {
+            var cache = mock(Cache.class);
+            when(cacheManager.getCache("item")).thenReturn(cache);
+
+            service.evictItems(List.of(1L, 2L)).block();
+
+            verify(cache).evict(1L);
+            verify(cache).evict(2L);
+            verify(cache, never()).clear();
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package ru.practicum.market.service.cache.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.repository.OrderItemRepository;
+import ru.practicum.market.repository.OrderRepository;
+import ru.practicum.market.util.TestDataFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OrderCacheServiceImpl")
+class OrderCacheServiceImplTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @InjectMocks
+    private OrderCacheServiceImpl service;
+
+    @Nested
+    @DisplayName("findOrder")
+    class FindOrder {
+
+        @Test
+        @DisplayName("returns order with owner from repository")
+        void test1() {
+            var order = TestDataFactory.createOrder(1L, 200L);
+            var orderItem = new OrderItem(1L, 5L, 2, 100L, "title5", "imgPath5");
+            when(orderRepository.findById(1L)).thenReturn(Mono.just(order));
+            when(orderItemRepository.findByOrderId(1L)).thenReturn(Flux.just(orderItem));
+
+            var response = service.findOrder(1L).block();
+
+            assertThat(response).isNotNull();
+            assertThat(response.userId()).isEqualTo(TestDataFactory.USER_ID);
+            assertThat(response.order().id()).isEqualTo(1L);
+            assertThat(response.order().totalSum()).isEqualTo(200L);
+            assertThat(response.order().items()).hasSize(1);
+            assertThat(response.order().items().getFirst().title()).isEqualTo("title5");
+            assertThat(response.order().items().getFirst().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("empty when order does not exist")
+        void test2() {
+            when(orderRepository.findById(99L)).thenReturn(Mono.empty());
+
+            var response = service.findOrder(99L).block();
+
+            assertThat(response).isNull();
+            verify(orderItemRepository, never()).findByOrderId(anyLong());
+        }
+    }
+}
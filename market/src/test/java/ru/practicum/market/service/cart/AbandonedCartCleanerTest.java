@@ -0,0 +1,85 @@
+package ru.practicum.market.service.cart;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.repository.CartItemRepository;
+import ru.practicum.market.service.cache.CartQuantityCacheService;
+
+import java.time.Duration;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AbandonedCartCleaner")
+class AbandonedCartCleanerTest {
+
+    @Mock
+    private CartItemRepository cartItemRepository;
+
+    @Mock
+    private CartQuantityCacheService cartQuantityCacheService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private AbandonedCartCleaner cleaner;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cleaner, "maxAge", Duration.ofDays(30));
+        ReflectionTestUtils.setField(cleaner, "batchSize", 2);
+        ReflectionTestUtils.setField(cleaner, "batchPause", Duration.ZERO);
+    }
+
+    @Nested
+    @DisplayName("cleanup")
+    class Cleanup {
+
+        @Test
+        @DisplayName("deletes batches until a batch is not full")
+        void test1() {
+            when(cartItemRepository.deleteAbandonedCarts(any(), eq(2)))
+                    .thenReturn(Flux.just(1L, 1L, 2L), Flux.just(3L));
+            when(cartQuantityCacheService.evictQuantities(any())).thenReturn(Mono.empty());
+
+            var deleted = cleaner.cleanup().block();
+
+            assertThat(deleted).isEqualTo(3L);
+            verify(cartItemRepository, times(2)).deleteAbandonedCarts(any(), eq(2));
+            verify(cartQuantityCacheService).evictQuantities(Set.of(1L, 2L));
+            verify(cartQuantityCacheService).evictQuantities(Set.of(3L));
+            assertThat(meterRegistry.counter(AbandonedCartCleaner.BATCHES_METRIC).count()).isEqualTo(2);
+            assertThat(meterRegistry.counter(AbandonedCartCleaner.CARTS_METRIC).count()).isEqualTo(3);
+            assertThat(meterRegistry.counter(AbandonedCartCleaner.ITEMS_METRIC).count()).isEqualTo(4);
+            assertThat(meterRegistry.timer(AbandonedCartCleaner.RUN_METRIC).count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("nothing to delete")
+        void test2() {
+            when(cartItemRepository.deleteAbandonedCarts(any(), eq(2))).thenReturn(Flux.empty());
+
+            var deleted = cleaner.cleanup().block();
+
+            assertThat(deleted).isZero();
+            verifyNoInteractions(cartQuantityCacheService);
+        }
+    }
+}
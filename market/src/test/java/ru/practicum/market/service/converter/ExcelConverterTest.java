@@ -0,0 +1,110 @@
+package ru.practicum.market.service.converter;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DisplayName("ExcelConverter")
+class ExcelConverterTest {
+
+    private final ExcelConverter converter = new ExcelConverter();
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("readItems")
+    class ReadItems {
+
+        @Test
+        @DisplayName("reads rows and skips empty ones")
+        void test1() throws IOException {
+            var file = file(workbook("Items", List.of(
+                    List.of("Price", "Title", "Description"),
+                    List.of(100, "title1", "description1"),
+                    List.of(),
+                    List.of(250, "title2", "description2")
+            )));
+
+            var items = converter.readItems(file).collectList().block();
+
+            assertThat(items).extracting(Item::getTitle).containsExactly("title1", "title2");
+            assertThat(items).extracting(Item::getDescription).containsExactly("description1", "description2");
+            assertThat(items).extracting(Item::getPrice).containsExactly(100L, 250L);
+        }
+
+        @Test
+        @DisplayName("cancel after first row")
+        void test2() throws IOException {
+            var file = file(workbook("Items", List.of(
+                    List.of("Title", "Description", "Price"),
+                    List.of("title1", "description1", 100),
+                    List.of("title2", "description2", 200)
+            )));
+
+            var items = converter.readItems(file).take(1).collectList().block();
+
+            assertThat(items).extracting(Item::getTitle).containsExactly("title1");
+        }
+
+        @Test
+        @DisplayName("missing required column")
+        void test3() throws IOException {
+            var file = file(workbook("Items", List.of(
+                    List.of("Title", "Price"),
+                    List.of("title1", 100)
+            )));
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(file).blockLast())
+                    .withMessageContaining("DESCRIPTION");
+        }
+
+        @Test
+        @DisplayName("missing sheet")
+        void test4() throws IOException {
+            var file = file(workbook("Other", List.of(List.of("Title", "Description", "Price"))));
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(file).blockLast())
+                    .withMessageContaining("Sheet 'Items' not found");
+        }
+    }
+
+    private static byte[] workbook(String sheetName, List<List<Object>> rows) throws IOException {
+        try (var workbook = new XSSFWorkbook(); var out = new ByteArrayOutputStream()) {
+            var sheet = workbook.createSheet(sheetName);
+            for (int r = 0; r < rows.size(); r++) {
+                var row = sheet.createRow(r);
+                var values = rows.get(r);
+                for (int c = 0; c < values.size(); c++) {
+                    var cell = row.createCell(c);
+                    if (values.get(c) instanceof Number number) {
+                        cell.setCellValue(number.doubleValue());
+                    } else {
+                        cell.setCellValue(values.get(c).toString());
+                    }
+                }
+            }
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private Path file(byte[] content) throws IOException {
+        return Files.write(tempDir.resolve("items.xlsx"), content);
+    }
+}
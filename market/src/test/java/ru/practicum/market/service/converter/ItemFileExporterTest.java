@@ -0,0 +1,119 @@
+package ru.practicum.market.service.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.util.TestDataFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ItemFileExporter")
+class ItemFileExporterTest {
+
+    private final ItemFileExporter exporter = new ItemFileExporter();
+    private final ExcelConverter excelConverter = new ExcelConverter();
+    private final TextItemConverter textItemConverter = new TextItemConverter(new ObjectMapper());
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("csv")
+    class Csv {
+
+        @Test
+        @DisplayName("writes import header and quotes special characters")
+        void test1() {
+            var item = TestDataFactory.createItem(1L);
+            item.setDescription("Кожаный, \"классический\"");
+
+            var csv = new String(bytes(exporter.export(Flux.just(item), ItemFileFormat.CSV, factory())),
+                    StandardCharsets.UTF_8);
+
+            assertThat(csv).isEqualTo("\uFEFFTitle,Description,Price,SKU,Tags,Stock\r\n"
+                    + "title1,\"Кожаный, \"\"классический\"\"\",100,sku1,,\r\n");
+        }
+
+        @Test
+        @DisplayName("round-trips through import")
+        void test2() {
+            var items = items();
+
+            var content = exporter.export(Flux.fromIterable(items), ItemFileFormat.CSV, factory());
+            var imported = textItemConverter.readItems(content, ItemFileFormat.CSV).collectList().block();
+
+            assertRoundTrip(imported, items);
+        }
+    }
+
+    @Nested
+    @DisplayName("xlsx")
+    class Xlsx {
+
+        @Test
+        @DisplayName("round-trips through import")
+        void test1() throws IOException {
+            var items = items();
+
+            var file = Files.write(tempDir.resolve("items.xlsx"),
+                    bytes(exporter.export(Flux.fromIterable(items), ItemFileFormat.XLSX, factory())));
+            var imported = excelConverter.readItems(file).collectList().block();
+
+            assertRoundTrip(imported, items);
+        }
+
+        @Test
+        @DisplayName("empty catalog has only header")
+        void test2() throws IOException {
+            var file = Files.write(tempDir.resolve("empty.xlsx"),
+                    bytes(exporter.export(Flux.empty(), ItemFileFormat.XLSX, factory())));
+
+            assertThat(excelConverter.readItems(file).collectList().block()).isEmpty();
+        }
+    }
+
+    private static List<Item> items() {
+        var items = TestDataFactory.createItems(3);
+        items.get(0).setDescription("line1\nline2, \"quoted\"");
+        items.get(1).setSku(null);
+        items.get(2).setTags(List.of("kitchen", "sale"));
+        items.get(2).setStock(12);
+        return items;
+    }
+
+    private static void assertRoundTrip(List<Item> imported, List<Item> exported) {
+        assertThat(imported).hasSameSizeAs(exported);
+        assertThat(imported).extracting(Item::getTitle).containsExactlyElementsOf(exported.stream().map(Item::getTitle).toList());
+        assertThat(imported).extracting(Item::getDescription)
+                .containsExactlyElementsOf(exported.stream().map(Item::getDescription).toList());
+        assertThat(imported).extracting(Item::getPrice).containsExactlyElementsOf(exported.stream().map(Item::getPrice).toList());
+        assertThat(imported).extracting(Item::getSku).containsExactlyElementsOf(exported.stream().map(Item::getSku).toList());
+        assertThat(imported).extracting(Item::getTags).containsExactlyElementsOf(exported.stream().map(Item::getTags).toList());
+        assertThat(imported).extracting(Item::getStock).containsExactlyElementsOf(exported.stream().map(Item::getStock).toList());
+    }
+
+    private static DefaultDataBufferFactory factory() {
+        return DefaultDataBufferFactory.sharedInstance;
+    }
+
+    private static byte[] bytes(Flux<DataBuffer> content) {
+        var joined = DataBufferUtils.join(content).block();
+        var bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+}
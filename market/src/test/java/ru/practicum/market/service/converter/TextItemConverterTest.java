@@ -0,0 +1,184 @@
+package ru.practicum.market.service.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DisplayName("TextItemConverter")
+class TextItemConverterTest {
+
+    private final TextItemConverter converter = new TextItemConverter(new ObjectMapper());
+
+    @Nested
+    @DisplayName("csv")
+    class Csv {
+
+        @Test
+        @DisplayName("reads rows split across buffers")
+        void test1() {
+            var csv = """
+                    \uFEFFPrice,Title,Description,SKU\r
+                    100,Мяч,"Кожаный, размер 5",sku-1\r
+                    \r
+                    250,"Кружка ""Утро""",Керамика,\r
+                    """;
+
+            var items = converter.readItems(content(csv, 7), ItemFileFormat.CSV).collectList().block();
+
+            assertThat(items).extracting(Item::getTitle).containsExactly("Мяч", "Кружка \"Утро\"");
+            assertThat(items).extracting(Item::getDescription).containsExactly("Кожаный, размер 5", "Керамика");
+            assertThat(items).extracting(Item::getPrice).containsExactly(100L, 250L);
+            assertThat(items).extracting(Item::getSku).containsExactly("sku-1", null);
+        }
+
+        @Test
+        @DisplayName("semicolon delimiter and line break inside quotes")
+        void test2() {
+            var csv = "Title;Description;Price\ntitle1;\"line1\nline2\";100\ntitle2;description2;200";
+
+            var items = converter.readItems(content(csv, 5), ItemFileFormat.CSV).collectList().block();
+
+            assertThat(items).extracting(Item::getDescription).containsExactly("line1\nline2", "description2");
+            assertThat(items).extracting(Item::getPrice).containsExactly(100L, 200L);
+        }
+
+        @Test
+        @DisplayName("missing required column")
+        void test3() {
+            var csv = "Title,Price\ntitle1,100\n";
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(content(csv, 64), ItemFileFormat.CSV).blockLast())
+                    .withMessageContaining("DESCRIPTION");
+        }
+
+        @Test
+        @DisplayName("invalid price")
+        void test4() {
+            var csv = "Title,Description,Price\ntitle1,description1,abc\n";
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(content(csv, 64), ItemFileFormat.CSV).blockLast())
+                    .withMessageContaining("line 2");
+        }
+
+        @Test
+        @DisplayName("unterminated quote")
+        void test5() {
+            var csv = "Title,Description,Price\ntitle1,\"description1,100\n";
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(content(csv, 64), ItemFileFormat.CSV).blockLast())
+                    .withMessageContaining("Unterminated");
+        }
+
+        @Test
+        @DisplayName("tags are normalized, empty cell keeps tags")
+        void test6() {
+            var csv = "Title,Description,Price,Tags\ntitle1,description1,100,\"Sale; kitchen|SALE, \"\ntitle2,description2,200,\n";
+
+            var items = converter.readItems(content(csv, 16), ItemFileFormat.CSV).collectList().block();
+
+            assertThat(items).extracting(Item::getTags).containsExactly(List.of("kitchen", "sale"), null);
+        }
+
+        @Test
+        @DisplayName("stock is optional, empty cell keeps stock")
+        void test7() {
+            var csv = "Title,Description,Price,Stock\ntitle1,description1,100,15\ntitle2,description2,200,\n";
+
+            var items = converter.readItems(content(csv, 16), ItemFileFormat.CSV).collectList().block();
+
+            assertThat(items).extracting(Item::getStock).containsExactly(15, null);
+        }
+
+        @Test
+        @DisplayName("fractional stock")
+        void test8() {
+            var csv = "Title,Description,Price,Stock\ntitle1,description1,100,1.5\n";
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(content(csv, 64), ItemFileFormat.CSV).blockLast())
+                    .withMessageContaining("STOCK");
+        }
+
+        @Test
+        @DisplayName("unterminated quote does not buffer the rest of file")
+        void test9() {
+            var csv = "Title,Description,Price\ntitle1,\"description1,100\n"
+                    + "title2,description2,200\n".repeat(50_000);
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(content(csv, 64 * 1024), ItemFileFormat.CSV).blockLast())
+                    .withMessageContaining("Record starting at line 2 is longer than");
+        }
+    }
+
+    @Nested
+    @DisplayName("ndjson")
+    class Ndjson {
+
+        @Test
+        @DisplayName("reads objects and skips empty lines")
+        void test1() {
+            var ndjson = """
+                    {"title":"Мяч","description":"Кожаный","price":100,"sku":"sku-1","color":"red"}
+
+                    {"Title":"Кружка","Description":"Керамика","Price":"250.0","SKU":null}
+                    """;
+
+            var items = converter.readItems(content(ndjson, 3), ItemFileFormat.NDJSON).collectList().block();
+
+            assertThat(items).extracting(Item::getTitle).containsExactly("Мяч", "Кружка");
+            assertThat(items).extracting(Item::getPrice).containsExactly(100L, 250L);
+            assertThat(items).extracting(Item::getSku).containsExactly("sku-1", null);
+        }
+
+        @Test
+        @DisplayName("missing required field")
+        void test2() {
+            var ndjson = "{\"title\":\"Мяч\",\"price\":100}\n";
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(content(ndjson, 64), ItemFileFormat.NDJSON).blockLast())
+                    .withMessageContaining("DESCRIPTION");
+        }
+
+        @Test
+        @DisplayName("invalid json")
+        void test3() {
+            var ndjson = "{\"title\":\"Мяч\",\"description\":\"d\",\"price\":100}\n[1,2]\n";
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> converter.readItems(content(ndjson, 64), ItemFileFormat.NDJSON).blockLast())
+                    .withMessageContaining("line 2");
+        }
+    }
+
+    /**
+     * Делит текст на буферы указанного размера, чтобы строки и многобайтные символы разрывались границами буферов.
+     */
+    private static Flux<DataBuffer> content(String text, int chunkSize) {
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int from = 0; from < bytes.length; from += chunkSize) {
+            var chunk = Arrays.copyOfRange(bytes, from, Math.min(from + chunkSize, bytes.length));
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+        return Flux.fromIterable(buffers);
+    }
+}
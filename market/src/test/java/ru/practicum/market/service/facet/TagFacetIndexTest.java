@@ -0,0 +1,111 @@
+package ru.practicum.market.service.facet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.projection.ItemPriceRow;
+import ru.practicum.market.repository.projection.ItemTagRow;
+import ru.practicum.market.web.dto.PriceRange;
+import ru.practicum.market.web.dto.enums.SortMethod;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TagFacetIndex")
+class TagFacetIndexTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @InjectMocks
+    private TagFacetIndex index;
+
+    // Каталог из пяти товаров: kitchen — 1, 2, 3; sale — 2, 3, 5; toys — 4.
+    // По названию: 3, 1, 5, 2, 4; по цене: 4 (100), 2 (200), 3 (300), 1 (400), 5 (500); по популярности: 5, 2, 1, 3, 4.
+    @BeforeEach
+    void setUp() {
+        when(itemRepository.findAllTags()).thenReturn(Flux.just(
+                new ItemTagRow(1L, "kitchen"), new ItemTagRow(2L, "kitchen"), new ItemTagRow(3L, "kitchen"),
+                new ItemTagRow(2L, "sale"), new ItemTagRow(3L, "sale"), new ItemTagRow(5L, "sale"),
+                new ItemTagRow(4L, "toys"),
+                // Товар удален между запросами снимка.
+                new ItemTagRow(6L, "toys")
+        ));
+        when(itemRepository.findIdsOrderByTitle()).thenReturn(Flux.just(3L, 1L, 5L, 2L, 4L));
+        when(itemRepository.findPricesOrderByPrice()).thenReturn(Flux.just(
+                new ItemPriceRow(4L, 100L), new ItemPriceRow(2L, 200L), new ItemPriceRow(3L, 300L),
+                new ItemPriceRow(1L, 400L), new ItemPriceRow(5L, 500L)
+        ));
+        when(itemRepository.findIdsOrderByPopularity()).thenReturn(Flux.just(5L, 2L, 1L, 3L, 4L));
+        index.refresh().block();
+    }
+
+    @Nested
+    @DisplayName("select")
+    class Select {
+
+        @Test
+        @DisplayName("intersects tags")
+        void test1() {
+            assertThat(index.select(List.of("sale", "kitchen"), PriceRange.ANY).toArray()).containsExactly(2, 3);
+        }
+
+        @Test
+        @DisplayName("intersects tags with price range")
+        void test2() {
+            assertThat(index.select(List.of("sale"), new PriceRange(250L, null)).toArray()).containsExactly(3, 5);
+            assertThat(index.select(List.of(), new PriceRange(null, 200L)).toArray()).containsExactly(2, 4);
+        }
+
+        @Test
+        @DisplayName("unknown tag selects nothing, no filters select all")
+        void test3() {
+            assertThat(index.select(List.of("kitchen", "unknown"), PriceRange.ANY).isEmpty()).isTrue();
+            assertThat(index.select(List.of(), PriceRange.ANY).toArray()).containsExactly(1, 2, 3, 4, 5);
+        }
+    }
+
+    @Nested
+    @DisplayName("facets")
+    class Facets {
+
+        @Test
+        @DisplayName("counts selection per tag")
+        void test1() {
+            var selection = index.select(List.of("sale"), PriceRange.ANY);
+
+            assertThat(index.facets(selection)).containsExactly(
+                    new TagFacet("kitchen", 2),
+                    new TagFacet("sale", 3),
+                    new TagFacet("toys", 0)
+            );
+        }
+    }
+
+    @Nested
+    @DisplayName("page")
+    class Page {
+
+        @Test
+        @DisplayName("pages selection by id, title, price and popularity")
+        void test1() {
+            var selection = index.select(List.of("sale"), PriceRange.ANY);
+
+            assertThat(index.page(selection, SortMethod.NO, 1, 5)).containsExactly(3L, 5L);
+            assertThat(index.page(selection, SortMethod.ALPHA, 0, 2)).containsExactly(3L, 5L);
+            assertThat(index.page(selection, SortMethod.PRICE, 1, 2)).containsExactly(3L, 5L);
+            assertThat(index.page(selection, SortMethod.PRICE, 3, 2)).isEmpty();
+            assertThat(index.page(selection, SortMethod.POPULAR, 0, 5)).containsExactly(5L, 2L, 3L);
+        }
+    }
+}
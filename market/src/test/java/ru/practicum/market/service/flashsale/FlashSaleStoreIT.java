@@ -0,0 +1,198 @@
+package ru.practicum.market.service.flashsale;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.redis.DataRedisTest;
+import org.springframework.boot.testcontainers.context.ImportTestcontainers;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.util.RedisTestContainer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DataRedisTest(properties = {"items.flash-sale.claim-ttl=PT1S", "items.flash-sale.max-per-buyer=2"})
+@Testcontainers
+@ImportTestcontainers(RedisTestContainer.class)
+@Import(FlashSaleStore.class)
+@DisplayName("FlashSaleStore")
+class FlashSaleStoreIT {
+
+    private static final long ITEM_ID = 7L;
+    private static final int UNITS = 500;
+    private static final int BUYERS = 5_000;
+
+    @Autowired
+    private FlashSaleStore flashSaleStore;
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate.execute(connection -> connection.serverCommands().flushAll()).blockLast();
+    }
+
+    @Nested
+    @DisplayName("claim")
+    class Claim {
+
+        @Test
+        @DisplayName("concurrent buyers never oversell")
+        void test1() {
+            flashSaleStore.start(ITEM_ID, UNITS).block();
+
+            var claimed = Flux.range(1, BUYERS)
+                    .flatMap(buyer -> flashSaleStore.claim(buyer, ITEM_ID, 1 + buyer % 2)
+                            .map(FlashSaleClaim::quantity)
+                            .onErrorResume(OrderConflictException.class, ex -> Mono.empty()), 256)
+                    .reduce(0, Integer::sum)
+                    .block();
+
+            assertThat(claimed).isEqualTo(UNITS);
+            assertThat(flashSaleStore.units(ITEM_ID).block()).isZero();
+        }
+
+        @Test
+        @DisplayName("one claim per buyer and no claim without sale")
+        void test2() {
+            flashSaleStore.start(ITEM_ID, UNITS).block();
+            flashSaleStore.claim(1L, ITEM_ID, 1).block();
+
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> flashSaleStore.claim(1L, ITEM_ID, 1).block())
+                    .withMessageContaining("already reserved");
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> flashSaleStore.claim(1L, ITEM_ID + 1, 1).block())
+                    .withMessageContaining("not on flash sale");
+        }
+
+        @Test
+        @DisplayName("expired claims return to the pool")
+        void test3() throws InterruptedException {
+            flashSaleStore.start(ITEM_ID, 2).block();
+            flashSaleStore.claim(1L, ITEM_ID, 2).block();
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> flashSaleStore.claim(2L, ITEM_ID, 1).block())
+                    .withMessageContaining("sold out");
+
+            TimeUnit.MILLISECONDS.sleep(1_100);
+
+            var claim = flashSaleStore.claim(2L, ITEM_ID, 1).block();
+            assertThat(claim.quantity()).isEqualTo(1);
+            assertThat(flashSaleStore.units(ITEM_ID).block()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("bought units count towards buyer limit")
+        void test4() {
+            flashSaleStore.start(ITEM_ID, UNITS).block();
+            flashSaleStore.claim(1L, ITEM_ID, 2).block();
+            var claims = flashSaleStore.claims(1L).block();
+            flashSaleStore.consume(1L, claims).block();
+
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> flashSaleStore.claim(1L, ITEM_ID, 1).block())
+                    .withMessageContaining("limit");
+
+            flashSaleStore.restore(1L, claims).block();
+            assertThat(flashSaleStore.claim(1L, ITEM_ID, 1).block().quantity()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("consume")
+    class Consume {
+
+        @Test
+        @DisplayName("consumes claims once")
+        void test1() {
+            flashSaleStore.start(ITEM_ID, UNITS).block();
+            flashSaleStore.claim(1L, ITEM_ID, 2).block();
+            var claims = flashSaleStore.claims(1L).block();
+
+            assertThat(claims).isEqualTo(Map.of(ITEM_ID, 2));
+            assertThat(flashSaleStore.consume(1L, claims).block()).isEqualTo(claims);
+
+            assertThat(flashSaleStore.claims(1L).block()).isEmpty();
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> flashSaleStore.consume(1L, claims).block());
+            assertThat(flashSaleStore.units(ITEM_ID).block()).isEqualTo(UNITS - 2);
+        }
+
+        @Test
+        @DisplayName("expired claim is rejected and dropped")
+        void test2() throws InterruptedException {
+            flashSaleStore.start(ITEM_ID, UNITS).block();
+            flashSaleStore.claim(1L, ITEM_ID, 1).block();
+            var claims = flashSaleStore.claims(1L).block();
+
+            TimeUnit.MILLISECONDS.sleep(1_100);
+
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> flashSaleStore.consume(1L, claims).block())
+                    .withMessageContaining("expired");
+            assertThat(flashSaleStore.claims(1L).block()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("restore returns units to running sales only")
+        void test3() {
+            flashSaleStore.start(ITEM_ID, UNITS).block();
+            flashSaleStore.claim(1L, ITEM_ID, 2).block();
+            flashSaleStore.consume(1L, flashSaleStore.claims(1L).block()).block();
+
+            var ended = flashSaleStore.restore(1L, Map.of(ITEM_ID, 2, ITEM_ID + 1, 1)).block();
+
+            assertThat(ended).isEqualTo(Map.of(ITEM_ID + 1, 1));
+            assertThat(flashSaleStore.units(ITEM_ID).block()).isEqualTo(UNITS);
+            assertThat(flashSaleStore.units(ITEM_ID + 1).block()).isNull();
+        }
+
+        @Test
+        @DisplayName("claims of ended sale are dropped")
+        void test4() {
+            flashSaleStore.start(ITEM_ID, UNITS).block();
+            flashSaleStore.start(ITEM_ID + 1, UNITS).block();
+            flashSaleStore.claim(1L, ITEM_ID, 1).block();
+            flashSaleStore.claim(1L, ITEM_ID + 1, 2).block();
+            var claims = flashSaleStore.claims(1L).block();
+            assertThat(flashSaleStore.stop(ITEM_ID + 1).block()).isEqualTo(UNITS);
+
+            assertThat(flashSaleStore.consume(1L, claims).block()).isEqualTo(Map.of(ITEM_ID, 1));
+            assertThat(flashSaleStore.claims(1L).block()).isEmpty();
+            assertThat(flashSaleStore.units(ITEM_ID).block()).isEqualTo(UNITS - 1);
+        }
+    }
+
+    @Nested
+    @DisplayName("start and stop")
+    class StartStop {
+
+        @Test
+        @DisplayName("return units that were not bought")
+        void test1() {
+            assertThat(flashSaleStore.start(ITEM_ID, UNITS).block()).isZero();
+            flashSaleStore.claim(1L, ITEM_ID, 2).block();
+            flashSaleStore.consume(1L, flashSaleStore.claims(1L).block()).block();
+            flashSaleStore.claim(2L, ITEM_ID, 1).block();
+
+            assertThat(flashSaleStore.start(ITEM_ID, 10).block()).isEqualTo(UNITS - 2);
+            assertThat(flashSaleStore.units(ITEM_ID).block()).isEqualTo(10);
+
+            flashSaleStore.claim(3L, ITEM_ID, 1).block();
+            assertThat(flashSaleStore.stop(ITEM_ID).block()).isEqualTo(10);
+            assertThat(flashSaleStore.units(ITEM_ID).block()).isNull();
+            assertThat(flashSaleStore.stop(ITEM_ID).block()).isZero();
+        }
+    }
+}
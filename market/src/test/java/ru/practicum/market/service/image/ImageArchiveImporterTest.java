@@ -0,0 +1,162 @@
+package ru.practicum.market.service.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.service.cache.ItemCacheService;
+import ru.practicum.market.web.dto.ImageArchiveEntryResponseDto;
+import ru.practicum.market.web.dto.enums.ImageArchiveEntryStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static ru.practicum.market.util.TestDataFactory.createItem;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ImageArchiveImporter")
+class ImageArchiveImporterTest {
+
+    @Mock
+    private ImageStore imageStore;
+
+    @Mock
+    private ImageVariantProcessor imageVariantProcessor;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private ItemCacheService itemCacheService;
+
+    @InjectMocks
+    private ImageArchiveImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importer, "concurrency", 2);
+        ReflectionTestUtils.setField(importer, "batchSize", 100);
+        ReflectionTestUtils.setField(importer, "maxEntrySize", DataSize.ofBytes(64));
+        ReflectionTestUtils.setField(importer, "imagePublicUriPrefix", "/images/");
+    }
+
+    @Test
+    @DisplayName("attaches images by id and sku in one batch update")
+    void test1() throws IOException {
+        var archive = zip(
+                "1.png", "first",
+                "photos/sku2.JPG", "second",
+                "404.png", "missing",
+                "notes.txt", "text",
+                "big.png", "x".repeat(65));
+        stubStore();
+        when(itemRepository.findByIdIn(any())).thenReturn(Flux.just(createItem(1L)));
+        when(itemRepository.findBySkuIn(any())).thenReturn(Flux.just(createItem(2L)));
+        when(itemRepository.updateImagePaths(new Long[]{1L, 2L}, new String[]{"/images/h-1.png", "/images/h-photos/sku2.JPG"}))
+                .thenReturn(Mono.just(2));
+        when(itemCacheService.evictItems(any())).thenReturn(Mono.empty());
+        when(itemCacheService.evictListings()).thenReturn(Mono.empty());
+
+        var report = statuses(importer.importArchive(chunks(archive, 7)));
+
+        assertThat(report).containsOnly(
+                Map.entry("1.png", ImageArchiveEntryStatus.ATTACHED),
+                Map.entry("photos/sku2.JPG", ImageArchiveEntryStatus.ATTACHED),
+                Map.entry("404.png", ImageArchiveEntryStatus.NOT_FOUND),
+                Map.entry("notes.txt", ImageArchiveEntryStatus.SKIPPED),
+                Map.entry("big.png", ImageArchiveEntryStatus.SKIPPED));
+        verify(itemCacheService).evictListings();
+        verify(imageVariantProcessor).submit(1L, "/images/h-1.png", Path.of("images", "h-1.png"));
+        verify(imageVariantProcessor).submit(2L, "/images/h-photos/sku2.JPG", Path.of("images", "h-photos/sku2.JPG"));
+    }
+
+    @Test
+    @DisplayName("last file wins for the same item")
+    void test2() throws IOException {
+        var archive = zip("1.png", "by-id", "sku1.png", "by-sku");
+        stubStore();
+        when(itemRepository.findByIdIn(any())).thenReturn(Flux.just(createItem(1L)));
+        when(itemRepository.findBySkuIn(any())).thenReturn(Flux.just(createItem(1L)));
+        when(itemRepository.updateImagePaths(new Long[]{1L}, new String[]{"/images/h-sku1.png"}))
+                .thenReturn(Mono.just(1));
+        when(itemCacheService.evictItems(any())).thenReturn(Mono.empty());
+        when(itemCacheService.evictListings()).thenReturn(Mono.empty());
+
+        var report = statuses(importer.importArchive(chunks(archive, 16)));
+
+        assertThat(report).containsOnly(
+                Map.entry("1.png", ImageArchiveEntryStatus.SKIPPED),
+                Map.entry("sku1.png", ImageArchiveEntryStatus.ATTACHED));
+    }
+
+    @Test
+    @DisplayName("truncated archive reports failure")
+    void test3() throws IOException {
+        var archive = zip("1.png", "a".repeat(40) + "b".repeat(20));
+        // Заголовок файла (35 байт) и начало сжатых данных.
+        var truncated = Arrays.copyOf(archive, 38);
+
+        var report = importer.importArchive(chunks(truncated, 8)).collectList().block();
+
+        assertThat(report).singleElement()
+                .extracting(ImageArchiveEntryResponseDto::status)
+                .isEqualTo(ImageArchiveEntryStatus.FAILED);
+        verify(itemRepository, never()).updateImagePaths(any(), any());
+    }
+
+    private void stubStore() {
+        when(imageStore.store(any(), anyString())).thenAnswer(invocation -> {
+            String name = invocation.getArgument(1);
+            return Mono.just(new ImageStore.StoredImage("h-" + name, Path.of("images", "h-" + name), true));
+        });
+    }
+
+    private static Map<String, ImageArchiveEntryStatus> statuses(Flux<ImageArchiveEntryResponseDto> report) {
+        return report.collectList().block().stream()
+                .collect(Collectors.toMap(ImageArchiveEntryResponseDto::entry, ImageArchiveEntryResponseDto::status));
+    }
+
+    private static byte[] zip(String... namesAndContents) throws IOException {
+        var output = new ByteArrayOutputStream();
+        try (var zip = new ZipOutputStream(output)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static Flux<DataBuffer> chunks(byte[] bytes, int chunkSize) {
+        return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+                .map(i -> {
+                    int from = i * chunkSize;
+                    return DefaultDataBufferFactory.sharedInstance.wrap(
+                            Arrays.copyOfRange(bytes, from, Math.min(bytes.length, from + chunkSize)));
+                });
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.market.service.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ImageResizer")
+class ImageResizerTest {
+
+    private final ImageResizer resizer = new ImageResizer();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(resizer, "jpegQuality", 0.8f);
+    }
+
+    @Test
+    @DisplayName("writes variants fitted into their size")
+    void test1() throws IOException {
+        var original = writePng("photo.png", 2000, 1500);
+
+        var variants = resizer.writeVariants(original, tempDir, "photo");
+
+        assertThat(variants).containsOnlyKeys(ImageVariant.THUMBNAIL, ImageVariant.CARD);
+        assertThat(variants.get(ImageVariant.THUMBNAIL)).isEqualTo(tempDir.resolve("photo-thumb.jpg"));
+        assertThat(variants.get(ImageVariant.CARD)).isEqualTo(tempDir.resolve("photo-card.jpg"));
+
+        var thumbnail = ImageIO.read(variants.get(ImageVariant.THUMBNAIL).toFile());
+        assertThat(thumbnail.getWidth()).isEqualTo(400);
+        assertThat(thumbnail.getHeight()).isEqualTo(300);
+        var card = ImageIO.read(variants.get(ImageVariant.CARD).toFile());
+        assertThat(card.getWidth()).isEqualTo(800);
+        assertThat(card.getHeight()).isEqualTo(600);
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).noneMatch(file -> file.toString().endsWith(".tmp"));
+        }
+    }
+
+    @Test
+    @DisplayName("small image is not upscaled and transparency becomes white")
+    void test2() throws IOException {
+        var original = writePng("small.png", 100, 50);
+
+        var variants = resizer.writeVariants(original, tempDir, "small");
+
+        var thumbnail = ImageIO.read(variants.get(ImageVariant.THUMBNAIL).toFile());
+        assertThat(thumbnail.getWidth()).isEqualTo(100);
+        assertThat(thumbnail.getHeight()).isEqualTo(50);
+        // Правая половина исходника прозрачная.
+        var corner = new Color(thumbnail.getRGB(99, 49));
+        assertThat(corner.getRed()).isGreaterThan(240);
+        assertThat(corner.getGreen()).isGreaterThan(240);
+        assertThat(corner.getBlue()).isGreaterThan(240);
+    }
+
+    @Test
+    @DisplayName("not an image")
+    void test3() throws IOException {
+        var original = Files.writeString(tempDir.resolve("notes.png"), "not an image");
+
+        assertThat(resizer.writeVariants(original, tempDir, "notes")).isEmpty();
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(original);
+        }
+    }
+
+    @Test
+    @DisplayName("existing variants are reused")
+    void test4() throws IOException {
+        var original = Files.writeString(tempDir.resolve("hash.png"), "not decoded");
+        Files.writeString(tempDir.resolve("hash-thumb.jpg"), "thumb");
+        Files.writeString(tempDir.resolve("hash-card.jpg"), "card");
+
+        var variants = resizer.writeVariants(original, tempDir, "hash");
+
+        assertThat(variants).containsEntry(ImageVariant.THUMBNAIL, tempDir.resolve("hash-thumb.jpg"))
+                .containsEntry(ImageVariant.CARD, tempDir.resolve("hash-card.jpg"));
+        assertThat(Files.readString(tempDir.resolve("hash-thumb.jpg"))).isEqualTo("thumb");
+    }
+
+    /**
+     * PNG с прозрачностью: левая половина красная, правая прозрачная.
+     */
+    private Path writePng(String name, int width, int height) throws IOException {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        var graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.dispose();
+        var file = tempDir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.market.service.image;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ImageStore")
+class ImageStoreTest {
+
+    private final ImageStore imageStore = new ImageStore();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(imageStore, "imagePath", tempDir.toString());
+    }
+
+    @Test
+    @DisplayName("stores file under content hash")
+    void test1() throws Exception {
+        var stored = imageStore.store(content("image-bytes", 4), "photos/Cat.PNG").block();
+
+        var hash = sha256("image-bytes");
+        assertThat(stored.fileName()).isEqualTo(hash + ".png");
+        assertThat(stored.created()).isTrue();
+        assertThat(stored.path()).isEqualTo(tempDir.toAbsolutePath().normalize().resolve(hash + ".png"));
+        assertThat(Files.readString(stored.path())).isEqualTo("image-bytes");
+    }
+
+    @Test
+    @DisplayName("same content is deduplicated")
+    void test2() throws IOException {
+        var first = imageStore.store(content("same", 2), "a.png").block();
+        var second = imageStore.store(content("same", 3), "b.png").block();
+
+        assertThat(second.fileName()).isEqualTo(first.fileName());
+        assertThat(second.created()).isFalse();
+        try (var files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(first.path());
+        }
+    }
+
+    @Test
+    @DisplayName("suspicious extension is dropped")
+    void test3() {
+        assertThat(ImageStore.extension("image.p<h>p")).isEmpty();
+        assertThat(ImageStore.extension("noextension")).isEmpty();
+        assertThat(ImageStore.extension("../../etc/photo.JpEg")).isEqualTo("jpeg");
+    }
+
+    private static Flux<DataBuffer> content(String text, int chunkSize) {
+        var bytes = text.getBytes(StandardCharsets.UTF_8);
+        return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+                .map(i -> {
+                    int from = i * chunkSize;
+                    int length = Math.min(chunkSize, bytes.length - from);
+                    return DefaultDataBufferFactory.sharedInstance.wrap(Arrays.copyOfRange(bytes, from, from + length));
+                });
+    }
+
+    private static String sha256(String text) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,104 @@
+package ru.practicum.market.service.image;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.service.cache.ItemCacheService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ImageVariantProcessor")
+class ImageVariantProcessorTest {
+
+    private static final long TIMEOUT_MS = 2000;
+
+    @Mock
+    private ImageResizer imageResizer;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private ItemCacheService itemCacheService;
+
+    @InjectMocks
+    private ImageVariantProcessor processor;
+
+    private final Path original = Path.of("images", "abc.png");
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(processor, "threads", 1);
+        ReflectionTestUtils.setField(processor, "imagePublicUriPrefix", "/images/");
+        processor.startWorker();
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.stopWorker();
+    }
+
+    @Test
+    @DisplayName("saves variant uris and evicts caches")
+    void test1() throws IOException {
+        when(imageResizer.writeVariants(original, original.getParent(), "abc")).thenReturn(Map.of(
+                ImageVariant.THUMBNAIL, Path.of("images", "abc-thumb.jpg"),
+                ImageVariant.CARD, Path.of("images", "abc-card.jpg")));
+        when(itemRepository.updateImageVariants(1L, "/images/abc.png", "/images/abc-thumb.jpg", "/images/abc-card.jpg"))
+                .thenReturn(Mono.just(1));
+        when(itemCacheService.evictItems(List.of(1L))).thenReturn(Mono.empty());
+        when(itemCacheService.evictListings()).thenReturn(Mono.empty());
+
+        processor.submit(1L, "/images/abc.png", original);
+
+        verify(itemCacheService, timeout(TIMEOUT_MS)).evictListings();
+    }
+
+    @Test
+    @DisplayName("image replaced meanwhile")
+    void test2() throws IOException {
+        when(imageResizer.writeVariants(original, original.getParent(), "abc")).thenReturn(Map.of(
+                ImageVariant.THUMBNAIL, Path.of("images", "abc-thumb.jpg"),
+                ImageVariant.CARD, Path.of("images", "abc-card.jpg")));
+        when(itemRepository.updateImageVariants(1L, "/images/abc.png", "/images/abc-thumb.jpg", "/images/abc-card.jpg"))
+                .thenReturn(Mono.just(0));
+
+        processor.submit(1L, "/images/abc.png", original);
+
+        verify(itemRepository, timeout(TIMEOUT_MS)).updateImageVariants(anyLong(), any(), any(), any());
+        verify(itemCacheService, never()).evictItems(any());
+    }
+
+    @Test
+    @DisplayName("failed image does not stop the queue")
+    void test3() throws IOException {
+        var next = Path.of("images", "next.png");
+        when(imageResizer.writeVariants(original, original.getParent(), "abc")).thenThrow(new IOException("broken"));
+        when(imageResizer.writeVariants(next, next.getParent(), "next")).thenReturn(Map.of());
+
+        processor.submit(1L, "/images/abc.png", original);
+        processor.submit(2L, "/images/next.png", next);
+
+        verify(imageResizer, timeout(TIMEOUT_MS)).writeVariants(next, next.getParent(), "next");
+        verify(itemRepository, never()).updateImageVariants(anyLong(), any(), any(), any());
+    }
+}
@@ -9,6 +9,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FilePart;
@@ -17,22 +19,29 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.exception.ItemImageBadRequest;
 import ru.practicum.market.domain.exception.ItemNotFoundException;
-import ru.practicum.market.domain.exception.ItemUploadException;
 import ru.practicum.market.domain.model.Item;
 import ru.practicum.market.repository.ItemRepository;
-import ru.practicum.market.service.converter.ExcelConverter;
+import ru.practicum.market.repository.projection.ItemStockRow;
+import ru.practicum.market.repository.projection.ItemTagRow;
+import ru.practicum.market.service.converter.ItemFileExporter;
+import ru.practicum.market.service.converter.ItemFileFormat;
+import ru.practicum.market.service.image.ImageArchiveImporter;
+import ru.practicum.market.service.image.ImageStore;
+import ru.practicum.market.service.image.ImageVariantProcessor;
 import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.dto.ImageArchiveEntryResponseDto;
 import ru.practicum.market.web.dto.ItemShortResponseDto;
+import ru.practicum.market.web.dto.enums.ImageArchiveEntryStatus;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -46,7 +55,16 @@ class AdminServiceImplTest {
     private ItemRepository itemRepository;
 
     @Mock
-    private ExcelConverter excelConverter;
+    private ItemFileExporter itemFileExporter;
+
+    @Mock
+    private ImageVariantProcessor imageVariantProcessor;
+
+    @Mock
+    private ImageStore imageStore;
+
+    @Mock
+    private ImageArchiveImporter imageArchiveImporter;
 
     @InjectMocks
     private AdminServiceImpl adminService;
@@ -55,64 +73,35 @@ class AdminServiceImplTest {
     Path tempDir;
 
     @Nested
-    @DisplayName("uploadItems")
-    class uploadItems {
+    @DisplayName("findItems")
+    class findItems {
 
         @Test
-        @DisplayName("ok")
+        @DisplayName("without search")
         void test1() {
-            var file = org.mockito.Mockito.mock(FilePart.class);
-            var items = TestDataFactory.createItems(3);
-
-            when(file.filename()).thenReturn("items.xlsx");
-            doNothing().when(excelConverter).checkExcelFormat(file);
-            when(excelConverter.excelToItemList(file)).thenReturn(Mono.just(items));
-            when(itemRepository.saveAll(items)).thenReturn(Flux.fromIterable(items));
+            var item1 = TestDataFactory.createItem(11L);
+            var item2 = TestDataFactory.createItem(12L);
 
-            adminService.uploadItems(file).block();
+            when(itemRepository.findPageAfter(10L, 2)).thenReturn(Flux.just(item1, item2));
 
-            verify(excelConverter, times(1)).checkExcelFormat(file);
-            verify(excelConverter, times(1)).excelToItemList(file);
-            verify(itemRepository, times(1)).saveAll(eq(items));
+            var result = adminService.findItems(null, 10L, 2).collectList().block();
+            assertThat(result)
+                    .containsExactly(
+                            new ItemShortResponseDto(item1.getId(), item1.getTitle()),
+                            new ItemShortResponseDto(item2.getId(), item2.getTitle())
+                    );
+            verify(itemRepository, never()).findPageAfterBySearch(any(Long.class), any(), any(Integer.class));
         }
 
         @Test
-        @DisplayName("exception")
+        @DisplayName("search escapes like wildcards")
         void test2() {
-            var file = org.mockito.Mockito.mock(FilePart.class);
-
-            when(file.filename()).thenReturn("items.xlsx");
-            doNothing().when(excelConverter).checkExcelFormat(file);
-            when(excelConverter.excelToItemList(file)).thenReturn(Mono.error(new RuntimeException("parse error")));
+            var item = TestDataFactory.createItem(3L);
 
-            assertThatExceptionOfType(ItemUploadException.class)
-                    .isThrownBy(() -> adminService.uploadItems(file).block())
-                    .withMessageContaining("The Excel file is not upload");
+            when(itemRepository.findPageAfterBySearch(0L, "%50\\%\\_off%", 10)).thenReturn(Flux.just(item));
 
-            verify(itemRepository, never()).saveAll(anyList());
-        }
-    }
-
-    @Nested
-    @DisplayName("getAllItems")
-    class getAllItems {
-
-        @Test
-        @DisplayName("ok")
-        void test1() {
-            var item1 = TestDataFactory.createItem(1L);
-            item1.setTitle("b-title");
-            var item2 = TestDataFactory.createItem(2L);
-            item2.setTitle("A-title");
-
-            when(itemRepository.findAll()).thenReturn(Flux.fromIterable(List.of(item1, item2)));
-
-            var result = adminService.getAllItems().collectList().block();
-            assertThat(result)
-                    .contains(
-                            new ItemShortResponseDto(item1.getId(), item1.getTitle()),
-                            new ItemShortResponseDto(item2.getId(), item2.getTitle())
-                    );
+            var result = adminService.findItems(" 50%_off ", 0L, 10).collectList().block();
+            assertThat(result).containsExactly(new ItemShortResponseDto(item.getId(), item.getTitle()));
         }
     }
 
@@ -130,12 +119,15 @@ class AdminServiceImplTest {
             headers.setContentType(MediaType.IMAGE_PNG);
             headers.setContentLength(10);
 
-            ReflectionTestUtils.setField(adminService, "imagePath", tempDir.resolve("images").toString());
+            var content = Flux.<DataBuffer>empty();
+            var stored = new ImageStore.StoredImage("0a1b.png", tempDir.resolve("0a1b.png"), true);
+
             ReflectionTestUtils.setField(adminService, "imagePublicUriPrefix", "/images/");
             when(itemRepository.findById(itemId)).thenReturn(Mono.just(item));
             when(image.headers()).thenReturn(headers);
             when(image.filename()).thenReturn("image.png");
-            when(image.transferTo(any(Path.class))).thenReturn(Mono.empty());
+            when(image.content()).thenReturn(content);
+            when(imageStore.store(content, "image.png")).thenReturn(Mono.just(stored));
             when(itemRepository.save(any(Item.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
 
             adminService.uploadImage(itemId, image).block();
@@ -145,9 +137,10 @@ class AdminServiceImplTest {
 
             var savedItem = itemCaptor.getValue();
             assertThat(savedItem.getId()).isEqualTo(itemId);
-            assertThat(savedItem.getImgPath().replace("\\", "/"))
-                    .contains("/images/")
-                    .endsWith(".png");
+            assertThat(savedItem.getImgPath()).isEqualTo("/images/0a1b.png");
+            assertThat(savedItem.getImgThumbnailPath()).isNull();
+            assertThat(savedItem.getImgCardPath()).isNull();
+            verify(imageVariantProcessor).submit(itemId, "/images/0a1b.png", stored.path());
         }
 
         @Test
@@ -165,6 +158,7 @@ class AdminServiceImplTest {
                     .isThrownBy(() -> adminService.uploadImage(itemId, image).block());
 
             verify(itemRepository, never()).save(any());
+            verify(imageVariantProcessor, never()).submit(any(Long.class), any(), any());
         }
 
         @Test
@@ -179,6 +173,61 @@ class AdminServiceImplTest {
                     .isThrownBy(() -> adminService.uploadImage(itemId, image).block());
 
             verify(itemRepository, never()).save(any());
+            verify(imageVariantProcessor, never()).submit(any(Long.class), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("uploadImageArchive")
+    class uploadImageArchive {
+
+        @Test
+        @DisplayName("streams archive content to importer")
+        void test1() {
+            var archive = org.mockito.Mockito.mock(FilePart.class);
+            var content = Flux.<DataBuffer>empty();
+            var entry = new ImageArchiveEntryResponseDto("1.png", 1L, ImageArchiveEntryStatus.ATTACHED, null);
+
+            when(archive.filename()).thenReturn("images.zip");
+            when(archive.content()).thenReturn(content);
+            when(imageArchiveImporter.importArchive(content)).thenReturn(Flux.just(entry));
+
+            var report = adminService.uploadImageArchive(archive).collectList().block();
+
+            assertThat(report).containsExactly(entry);
+        }
+    }
+
+    @Nested
+    @DisplayName("exportItems")
+    class exportItems {
+
+        @Test
+        @DisplayName("streams items by keyset pages")
+        void test1() {
+            ReflectionTestUtils.setField(adminService, "exportPageSize", 2);
+            var items = TestDataFactory.createItems(3);
+            var bufferFactory = DefaultDataBufferFactory.sharedInstance;
+            List<Item> exported = new ArrayList<>();
+
+            when(itemRepository.findPageAfter(0L, 2)).thenReturn(Flux.just(items.get(0), items.get(1)));
+            when(itemRepository.findPageAfter(2L, 2)).thenReturn(Flux.just(items.get(2)));
+            when(itemRepository.findTagsByItemIdIn(List.of(1L, 2L))).thenReturn(Flux.just(new ItemTagRow(1L, "sale")));
+            when(itemRepository.findTagsByItemIdIn(List.of(3L))).thenReturn(Flux.empty());
+            when(itemRepository.findStockByItemIdIn(List.of(1L, 2L))).thenReturn(Flux.just(new ItemStockRow(2L, 4)));
+            when(itemRepository.findStockByItemIdIn(List.of(3L))).thenReturn(Flux.empty());
+            when(itemFileExporter.export(any(), eq(ItemFileFormat.CSV), eq(bufferFactory))).thenAnswer(invocation ->
+                    invocation.<Flux<Item>>getArgument(0)
+                            .doOnNext(exported::add)
+                            .map(item -> bufferFactory.wrap(item.getTitle().getBytes(StandardCharsets.UTF_8))));
+
+            var buffers = adminService.exportItems(ItemFileFormat.CSV, bufferFactory).collectList().block();
+
+            assertThat(buffers).hasSize(3);
+            assertThat(exported).containsExactlyElementsOf(items);
+            assertThat(exported).extracting(Item::getTags).containsExactly(List.of("sale"), null, null);
+            assertThat(exported).extracting(Item::getStock).containsExactly(null, 4, null);
+            verify(itemRepository, times(2)).findPageAfter(any(Long.class), eq(2));
         }
     }
 }
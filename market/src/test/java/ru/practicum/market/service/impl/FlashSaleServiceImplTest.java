@@ -0,0 +1,182 @@
+package ru.practicum.market.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.ItemNotFoundException;
+import ru.practicum.market.domain.exception.MarketBadRequestException;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.service.flashsale.FlashSaleClaim;
+import ru.practicum.market.service.flashsale.FlashSaleStore;
+import ru.practicum.market.service.stock.StockReserver;
+import ru.practicum.market.util.TestDataFactory;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FlashSaleServiceImpl")
+class FlashSaleServiceImplTest {
+
+    private static final long USER_ID = TestDataFactory.USER_ID;
+
+    @Mock
+    private FlashSaleStore flashSaleStore;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private StockReserver stockReserver;
+
+    @InjectMocks
+    private FlashSaleServiceImpl flashSaleService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(flashSaleService, "maxPerBuyer", 2);
+    }
+
+    @Nested
+    @DisplayName("start")
+    class Start {
+
+        @Test
+        @DisplayName("ok")
+        void test1() {
+            when(itemRepository.existsById(5L)).thenReturn(Mono.just(true));
+            when(stockReserver.reserveQuantities(Map.of(5L, 500))).thenReturn(Mono.empty());
+            when(flashSaleStore.start(5L, 500)).thenReturn(Mono.just(0));
+
+            flashSaleService.start(5L, 500).block();
+
+            verify(stockReserver).reserveQuantities(Map.of(5L, 500));
+            verify(flashSaleStore).start(5L, 500);
+            verify(stockReserver, never()).releaseQuantities(anyMap());
+        }
+
+        @Test
+        @DisplayName("item not found")
+        void test2() {
+            when(itemRepository.existsById(5L)).thenReturn(Mono.just(false));
+
+            assertThatExceptionOfType(ItemNotFoundException.class)
+                    .isThrownBy(() -> flashSaleService.start(5L, 500).block());
+
+            verifyNoInteractions(stockReserver);
+            verify(flashSaleStore, never()).start(anyLong(), anyInt());
+        }
+
+        @Test
+        @DisplayName("not enough stock")
+        void test3() {
+            when(itemRepository.existsById(5L)).thenReturn(Mono.just(true));
+            when(stockReserver.reserveQuantities(Map.of(5L, 500)))
+                    .thenReturn(Mono.error(new OrderConflictException("Not enough stock for 1 items in the order.")));
+
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> flashSaleService.start(5L, 500).block())
+                    .withMessage("Not enough stock to start flash sale of item 5.");
+
+            verify(flashSaleStore, never()).start(anyLong(), anyInt());
+        }
+
+        @Test
+        @DisplayName("restart returns unsold units of previous sale to stock")
+        void test4() {
+            when(itemRepository.existsById(5L)).thenReturn(Mono.just(true));
+            when(stockReserver.reserveQuantities(Map.of(5L, 500))).thenReturn(Mono.empty());
+            when(flashSaleStore.start(5L, 500)).thenReturn(Mono.just(120));
+            when(stockReserver.releaseQuantities(Map.of(5L, 120))).thenReturn(Mono.empty());
+
+            flashSaleService.start(5L, 500).block();
+
+            verify(stockReserver).releaseQuantities(Map.of(5L, 120));
+        }
+
+        @Test
+        @DisplayName("redis failure returns reserved units to stock")
+        void test5() {
+            when(itemRepository.existsById(5L)).thenReturn(Mono.just(true));
+            when(stockReserver.reserveQuantities(Map.of(5L, 500))).thenReturn(Mono.empty());
+            when(flashSaleStore.start(5L, 500)).thenReturn(Mono.error(new IllegalStateException("redis down")));
+            when(stockReserver.releaseQuantities(Map.of(5L, 500))).thenReturn(Mono.empty());
+
+            assertThatExceptionOfType(IllegalStateException.class)
+                    .isThrownBy(() -> flashSaleService.start(5L, 500).block())
+                    .withMessage("redis down");
+
+            verify(stockReserver).releaseQuantities(Map.of(5L, 500));
+        }
+    }
+
+    @Nested
+    @DisplayName("stop")
+    class Stop {
+
+        @Test
+        @DisplayName("returns unsold units to stock")
+        void test1() {
+            when(flashSaleStore.stop(5L)).thenReturn(Mono.just(30));
+            when(stockReserver.releaseQuantities(Map.of(5L, 30))).thenReturn(Mono.empty());
+
+            flashSaleService.stop(5L).block();
+
+            verify(stockReserver).releaseQuantities(Map.of(5L, 30));
+        }
+
+        @Test
+        @DisplayName("sold out sale returns nothing")
+        void test2() {
+            when(flashSaleStore.stop(5L)).thenReturn(Mono.just(0));
+
+            flashSaleService.stop(5L).block();
+
+            verifyNoInteractions(stockReserver);
+        }
+    }
+
+    @Nested
+    @DisplayName("claim")
+    class Claim {
+
+        @Test
+        @DisplayName("ok without database")
+        void test1() {
+            var claim = new FlashSaleClaim(5L, 2, Instant.now());
+            when(flashSaleStore.claim(USER_ID, 5L, 2)).thenReturn(Mono.just(claim));
+
+            var response = flashSaleService.claim(USER_ID, 5L, 2).block();
+
+            assertThat(response).isEqualTo(claim);
+            verifyNoInteractions(itemRepository);
+        }
+
+        @Test
+        @DisplayName("quantity above per-buyer limit")
+        void test2() {
+            assertThatExceptionOfType(MarketBadRequestException.class)
+                    .isThrownBy(() -> flashSaleService.claim(USER_ID, 5L, 3).block());
+
+            verifyNoInteractions(flashSaleStore);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package ru.practicum.market.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.ImportJobNotFoundException;
+import ru.practicum.market.domain.exception.ItemUploadException;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.service.cache.ItemCacheService;
+import ru.practicum.market.service.converter.ItemFileConverter;
+import ru.practicum.market.service.converter.ItemFileFormat;
+import ru.practicum.market.service.facet.TagFacetIndex;
+import ru.practicum.market.service.importer.ImportJob;
+import ru.practicum.market.service.importer.ImportJobStatus;
+import ru.practicum.market.service.importer.ImportJobStore;
+import ru.practicum.market.service.importer.ItemImportResult;
+import ru.practicum.market.service.importer.ItemImportWriter;
+import ru.practicum.market.util.TestDataFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ImportJobServiceImpl")
+class ImportJobServiceImplTest {
+
+    private static final long TIMEOUT_MS = 2000;
+
+    @Mock
+    private ItemFileConverter itemFileConverter;
+
+    @Mock
+    private ItemImportWriter itemImportWriter;
+
+    @Mock
+    private ItemCacheService itemCacheService;
+
+    @Mock
+    private ImportJobStore importJobStore;
+
+    @Mock
+    private TagFacetIndex tagFacetIndex;
+
+    @InjectMocks
+    private ImportJobServiceImpl importJobService;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Set<String> cancelFlags = ConcurrentHashMap.newKeySet();
+    private final Path path = Path.of("items.xlsx");
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(importJobStore.save(any(ImportJob.class))).thenAnswer(invocation -> {
+            ImportJob job = invocation.getArgument(0);
+            jobs.put(job.id(), job);
+            return Mono.just(job);
+        });
+        lenient().when(importJobStore.find(anyString()))
+                .thenAnswer(invocation -> Mono.justOrEmpty(jobs.get(invocation.<String>getArgument(0))));
+        lenient().when(importJobStore.requestCancel(anyString())).thenAnswer(invocation -> {
+            cancelFlags.add(invocation.getArgument(0));
+            return Mono.empty();
+        });
+        lenient().when(importJobStore.isCancelRequested(anyString()))
+                .thenAnswer(invocation -> Mono.just(cancelFlags.contains(invocation.<String>getArgument(0))));
+
+        ReflectionTestUtils.setField(importJobService, "maxConcurrentJobs", 1);
+        ReflectionTestUtils.setField(importJobService, "progressInterval", Duration.ofMillis(50));
+        importJobService.startWorker();
+    }
+
+    @AfterEach
+    void tearDown() {
+        importJobService.stopWorker();
+    }
+
+    @Nested
+    @DisplayName("submit")
+    class Submit {
+
+        @Test
+        @DisplayName("ok")
+        void test1() {
+            var file = uploadedFile();
+            when(itemFileConverter.readItems(path, ItemFileFormat.XLSX)).thenReturn(Flux.fromIterable(TestDataFactory.createItems(3)));
+            writeChunksReturns(new ItemImportResult(2, 1, 0));
+            when(itemCacheService.evictListings()).thenReturn(Mono.empty());
+            when(tagFacetIndex.refresh()).thenReturn(Mono.empty());
+
+            var job = importJobService.submit(file).block();
+
+            assertThat(job).isNotNull();
+            assertThat(job.status()).isEqualTo(ImportJobStatus.QUEUED);
+            assertThat(job.fileName()).isEqualTo("items.xlsx");
+
+            verify(itemFileConverter, timeout(TIMEOUT_MS)).deleteTempFile(path);
+            verify(itemCacheService).evictListings();
+            verify(tagFacetIndex).refresh();
+
+            var finished = jobs.get(job.id());
+            assertThat(finished.status()).isEqualTo(ImportJobStatus.COMPLETED);
+            assertThat(finished.rowsParsed()).isEqualTo(3);
+            assertThat(finished.inserted()).isEqualTo(2);
+            assertThat(finished.updated()).isEqualTo(1);
+            assertThat(finished.finishedAt()).isNotNull();
+        }
+
+        @Test
+        @DisplayName("import failed")
+        void test2() {
+            var file = uploadedFile();
+            when(itemFileConverter.readItems(path, ItemFileFormat.XLSX)).thenReturn(Flux.error(new ItemUploadException("broken file")));
+            writeChunksReturns(ItemImportResult.EMPTY);
+
+            var job = importJobService.submit(file).block();
+
+            verify(itemFileConverter, timeout(TIMEOUT_MS)).deleteTempFile(path);
+            verify(itemCacheService, never()).evictListings();
+
+            var failed = jobs.get(job.id());
+            assertThat(failed.status()).isEqualTo(ImportJobStatus.FAILED);
+            assertThat(failed.error()).isEqualTo("broken file");
+        }
+
+        @Test
+        @DisplayName("spool error")
+        void test3() {
+            var file = mock(FilePart.class);
+            when(file.filename()).thenReturn("items.xlsx");
+            when(itemFileConverter.detectFormat(file)).thenReturn(ItemFileFormat.XLSX);
+            when(itemFileConverter.spoolToTempFile(file, ItemFileFormat.XLSX)).thenReturn(Mono.error(new RuntimeException("disk full")));
+
+            assertThatExceptionOfType(ItemUploadException.class)
+                    .isThrownBy(() -> importJobService.submit(file).block())
+                    .withMessageContaining("items.xlsx");
+
+            verify(importJobStore, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("failure after written chunks evicts listings")
+        void test4() {
+            var file = uploadedFile();
+            when(itemFileConverter.readItems(path, ItemFileFormat.XLSX)).thenReturn(Flux.fromIterable(TestDataFactory.createItems(3)));
+            when(itemImportWriter.writeChunks(any())).thenAnswer(invocation ->
+                    invocation.<Flux<Item>>getArgument(0)
+                            .thenMany(Flux.just(new ItemImportResult(2, 0, 0)))
+                            .concatWith(Flux.error(new IllegalStateException("db down"))));
+            when(itemCacheService.evictListings()).thenReturn(Mono.empty());
+            when(tagFacetIndex.refresh()).thenReturn(Mono.empty());
+
+            var job = importJobService.submit(file).block();
+
+            verify(itemFileConverter, timeout(TIMEOUT_MS)).deleteTempFile(path);
+            verify(itemCacheService).evictListings();
+            verify(tagFacetIndex).refresh();
+            var failed = jobs.get(job.id());
+            assertThat(failed.status()).isEqualTo(ImportJobStatus.FAILED);
+            assertThat(failed.error()).isEqualTo("db down");
+        }
+    }
+
+    @Nested
+    @DisplayName("cancel")
+    class Cancel {
+
+        @Test
+        @DisplayName("queued job")
+        void test1() {
+            var job = ImportJob.queued("job-1", "items.xlsx");
+            jobs.put(job.id(), job);
+
+            var result = importJobService.cancel(job.id()).block();
+
+            assertThat(result.status()).isEqualTo(ImportJobStatus.CANCELLED);
+            assertThat(jobs.get(job.id()).status()).isEqualTo(ImportJobStatus.CANCELLED);
+        }
+
+        @Test
+        @DisplayName("running job")
+        void test2() {
+            var file = uploadedFile();
+            when(itemFileConverter.readItems(path, ItemFileFormat.XLSX)).thenReturn(Flux.never());
+            writeChunksReturns(ItemImportResult.EMPTY);
+
+            var job = importJobService.submit(file).block();
+            // Сохранение в очереди и перевод в обработку.
+            verify(importJobStore, timeout(TIMEOUT_MS).atLeast(2)).save(any(ImportJob.class));
+
+            importJobService.cancel(job.id()).block();
+
+            verify(itemFileConverter, timeout(TIMEOUT_MS)).deleteTempFile(path);
+            verify(itemCacheService, never()).evictListings();
+            assertThat(jobs.get(job.id()).status()).isEqualTo(ImportJobStatus.CANCELLED);
+        }
+
+        @Test
+        @DisplayName("finished job is not changed")
+        void test3() {
+            var job = ImportJob.queued("job-2", "items.xlsx").start().finish(ImportJobStatus.COMPLETED, null);
+            jobs.put(job.id(), job);
+
+            var result = importJobService.cancel(job.id()).block();
+
+            assertThat(result).isEqualTo(job);
+            verify(importJobStore, never()).save(any());
+            verify(importJobStore, never()).requestCancel(anyString());
+        }
+
+        @Test
+        @DisplayName("cancel accepted by another instance")
+        void test4() {
+            var file = uploadedFile();
+            when(itemFileConverter.readItems(path, ItemFileFormat.XLSX)).thenReturn(Flux.never());
+            writeChunksReturns(ItemImportResult.EMPTY);
+
+            var job = importJobService.submit(file).block();
+            verify(importJobStore, timeout(TIMEOUT_MS).atLeast(2)).save(any(ImportJob.class));
+
+            // Флаг отмены записан другим экземпляром приложения, локального сигнала нет.
+            cancelFlags.add(job.id());
+
+            verify(itemFileConverter, timeout(TIMEOUT_MS)).deleteTempFile(path);
+            assertThat(jobs.get(job.id()).status()).isEqualTo(ImportJobStatus.CANCELLED);
+        }
+
+        @Test
+        @DisplayName("chunk being written is finished and counted")
+        void test5() {
+            var file = uploadedFile();
+            when(itemFileConverter.readItems(path, ItemFileFormat.XLSX))
+                    .thenReturn(Flux.fromIterable(TestDataFactory.createItems(3)).concatWith(Flux.never()));
+            // Пачка дописывается уже после отмены.
+            when(itemImportWriter.writeChunks(any())).thenAnswer(invocation ->
+                    invocation.<Flux<Item>>getArgument(0)
+                            .then(Mono.delay(Duration.ofMillis(200)).thenReturn(new ItemImportResult(2, 1, 0)))
+                            .flux());
+            when(itemCacheService.evictListings()).thenReturn(Mono.empty());
+            when(tagFacetIndex.refresh()).thenReturn(Mono.empty());
+
+            var job = importJobService.submit(file).block();
+            verify(importJobStore, timeout(TIMEOUT_MS).atLeast(2)).save(any(ImportJob.class));
+
+            importJobService.cancel(job.id()).block();
+
+            verify(itemFileConverter, timeout(TIMEOUT_MS)).deleteTempFile(path);
+            var cancelled = jobs.get(job.id());
+            assertThat(cancelled.status()).isEqualTo(ImportJobStatus.CANCELLED);
+            assertThat(cancelled.rowsParsed()).isEqualTo(3);
+            assertThat(cancelled.inserted()).isEqualTo(2);
+            assertThat(cancelled.updated()).isEqualTo(1);
+            verify(itemCacheService).evictListings();
+        }
+    }
+
+    @Nested
+    @DisplayName("getJob")
+    class GetJob {
+
+        @Test
+        @DisplayName("not found")
+        void test1() {
+            assertThatExceptionOfType(ImportJobNotFoundException.class)
+                    .isThrownBy(() -> importJobService.getJob("unknown").block());
+        }
+    }
+
+    private FilePart uploadedFile() {
+        var file = mock(FilePart.class);
+        when(file.filename()).thenReturn("items.xlsx");
+        when(itemFileConverter.detectFormat(file)).thenReturn(ItemFileFormat.XLSX);
+        when(itemFileConverter.spoolToTempFile(file, ItemFileFormat.XLSX)).thenReturn(Mono.just(path));
+        when(itemFileConverter.deleteTempFile(path)).thenReturn(Mono.empty());
+        return file;
+    }
+
+    /**
+     * Запись дочитывает поток товаров и выдает итог одной пачкой.
+     */
+    private void writeChunksReturns(ItemImportResult result) {
+        when(itemImportWriter.writeChunks(any())).thenAnswer(invocation ->
+                invocation.<Flux<Item>>getArgument(0).then(Mono.just(result)).flux());
+    }
+}
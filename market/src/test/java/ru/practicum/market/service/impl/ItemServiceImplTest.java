@@ -1,5 +1,6 @@
 package ru.practicum.market.service.impl;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,11 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.exception.CartItemNotFoundException;
@@ -16,23 +22,37 @@ import ru.practicum.market.domain.model.CartItem;
 import ru.practicum.market.integration.PaymentAdapter;
 import ru.practicum.market.repository.CartItemRepository;
 import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.service.cache.CartQuantityCacheService;
 import ru.practicum.market.service.cache.ItemCacheService;
 import ru.practicum.market.service.cache.dto.CartCacheDto;
+import ru.practicum.market.service.cache.dto.CartQuantitiesCacheDto;
 import ru.practicum.market.service.cache.dto.ItemsPageCacheDto;
+import ru.practicum.market.service.cache.dto.PriceHistogramCacheDto;
+import ru.practicum.market.service.cache.dto.StockCacheDto;
+import ru.practicum.market.service.facet.TagFacet;
+import ru.practicum.market.service.facet.TagFacetIndex;
+import ru.practicum.market.service.recommendation.CoPurchaseIndex;
 import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.dto.ItemResponseDto;
+import ru.practicum.market.web.dto.PriceRange;
+import ru.practicum.market.web.dto.TagFacetResponseDto;
 import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.mapper.ItemMapper;
 import ru.practicum.payments.integration.domain.Balance;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static ru.practicum.market.web.dto.enums.SortMethod.NO;
+import static ru.practicum.market.web.dto.enums.SortMethod.PRICE;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("ItemServiceImpl")
@@ -49,12 +69,31 @@ class ItemServiceImplTest {
     @Mock
     private ItemCacheService itemCacheService;
 
+    @Mock
+    private CartQuantityCacheService cartQuantityCacheService;
+
     @Mock
     private PaymentAdapter paymentAdapter;
 
+    @Mock
+    private TagFacetIndex tagFacetIndex;
+
+    @Mock
+    private CoPurchaseIndex coPurchaseIndex;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
     @InjectMocks
     private ItemServiceImpl itemService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(itemService, "balanceTimeout", Duration.ofMillis(100));
+        lenient().when(transactionalOperator.transactional(any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
     @Nested
     @DisplayName("getItems")
     class GetItems {
@@ -75,11 +114,14 @@ class ItemServiceImplTest {
             var itemsCacheList = ItemMapper.toItemsCacheDto(items).subList(0, pageSize);
             var itemsPageCache = new ItemsPageCacheDto(itemsCacheList, itemSize);
 
-            when(itemCacheService.getItemsPage(any(), any())).thenReturn(Mono.just(itemsPageCache));
-            when(cartItemRepository.findByUserIdAndItemIdIn(eq(USER_ID), anyList()))
-                    .thenReturn(Flux.just(TestDataFactory.createCartItem(USER_ID, firstItem.getId(), 2)));
+            when(itemCacheService.getItemsPage(any(), eq(PriceRange.ANY), any())).thenReturn(Mono.just(itemsPageCache));
+            when(itemCacheService.getPriceHistogram()).thenReturn(Mono.just(new PriceHistogramCacheDto(List.of())));
+            when(cartQuantityCacheService.getQuantities(USER_ID))
+                    .thenReturn(Mono.just(new CartQuantitiesCacheDto(Map.of(firstItem.getId(), 2, 99L, 1))));
+            when(itemCacheService.getStock(List.of(1L, 2L, 3L, 4L)))
+                    .thenReturn(Mono.just(new StockCacheDto(Map.of(firstItem.getId(), 0))));
 
-            var response = itemService.getItems(Optional.of(USER_ID), search, sortMethod, pageNumber, pageSize).block();
+            var response = itemService.getItems(Optional.of(USER_ID), Map.of(), search, PriceRange.ANY, List.of(), sortMethod, pageNumber, pageSize).block();
             assertThat(response.items())
                     .isNotEmpty()
                     .hasSize(Math.ceilDiv(pageSize, rowSize));
@@ -95,12 +137,16 @@ class ItemServiceImplTest {
             assertThat(responseFirstItem.imgPath()).isEqualTo(firstItem.getImgPath());
             assertThat(responseFirstItem.price()).isEqualTo(firstItem.getPrice());
             assertThat(responseFirstItem.count()).isEqualTo(2);
+            assertThat(responseFirstItem.stock()).isZero();
+            // Товар без полос остатка не учитывается на складе.
+            assertThat(response.items().getFirst().get(1).stock()).isNull();
 
             var responsePaging = response.paging();
             assertThat(responsePaging.pageNumber()).isEqualTo(pageNumber);
             assertThat(responsePaging.pageSize()).isEqualTo(pageSize);
             assertThat(responsePaging.hasNext()).isTrue();
             assertThat(responsePaging.hasPrevious()).isFalse();
+            verifyNoInteractions(cartItemRepository);
         }
 
         @Test
@@ -118,9 +164,11 @@ class ItemServiceImplTest {
             var itemsCacheList = ItemMapper.toItemsCacheDto(items);
             var itemsPageCache = new ItemsPageCacheDto(itemsCacheList, itemSize);
 
-            when(itemCacheService.getItemsPage(eq(search), any())).thenReturn(Mono.just(itemsPageCache));
+            when(itemCacheService.getItemsPage(eq(search), eq(PriceRange.ANY), any())).thenReturn(Mono.just(itemsPageCache));
+            when(itemCacheService.getPriceHistogram()).thenReturn(Mono.just(new PriceHistogramCacheDto(List.of())));
+            when(itemCacheService.getStock(anyList())).thenReturn(Mono.just(new StockCacheDto(Map.of())));
 
-            var response = itemService.getItems(Optional.empty(), search, sortMethod, pageNumber, pageSize).block();
+            var response = itemService.getItems(Optional.empty(), Map.of(), search, PriceRange.ANY, List.of(), sortMethod, pageNumber, pageSize).block();
             assertThat(response.items()).hasSize(1);
             assertThat(response.search()).isEqualTo(search);
             assertThat(response.sort()).isEqualTo(sortMethod);
@@ -135,7 +183,91 @@ class ItemServiceImplTest {
             assertThat(responsePaging.hasNext()).isFalse();
             assertThat(responsePaging.hasPrevious()).isTrue();
 
-            verify(cartItemRepository, never()).findByUserIdAndItemIdIn(anyLong(), anyList());
+            verifyNoInteractions(cartQuantityCacheService);
+        }
+
+        @Test
+        @DisplayName("tags select page from facet index")
+        void test3() {
+            var items = TestDataFactory.createItems(3);
+            var tags = List.of("sale");
+            var selection = RoaringBitmap.bitmapOf(1, 3);
+
+            when(tagFacetIndex.select(tags, PriceRange.ANY)).thenReturn(selection);
+            when(tagFacetIndex.facets(selection))
+                    .thenReturn(List.of(new TagFacet("kitchen", 0), new TagFacet("sale", 2), new TagFacet("toys", 1)));
+            when(tagFacetIndex.page(selection, PRICE, 0, 4)).thenReturn(List.of(3L, 1L));
+            when(itemCacheService.getItemsByIds(List.of(3L, 1L)))
+                    .thenReturn(Mono.just(new CartCacheDto(ItemMapper.toItemsCacheDto(List.of(items.get(0), items.get(2))))));
+            when(itemCacheService.getPriceHistogram()).thenReturn(Mono.just(new PriceHistogramCacheDto(List.of())));
+            when(itemCacheService.getStock(List.of(3L, 1L))).thenReturn(Mono.just(new StockCacheDto(Map.of())));
+
+            var response = itemService.getItems(Optional.empty(), Map.of(), null, PriceRange.ANY, tags, PRICE, 1, 4).block();
+
+            assertThat(response.items().getFirst())
+                    .extracting(ItemResponseDto::id)
+                    .startsWith(3L, 1L);
+            assertThat(response.tags()).containsExactly("sale");
+            assertThat(response.tagFacets()).containsExactly(
+                    new TagFacetResponseDto("sale", 2, true),
+                    new TagFacetResponseDto("toys", 1, false)
+            );
+            assertThat(response.paging().hasNext()).isFalse();
+            verify(itemCacheService, never()).getItemsPage(any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("tags with search read cached page filtered in database")
+        void test4() {
+            var items = TestDataFactory.createItems(2);
+            var tags = List.of("sale");
+            var selection = RoaringBitmap.bitmapOf(1, 2, 3);
+            var pageable = PageRequest.of(0, 4, Sort.by(PRICE.getColumnName()));
+
+            when(tagFacetIndex.select(tags, PriceRange.ANY)).thenReturn(selection);
+            when(tagFacetIndex.facets(selection)).thenReturn(List.of(new TagFacet("sale", 3)));
+            when(itemCacheService.getTaggedItemsPage("title", PriceRange.ANY, tags, pageable))
+                    .thenReturn(Mono.just(ItemMapper.toItemsPage(items, 2L)));
+            when(itemCacheService.getPriceHistogram()).thenReturn(Mono.just(new PriceHistogramCacheDto(List.of())));
+            when(itemCacheService.getStock(List.of(1L, 2L))).thenReturn(Mono.just(new StockCacheDto(Map.of())));
+
+            var response = itemService.getItems(Optional.empty(), Map.of(), "title", PriceRange.ANY, tags, PRICE, 1, 4)
+                    .block();
+
+            assertThat(response.items().getFirst())
+                    .extracting(ItemResponseDto::id)
+                    .startsWith(1L, 2L);
+            assertThat(response.paging().hasNext()).isFalse();
+            verify(tagFacetIndex, never()).page(any(), any(), anyLong(), anyInt());
+            verifyNoInteractions(itemRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("getRelatedItems")
+    class GetRelatedItems {
+
+        @Test
+        @DisplayName("keeps co-purchase order and skips deleted items")
+        void test1() {
+            var items = TestDataFactory.createItems(3);
+            when(coPurchaseIndex.related(1L)).thenReturn(List.of(3L, 4L, 2L));
+            when(itemCacheService.getItemsByIds(List.of(3L, 4L, 2L)))
+                    .thenReturn(Mono.just(new CartCacheDto(ItemMapper.toItemsCacheDto(List.of(items.get(1), items.get(2))))));
+
+            var response = itemService.getRelatedItems(1L).block();
+
+            assertThat(response).extracting(ItemResponseDto::id).containsExactly(3L, 2L);
+            assertThat(response).extracting(ItemResponseDto::count).containsOnly(0);
+        }
+
+        @Test
+        @DisplayName("no co-purchases")
+        void test2() {
+            when(coPurchaseIndex.related(1L)).thenReturn(List.of());
+
+            assertThat(itemService.getRelatedItems(1L).block()).isEmpty();
+            verify(itemCacheService, never()).getItemsByIds(anyList());
         }
     }
 
@@ -149,35 +281,41 @@ class ItemServiceImplTest {
             var item = TestDataFactory.createItem(1L);
             var itemCache = ItemMapper.toItemCacheDto(item);
             var quantity = 4;
-            var cartItem = new CartItem();
-            cartItem.setUserId(USER_ID);
-            cartItem.setItemId(item.getId());
-            cartItem.setQuantity(quantity);
 
             when(itemCacheService.findItem(item.getId())).thenReturn(Mono.just(itemCache));
-            when(cartItemRepository.findByUserIdAndItemId(USER_ID, item.getId())).thenReturn(Mono.just(cartItem));
+            when(cartQuantityCacheService.getQuantities(USER_ID))
+                    .thenReturn(Mono.just(new CartQuantitiesCacheDto(Map.of(item.getId(), quantity))));
+            when(itemCacheService.getStock(List.of(item.getId())))
+                    .thenReturn(Mono.just(new StockCacheDto(Map.of(item.getId(), 7))));
 
-            var response = itemService.getItem(Optional.of(USER_ID), item.getId()).block();
+            var response = itemService.getItem(Optional.of(USER_ID), Map.of(), item.getId()).block();
             assertThat(response.id()).isEqualTo(item.getId());
             assertThat(response.title()).isEqualTo(item.getTitle());
             assertThat(response.description()).isEqualTo(item.getDescription());
             assertThat(response.imgPath()).isEqualTo(item.getImgPath());
             assertThat(response.price()).isEqualTo(item.getPrice());
             assertThat(response.count()).isEqualTo(quantity);
+            assertThat(response.stock()).isEqualTo(7);
+            verifyNoInteractions(cartItemRepository);
         }
 
         @Test
         @DisplayName("anonymous user")
         void test2() {
             var item = TestDataFactory.createItem(1L);
+            item.setImgCardPath("/images/card.jpg");
             var itemCache = ItemMapper.toItemCacheDto(item);
 
             when(itemCacheService.findItem(item.getId())).thenReturn(Mono.just(itemCache));
+            when(itemCacheService.getStock(List.of(item.getId()))).thenReturn(Mono.just(new StockCacheDto(Map.of())));
 
-            var response = itemService.getItem(Optional.empty(), item.getId()).block();
+            var response = itemService.getItem(Optional.empty(), Map.of(), item.getId()).block();
             assertThat(response.count()).isZero();
+            assertThat(response.cardPath()).isEqualTo("/images/card.jpg");
+            // Уменьшенной копии еще нет — используется исходное изображение.
+            assertThat(response.thumbnailPath()).isEqualTo(item.getImgPath());
 
-            verify(cartItemRepository, never()).findByUserIdAndItemId(anyLong(), anyLong());
+            verifyNoInteractions(cartQuantityCacheService);
         }
 
         @Test
@@ -188,16 +326,16 @@ class ItemServiceImplTest {
             );
 
             assertThatExceptionOfType(ItemNotFoundException.class)
-                    .isThrownBy(() -> itemService.getItem(Optional.of(USER_ID), 1L).block());
+                    .isThrownBy(() -> itemService.getItem(Optional.of(USER_ID), Map.of(), 1L).block());
         }
     }
 
     @Nested
-    @DisplayName("getCart")
-    class GetCart {
+    @DisplayName("getCartAvailability")
+    class GetCartAvailability {
 
         @Test
-        @DisplayName("with items")
+        @DisplayName("enough balance")
         void test1() {
             var items = TestDataFactory.createItems(2);
             var cartItems = List.of(
@@ -211,21 +349,20 @@ class ItemServiceImplTest {
                     .thenReturn(Mono.just(cartCacheDto));
             when(paymentAdapter.getBalance(USER_ID)).thenReturn(Mono.just(new Balance().balance(BigDecimal.valueOf(10_000))));
 
-            var cart = itemService.getCart(USER_ID).block();
-            assertThat(cart.items()).hasSize(2);
-            assertThat(cart.total()).isEqualTo(800L);
-            assertThat(cart.isActiveButton()).isTrue();
+            var availability = itemService.getCartAvailability(USER_ID).block();
+            assertThat(availability.total()).isEqualTo(800L);
+            assertThat(availability.isActive()).isTrue();
+            assertThat(availability.paymentsAvailable()).isTrue();
         }
 
         @Test
-        @DisplayName("empty")
+        @DisplayName("empty cart does not call payments")
         void test2() {
             when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.empty());
 
-            var cart = itemService.getCart(USER_ID).block();
-            assertThat(cart.items()).isEmpty();
-            assertThat(cart.total()).isZero();
-            assertThat(cart.isActiveButton()).isFalse();
+            var availability = itemService.getCartAvailability(USER_ID).block();
+            assertThat(availability.total()).isZero();
+            assertThat(availability.isActive()).isFalse();
 
             verify(paymentAdapter, never()).getBalance(anyLong());
         }
@@ -241,9 +378,27 @@ class ItemServiceImplTest {
             when(itemCacheService.getItemsByIds(List.of(item.getId()))).thenReturn(Mono.just(cartCacheDto));
             when(paymentAdapter.getBalance(USER_ID)).thenReturn(Mono.just(new Balance().balance(BigDecimal.ZERO)));
 
-            var cart = itemService.getCart(USER_ID).block();
-            assertThat(cart.total()).isEqualTo(200L);
-            assertThat(cart.isActiveButton()).isFalse();
+            var availability = itemService.getCartAvailability(USER_ID).block();
+            assertThat(availability.total()).isEqualTo(200L);
+            assertThat(availability.isActive()).isFalse();
+            assertThat(availability.paymentsAvailable()).isTrue();
+        }
+
+        @Test
+        @DisplayName("slow payments fall back to unavailable")
+        void test4() {
+            var item = TestDataFactory.createItem(1L);
+            var cartItem = TestDataFactory.createCartItem(USER_ID, item.getId(), 1);
+            var cartCacheDto = new CartCacheDto(List.of(ItemMapper.toItemCacheDto(item)));
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(itemCacheService.getItemsByIds(List.of(item.getId()))).thenReturn(Mono.just(cartCacheDto));
+            when(paymentAdapter.getBalance(USER_ID)).thenReturn(Mono.never());
+
+            var availability = itemService.getCartAvailability(USER_ID).block();
+            assertThat(availability.total()).isEqualTo(100L);
+            assertThat(availability.isActive()).isFalse();
+            assertThat(availability.paymentsAvailable()).isFalse();
         }
     }
 
@@ -262,12 +417,15 @@ class ItemServiceImplTest {
             when(cartItemRepository.findByUserIdAndItemId(USER_ID, itemId)).thenReturn(Mono.empty());
             when(cartItemRepository.save(any(CartItem.class))).thenReturn(Mono.just(savedCartItem));
 
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+
             itemService.updateItemsCountInCart(USER_ID, itemId, CartAction.PLUS).block();
 
             ArgumentCaptor<CartItem> captor = ArgumentCaptor.forClass(CartItem.class);
             verify(cartItemRepository, times(1)).save(captor.capture());
             assertThat(captor.getValue().getUserId()).isEqualTo(USER_ID);
             assertThat(captor.getValue().getQuantity()).isEqualTo(1);
+            verify(cartQuantityCacheService).evictQuantities(USER_ID);
         }
 
         @Test
@@ -279,6 +437,8 @@ class ItemServiceImplTest {
             when(cartItemRepository.findByUserIdAndItemId(USER_ID, itemId)).thenReturn(Mono.just(cartItem));
             when(cartItemRepository.save(any(CartItem.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
 
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+
             itemService.updateItemsCountInCart(USER_ID, itemId, CartAction.MINUS).block();
 
             ArgumentCaptor<CartItem> captor = ArgumentCaptor.forClass(CartItem.class);
@@ -295,6 +455,8 @@ class ItemServiceImplTest {
             when(cartItemRepository.findByUserIdAndItemId(USER_ID, itemId)).thenReturn(Mono.just(cartItem));
             when(cartItemRepository.delete(cartItem)).thenReturn(Mono.empty());
 
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+
             itemService.updateItemsCountInCart(USER_ID, itemId, CartAction.MINUS).block();
 
             verify(cartItemRepository, times(1)).delete(cartItem);
@@ -309,6 +471,8 @@ class ItemServiceImplTest {
             when(cartItemRepository.findByUserIdAndItemId(USER_ID, itemId)).thenReturn(Mono.just(cartItem));
             when(cartItemRepository.delete(cartItem)).thenReturn(Mono.empty());
 
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+
             itemService.updateItemsCountInCart(USER_ID, itemId, CartAction.DELETE).block();
 
             verify(cartItemRepository, times(1)).delete(cartItem);
@@ -332,6 +496,107 @@ class ItemServiceImplTest {
                     .isThrownBy(() -> itemService.updateItemsCountInCart(USER_ID, 1L, CartAction.DELETE).block());
 
             verify(cartItemRepository, never()).delete(any());
+            verifyNoInteractions(cartQuantityCacheService);
+        }
+
+        @Test
+        @DisplayName("cache failure does not fail cart update")
+        void test7() {
+            var itemId = 1L;
+            var cartItem = TestDataFactory.createCartItem(USER_ID, itemId, 2);
+
+            when(cartItemRepository.findByUserIdAndItemId(USER_ID, itemId)).thenReturn(Mono.just(cartItem));
+            when(cartItemRepository.delete(cartItem)).thenReturn(Mono.empty());
+            when(cartQuantityCacheService.evictQuantities(USER_ID))
+                    .thenReturn(Mono.error(new IllegalStateException("redis down")));
+
+            itemService.updateItemsCountInCart(USER_ID, itemId, CartAction.DELETE).block();
+
+            verify(cartItemRepository, times(1)).delete(cartItem);
+        }
+    }
+
+    @Nested
+    @DisplayName("guest cart")
+    class GuestCart {
+
+        @Test
+        @DisplayName("plus adds existing item")
+        void test1() {
+            when(itemRepository.existsById(2L)).thenReturn(Mono.just(true));
+
+            var cart = itemService.updateGuestCart(Map.of(1L, 1), 2L, CartAction.PLUS).block();
+
+            assertThat(cart).isEqualTo(Map.of(1L, 1, 2L, 1));
+            verifyNoInteractions(cartItemRepository);
+        }
+
+        @Test
+        @DisplayName("plus of unknown item")
+        void test2() {
+            when(itemRepository.existsById(2L)).thenReturn(Mono.just(false));
+
+            assertThatExceptionOfType(ItemNotFoundException.class)
+                    .isThrownBy(() -> itemService.updateGuestCart(Map.of(), 2L, CartAction.PLUS).block());
+        }
+
+        @Test
+        @DisplayName("minus removes last piece, missing item is not found")
+        void test3() {
+            assertThat(itemService.updateGuestCart(Map.of(1L, 1, 2L, 2), 1L, CartAction.MINUS).block())
+                    .isEqualTo(Map.of(2L, 2));
+            assertThatExceptionOfType(CartItemNotFoundException.class)
+                    .isThrownBy(() -> itemService.updateGuestCart(Map.of(), 1L, CartAction.DELETE).block());
+
+            verifyNoInteractions(itemRepository);
+        }
+
+        @Test
+        @DisplayName("getGuestCart skips deleted items")
+        void test4() {
+            var item = TestDataFactory.createItem(1L);
+            when(itemCacheService.getItemsByIds(List.of(1L, 2L)))
+                    .thenReturn(Mono.just(new CartCacheDto(List.of(ItemMapper.toItemCacheDto(item)))));
+
+            var cart = itemService.getGuestCart(new TreeMap<>(Map.of(1L, 2, 2L, 1))).block();
+
+            assertThat(cart.items()).hasSize(1);
+            assertThat(cart.total()).isEqualTo(200L);
+            assertThat(cart.isActiveButton()).isFalse();
+        }
+
+        @Test
+        @DisplayName("getItem reads quantity from guest cart")
+        void test5() {
+            var item = TestDataFactory.createItem(1L);
+            when(itemCacheService.findItem(item.getId())).thenReturn(Mono.just(ItemMapper.toItemCacheDto(item)));
+            when(itemCacheService.getStock(List.of(item.getId()))).thenReturn(Mono.just(new StockCacheDto(Map.of())));
+
+            var response = itemService.getItem(Optional.empty(), Map.of(1L, 3), item.getId()).block();
+
+            assertThat(response.count()).isEqualTo(3);
+            verifyNoInteractions(cartQuantityCacheService);
+        }
+
+        @Test
+        @DisplayName("mergeGuestCart upserts whole cart in one statement")
+        void test6() {
+            when(cartItemRepository.mergeQuantities(USER_ID, new Long[]{1L, 5L}, new Integer[]{2, 1}))
+                    .thenReturn(Mono.just(2));
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+
+            itemService.mergeGuestCart(USER_ID, Map.of(5L, 1, 1L, 2)).block();
+
+            verify(cartItemRepository).mergeQuantities(USER_ID, new Long[]{1L, 5L}, new Integer[]{2, 1});
+            verify(cartQuantityCacheService).evictQuantities(USER_ID);
+        }
+
+        @Test
+        @DisplayName("mergeGuestCart with empty cart")
+        void test7() {
+            itemService.mergeGuestCart(USER_ID, Map.of()).block();
+
+            verifyNoInteractions(cartItemRepository, cartQuantityCacheService);
         }
     }
 }
@@ -0,0 +1,103 @@
+package ru.practicum.market.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.context.ImportTestcontainers;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.config.TestOAuth2Config;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.integration.PaymentAdapter;
+import ru.practicum.market.repository.CartItemRepository;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.OrderRepository;
+import ru.practicum.market.repository.projection.ItemStockRow;
+import ru.practicum.market.service.OrderService;
+import ru.practicum.market.util.PostgresContainer;
+import ru.practicum.market.util.RedisTestContainer;
+import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.payments.integration.domain.HoldRs;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+@Testcontainers
+@ImportTestcontainers({PostgresContainer.class, RedisTestContainer.class})
+@ActiveProfiles("test")
+@Import(TestOAuth2Config.class)
+@DisplayName("OrderServiceImpl")
+class OrderServiceImplIT {
+
+    private static final int CHECKOUTS = 1_000;
+    private static final int STOCK = 300;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    DatabaseClient db;
+
+    @MockitoBean
+    private PaymentAdapter paymentAdapter;
+
+    @Value("${items.stock.stripes}")
+    private int stripes;
+
+    private long hot;
+
+    @BeforeEach
+    void setUp() {
+        db.sql("TRUNCATE TABLE items, cart_items, orders, order_items RESTART IDENTITY CASCADE").then().block();
+        hot = itemRepository.save(TestDataFactory.createItemForSave(1)).block().getId();
+        itemRepository.replaceStock(new Long[]{hot}, new Integer[]{STOCK}, stripes).block();
+        cartItemRepository.saveAll(Flux.range(1, CHECKOUTS)
+                        .map(userId -> TestDataFactory.createCartItem(userId, hot, 1)))
+                .blockLast();
+
+        when(paymentAdapter.hold(anyLong(), any()))
+                .thenAnswer(invocation -> Mono.just(new HoldRs().paymentId(UUID.randomUUID())));
+        when(paymentAdapter.confirm(any())).thenReturn(Mono.empty());
+    }
+
+    @Test
+    @DisplayName("concurrent checkouts never oversell and do not exhaust the connection pool")
+    void test1() {
+        // Параллельных заказов намного больше, чем соединений в пуле: оформление, которое держит одно соединение
+        // и ждет второе, здесь зависает.
+        var placed = Flux.range(1, CHECKOUTS)
+                .flatMap(userId -> orderService.createOrder(userId)
+                        .onErrorResume(OrderConflictException.class, e -> Mono.empty()), CHECKOUTS)
+                .collectList()
+                .block(Duration.ofMinutes(2));
+
+        assertThat(placed).hasSize(STOCK).doesNotHaveDuplicates();
+        assertThat(orderRepository.count().block()).isEqualTo(STOCK);
+        assertThat(itemRepository.findStockByItemIdIn(List.of(hot)).collectList().block())
+                .containsExactly(new ItemStockRow(hot, 0));
+        assertThat(cartItemRepository.count().block()).isEqualTo(CHECKOUTS - STOCK);
+        verify(paymentAdapter, never()).cancel(any());
+    }
+}
@@ -1,5 +1,7 @@
 package ru.practicum.market.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -7,7 +9,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.domain.exception.OrderConflictException;
@@ -19,16 +24,29 @@ import ru.practicum.market.repository.CartItemRepository;
 import ru.practicum.market.repository.ItemRepository;
 import ru.practicum.market.repository.OrderItemRepository;
 import ru.practicum.market.repository.OrderRepository;
+import ru.practicum.market.repository.projection.OrderHistoryRow;
+import ru.practicum.market.service.cache.CartQuantityCacheService;
+import ru.practicum.market.service.cache.OrderCacheService;
+import ru.practicum.market.service.cache.dto.OrderCacheDto;
+import ru.practicum.market.service.flashsale.FlashSaleStore;
+import ru.practicum.market.service.recommendation.CoPurchaseIndex;
+import ru.practicum.market.service.sales.ItemSalesCounter;
+import ru.practicum.market.service.stock.StockReserver;
 import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.dto.OrderResponseDto;
 import ru.practicum.payments.integration.domain.HoldRq;
 import ru.practicum.payments.integration.domain.HoldRs;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -37,6 +55,7 @@ import static org.mockito.Mockito.*;
 class OrderServiceImplTest {
 
     private static final long USER_ID = TestDataFactory.USER_ID;
+    private static final int PAGE_SIZE = 2;
 
     @Mock
     private OrderRepository orderRepository;
@@ -53,9 +72,40 @@ class OrderServiceImplTest {
     @Mock
     private PaymentAdapter paymentAdapter;
 
+    @Mock
+    private OrderCacheService orderCacheService;
+
+    @Mock
+    private CartQuantityCacheService cartQuantityCacheService;
+
+    @Mock
+    private ItemSalesCounter itemSalesCounter;
+
+    @Mock
+    private CoPurchaseIndex coPurchaseIndex;
+
+    @Mock
+    private StockReserver stockReserver;
+
+    @Mock
+    private FlashSaleStore flashSaleStore;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
     @InjectMocks
     private OrderServiceImpl orderService;
 
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderService, "historyPageSize", PAGE_SIZE);
+        lenient().when(transactionalOperator.transactional(any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
     @Nested
     @DisplayName("getOrders")
     class GetOrders {
@@ -63,13 +113,11 @@ class OrderServiceImplTest {
         @Test
         @DisplayName("ok")
         void test1() {
-            var items = TestDataFactory.createItems(1);
-            var orders = List.of(TestDataFactory.createOrder(1L, 500L));
-            var orderItems = List.of(new OrderItem(1L, items.getFirst().getId(), 2, items.getFirst().getPrice()));
+            var row = new OrderHistoryRow(1L, 500L, LocalDateTime.now(), """
+                    [{"itemId":1,"title":"title1","imgPath":"imgPath1","price":100,"quantity":2}]
+                    """);
 
-            when(orderRepository.findByUserId(USER_ID)).thenReturn(Flux.fromIterable(orders));
-            when(orderItemRepository.findByOrderIdIn(List.of(1L))).thenReturn(Flux.fromIterable(orderItems));
-            when(itemRepository.findByIdIn(List.of(items.getFirst().getId()))).thenReturn(Flux.fromIterable(items));
+            when(orderRepository.findHistoryFirstPage(USER_ID, PAGE_SIZE)).thenReturn(Flux.just(row));
 
             var result = orderService.getOrders(USER_ID).collectList().block();
             assertThat(result).hasSize(1);
@@ -77,19 +125,41 @@ class OrderServiceImplTest {
             assertThat(response.id()).isEqualTo(1L);
             assertThat(response.totalSum()).isEqualTo(500L);
             assertThat(response.items()).hasSize(1);
+            assertThat(response.items().getFirst().title()).isEqualTo("title1");
+            assertThat(response.items().getFirst().count()).isEqualTo(2);
 
-            verify(orderRepository, times(1)).findByUserId(USER_ID);
+            verify(orderRepository, times(1)).findHistoryFirstPage(USER_ID, PAGE_SIZE);
+            verify(orderRepository, never()).findHistoryPageAfter(anyLong(), any(), anyLong(), anyInt());
         }
 
         @Test
         @DisplayName("empty")
         void test2() {
-            when(orderRepository.findByUserId(USER_ID)).thenReturn(Flux.empty());
+            when(orderRepository.findHistoryFirstPage(USER_ID, PAGE_SIZE)).thenReturn(Flux.empty());
 
             var result = orderService.getOrders(USER_ID).collectList().block();
 
             assertThat(result).isEmpty();
-            verify(orderItemRepository, never()).findByOrderIdIn(anyCollection());
+            verify(orderRepository, never()).findHistoryPageAfter(anyLong(), any(), anyLong(), anyInt());
+        }
+
+        @Test
+        @DisplayName("full page fetches next page by keyset")
+        void test3() {
+            var createdAt = LocalDateTime.now();
+            var firstPage = List.of(
+                    new OrderHistoryRow(3L, 300L, createdAt, "[]"),
+                    new OrderHistoryRow(2L, 200L, createdAt.minusMinutes(1), "[]")
+            );
+            var secondPage = new OrderHistoryRow(1L, 100L, createdAt.minusMinutes(2), "[]");
+
+            when(orderRepository.findHistoryFirstPage(USER_ID, PAGE_SIZE)).thenReturn(Flux.fromIterable(firstPage));
+            when(orderRepository.findHistoryPageAfter(USER_ID, createdAt.minusMinutes(1), 2L, PAGE_SIZE))
+                    .thenReturn(Flux.just(secondPage));
+
+            var result = orderService.getOrders(USER_ID).collectList().block();
+
+            assertThat(result).extracting(OrderResponseDto::id).containsExactly(3L, 2L, 1L);
         }
     }
 
@@ -100,19 +170,14 @@ class OrderServiceImplTest {
         @Test
         @DisplayName("ok")
         void test1() {
-            var items = TestDataFactory.createItems(1);
-            var order = TestDataFactory.createOrder(1L, 400L);
-            var orderItems = List.of(new OrderItem(order.getId(), items.getFirst().getId(), 2, items.getFirst().getPrice()));
+            var order = TestDataFactory.createOrderResponseDto(1L, List.of(TestDataFactory.createItemResponseDto(1L, 2)), 200L);
 
-            when(orderRepository.findByUserIdAndId(USER_ID, order.getId())).thenReturn(Mono.just(order));
-            when(orderItemRepository.findByOrderId(order.getId())).thenReturn(Flux.fromIterable(orderItems));
-            when(itemRepository.findByIdIn(List.of(items.getFirst().getId())))
-                    .thenReturn(Flux.fromIterable(items));
+            when(orderCacheService.findOrder(1L)).thenReturn(Mono.just(new OrderCacheDto(USER_ID, order)));
 
-            var response = orderService.getOrder(USER_ID, order.getId()).block();
-            assertThat(response.id()).isEqualTo(order.getId());
-            assertThat(response.totalSum()).isEqualTo(order.getTotalSum());
-            assertThat(response.items()).hasSize(1);
+            var response = orderService.getOrder(USER_ID, 1L).block();
+            assertThat(response).isEqualTo(order);
+
+            verifyNoInteractions(orderRepository, orderItemRepository, itemRepository);
         }
 
         @Test
@@ -120,12 +185,21 @@ class OrderServiceImplTest {
         void test2() {
             var orderId = 99L;
 
-            when(orderRepository.findByUserIdAndId(USER_ID, orderId)).thenReturn(Mono.empty());
+            when(orderCacheService.findOrder(orderId)).thenReturn(Mono.empty());
 
             assertThatExceptionOfType(OrderNotFoundException.class)
                     .isThrownBy(() -> orderService.getOrder(USER_ID, orderId).block());
+        }
+
+        @Test
+        @DisplayName("order of another user")
+        void test3() {
+            var order = TestDataFactory.createOrderResponseDto(1L, List.of(), 0L);
 
-            verify(orderItemRepository, never()).findByOrderId(anyLong());
+            when(orderCacheService.findOrder(1L)).thenReturn(Mono.just(new OrderCacheDto(USER_ID + 1, order)));
+
+            assertThatExceptionOfType(OrderNotFoundException.class)
+                    .isThrownBy(() -> orderService.getOrder(USER_ID, 1L).block());
         }
     }
 
@@ -148,13 +222,18 @@ class OrderServiceImplTest {
             var holdRs = new HoldRs().paymentId(holdPaymentId);
 
             var orderItems = List.of(
-                    new OrderItem(orderId, items.get(0).getId(), 2, items.get(0).getPrice()),
-                    new OrderItem(orderId, items.get(1).getId(), 1, items.get(1).getPrice())
+                    new OrderItem(orderId, items.get(0).getId(), 2, items.get(0).getPrice(),
+                            items.get(0).getTitle(), items.get(0).getImgPath()),
+                    new OrderItem(orderId, items.get(1).getId(), 1, items.get(1).getPrice(),
+                            items.get(1).getTitle(), items.get(1).getImgPath())
             );
 
             when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.fromIterable(cartItems));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(Map.of()));
             when(itemRepository.findByIdIn(List.of(items.get(0).getId(), items.get(1).getId())))
                     .thenReturn(Flux.fromIterable(items));
+            when(flashSaleStore.consume(USER_ID, Map.of())).thenReturn(Mono.just(Map.of()));
+            when(stockReserver.reserve(cartItems)).thenReturn(Mono.empty());
             when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class))).thenReturn(Mono.just(holdRs));
             when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
                 Order order = invocation.getArgument(0);
@@ -163,31 +242,51 @@ class OrderServiceImplTest {
             });
             when(orderItemRepository.saveAll(anyList())).thenReturn(Flux.fromIterable(orderItems));
             when(cartItemRepository.deleteByIdIn(List.of(10L, 11L))).thenReturn(Mono.empty());
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
             when(paymentAdapter.confirm(holdPaymentId)).thenReturn(Mono.empty());
+            when(orderCacheService.putOrder(any(OrderCacheDto.class)))
+                    .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
 
             var response = orderService.createOrder(USER_ID).block();
             assertThat(response).isEqualTo(orderId);
 
+            ArgumentCaptor<OrderCacheDto> cacheCaptor = ArgumentCaptor.forClass(OrderCacheDto.class);
+            verify(orderCacheService).putOrder(cacheCaptor.capture());
+            assertThat(cacheCaptor.getValue().userId()).isEqualTo(USER_ID);
+            assertThat(cacheCaptor.getValue().order().id()).isEqualTo(orderId);
+            assertThat(cacheCaptor.getValue().order().items()).hasSize(2);
+
             ArgumentCaptor<HoldRq> holdRqCaptor = ArgumentCaptor.forClass(HoldRq.class);
             verify(paymentAdapter).hold(eq(USER_ID), holdRqCaptor.capture());
             assertThat(holdRqCaptor.getValue().getAmount()).isEqualTo(BigDecimal.valueOf(400));
             verify(cartItemRepository, times(1)).deleteByIdIn(List.of(10L, 11L));
+            verify(cartQuantityCacheService).evictQuantities(USER_ID);
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<Collection<OrderItem>> salesCaptor = ArgumentCaptor.forClass(Collection.class);
+            verify(itemSalesCounter).record(salesCaptor.capture());
+            assertThat(salesCaptor.getValue()).extracting(OrderItem::getItemId, OrderItem::getQuantity)
+                    .containsExactly(tuple(items.get(0).getId(), 2), tuple(items.get(1).getId(), 1));
+            verify(coPurchaseIndex).add(List.of(items.get(0).getId(), items.get(1).getId()));
+            verify(stockReserver, never()).release(anyCollection());
         }
 
         @Test
         @DisplayName("empty cart")
         void test2() {
             when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.empty());
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(Map.of()));
 
             assertThatExceptionOfType(OrderConflictException.class)
                     .isThrownBy(() -> orderService.createOrder(USER_ID).block());
 
             verify(orderRepository, never()).save(any());
             verify(paymentAdapter, never()).hold(anyLong(), any());
+            verifyNoInteractions(stockReserver);
         }
 
         @Test
-        @DisplayName("db failure triggers payment cancel")
+        @DisplayName("db failure triggers payment cancel and stock release")
         void test3() {
             var item = TestDataFactory.createItem(1L);
             var cartItem = TestDataFactory.createCartItem(USER_ID, item.getId(), 2);
@@ -195,16 +294,305 @@ class OrderServiceImplTest {
             var paymentId = UUID.randomUUID();
 
             when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(Map.of()));
             when(itemRepository.findByIdIn(List.of(item.getId()))).thenReturn(Flux.just(item));
+            when(stockReserver.reserve(List.of(cartItem))).thenReturn(Mono.empty());
+            when(flashSaleStore.consume(USER_ID, Map.of())).thenReturn(Mono.just(Map.of()));
             when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class))).thenReturn(Mono.just(new HoldRs().paymentId(paymentId)));
             when(orderRepository.save(any(Order.class))).thenReturn(Mono.error(new IllegalStateException("db fail")));
             when(paymentAdapter.cancel(paymentId)).thenReturn(Mono.empty());
+            when(stockReserver.release(List.of(cartItem))).thenReturn(Mono.empty());
+            when(flashSaleStore.restore(USER_ID, Map.of())).thenReturn(Mono.empty());
 
             assertThatExceptionOfType(IllegalStateException.class)
                     .isThrownBy(() -> orderService.createOrder(USER_ID).block())
                     .withMessageContaining("db fail");
 
             verify(paymentAdapter).cancel(paymentId);
+            verify(stockReserver).release(List.of(cartItem));
+            verify(itemSalesCounter, never()).record(anyCollection());
+            verify(coPurchaseIndex, never()).add(anyCollection());
+        }
+
+        @Test
+        @DisplayName("cache failure does not fail order")
+        void test4() {
+            var item = TestDataFactory.createItem(1L);
+            var cartItem = TestDataFactory.createCartItem(USER_ID, item.getId(), 1);
+            cartItem.setId(101L);
+            var paymentId = UUID.randomUUID();
+            var orderItem = new OrderItem(7L, item.getId(), 1, item.getPrice(), item.getTitle(), item.getImgPath());
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(Map.of()));
+            when(itemRepository.findByIdIn(List.of(item.getId()))).thenReturn(Flux.just(item));
+            when(stockReserver.reserve(List.of(cartItem))).thenReturn(Mono.empty());
+            when(flashSaleStore.consume(USER_ID, Map.of())).thenReturn(Mono.just(Map.of()));
+            when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class))).thenReturn(Mono.just(new HoldRs().paymentId(paymentId)));
+            when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+                Order order = invocation.getArgument(0);
+                order.setId(7L);
+                return Mono.just(order);
+            });
+            when(orderItemRepository.saveAll(anyList())).thenReturn(Flux.just(orderItem));
+            when(cartItemRepository.deleteByIdIn(List.of(101L))).thenReturn(Mono.empty());
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+            when(paymentAdapter.confirm(paymentId)).thenReturn(Mono.empty());
+            when(orderCacheService.putOrder(any(OrderCacheDto.class)))
+                    .thenReturn(Mono.error(new IllegalStateException("redis down")));
+
+            var response = orderService.createOrder(USER_ID).block();
+
+            assertThat(response).isEqualTo(7L);
+            verify(paymentAdapter, never()).cancel(any());
+        }
+
+        @Test
+        @DisplayName("out of stock")
+        void test5() {
+            var item = TestDataFactory.createItem(1L);
+            var cartItem = TestDataFactory.createCartItem(USER_ID, item.getId(), 3);
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(Map.of()));
+            when(itemRepository.findByIdIn(List.of(item.getId()))).thenReturn(Flux.just(item));
+            when(flashSaleStore.consume(USER_ID, Map.of())).thenReturn(Mono.just(Map.of()));
+            when(stockReserver.reserve(List.of(cartItem)))
+                    .thenReturn(Mono.error(new OrderConflictException("Not enough stock")));
+            when(flashSaleStore.restore(USER_ID, Map.of())).thenReturn(Mono.empty());
+
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> orderService.createOrder(USER_ID).block());
+
+            verify(paymentAdapter, never()).hold(anyLong(), any());
+            verify(orderRepository, never()).save(any());
+            verify(stockReserver, never()).release(anyCollection());
+        }
+
+        @Test
+        @DisplayName("payment hold failure releases stock")
+        void test6() {
+            var item = TestDataFactory.createItem(1L);
+            var cartItem = TestDataFactory.createCartItem(USER_ID, item.getId(), 1);
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(Map.of()));
+            when(itemRepository.findByIdIn(List.of(item.getId()))).thenReturn(Flux.just(item));
+            when(stockReserver.reserve(List.of(cartItem))).thenReturn(Mono.empty());
+            when(flashSaleStore.consume(USER_ID, Map.of())).thenReturn(Mono.just(Map.of()));
+            when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class)))
+                    .thenReturn(Mono.error(new IllegalStateException("payments down")));
+            when(stockReserver.release(List.of(cartItem)))
+                    .thenReturn(Mono.error(new IllegalStateException("db down")));
+            when(flashSaleStore.restore(USER_ID, Map.of())).thenReturn(Mono.empty());
+
+            assertThatExceptionOfType(IllegalStateException.class)
+                    .isThrownBy(() -> orderService.createOrder(USER_ID).block())
+                    .withMessageContaining("payments down");
+
+            verify(orderRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("flash sale claims become order lines")
+        void test7() {
+            var items = TestDataFactory.createItems(2);
+            var cartItem = TestDataFactory.createCartItem(USER_ID, items.get(0).getId(), 1);
+            cartItem.setId(10L);
+            var flashItemId = items.get(1).getId();
+            var flashClaims = Map.of(flashItemId, 2);
+            var paymentId = UUID.randomUUID();
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(flashClaims));
+            when(itemRepository.findByIdIn(List.of(items.get(0).getId(), flashItemId)))
+                    .thenReturn(Flux.fromIterable(items));
+            when(flashSaleStore.consume(USER_ID, flashClaims)).thenReturn(Mono.just(flashClaims));
+            when(stockReserver.reserve(List.of(cartItem))).thenReturn(Mono.empty());
+            when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class))).thenReturn(Mono.just(new HoldRs().paymentId(paymentId)));
+            when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+                Order order = invocation.getArgument(0);
+                order.setId(7L);
+                return Mono.just(order);
+            });
+            when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+            when(cartItemRepository.deleteByIdIn(List.of(10L))).thenReturn(Mono.empty());
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+            when(paymentAdapter.confirm(paymentId)).thenReturn(Mono.empty());
+            when(orderCacheService.putOrder(any(OrderCacheDto.class)))
+                    .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+            var response = orderService.createOrder(USER_ID).block();
+
+            assertThat(response).isEqualTo(7L);
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<OrderItem>> orderItemsCaptor = ArgumentCaptor.forClass(List.class);
+            verify(orderItemRepository).saveAll(orderItemsCaptor.capture());
+            assertThat(orderItemsCaptor.getValue()).extracting(OrderItem::getItemId, OrderItem::getQuantity)
+                    .containsExactly(tuple(items.get(0).getId(), 1), tuple(flashItemId, 2));
+            ArgumentCaptor<HoldRq> holdRqCaptor = ArgumentCaptor.forClass(HoldRq.class);
+            verify(paymentAdapter).hold(eq(USER_ID), holdRqCaptor.capture());
+            assertThat(holdRqCaptor.getValue().getAmount()).isEqualTo(BigDecimal.valueOf(500));
+        }
+
+        @Test
+        @DisplayName("expired flash sale claim")
+        void test8() {
+            var item = TestDataFactory.createItem(1L);
+            var flashClaims = Map.of(item.getId(), 1);
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.empty());
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(flashClaims));
+            when(flashSaleStore.consume(USER_ID, flashClaims))
+                    .thenReturn(Mono.error(new OrderConflictException("Flash sale reservation has expired")));
+
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> orderService.createOrder(USER_ID).block());
+
+            verifyNoInteractions(stockReserver);
+            verify(paymentAdapter, never()).hold(anyLong(), any());
+            verify(flashSaleStore, never()).restore(anyLong(), anyMap());
+        }
+
+        @Test
+        @DisplayName("payment hold failure restores flash sale units and returns units of ended sales to stock")
+        void test9() {
+            var item = TestDataFactory.createItem(1L);
+            var flashClaims = Map.of(item.getId(), 1);
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.empty());
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(flashClaims));
+            when(itemRepository.findByIdIn(List.of(item.getId()))).thenReturn(Flux.just(item));
+            when(flashSaleStore.consume(USER_ID, flashClaims)).thenReturn(Mono.just(flashClaims));
+            when(stockReserver.reserve(List.of())).thenReturn(Mono.empty());
+            when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class)))
+                    .thenReturn(Mono.error(new IllegalStateException("payments down")));
+            when(stockReserver.release(List.of())).thenReturn(Mono.empty());
+            when(flashSaleStore.restore(USER_ID, flashClaims)).thenReturn(Mono.just(flashClaims));
+            when(stockReserver.releaseQuantities(flashClaims)).thenReturn(Mono.empty());
+
+            assertThatExceptionOfType(IllegalStateException.class)
+                    .isThrownBy(() -> orderService.createOrder(USER_ID).block())
+                    .withMessageContaining("payments down");
+
+            verify(flashSaleStore).restore(USER_ID, flashClaims);
+            verify(stockReserver).releaseQuantities(flashClaims);
+            verify(orderRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("payment confirm failure cancels saved order and restores cart")
+        void test10() {
+            var item = TestDataFactory.createItem(1L);
+            var cartItem = TestDataFactory.createCartItem(USER_ID, item.getId(), 2);
+            cartItem.setId(101L);
+            var paymentId = UUID.randomUUID();
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(Map.of()));
+            when(itemRepository.findByIdIn(List.of(item.getId()))).thenReturn(Flux.just(item));
+            when(flashSaleStore.consume(USER_ID, Map.of())).thenReturn(Mono.just(Map.of()));
+            when(stockReserver.reserve(List.of(cartItem))).thenReturn(Mono.empty());
+            when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class))).thenReturn(Mono.just(new HoldRs().paymentId(paymentId)));
+            when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+                Order order = invocation.getArgument(0);
+                order.setId(7L);
+                return Mono.just(order);
+            });
+            when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+            when(cartItemRepository.deleteByIdIn(List.of(101L))).thenReturn(Mono.empty());
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+            when(paymentAdapter.confirm(paymentId)).thenReturn(Mono.error(new IllegalStateException("payments down")));
+            when(paymentAdapter.cancel(paymentId)).thenReturn(Mono.empty());
+            when(orderItemRepository.deleteByOrderId(7L)).thenReturn(Mono.empty());
+            when(orderRepository.deleteById(7L)).thenReturn(Mono.empty());
+            when(cartItemRepository.mergeQuantities(USER_ID, new Long[]{item.getId()}, new Integer[]{2}))
+                    .thenReturn(Mono.just(1));
+            when(stockReserver.release(List.of(cartItem))).thenReturn(Mono.empty());
+            when(flashSaleStore.restore(USER_ID, Map.of())).thenReturn(Mono.empty());
+
+            assertThatExceptionOfType(IllegalStateException.class)
+                    .isThrownBy(() -> orderService.createOrder(USER_ID).block())
+                    .withMessageContaining("payments down");
+
+            verify(paymentAdapter).cancel(paymentId);
+            verify(orderRepository).deleteById(7L);
+            verify(stockReserver).release(List.of(cartItem));
+            verify(transactionalOperator, times(2)).transactional(any(Mono.class));
+            verify(orderCacheService, never()).putOrder(any());
+            verify(coPurchaseIndex, never()).add(anyCollection());
+            verify(itemSalesCounter, never()).record(anyCollection());
+        }
+
+        @Test
+        @DisplayName("claims of ended flash sales are dropped from order")
+        void test11() {
+            var items = TestDataFactory.createItems(2);
+            var cartItem = TestDataFactory.createCartItem(USER_ID, items.get(0).getId(), 1);
+            cartItem.setId(10L);
+            var flashClaims = Map.of(items.get(1).getId(), 2);
+            var paymentId = UUID.randomUUID();
+
+            when(cartItemRepository.findByUserId(USER_ID)).thenReturn(Flux.just(cartItem));
+            when(flashSaleStore.claims(USER_ID)).thenReturn(Mono.just(flashClaims));
+            when(flashSaleStore.consume(USER_ID, flashClaims)).thenReturn(Mono.just(Map.of()));
+            when(itemRepository.findByIdIn(List.of(items.get(0).getId()))).thenReturn(Flux.just(items.get(0)));
+            when(stockReserver.reserve(List.of(cartItem))).thenReturn(Mono.empty());
+            when(paymentAdapter.hold(eq(USER_ID), any(HoldRq.class))).thenReturn(Mono.just(new HoldRs().paymentId(paymentId)));
+            when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+                Order order = invocation.getArgument(0);
+                order.setId(7L);
+                return Mono.just(order);
+            });
+            when(orderItemRepository.saveAll(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+            when(cartItemRepository.deleteByIdIn(List.of(10L))).thenReturn(Mono.empty());
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+            when(paymentAdapter.confirm(paymentId)).thenReturn(Mono.empty());
+            when(orderCacheService.putOrder(any(OrderCacheDto.class)))
+                    .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+            var response = orderService.createOrder(USER_ID).block();
+
+            assertThat(response).isEqualTo(7L);
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<OrderItem>> orderItemsCaptor = ArgumentCaptor.forClass(List.class);
+            verify(orderItemRepository).saveAll(orderItemsCaptor.capture());
+            assertThat(orderItemsCaptor.getValue()).extracting(OrderItem::getItemId)
+                    .containsExactly(items.get(0).getId());
+            verify(flashSaleStore, never()).restore(anyLong(), anyMap());
+        }
+    }
+
+    @Nested
+    @DisplayName("reorder")
+    class Reorder {
+
+        @Test
+        @DisplayName("copies order lines into cart")
+        void test1() {
+            var order = TestDataFactory.createOrderResponseDto(1L, List.of(TestDataFactory.createItemResponseDto(1L, 2)), 200L);
+
+            when(orderCacheService.findOrder(1L)).thenReturn(Mono.just(new OrderCacheDto(USER_ID, order)));
+            when(cartItemRepository.copyFromOrder(USER_ID, 1L)).thenReturn(Mono.just(1));
+            when(cartQuantityCacheService.evictQuantities(USER_ID)).thenReturn(Mono.empty());
+
+            var copied = orderService.reorder(USER_ID, 1L).block();
+
+            assertThat(copied).isEqualTo(1);
+            verify(cartQuantityCacheService).evictQuantities(USER_ID);
+        }
+
+        @Test
+        @DisplayName("order of another user is not copied")
+        void test2() {
+            var order = TestDataFactory.createOrderResponseDto(1L, List.of(), 0L);
+
+            when(orderCacheService.findOrder(1L)).thenReturn(Mono.just(new OrderCacheDto(USER_ID + 1, order)));
+
+            assertThatExceptionOfType(OrderNotFoundException.class)
+                    .isThrownBy(() -> orderService.reorder(USER_ID, 1L).block());
+
+            verify(cartItemRepository, never()).copyFromOrder(anyLong(), anyLong());
         }
     }
 }
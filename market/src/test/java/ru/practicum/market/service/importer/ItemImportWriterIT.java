@@ -0,0 +1,54 @@
+package ru.practicum.market.service.importer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.context.ImportTestcontainers;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import ru.practicum.market.config.TestOAuth2Config;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.util.PostgresContainer;
+import ru.practicum.market.util.RedisTestContainer;
+import ru.practicum.market.util.TestDataFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+@ImportTestcontainers({PostgresContainer.class, RedisTestContainer.class})
+@ActiveProfiles("test")
+@Import(TestOAuth2Config.class)
+@DisplayName("ItemImportWriter")
+class ItemImportWriterIT {
+
+    private static final int ROWS = 5;
+
+    @Autowired
+    private ItemImportWriter itemImportWriter;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    DatabaseClient db;
+
+    @BeforeEach
+    void setUp() {
+        db.sql("TRUNCATE TABLE items RESTART IDENTITY CASCADE").then().block();
+    }
+
+    @Test
+    @DisplayName("reimporting file without sku does not duplicate items")
+    void test1() {
+        var first = itemImportWriter.write(Flux.fromIterable(TestDataFactory.createItemsForSave(ROWS))).block();
+        var second = itemImportWriter.write(Flux.fromIterable(TestDataFactory.createItemsForSave(ROWS))).block();
+
+        assertThat(first).isEqualTo(new ItemImportResult(ROWS, 0, 0));
+        assertThat(second).isEqualTo(new ItemImportResult(0, 0, ROWS));
+        assertThat(itemRepository.count().block()).isEqualTo(ROWS);
+    }
+}
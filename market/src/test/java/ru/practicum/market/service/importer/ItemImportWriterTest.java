@@ -0,0 +1,221 @@
+package ru.practicum.market.service.importer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.Item;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.projection.ItemContentHashRow;
+import ru.practicum.market.repository.projection.ItemSkuRow;
+import ru.practicum.market.repository.projection.ItemUpsertRow;
+import ru.practicum.market.service.cache.ItemCacheService;
+import ru.practicum.market.util.TestDataFactory;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ItemImportWriter")
+class ItemImportWriterTest {
+
+    private static final int CHUNK_SIZE = 2;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private ItemCacheService itemCacheService;
+
+    @Mock
+    private TransactionalOperator transactionalOperator;
+
+    @InjectMocks
+    private ItemImportWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(writer, "chunkSize", CHUNK_SIZE);
+        ReflectionTestUtils.setField(writer, "parallelism", 2);
+        lenient().when(transactionalOperator.transactional(any(Mono.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Nested
+    @DisplayName("write")
+    class Write {
+
+        @Test
+        @DisplayName("writes chunks and sums counts")
+        void test1() {
+            var items = TestDataFactory.createItems(3);
+            when(itemRepository.findContentHashesBySkuIn(anyCollection())).thenReturn(Flux.empty());
+            when(itemRepository.upsertAll(anyList()))
+                    .thenReturn(Flux.just(new ItemUpsertRow(1L, "sku1", true, 0), new ItemUpsertRow(2L, "sku2", false, 1)))
+                    .thenReturn(Flux.empty());
+            when(itemCacheService.evictItems(List.of(2L))).thenReturn(Mono.empty());
+
+            var result = writer.write(Flux.fromIterable(items)).block();
+
+            assertThat(result).isEqualTo(new ItemImportResult(1, 1, 1));
+            verify(itemRepository, times(2)).upsertAll(anyList());
+            verify(itemCacheService, times(1)).evictItems(List.of(2L));
+            verify(transactionalOperator, times(2)).transactional(any(Mono.class));
+        }
+
+        @Test
+        @DisplayName("empty source")
+        void test2() {
+            var result = writer.write(Flux.empty()).block();
+
+            assertThat(result).isEqualTo(ItemImportResult.EMPTY);
+        }
+
+        @Test
+        @DisplayName("keeps last row for duplicated sku in chunk")
+        void test3() {
+            var first = TestDataFactory.createItem(1L);
+            var second = TestDataFactory.createItem(2L);
+            second.setSku(first.getSku());
+            when(itemRepository.findContentHashesBySkuIn(anyCollection())).thenReturn(Flux.empty());
+            when(itemRepository.upsertAll(anyList())).thenReturn(Flux.just(new ItemUpsertRow(1L, "sku1", true, 0)));
+
+            var result = writer.write(Flux.just(first, second)).block();
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<Item>> captor = ArgumentCaptor.forClass(List.class);
+            verify(itemRepository).upsertAll(captor.capture());
+            assertThat(captor.getValue()).containsExactly(second);
+            assertThat(result).isEqualTo(new ItemImportResult(1, 0, 1));
+        }
+
+        @Test
+        @DisplayName("skips rows with unchanged content hash")
+        void test4() {
+            var unchanged = TestDataFactory.createItem(1L);
+            var changed = TestDataFactory.createItem(2L);
+            var stored = Flux.just(
+                    new ItemContentHashRow(unchanged.getSku(), ItemContentHash.of(unchanged)),
+                    new ItemContentHashRow(changed.getSku(), ItemContentHash.of(changed) + 1)
+            );
+            when(itemRepository.findContentHashesBySkuIn(anyCollection())).thenReturn(stored);
+            when(itemRepository.upsertAll(anyList())).thenReturn(Flux.just(new ItemUpsertRow(2L, "sku2", false, 0)));
+            when(itemCacheService.evictItems(List.of(2L))).thenReturn(Mono.empty());
+
+            var result = writer.write(Flux.just(unchanged, changed)).block();
+
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<Item>> captor = ArgumentCaptor.forClass(List.class);
+            verify(itemRepository).upsertAll(captor.capture());
+            assertThat(captor.getValue()).containsExactly(changed);
+            assertThat(changed.getContentHash()).isEqualTo(ItemContentHash.of(changed));
+            assertThat(result).isEqualTo(new ItemImportResult(0, 1, 1));
+        }
+
+        @Test
+        @DisplayName("unchanged chunk is not written")
+        void test5() {
+            var item = TestDataFactory.createItem(1L);
+            when(itemRepository.findContentHashesBySkuIn(anyCollection()))
+                    .thenReturn(Flux.just(new ItemContentHashRow(item.getSku(), ItemContentHash.of(item))));
+            when(itemRepository.upsertAll(List.of())).thenReturn(Flux.empty());
+
+            var result = writer.write(Flux.just(item)).block();
+
+            assertThat(result).isEqualTo(new ItemImportResult(0, 0, 1));
+            verify(itemCacheService, never()).evictItems(anyList());
+        }
+
+        @Test
+        @DisplayName("replaces tags of written items in one query")
+        void test6() {
+            var withSku = TestDataFactory.createItem(1L);
+            withSku.setTags(List.of("kitchen", "sale"));
+            var withoutSku = TestDataFactory.createItem(2L);
+            withoutSku.setSku(null);
+            withoutSku.setTags(List.of("toys"));
+            var derivedSku = DerivedSku.of(withoutSku.getTitle());
+            when(itemRepository.findContentHashesBySkuIn(anyCollection())).thenReturn(Flux.empty());
+            // Строки пачки упорядочены по артикулу: выведенный артикул "auto-..." идет перед "sku1".
+            when(itemRepository.upsertAll(anyList()))
+                    .thenReturn(Flux.just(new ItemUpsertRow(20L, derivedSku, true, 0), new ItemUpsertRow(10L, "sku1", true, 1)));
+            when(itemRepository.replaceTags(new Long[]{20L, 10L, 10L}, new String[]{"toys", "kitchen", "sale"}))
+                    .thenReturn(Mono.just(3));
+
+            var result = writer.write(Flux.just(withSku, withoutSku)).block();
+
+            assertThat(result).isEqualTo(new ItemImportResult(2, 0, 0));
+        }
+
+        @Test
+        @DisplayName("sets stock of written and unchanged items in one query")
+        void test7() {
+            ReflectionTestUtils.setField(writer, "stripes", 4);
+            var unchanged = TestDataFactory.createItem(1L);
+            unchanged.setStock(0);
+            var created = TestDataFactory.createItem(2L);
+            created.setStock(9);
+            when(itemRepository.findContentHashesBySkuIn(anyCollection()))
+                    .thenReturn(Flux.just(new ItemContentHashRow(unchanged.getSku(), ItemContentHash.of(unchanged))));
+            when(itemRepository.upsertAll(List.of(created))).thenReturn(Flux.just(new ItemUpsertRow(20L, "sku2", true, 0)));
+            when(itemRepository.findIdsBySkuIn(Set.of("sku1"))).thenReturn(Flux.just(new ItemSkuRow(10L, "sku1")));
+            when(itemRepository.replaceStock(new Long[]{10L, 20L}, new Integer[]{0, 9}, 4)).thenReturn(Mono.just(8));
+
+            var result = writer.write(Flux.just(unchanged, created)).block();
+
+            assertThat(result).isEqualTo(new ItemImportResult(1, 0, 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("deduplicateBySku")
+    class DeduplicateBySku {
+
+        @Test
+        @DisplayName("orders rows by sku")
+        void test1() {
+            var b = TestDataFactory.createItem(1L);
+            b.setSku("b");
+            var a = TestDataFactory.createItem(3L);
+            a.setSku("a");
+
+            var rows = ItemImportWriter.deduplicateBySku(List.of(b, a));
+
+            assertThat(rows).containsExactly(a, b);
+        }
+    }
+
+    @Nested
+    @DisplayName("DerivedSku")
+    class DerivedSkuKey {
+
+        @Test
+        @DisplayName("depends on normalized title only")
+        void test1() {
+            var sku = DerivedSku.of("Кружка Утро");
+
+            assertThat(sku).startsWith(DerivedSku.PREFIX).hasSize(DerivedSku.PREFIX.length() + 16);
+            assertThat(DerivedSku.of("  кружка утро ")).isEqualTo(sku);
+            assertThat(DerivedSku.of("Кружка Вечер")).isNotEqualTo(sku);
+        }
+    }
+}
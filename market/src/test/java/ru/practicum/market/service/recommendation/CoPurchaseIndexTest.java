@@ -0,0 +1,102 @@
+package ru.practicum.market.service.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import ru.practicum.market.repository.OrderItemRepository;
+import ru.practicum.market.repository.projection.OrderBasketRow;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CoPurchaseIndex")
+class CoPurchaseIndexTest {
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @InjectMocks
+    private CoPurchaseIndex index;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "topK", 2);
+        ReflectionTestUtils.setField(index, "maxRelatedPerItem", 3);
+    }
+
+    @Nested
+    @DisplayName("rebuild")
+    class Rebuild {
+
+        @Test
+        @DisplayName("counts items bought in the same order")
+        void test1() {
+            when(orderItemRepository.findBasketsOrderByOrderId()).thenReturn(Flux.just(
+                    new OrderBasketRow(1L, 1L), new OrderBasketRow(1L, 2L), new OrderBasketRow(1L, 3L),
+                    new OrderBasketRow(2L, 1L), new OrderBasketRow(2L, 3L),
+                    new OrderBasketRow(3L, 1L), new OrderBasketRow(3L, 3L),
+                    new OrderBasketRow(4L, 4L)
+            ));
+
+            index.rebuild().block();
+
+            assertThat(index.related(1L)).containsExactly(3L, 2L);
+            assertThat(index.related(2L)).containsExactly(1L, 3L);
+            assertThat(index.related(4L)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("replaces incremental counts")
+        void test2() {
+            index.add(List.of(1L, 2L));
+            when(orderItemRepository.findBasketsOrderByOrderId()).thenReturn(Flux.just(
+                    new OrderBasketRow(1L, 1L), new OrderBasketRow(1L, 3L)
+            ));
+
+            index.rebuild().block();
+
+            assertThat(index.related(1L)).containsExactly(3L);
+        }
+    }
+
+    @Nested
+    @DisplayName("add")
+    class Add {
+
+        @Test
+        @DisplayName("full row evicts the rarest item")
+        void test1() {
+            index.add(List.of(1L, 2L));
+            index.add(List.of(1L, 2L));
+            index.add(List.of(1L, 3L));
+            index.add(List.of(1L, 3L));
+            index.add(List.of(1L, 4L));
+            index.add(List.of(1L, 5L));
+
+            // Строка вмещает три товара: 5 вытесняет 4 и получает его счетчик плюс один.
+            assertThat(index.related(1L)).containsExactly(2L, 3L);
+            index.add(List.of(1L, 5L));
+            assertThat(index.related(1L)).containsExactly(5L, 2L);
+        }
+
+        @Test
+        @DisplayName("ignores single items, duplicates and bulk orders")
+        void test2() {
+            index.add(List.of(1L, 1L));
+            index.add(LongStream.rangeClosed(1, CoPurchaseIndex.MAX_BASKET_SIZE + 1).boxed().toList());
+
+            assertThat(index.related(1L)).isEmpty();
+        }
+    }
+}
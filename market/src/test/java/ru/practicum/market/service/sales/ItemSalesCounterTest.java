@@ -0,0 +1,116 @@
+package ru.practicum.market.service.sales;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.model.OrderItem;
+import ru.practicum.market.repository.ItemRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ItemSalesCounter")
+class ItemSalesCounterTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @InjectMocks
+    private ItemSalesCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(counter, "halfLife", Duration.ofDays(30));
+    }
+
+    @Nested
+    @DisplayName("flush")
+    class Flush {
+
+        @Test
+        @DisplayName("sums recorded quantities per item in id order")
+        void test1() {
+            counter.record(List.of(
+                    new OrderItem(1L, 20L, 1, 100L, "b", null),
+                    new OrderItem(1L, 10L, 2, 100L, "a", null)
+            ));
+            counter.record(List.of(new OrderItem(2L, 20L, 3, 100L, "b", null)));
+            when(itemRepository.addSales(eq(new Long[]{10L, 20L}), eq(new Integer[]{2, 4}), anyDouble()))
+                    .thenReturn(Mono.just(2));
+
+            counter.flush().block();
+            counter.flush().block();
+
+            verify(itemRepository, times(1)).addSales(any(), any(), anyDouble());
+        }
+
+        @Test
+        @DisplayName("nothing recorded is not flushed")
+        void test2() {
+            counter.record(List.of());
+
+            counter.flush().block();
+
+            verifyNoInteractions(itemRepository);
+        }
+
+        @Test
+        @DisplayName("failed flush keeps quantities for the next one")
+        void test3() {
+            counter.record(List.of(new OrderItem(1L, 10L, 2, 100L, "a", null)));
+            when(itemRepository.addSales(eq(new Long[]{10L}), eq(new Integer[]{2}), anyDouble()))
+                    .thenReturn(Mono.error(new IllegalStateException("db down")));
+            counter.flush().block();
+
+            counter.record(List.of(new OrderItem(2L, 10L, 1, 100L, "a", null)));
+            when(itemRepository.addSales(eq(new Long[]{10L}), eq(new Integer[]{3}), anyDouble()))
+                    .thenReturn(Mono.just(1));
+            counter.flush().block();
+
+            verify(itemRepository).addSales(eq(new Long[]{10L}), eq(new Integer[]{3}), anyDouble());
+        }
+    }
+
+    @Nested
+    @DisplayName("logWeight")
+    class LogWeight {
+
+        @Test
+        @DisplayName("weight doubles every half-life")
+        void test1() {
+            var start = ItemSalesCounter.EPOCH.plus(Duration.ofDays(90));
+
+            var now = counter.logWeight(start);
+            var later = counter.logWeight(start.plus(Duration.ofDays(30)));
+
+            assertThat(now).isCloseTo(3 * Math.log(2), within(1e-9));
+            assertThat(later - now).isCloseTo(Math.log(2), within(1e-9));
+        }
+
+        @Test
+        @DisplayName("zero half-life disables decay")
+        void test2() {
+            ReflectionTestUtils.setField(counter, "halfLife", Duration.ZERO);
+
+            assertThat(counter.logWeight(ItemSalesCounter.EPOCH.plus(Duration.ofDays(365)))).isZero();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.market.service.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.web.server.WebFilterExchange;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.service.ItemService;
+import ru.practicum.market.service.security.model.AppPrincipal;
+import ru.practicum.market.web.bind.GuestCartCookie;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GuestCartLoginSuccessHandler")
+class GuestCartLoginSuccessHandlerTest {
+
+    private static final long USER_ID = 7L;
+
+    @Mock
+    private ItemService itemService;
+
+    @Mock
+    private GuestCartCookie guestCartCookie;
+
+    @InjectMocks
+    private GuestCartLoginSuccessHandler handler;
+
+    @Test
+    @DisplayName("merges guest cart, clears cookie and redirects home")
+    void test1() {
+        var exchange = exchangeWithCookie();
+        when(guestCartCookie.read(exchange)).thenReturn(Map.of(1L, 2));
+        when(itemService.mergeGuestCart(USER_ID, Map.of(1L, 2))).thenReturn(Mono.empty());
+
+        handler.onAuthenticationSuccess(new WebFilterExchange(exchange, e -> Mono.empty()), authentication()).block();
+
+        verify(guestCartCookie).clear(exchange);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FOUND);
+        assertThat(exchange.getResponse().getHeaders().getLocation()).hasToString("/");
+    }
+
+    @Test
+    @DisplayName("keeps cookie when merge fails")
+    void test2() {
+        var exchange = exchangeWithCookie();
+        when(guestCartCookie.read(exchange)).thenReturn(Map.of(1L, 2));
+        when(itemService.mergeGuestCart(USER_ID, Map.of(1L, 2))).thenReturn(Mono.error(new IllegalStateException()));
+
+        handler.onAuthenticationSuccess(new WebFilterExchange(exchange, e -> Mono.empty()), authentication()).block();
+
+        verify(guestCartCookie, never()).clear(any());
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FOUND);
+    }
+
+    @Test
+    @DisplayName("skips merge without cookie")
+    void test3() {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/login"));
+
+        handler.onAuthenticationSuccess(new WebFilterExchange(exchange, e -> Mono.empty()), authentication()).block();
+
+        verifyNoInteractions(itemService, guestCartCookie);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FOUND);
+    }
+
+    private static MockServerWebExchange exchangeWithCookie() {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/login")
+                .cookie(new HttpCookie(GuestCartCookie.COOKIE_NAME, "value")));
+    }
+
+    private static UsernamePasswordAuthenticationToken authentication() {
+        var principal = new AppPrincipal(USER_ID, "john", "hash", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        return new UsernamePasswordAuthenticationToken(principal, "credentials", principal.getAuthorities());
+    }
+}
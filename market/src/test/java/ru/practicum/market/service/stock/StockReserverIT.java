@@ -0,0 +1,95 @@
+package ru.practicum.market.service.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.boot.testcontainers.context.ImportTestcontainers;
+import org.springframework.context.annotation.Import;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.domain.model.CartItem;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.repository.projection.ItemStockRow;
+import ru.practicum.market.util.PostgresContainer;
+import ru.practicum.market.util.TestCacheConfig;
+import ru.practicum.market.util.TestDataFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DataR2dbcTest(properties = "items.stock.stripes=4")
+@Testcontainers
+@ImportTestcontainers(PostgresContainer.class)
+@Import({TestCacheConfig.class, StockReserver.class})
+@DisplayName("StockReserver")
+class StockReserverIT {
+
+    private static final int CHECKOUTS = 1_000;
+
+    @Autowired
+    private StockReserver stockReserver;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    DatabaseClient db;
+
+    private long hot;
+    private long scarce;
+
+    @BeforeEach
+    void setUp() {
+        db.sql("TRUNCATE TABLE items RESTART IDENTITY CASCADE").then().block();
+        var saved = itemRepository.saveAll(TestDataFactory.createItemsForSave(2)).collectList().block();
+        hot = saved.get(0).getId();
+        scarce = saved.get(1).getId();
+        itemRepository.replaceStock(new Long[]{hot, scarce}, new Integer[]{300, 50}, 4).block();
+    }
+
+    @Test
+    @DisplayName("concurrent checkouts never oversell")
+    void test1() {
+        // Каждый пятый заказ берет еще и редкий товар: многострочные заказы блокируют полосы двух товаров.
+        var succeeded = Flux.range(0, CHECKOUTS)
+                .flatMap(i -> {
+                    var withScarce = i % 5 == 0;
+                    var cartItems = withScarce
+                            ? List.of(TestDataFactory.createCartItem(hot, 1), TestDataFactory.createCartItem(scarce, 1))
+                            : List.of(TestDataFactory.createCartItem(hot, 1));
+                    return stockReserver.reserve(cartItems)
+                            .thenReturn(withScarce)
+                            .onErrorResume(OrderConflictException.class, e -> Mono.empty());
+                }, CHECKOUTS)
+                .collectList()
+                .block();
+
+        var scarceSold = succeeded.stream().filter(Boolean::booleanValue).count();
+        assertThat(succeeded).hasSize(300);
+        assertThat(scarceSold).isLessThanOrEqualTo(50);
+        assertThat(itemRepository.findStockByItemIdIn(List.of(hot, scarce)).collectList().block())
+                .containsExactlyInAnyOrder(new ItemStockRow(hot, 0), new ItemStockRow(scarce, 50 - (int) scarceSold));
+    }
+
+    @Test
+    @DisplayName("shortage of one line reserves nothing, release returns stock")
+    void test2() {
+        List<CartItem> tooMuch = List.of(TestDataFactory.createCartItem(hot, 10), TestDataFactory.createCartItem(scarce, 51));
+        List<CartItem> cartItems = List.of(TestDataFactory.createCartItem(hot, 100), TestDataFactory.createCartItem(scarce, 50));
+
+        assertThatExceptionOfType(OrderConflictException.class)
+                .isThrownBy(() -> stockReserver.reserve(tooMuch).block());
+        stockReserver.reserve(cartItems).block();
+        assertThat(itemRepository.findStockByItemIdIn(List.of(hot, scarce)).collectList().block())
+                .containsExactlyInAnyOrder(new ItemStockRow(hot, 200), new ItemStockRow(scarce, 0));
+
+        stockReserver.release(cartItems).block();
+        assertThat(itemRepository.findStockByItemIdIn(List.of(hot, scarce)).collectList().block())
+                .containsExactlyInAnyOrder(new ItemStockRow(hot, 300), new ItemStockRow(scarce, 50));
+    }
+}
@@ -0,0 +1,154 @@
+package ru.practicum.market.service.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.repository.ItemRepository;
+import ru.practicum.market.util.TestDataFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StockReserver")
+class StockReserverTest {
+
+    private static final int STRIPES = 4;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private ReactiveTransactionManager transactionManager;
+
+    @Mock
+    private ReactiveTransaction transaction;
+
+    @InjectMocks
+    private StockReserver stockReserver;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(stockReserver, "stripes", STRIPES);
+    }
+
+    @Nested
+    @DisplayName("reserve")
+    class Reserve {
+
+        @Test
+        @DisplayName("sums lines per item and takes them from random stripes")
+        void test1() {
+            var cartItems = List.of(
+                    TestDataFactory.createCartItem(2L, 1),
+                    TestDataFactory.createCartItem(1L, 2),
+                    TestDataFactory.createCartItem(1L, 1)
+            );
+            stubTransactions();
+            when(itemRepository.reserveStockFromStripes(eq(new Long[]{1L, 2L}), any(Integer[].class), eq(new Integer[]{3, 1})))
+                    .thenReturn(Mono.just(0L));
+
+            stockReserver.reserve(cartItems).block();
+
+            ArgumentCaptor<Integer[]> stripesCaptor = ArgumentCaptor.forClass(Integer[].class);
+            verify(itemRepository).reserveStockFromStripes(any(Long[].class), stripesCaptor.capture(), any(Integer[].class));
+            assertThat(stripesCaptor.getValue()).hasSize(2).allMatch(stripe -> stripe >= 0 && stripe < STRIPES);
+            verify(itemRepository, never()).reserveStockFromAllStripes(any(), any());
+            verify(transaction, never()).setRollbackOnly();
+        }
+
+        @Test
+        @DisplayName("exhausted stripe rolls back and locks all stripes")
+        void test2() {
+            var cartItems = List.of(TestDataFactory.createCartItem(1L, 2));
+            stubTransactions();
+            when(itemRepository.reserveStockFromStripes(eq(new Long[]{1L}), any(Integer[].class), eq(new Integer[]{2})))
+                    .thenReturn(Mono.just(1L));
+            when(itemRepository.reserveStockFromAllStripes(new Long[]{1L}, new Integer[]{2})).thenReturn(Mono.just(0L));
+
+            stockReserver.reserve(cartItems).block();
+
+            verify(transaction).setRollbackOnly();
+        }
+
+        @Test
+        @DisplayName("not enough stock")
+        void test3() {
+            var cartItems = List.of(TestDataFactory.createCartItem(1L, 2));
+            stubTransactions();
+            when(transactionManager.rollback(transaction)).thenReturn(Mono.empty());
+            when(itemRepository.reserveStockFromStripes(eq(new Long[]{1L}), any(Integer[].class), eq(new Integer[]{2})))
+                    .thenReturn(Mono.just(1L));
+            when(itemRepository.reserveStockFromAllStripes(new Long[]{1L}, new Integer[]{2})).thenReturn(Mono.just(1L));
+
+            assertThatExceptionOfType(OrderConflictException.class)
+                    .isThrownBy(() -> stockReserver.reserve(cartItems).block())
+                    .withMessageContaining("Not enough stock");
+        }
+
+        @Test
+        @DisplayName("empty cart")
+        void test4() {
+            stockReserver.reserve(List.of()).block();
+
+            verifyNoInteractions(itemRepository, transactionManager);
+        }
+
+        @Test
+        @DisplayName("quantities are taken in item id order")
+        void test5() {
+            var quantities = new LinkedHashMap<Long, Integer>();
+            quantities.put(5L, 500);
+            quantities.put(2L, 3);
+            stubTransactions();
+            when(itemRepository.reserveStockFromStripes(eq(new Long[]{2L, 5L}), any(Integer[].class), eq(new Integer[]{3, 500})))
+                    .thenReturn(Mono.just(0L));
+
+            stockReserver.reserveQuantities(quantities).block();
+
+            verify(itemRepository, never()).reserveStockFromAllStripes(any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("release")
+    class Release {
+
+        @Test
+        @DisplayName("returns quantities per item")
+        void test1() {
+            var cartItems = List.of(TestDataFactory.createCartItem(3L, 1), TestDataFactory.createCartItem(3L, 4));
+            stubTransactions();
+            when(itemRepository.releaseStock(new Long[]{3L}, new Integer[]{5})).thenReturn(Mono.just(1));
+
+            stockReserver.release(cartItems).block();
+
+            verify(itemRepository).releaseStock(new Long[]{3L}, new Integer[]{5});
+        }
+    }
+
+    private void stubTransactions() {
+        when(transactionManager.getReactiveTransaction(any())).thenReturn(Mono.just(transaction));
+        when(transactionManager.commit(transaction)).thenReturn(Mono.empty());
+    }
+}
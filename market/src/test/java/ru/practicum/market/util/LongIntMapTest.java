@@ -0,0 +1,53 @@
+package ru.practicum.market.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DisplayName("LongIntMap")
+class LongIntMapTest {
+
+    @Test
+    @DisplayName("puts, replaces and reads values")
+    void test1() {
+        var map = new LongIntMap(2);
+        map.put(1L, 2);
+        map.put(Long.MAX_VALUE, 3);
+        map.put(1L, 5);
+
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.getOrDefault(1L, 0)).isEqualTo(5);
+        assertThat(map.getOrDefault(Long.MAX_VALUE, 0)).isEqualTo(3);
+        assertThat(map.getOrDefault(7L, -1)).isEqualTo(-1);
+        assertThat(map.containsKey(7L)).isFalse();
+        assertThat(map.containsKey(0L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("grows beyond expected size")
+    void test2() {
+        var map = new LongIntMap(0);
+        for (int id = 1; id <= 1000; id++) {
+            map.put(id, id * 2);
+        }
+
+        assertThat(map.size()).isEqualTo(1000);
+        for (int id = 1; id <= 1000; id++) {
+            assertThat(map.getOrDefault(id, 0)).isEqualTo(id * 2);
+        }
+    }
+
+    @Test
+    @DisplayName("copies boxed map and rejects zero key")
+    void test3() {
+        var map = LongIntMap.copyOf(Map.of(3L, 1, 9L, 4));
+
+        assertThat(map).isEqualTo(LongIntMap.copyOf(Map.of(9L, 4, 3L, 1)));
+        assertThat(map.getOrDefault(9L, 0)).isEqualTo(4);
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> map.put(0L, 1));
+    }
+}
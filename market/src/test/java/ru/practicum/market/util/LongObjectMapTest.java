@@ -0,0 +1,36 @@
+package ru.practicum.market.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LongObjectMap")
+class LongObjectMapTest {
+
+    @Test
+    @DisplayName("indexes values by key")
+    void test1() {
+        var map = LongObjectMap.index(List.of("a", "bb", "ccc", "dd"), String::length);
+
+        assertThat(map.size()).isEqualTo(3);
+        assertThat(map.get(1L)).isEqualTo("a");
+        assertThat(map.get(2L)).isEqualTo("dd");
+        assertThat(map.get(4L)).isNull();
+        assertThat(map.get(0L)).isNull();
+    }
+
+    @Test
+    @DisplayName("grows beyond expected size")
+    void test2() {
+        var map = new LongObjectMap<Long>(1);
+        LongStream.rangeClosed(1, 1000).forEach(id -> map.put(id * 31, id));
+
+        assertThat(map.size()).isEqualTo(1000);
+        LongStream.rangeClosed(1, 1000).forEach(id -> assertThat(map.get(id * 31)).isEqualTo(id));
+        assertThat(map.get(32L)).isNull();
+    }
+}
@@ -9,6 +9,6 @@ import org.springframework.context.annotation.Bean;
 public class TestCacheConfig {
     @Bean
     CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("item", "items-page", "cart");
+        return new ConcurrentMapCacheManager("item", "items-page", "cart", "order");
     }
 }
@@ -34,7 +34,13 @@ public class TestDataFactory {
                 "title" + id,
                 "description" + id,
                 "imgPath" + id,
-                100 * id
+                100 * id,
+                "sku" + id,
+                null,
+                null,
+                null,
+                null,
+                null
         );
         item.setId(id);
         return item;
@@ -45,7 +51,13 @@ public class TestDataFactory {
                 "title" + counter,
                 "description" + counter,
                 "imgPath" + counter,
-                100L * counter);
+                100L * counter,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null);
     }
 
     public static CartItem createCartItem(long itemId, int quantity) {
@@ -81,8 +93,11 @@ public class TestDataFactory {
                 "title" + id,
                 "description" + id,
                 "imgPath" + id,
+                "imgPath" + id,
+                "imgPath" + id,
                 100 * id,
-                quantity
+                quantity,
+                null
         );
     }
 
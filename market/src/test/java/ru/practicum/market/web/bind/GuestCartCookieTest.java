@@ -0,0 +1,104 @@
+package ru.practicum.market.web.bind;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpCookie;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import ru.practicum.market.domain.exception.MarketBadRequestException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+@DisplayName("GuestCartCookie")
+class GuestCartCookieTest {
+
+    private final GuestCartCookie guestCartCookie = new GuestCartCookie();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(guestCartCookie, "secret", "secret");
+        ReflectionTestUtils.setField(guestCartCookie, "maxItems", 3);
+        ReflectionTestUtils.setField(guestCartCookie, "maxQuantity", 9);
+        ReflectionTestUtils.setField(guestCartCookie, "ttl", Duration.ofDays(7));
+    }
+
+    @Nested
+    @DisplayName("decode")
+    class Decode {
+
+        @Test
+        @DisplayName("reads encoded cart")
+        void test1() {
+            var cart = Map.of(5L, 1, 2L, 3);
+
+            assertThat(guestCartCookie.decode(guestCartCookie.encode(cart))).isEqualTo(cart);
+        }
+
+        @Test
+        @DisplayName("tampered cookie is an empty cart")
+        void test2() {
+            var value = guestCartCookie.encode(Map.of(1L, 1));
+            var forged = new GuestCartCookie();
+            ReflectionTestUtils.setField(forged, "secret", "other");
+            ReflectionTestUtils.setField(forged, "maxItems", 3);
+            ReflectionTestUtils.setField(forged, "maxQuantity", 9);
+
+            assertThat(guestCartCookie.decode(value.substring(0, value.indexOf('.')) + ".AAAA")).isEmpty();
+            assertThat(guestCartCookie.decode(forged.encode(Map.of(1L, 9)))).isEmpty();
+            assertThat(guestCartCookie.decode("not-a-cookie")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("cart over limits is an empty cart")
+        void test3() {
+            ReflectionTestUtils.setField(guestCartCookie, "maxItems", 10);
+            var value = guestCartCookie.encode(LongStream.rangeClosed(1, 4).boxed()
+                    .collect(Collectors.toMap(id -> id, id -> 1)));
+            ReflectionTestUtils.setField(guestCartCookie, "maxItems", 3);
+
+            assertThat(guestCartCookie.decode(value)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("write")
+    class Write {
+
+        @Test
+        @DisplayName("sets signed cookie")
+        void test1() {
+            var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart/items"));
+            var request = ServerRequest.create(exchange, List.of());
+
+            guestCartCookie.write(request, Map.of(1L, 2));
+
+            var cookie = exchange.getResponse().getCookies().getFirst(GuestCartCookie.COOKIE_NAME);
+            assertThat(cookie).isNotNull();
+            assertThat(cookie.isHttpOnly()).isTrue();
+            var next = MockServerWebExchange.from(MockServerHttpRequest.get("/items")
+                    .cookie(new HttpCookie(GuestCartCookie.COOKIE_NAME, cookie.getValue())));
+            assertThat(guestCartCookie.read(next)).isEqualTo(Map.of(1L, 2));
+        }
+
+        @Test
+        @DisplayName("too many items")
+        void test2() {
+            var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cart/items"));
+            var request = ServerRequest.create(exchange, List.of());
+
+            assertThatExceptionOfType(MarketBadRequestException.class)
+                    .isThrownBy(() -> guestCartCookie.write(request, Map.of(1L, 1, 2L, 1, 3L, 1, 4L, 1)));
+        }
+    }
+}
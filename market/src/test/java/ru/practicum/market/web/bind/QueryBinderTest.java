@@ -6,11 +6,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import ru.practicum.market.domain.exception.MarketBadRequestException;
+import ru.practicum.market.web.bind.model.AdminItemsQuery;
+import ru.practicum.market.web.dto.PriceRange;
 
+import java.util.List;
 import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.Mockito.when;
 
@@ -38,5 +43,89 @@ class QueryBinderTest {
 
 
         }
+
+        @Test
+        @DisplayName("price range")
+        void test2() {
+            when(request.queryParam("min")).thenReturn(Optional.of("100"));
+            when(request.queryParam("max")).thenReturn(Optional.of(" 500 "));
+            when(request.queryParams()).thenReturn(new LinkedMultiValueMap<>());
+
+            assertThat(binder.bindItemsQuery(request).price()).isEqualTo(new PriceRange(100L, 500L));
+        }
+
+        @Test
+        @DisplayName("blank price bounds are ignored")
+        void test3() {
+            when(request.queryParam("min")).thenReturn(Optional.of(""));
+            when(request.queryParam("max")).thenReturn(Optional.of("  "));
+            when(request.queryParams()).thenReturn(new LinkedMultiValueMap<>());
+
+            assertThat(binder.bindItemsQuery(request).price()).isEqualTo(PriceRange.ANY);
+        }
+
+        @Test
+        @DisplayName("min greater than max")
+        void test4() {
+            when(request.queryParam("min")).thenReturn(Optional.of("500"));
+            when(request.queryParam("max")).thenReturn(Optional.of("100"));
+
+            assertThatExceptionOfType(MarketBadRequestException.class)
+                    .isThrownBy(() -> binder.bindItemsQuery(request));
+        }
+
+        @Test
+        @DisplayName("negative price")
+        void test5() {
+            when(request.queryParam("min")).thenReturn(Optional.of("-1"));
+
+            assertThatExceptionOfType(MarketBadRequestException.class)
+                    .isThrownBy(() -> binder.bindItemsQuery(request));
+        }
+
+        @Test
+        @DisplayName("tags are normalized and deduplicated")
+        void test6() {
+            var params = new LinkedMultiValueMap<String, String>();
+            params.put("tag", List.of(" Sale ", "kitchen", "", "SALE"));
+            when(request.queryParams()).thenReturn(params);
+
+            assertThat(binder.bindItemsQuery(request).tags()).containsExactly("sale", "kitchen");
+        }
+
+        @Test
+        @DisplayName("too many tags")
+        void test7() {
+            var params = new LinkedMultiValueMap<String, String>();
+            params.put("tag", List.of("a", "b", "c", "d", "e", "f"));
+            when(request.queryParams()).thenReturn(params);
+
+            assertThatExceptionOfType(MarketBadRequestException.class)
+                    .isThrownBy(() -> binder.bindItemsQuery(request));
+        }
+    }
+
+    @Nested
+    @DisplayName("bindAdminItemsQuery")
+    class BindAdminItemsQuery {
+
+        @Test
+        @DisplayName("blank search and cursor")
+        void test1() {
+            when(request.queryParam("search")).thenReturn(Optional.of("  "));
+            when(request.queryParam("afterId")).thenReturn(Optional.of("42"));
+
+            assertThat(binder.bindAdminItemsQuery(request)).isEqualTo(new AdminItemsQuery(null, 42L));
+        }
+
+        @Test
+        @DisplayName("negative cursor")
+        void test2() {
+            when(request.queryParam("search")).thenReturn(Optional.empty());
+            when(request.queryParam("afterId")).thenReturn(Optional.of("-1"));
+
+            assertThatExceptionOfType(MarketBadRequestException.class)
+                    .isThrownBy(() -> binder.bindAdminItemsQuery(request));
+        }
     }
 }
@@ -9,6 +9,8 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.security.web.server.csrf.WebSessionServerCsrfTokenRepository;
@@ -21,12 +23,20 @@ import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.ImportJobNotFoundException;
 import ru.practicum.market.domain.exception.ItemUploadException;
 import ru.practicum.market.service.AdminService;
 import ru.practicum.market.service.ItemService;
+import ru.practicum.market.service.ImportJobService;
+import ru.practicum.market.service.converter.ItemFileFormat;
+import ru.practicum.market.service.importer.ImportJob;
+import ru.practicum.market.service.importer.ImportJobStatus;
 import ru.practicum.market.service.security.CurrentUserService;
 import ru.practicum.market.web.bind.QueryBinder;
+import ru.practicum.market.web.bind.model.AdminItemsQuery;
+import ru.practicum.market.web.dto.ImageArchiveEntryResponseDto;
 import ru.practicum.market.web.dto.ItemShortResponseDto;
+import ru.practicum.market.web.dto.enums.ImageArchiveEntryStatus;
 import ru.practicum.market.web.filter.RouteExceptionFilter;
 import ru.practicum.market.web.filter.RouteLoggingFilter;
 import ru.practicum.market.web.view.PageRenderHelper;
@@ -39,6 +49,7 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -60,6 +71,8 @@ import static org.mockito.Mockito.when;
 @DisplayName("AdminHandler")
 class AdminHandlerTest {
 
+    private static final String JOB_ID = "6f1c1a3e-2a3b-4c5d-8e9f-0a1b2c3d4e5f";
+
     @Autowired
     private WebTestClient webTestClient;
 
@@ -69,6 +82,9 @@ class AdminHandlerTest {
     @MockitoBean
     private AdminService adminService;
 
+    @MockitoBean
+    private ImportJobService importJobService;
+
     @MockitoBean
     private QueryBinder binder;
 
@@ -95,9 +111,16 @@ class AdminHandlerTest {
                     .path("/admin", builder -> builder
                             .GET("", adminHandler::getAdminPage)
                             .path("/items", items -> items
+                                    .GET("/lookup", adminHandler::lookupItems)
                                     .POST("/upload", adminHandler::uploadItems)
+                                    .GET("/export", adminHandler::exportItems)
+                                    .POST("/images", adminHandler::uploadImageArchive)
                                     .POST("/{id}/image", adminHandler::uploadImage)
                             )
+                            .path("/imports", importsBuilder -> importsBuilder
+                                    .GET("/{jobId}", adminHandler::getImportJob)
+                                    .POST("/{jobId}/cancel", adminHandler::cancelImportJob)
+                            )
                     )
                     .build()
                     .filter(logging.logging())
@@ -109,15 +132,19 @@ class AdminHandlerTest {
     @DisplayName("getAdminPage")
     void test1() {
         var items = List.of(new ItemShortResponseDto(1L, "tit1"), new ItemShortResponseDto(2L, "tit2"));
-        when(adminService.getAllItems()).thenReturn(Flux.fromIterable(items));
+        when(binder.bindAdminItemsQuery(any())).thenReturn(new AdminItemsQuery("tit", 0L));
+        when(adminService.findItems("tit", 0L, 50)).thenReturn(Flux.fromIterable(items));
 
         webTestClient.get()
-                .uri("/admin")
+                .uri("/admin?search=tit")
                 .exchange()
                 .expectStatus().isOk()
                 .expectHeader().contentType(MediaType.TEXT_HTML)
                 .expectBody(String.class)
-                .value(html -> assertThat(html).contains("tit1"));
+                .value(html -> assertThat(html)
+                        .contains("tit1", "tit2")
+                        .contains("data-id=\"2\"")
+                        .contains("data-page-size=\"50\""));
     }
 
     @Test
@@ -129,7 +156,8 @@ class AdminHandlerTest {
         builder.part("file", new FileSystemResource(filePath));
         MultiValueMap<String, org.springframework.http.HttpEntity<?>> multipartData = builder.build();
 
-        when(adminService.uploadItems(any(FilePart.class))).thenReturn(Mono.empty());
+        var job = ImportJob.queued(JOB_ID, "items.xlsx");
+        when(importJobService.submit(any(FilePart.class))).thenReturn(Mono.just(job));
 
         webTestClient.post()
                 .uri("/admin/items/upload")
@@ -139,11 +167,12 @@ class AdminHandlerTest {
                 .expectStatus().isSeeOther()
                 .expectHeader().value("Location", location -> {
                     var decoded = URLDecoder.decode(location, StandardCharsets.UTF_8);
-                    assertThat(decoded).contains("/admin?message=");
-                    assertThat(decoded).contains("Файл с предметами успешно загружен: items.xlsx");
+                    assertThat(decoded).contains("/admin?");
+                    assertThat(decoded).contains("job=" + JOB_ID);
+                    assertThat(decoded).contains("message=Импорт файла items.xlsx поставлен в очередь");
                 });
 
-        verify(adminService, times(1)).uploadItems(any(FilePart.class));
+        verify(importJobService, times(1)).submit(any(FilePart.class));
     }
 
     @Test
@@ -155,7 +184,7 @@ class AdminHandlerTest {
         builder.part("file", new FileSystemResource(filePath));
         MultiValueMap<String, org.springframework.http.HttpEntity<?>> multipartData = builder.build();
 
-        when(adminService.uploadItems(any(FilePart.class)))
+        when(importJobService.submit(any(FilePart.class)))
                 .thenReturn(Mono.error(new ItemUploadException("upload error")));
 
         webTestClient.post()
@@ -222,4 +251,127 @@ class AdminHandlerTest {
                     assertThat(decoded).contains("/admin?error=image error");
                 });
     }
+
+    @Test
+    @DisplayName("getImportJob ok")
+    void test6() {
+        var job = ImportJob.queued(JOB_ID, "items.xlsx");
+        when(binder.bindPathVariableJobId(any())).thenReturn(JOB_ID);
+        when(importJobService.getJob(JOB_ID)).thenReturn(Mono.just(job));
+
+        webTestClient.get()
+                .uri("/admin/imports/{jobId}", JOB_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(JOB_ID)
+                .jsonPath("$.status").isEqualTo("QUEUED")
+                .jsonPath("$.fileName").isEqualTo("items.xlsx");
+    }
+
+    @Test
+    @DisplayName("getImportJob not found")
+    void test7() {
+        when(binder.bindPathVariableJobId(any())).thenReturn(JOB_ID);
+        when(importJobService.getJob(JOB_ID)).thenReturn(Mono.error(new ImportJobNotFoundException(JOB_ID)));
+
+        webTestClient.get()
+                .uri("/admin/imports/{jobId}", JOB_ID)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("cancelImportJob ok")
+    void test8() {
+        var job = ImportJob.queued(JOB_ID, "items.xlsx").finish(ImportJobStatus.CANCELLED, null);
+        when(binder.bindPathVariableJobId(any())).thenReturn(JOB_ID);
+        when(importJobService.cancel(JOB_ID)).thenReturn(Mono.just(job));
+
+        webTestClient.post()
+                .uri("/admin/imports/{jobId}/cancel", JOB_ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("CANCELLED");
+
+        verify(importJobService, times(1)).cancel(JOB_ID);
+    }
+
+    @Test
+    @DisplayName("exportItems csv")
+    void test9() {
+        var csv = "Title,Description,Price,SKU\r\ntitle1,description1,100,sku1\r\n";
+        when(binder.bindParamExportFormat(any())).thenReturn(ItemFileFormat.CSV);
+        when(adminService.exportItems(eq(ItemFileFormat.CSV), any()))
+                .thenReturn(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(csv.getBytes(StandardCharsets.UTF_8))));
+
+        webTestClient.get()
+                .uri("/admin/items/export?format=csv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType("text/csv")
+                .expectHeader().value(HttpHeaders.CONTENT_DISPOSITION,
+                        disposition -> assertThat(disposition).contains("attachment").contains("items.csv"))
+                .expectBody(String.class)
+                .isEqualTo(csv);
+    }
+
+    @Test
+    @DisplayName("lookupItems")
+    void test10() {
+        when(binder.bindAdminItemsQuery(any())).thenReturn(new AdminItemsQuery("tit", 0L));
+        when(adminService.findItems("tit", 0L, 10)).thenReturn(Flux.just(new ItemShortResponseDto(1L, "tit1")));
+
+        webTestClient.get()
+                .uri("/admin/items/lookup?search=tit")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(1)
+                .jsonPath("$[0].title").isEqualTo("tit1");
+    }
+
+    @Test
+    @DisplayName("uploadImageArchive returns report")
+    void test11() throws Exception {
+        var filePath = tempDir.resolve("images.zip");
+        Files.write(filePath, new byte[]{1, 2, 3});
+        var builder = new org.springframework.http.client.MultipartBodyBuilder();
+        builder.part("file", new FileSystemResource(filePath));
+
+        when(adminService.uploadImageArchive(any(FilePart.class))).thenReturn(Flux.just(
+                new ImageArchiveEntryResponseDto("1.png", 1L, ImageArchiveEntryStatus.ATTACHED, null),
+                new ImageArchiveEntryResponseDto("x.png", null, ImageArchiveEntryStatus.NOT_FOUND, "Item with id or SKU 'x' not found")));
+
+        webTestClient.post()
+                .uri("/admin/items/images")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].itemId").isEqualTo(1)
+                .jsonPath("$[0].status").isEqualTo("ATTACHED")
+                .jsonPath("$[1].status").isEqualTo("NOT_FOUND");
+    }
+
+    @Test
+    @DisplayName("uploadImageArchive without file")
+    void test12() {
+        var builder = new org.springframework.http.client.MultipartBodyBuilder();
+        builder.part("other", "value");
+
+        webTestClient.post()
+                .uri("/admin/items/images")
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(builder.build()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
 }
@@ -13,18 +13,23 @@ import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 import ru.practicum.market.service.ItemService;
 import ru.practicum.market.service.security.CurrentUserService;
 import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.bind.GuestCartCookie;
 import ru.practicum.market.web.bind.QueryBinder;
+import ru.practicum.market.web.dto.CartAvailabilityResponseDto;
 import ru.practicum.market.web.dto.CartResponseDto;
 import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.filter.RouteExceptionFilter;
 import ru.practicum.market.web.filter.RouteLoggingFilter;
 import ru.practicum.market.web.view.PageRenderHelper;
 
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -61,6 +66,9 @@ class CartHandlerTest {
     @MockitoBean
     private CurrentUserService userService;
 
+    @MockitoBean
+    private GuestCartCookie guestCartCookie;
+
     @TestConfiguration
     static class TestRoutes {
         @Bean
@@ -79,6 +87,7 @@ class CartHandlerTest {
                             .GET("", cartHandler::getCart)
                             .POST("", cartHandler::updateItemsCountInCart)
                     )
+                    .GET("/cart/availability", cartHandler::getCartAvailability)
                     .build()
                     .filter(logging.logging())
                     .filter(errors.errors());
@@ -89,10 +98,10 @@ class CartHandlerTest {
     @DisplayName("getCart")
     void test1() {
         var items = TestDataFactory.createItemResponseDtos(2);
-        var cart = new CartResponseDto(items, 500L, true);
+        var cart = new CartResponseDto(items, 500L, false);
 
-        when(userService.currentUserId(any())).thenReturn(Mono.just(USER_ID));
-        when(itemService.getCart(USER_ID)).thenReturn(Mono.just(cart));
+        when(userService.currentUserIdIfAuthenticated(any())).thenReturn(Mono.just(USER_ID));
+        when(itemService.getCartWithoutPayments(USER_ID)).thenReturn(Mono.just(cart));
 
         webTestClient.get()
                 .uri("/cart/items")
@@ -100,7 +109,9 @@ class CartHandlerTest {
                 .expectStatus().isOk()
                 .expectHeader().contentType(MediaType.TEXT_HTML)
                 .expectBody(String.class)
-                .value(html -> assertThat(html).contains("title1"));
+                .value(html -> assertThat(html).contains("title1", "/cart/availability"));
+
+        verify(itemService, never()).getCartAvailability(anyLong());
     }
 
     @Test
@@ -109,13 +120,13 @@ class CartHandlerTest {
         var action = CartAction.PLUS;
         var itemId = 5L;
         var items = TestDataFactory.createItemResponseDtos(3);
-        var cart = new CartResponseDto(items, 800L, true);
+        var cart = new CartResponseDto(items, 800L, false);
 
         when(binder.bindParamId(any())).thenReturn(itemId);
         when(binder.bindParamAction(any())).thenReturn(action);
-        when(userService.currentUserId(any())).thenReturn(Mono.just(USER_ID));
+        when(userService.currentUserIdIfAuthenticated(any())).thenReturn(Mono.just(USER_ID));
         when(itemService.updateItemsCountInCart(USER_ID, itemId, action)).thenReturn(Mono.empty());
-        when(itemService.getCart(USER_ID)).thenReturn(Mono.just(cart));
+        when(itemService.getCartWithoutPayments(USER_ID)).thenReturn(Mono.just(cart));
 
         webTestClient.post()
                 .uri("/cart/items")
@@ -126,6 +137,71 @@ class CartHandlerTest {
                 .value(html -> assertThat(html).contains("title1"));
 
         verify(itemService, times(1)).updateItemsCountInCart(eq(USER_ID), anyLong(), any());
-        verify(itemService, times(1)).getCart(USER_ID);
+        verify(itemService, times(1)).getCartWithoutPayments(USER_ID);
+    }
+
+    @Test
+    @DisplayName("getCartAvailability")
+    void test3() {
+        when(userService.currentUserId(any())).thenReturn(Mono.just(USER_ID));
+        when(itemService.getCartAvailability(USER_ID))
+                .thenReturn(Mono.just(new CartAvailabilityResponseDto(800L, true, true)));
+
+        webTestClient.get()
+                .uri("/cart/availability")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(800)
+                .jsonPath("$.isActive").isEqualTo(true)
+                .jsonPath("$.paymentsAvailable").isEqualTo(true);
+    }
+
+    @Test
+    @DisplayName("getCart for guest reads cookie")
+    void test4() {
+        var guestCart = Map.of(1L, 2);
+        var cart = new CartResponseDto(TestDataFactory.createItemResponseDtos(1), 200L, false);
+
+        when(userService.currentUserIdIfAuthenticated(any())).thenReturn(Mono.empty());
+        when(guestCartCookie.read(any(ServerRequest.class))).thenReturn(guestCart);
+        when(itemService.getGuestCart(guestCart)).thenReturn(Mono.just(cart));
+
+        webTestClient.get()
+                .uri("/cart/items")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(html -> assertThat(html).contains("title1", "/login").doesNotContain("/cart/availability"));
+
+        verify(itemService, never()).getCartWithoutPayments(anyLong());
+    }
+
+    @Test
+    @DisplayName("updateItemsCountInCart for guest writes cookie")
+    void test5() {
+        var action = CartAction.MINUS;
+        var itemId = 1L;
+        var guestCart = Map.of(itemId, 2);
+        var updated = Map.of(itemId, 1);
+        var cart = new CartResponseDto(TestDataFactory.createItemResponseDtos(1), 100L, false);
+
+        when(binder.bindParamId(any())).thenReturn(itemId);
+        when(binder.bindParamAction(any())).thenReturn(action);
+        when(userService.currentUserIdIfAuthenticated(any())).thenReturn(Mono.empty());
+        when(guestCartCookie.read(any(ServerRequest.class))).thenReturn(guestCart);
+        when(itemService.updateGuestCart(guestCart, itemId, action)).thenReturn(Mono.just(updated));
+        when(itemService.getGuestCart(updated)).thenReturn(Mono.just(cart));
+
+        webTestClient.post()
+                .uri("/cart/items")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .value(html -> assertThat(html).contains("title1"));
+
+        verify(guestCartCookie).write(any(ServerRequest.class), eq(updated));
+        verify(itemService, never()).updateItemsCountInCart(anyLong(), anyLong(), any());
     }
 }
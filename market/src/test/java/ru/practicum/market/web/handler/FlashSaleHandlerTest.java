@@ -0,0 +1,157 @@
+package ru.practicum.market.web.handler;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.server.csrf.WebSessionServerCsrfTokenRepository;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import ru.practicum.market.domain.exception.OrderConflictException;
+import ru.practicum.market.service.FlashSaleService;
+import ru.practicum.market.service.ItemService;
+import ru.practicum.market.service.flashsale.FlashSaleClaim;
+import ru.practicum.market.service.security.CurrentUserService;
+import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.bind.QueryBinder;
+import ru.practicum.market.web.filter.RouteExceptionFilter;
+import ru.practicum.market.web.filter.RouteLoggingFilter;
+import ru.practicum.market.web.view.PageRenderHelper;
+
+import java.time.Instant;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(excludeAutoConfiguration = {
+        org.springframework.boot.autoconfigure.security.reactive.ReactiveSecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.reactive.ReactiveUserDetailsServiceAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.oauth2.client.reactive.ReactiveOAuth2ClientAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.oauth2.client.reactive.ReactiveOAuth2ClientWebSecurityAutoConfiguration.class,
+        org.springframework.boot.autoconfigure.security.oauth2.resource.reactive.ReactiveOAuth2ResourceServerAutoConfiguration.class
+})
+@Import({
+        FlashSaleHandlerTest.TestRoutes.class,
+        FlashSaleHandler.class,
+        RouteLoggingFilter.class,
+        RouteExceptionFilter.class,
+        PageRenderHelper.class
+})
+@DisplayName("FlashSaleHandler")
+class FlashSaleHandlerTest {
+
+    private static final long USER_ID = TestDataFactory.USER_ID;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private FlashSaleService flashSaleService;
+
+    @MockitoBean
+    private ItemService itemService;
+
+    @MockitoBean
+    private QueryBinder binder;
+
+    @MockitoBean
+    private CurrentUserService userService;
+
+    @TestConfiguration
+    static class TestRoutes {
+        @Bean
+        WebSessionServerCsrfTokenRepository csrfTokenRepository() {
+            return new WebSessionServerCsrfTokenRepository();
+        }
+
+        @Bean
+        RouterFunction<ServerResponse> routes(
+                FlashSaleHandler flashSaleHandler,
+                RouteLoggingFilter logging,
+                RouteExceptionFilter errors
+        ) {
+            return RouterFunctions.route()
+                    .POST("/flash-sales/{id}/claims", flashSaleHandler::claim)
+                    .path("/admin/flash-sales/{id}", builder -> builder
+                            .POST("", flashSaleHandler::start)
+                            .DELETE("", flashSaleHandler::stop)
+                    )
+                    .build()
+                    .filter(logging.logging())
+                    .filter(errors.errors());
+        }
+    }
+
+    @Test
+    @DisplayName("claim")
+    void test1() {
+        var expiresAt = Instant.parse("2026-10-19T12:00:00Z");
+
+        when(binder.bindPathVariableId(any())).thenReturn(5L);
+        when(binder.bindParamQuantity(any())).thenReturn(2);
+        when(userService.currentUserId(any())).thenReturn(Mono.just(USER_ID));
+        when(flashSaleService.claim(USER_ID, 5L, 2)).thenReturn(Mono.just(new FlashSaleClaim(5L, 2, expiresAt)));
+
+        webTestClient.post()
+                .uri("/flash-sales/5/claims?quantity=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.itemId").isEqualTo(5)
+                .jsonPath("$.quantity").isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("claim sold out")
+    void test2() {
+        when(binder.bindPathVariableId(any())).thenReturn(5L);
+        when(binder.bindParamQuantity(any())).thenReturn(1);
+        when(userService.currentUserId(any())).thenReturn(Mono.just(USER_ID));
+        when(flashSaleService.claim(USER_ID, 5L, 1))
+                .thenReturn(Mono.error(new OrderConflictException("Flash sale of item 5 is sold out.")));
+
+        webTestClient.post()
+                .uri("/flash-sales/5/claims")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    @DisplayName("start")
+    void test3() {
+        when(binder.bindPathVariableId(any())).thenReturn(5L);
+        when(binder.bindParamUnits(any())).thenReturn(500);
+        when(flashSaleService.start(5L, 500)).thenReturn(Mono.empty());
+
+        webTestClient.post()
+                .uri("/admin/flash-sales/5?units=500")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verify(flashSaleService).start(5L, 500);
+    }
+
+    @Test
+    @DisplayName("stop")
+    void test4() {
+        when(binder.bindPathVariableId(any())).thenReturn(5L);
+        when(flashSaleService.stop(5L)).thenReturn(Mono.empty());
+
+        webTestClient.delete()
+                .uri("/admin/flash-sales/5")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        verify(flashSaleService).stop(5L);
+    }
+}
@@ -22,10 +22,12 @@ import ru.practicum.market.domain.exception.ItemNotFoundException;
 import ru.practicum.market.service.ItemService;
 import ru.practicum.market.service.security.CurrentUserService;
 import ru.practicum.market.util.TestDataFactory;
+import ru.practicum.market.web.bind.GuestCartCookie;
 import ru.practicum.market.web.bind.QueryBinder;
 import ru.practicum.market.web.bind.model.ItemsQuery;
 import ru.practicum.market.web.dto.ItemsResponseDto;
 import ru.practicum.market.web.dto.Paging;
+import ru.practicum.market.web.dto.PriceRange;
 import ru.practicum.market.web.dto.enums.CartAction;
 import ru.practicum.market.web.dto.enums.SortMethod;
 import ru.practicum.market.web.filter.RouteExceptionFilter;
@@ -34,9 +36,13 @@ import ru.practicum.market.web.view.PageRenderHelper;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(excludeAutoConfiguration = {
@@ -70,6 +76,9 @@ class ItemHandlerTest {
     @MockitoBean
     private CurrentUserService userService;
 
+    @MockitoBean
+    private GuestCartCookie guestCartCookie;
+
     @TestConfiguration
     static class TestRoutes {
         @Bean
@@ -111,12 +120,12 @@ class ItemHandlerTest {
 
             var items = TestDataFactory.createItemResponseDtos(3);
             var paging = new Paging(pageSize, pageNumber, false, false);
-            var itemsResponseDto = new ItemsResponseDto(List.of(items), search, sort, paging);
+            var itemsResponseDto = new ItemsResponseDto(List.of(items), search, PriceRange.ANY, List.of(), sort, paging, List.of(), List.of());
 
             when(binder.bindItemsQuery(any(ServerRequest.class)))
-                    .thenReturn(new ItemsQuery(search, sort, pageNumber, pageSize));
+                    .thenReturn(new ItemsQuery(search, PriceRange.ANY, List.of(), sort, pageNumber, pageSize));
             when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.empty());
-            when(itemService.getItems(Optional.empty(), search, sort, pageNumber, pageSize))
+            when(itemService.getItems(Optional.empty(), Map.of(), search, PriceRange.ANY, List.of(), sort, pageNumber, pageSize))
                     .thenReturn(Mono.just(itemsResponseDto));
 
             webTestClient.get()
@@ -139,12 +148,12 @@ class ItemHandlerTest {
             var pageSize = 5;
 
             var paging = new Paging(pageSize, pageNumber, false, false);
-            var itemsResponseDto = new ItemsResponseDto(Collections.emptyList(), search, sort, paging);
+            var itemsResponseDto = new ItemsResponseDto(Collections.emptyList(), search, PriceRange.ANY, List.of(), sort, paging, List.of(), List.of());
 
             when(binder.bindItemsQuery(any(ServerRequest.class)))
-                    .thenReturn(new ItemsQuery(search, sort, pageNumber, pageSize));
+                    .thenReturn(new ItemsQuery(search, PriceRange.ANY, List.of(), sort, pageNumber, pageSize));
             when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
-            when(itemService.getItems(Optional.of(USER_ID), search, sort, pageNumber, pageSize))
+            when(itemService.getItems(Optional.of(USER_ID), Map.of(), search, PriceRange.ANY, List.of(), sort, pageNumber, pageSize))
                     .thenReturn(Mono.just(itemsResponseDto));
 
             webTestClient.get()
@@ -174,7 +183,9 @@ class ItemHandlerTest {
 
             when(binder.bindPathVariableId(any(ServerRequest.class))).thenReturn(itemId);
             when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.empty());
-            when(itemService.getItem(Optional.empty(), itemId)).thenReturn(Mono.just(itemResponseDto));
+            when(itemService.getItem(Optional.empty(), Map.of(), itemId)).thenReturn(Mono.just(itemResponseDto));
+            when(itemService.getRelatedItems(itemId))
+                    .thenReturn(Mono.just(List.of(TestDataFactory.createItemResponseDto(2L, 0))));
 
             webTestClient.get()
                     .uri("/items/{itemId}", itemId)
@@ -184,6 +195,8 @@ class ItemHandlerTest {
                     .expectBody(String.class)
                     .value(html -> {
                         assert html.contains("title" + itemId);
+                        assert html.contains("С этим товаром покупают");
+                        assert html.contains("/items/2");
                     });
         }
 
@@ -194,7 +207,8 @@ class ItemHandlerTest {
 
             when(binder.bindPathVariableId(any(ServerRequest.class))).thenReturn(itemId);
             when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
-            when(itemService.getItem(Optional.of(USER_ID), itemId))
+            when(itemService.getRelatedItems(itemId)).thenReturn(Mono.just(List.of()));
+            when(itemService.getItem(Optional.of(USER_ID), Map.of(), itemId))
                     .thenReturn(Mono.error(new ItemNotFoundException(
                             itemId,
                             "Item with id = %d not found.".formatted(itemId)
@@ -229,8 +243,8 @@ class ItemHandlerTest {
             when(binder.bindParamId(any(ServerRequest.class))).thenReturn(itemId);
             when(binder.bindParamAction(any(ServerRequest.class))).thenReturn(action);
             when(binder.bindItemsQuery(any(ServerRequest.class)))
-                    .thenReturn(new ItemsQuery(search, sort, pageNumber, pageSize));
-            when(userService.currentUserId(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
+                    .thenReturn(new ItemsQuery(search, PriceRange.ANY, List.of("sale", "для дома"), sort, pageNumber, pageSize));
+            when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
             when(itemService.updateItemsCountInCart(USER_ID, itemId, action)).thenReturn(Mono.empty());
 
             webTestClient.post()
@@ -246,7 +260,7 @@ class ItemHandlerTest {
                     .exchange()
                     .expectStatus().is3xxRedirection()
                     .expectHeader().location(
-                            "/items?search=%s&sort=%s&pageNumber=%d&pageSize=%d"
+                            "/items?search=%s&sort=%s&pageNumber=%d&pageSize=%d&tag=sale&tag=%%D0%%B4%%D0%%BB%%D1%%8F%%20%%D0%%B4%%D0%%BE%%D0%%BC%%D0%%B0"
                                     .formatted(search, sort, pageNumber, pageSize)
                     );
         }
@@ -270,8 +284,8 @@ class ItemHandlerTest {
             when(binder.bindParamId(any(ServerRequest.class))).thenReturn(itemId);
             when(binder.bindParamAction(any(ServerRequest.class))).thenReturn(action);
             when(binder.bindItemsQuery(any(ServerRequest.class)))
-                    .thenReturn(new ItemsQuery(search, sort, pageNumber, pageSize));
-            when(userService.currentUserId(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
+                    .thenReturn(new ItemsQuery(search, PriceRange.ANY, List.of(), sort, pageNumber, pageSize));
+            when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
 
             webTestClient.post()
                     .uri(uriBuilder -> uriBuilder
@@ -291,6 +305,34 @@ class ItemHandlerTest {
                         assert html.contains(String.valueOf(itemId));
                     });
         }
+
+        @Test
+        @DisplayName("guest cart is written to cookie")
+        void test3() {
+            var itemId = 1L;
+            var action = CartAction.PLUS;
+            var guestCart = Map.of(itemId, 1);
+
+            when(binder.bindParamId(any(ServerRequest.class))).thenReturn(itemId);
+            when(binder.bindParamAction(any(ServerRequest.class))).thenReturn(action);
+            when(binder.bindItemsQuery(any(ServerRequest.class)))
+                    .thenReturn(new ItemsQuery("", PriceRange.ANY, List.of(), SortMethod.NO, 1, 5));
+            when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.empty());
+            when(guestCartCookie.read(any(ServerRequest.class))).thenReturn(Map.of());
+            when(itemService.updateGuestCart(Map.of(), itemId, action)).thenReturn(Mono.just(guestCart));
+
+            webTestClient.post()
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/items")
+                            .queryParam("id", itemId)
+                            .queryParam("action", action.name())
+                            .build())
+                    .exchange()
+                    .expectStatus().is3xxRedirection();
+
+            verify(guestCartCookie).write(any(ServerRequest.class), eq(guestCart));
+            verify(itemService, never()).updateItemsCountInCart(any(Long.class), any(Long.class), any());
+        }
     }
 
     @Nested
@@ -307,9 +349,10 @@ class ItemHandlerTest {
 
             when(binder.bindPathVariableId(any(ServerRequest.class))).thenReturn(itemId);
             when(binder.bindParamAction(any(ServerRequest.class))).thenReturn(action);
-            when(userService.currentUserId(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
+            when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
             when(itemService.updateItemsCountInCart(USER_ID, itemId, action)).thenReturn(Mono.empty());
-            when(itemService.getItem(Optional.of(USER_ID), itemId)).thenReturn(Mono.just(itemResponseDto));
+            when(itemService.getItem(Optional.of(USER_ID), Map.of(), itemId)).thenReturn(Mono.just(itemResponseDto));
+            when(itemService.getRelatedItems(itemId)).thenReturn(Mono.just(List.of()));
 
             webTestClient.post()
                     .uri(uriBuilder -> uriBuilder
@@ -339,7 +382,7 @@ class ItemHandlerTest {
 
             when(binder.bindPathVariableId(any(ServerRequest.class))).thenReturn(itemId);
             when(binder.bindParamAction(any(ServerRequest.class))).thenReturn(action);
-            when(userService.currentUserId(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
+            when(userService.currentUserIdIfAuthenticated(any(ServerRequest.class))).thenReturn(Mono.just(USER_ID));
 
             webTestClient.post()
                     .uri(uriBuilder -> uriBuilder
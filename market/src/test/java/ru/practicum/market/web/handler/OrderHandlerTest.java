@@ -84,6 +84,7 @@ class OrderHandlerTest {
                     .path("/orders", builder -> builder
                             .GET("", orderHandler::getOrders)
                             .GET("/{id}", orderHandler::getOrder)
+                            .POST("/{id}/reorder", orderHandler::reorder)
                     )
                     .POST("/buy", orderHandler::createOrder)
                     .build()
@@ -166,4 +167,22 @@ class OrderHandlerTest {
                 .expectBody(String.class)
                 .value(html -> assertThat(html).contains("Не удалось выполнить оплату"));
     }
+
+    @Test
+    @DisplayName("reorder")
+    void test5() {
+        var orderId = 2L;
+
+        when(binder.bindPathVariableId(any())).thenReturn(orderId);
+        when(userService.currentUserId(any())).thenReturn(Mono.just(USER_ID));
+        when(orderService.reorder(USER_ID, orderId)).thenReturn(Mono.just(3));
+
+        webTestClient.post()
+                .uri("/orders/{id}/reorder", orderId)
+                .exchange()
+                .expectStatus().isSeeOther()
+                .expectHeader().valueEquals("Location", "/cart/items");
+
+        verify(orderService, times(1)).reorder(USER_ID, orderId);
+    }
 }